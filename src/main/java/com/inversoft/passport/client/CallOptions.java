@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client;
+
+import com.inversoft.json.ToString;
+import com.inversoft.passport.client.resilience.Priority;
+
+/**
+ * The deadline, timeouts and priority of the calls made by a {@link PassportClient}. This is immutable, so a client can
+ * be given different options for a single call using {@link PassportClient#withCallOptions(CallOptions)} without
+ * affecting any other thread:
+ * <pre>
+ *   client.withCallOptions(client.callOptions().withDeadline(300)).login(request);
+ * </pre>
+ *
+ * @author Brian Pontarelli
+ */
+public final class CallOptions {
+  /**
+   * The options of a new client: two second timeouts, no deadline and a priority based on the endpoint.
+   */
+  public static final CallOptions DEFAULT = new CallOptions(2000, 0, null, 2000);
+
+  /**
+   * How long opening a connection to Passport can take.
+   */
+  public final int connectTimeoutInMillis;
+
+  /**
+   * How long the call can take in total, including waiting for a concurrency limit, retries and hedges. The timeouts of
+   * each attempt are cut down to fit in what is left. Zero means no deadline.
+   */
+  public final long deadlineInMillis;
+
+  /**
+   * The priority of the call, or null to use the priority of its endpoint.
+   */
+  public final Priority priority;
+
+  /**
+   * How long reading the response from Passport can take.
+   */
+  public final int readTimeoutInMillis;
+
+  private CallOptions(int connectTimeoutInMillis, long deadlineInMillis, Priority priority, int readTimeoutInMillis) {
+    this.connectTimeoutInMillis = connectTimeoutInMillis;
+    this.deadlineInMillis = deadlineInMillis;
+    this.priority = priority;
+    this.readTimeoutInMillis = readTimeoutInMillis;
+  }
+
+  @Override
+  public String toString() {
+    return ToString.toString(this);
+  }
+
+  /**
+   * @param connectTimeoutInMillis The connect timeout.
+   * @return A copy of these options with the given connect timeout.
+   */
+  public CallOptions withConnectTimeout(int connectTimeoutInMillis) {
+    return new CallOptions(connectTimeoutInMillis, deadlineInMillis, priority, readTimeoutInMillis);
+  }
+
+  /**
+   * @param deadlineInMillis The deadline relative to the start of each call, or zero for none.
+   * @return A copy of these options with the given deadline.
+   */
+  public CallOptions withDeadline(long deadlineInMillis) {
+    return new CallOptions(connectTimeoutInMillis, deadlineInMillis, priority, readTimeoutInMillis);
+  }
+
+  /**
+   * @param priority The priority or null to use the priority of the endpoint.
+   * @return A copy of these options with the given priority.
+   */
+  public CallOptions withPriority(Priority priority) {
+    return new CallOptions(connectTimeoutInMillis, deadlineInMillis, priority, readTimeoutInMillis);
+  }
+
+  /**
+   * @param readTimeoutInMillis The read timeout.
+   * @return A copy of these options with the given read timeout.
+   */
+  public CallOptions withReadTimeout(int readTimeoutInMillis) {
+    return new CallOptions(connectTimeoutInMillis, deadlineInMillis, priority, readTimeoutInMillis);
+  }
+}
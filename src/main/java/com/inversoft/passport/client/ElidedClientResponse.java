@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client;
+
+import com.inversoft.rest.ClientResponse;
+import com.inversoft.rest.RESTClient.HTTPMethod;
+
+/**
+ * The response returned for an update that was skipped by the {@link WriteElisionCache} because it would not have
+ * changed anything. The status is 200 so that it is handled like any other successful update. The success response is
+ * built from the request, since that is what Passport last accepted, and therefore doesn't contain the fields that only
+ * Passport sets (such as the insert instant).
+ *
+ * @author Brian Pontarelli
+ */
+public class ElidedClientResponse<T, U> extends ClientResponse<T, U> {
+  public ElidedClientResponse(T successResponse) {
+    this.method = HTTPMethod.PUT;
+    this.status = 200;
+    this.successResponse = successResponse;
+  }
+
+  /**
+   * @param response The response.
+   * @return True if the response is for an update that was not sent to Passport.
+   */
+  public static boolean wasElided(ClientResponse<?, ?> response) {
+    return response instanceof ElidedClientResponse;
+  }
+}
@@ -18,23 +18,39 @@ package com.inversoft.passport.client;
 import java.util.Collection;
 import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.MapperFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.inversoft.error.Errors;
 import com.inversoft.json.JacksonModule;
+import com.inversoft.passport.client.json.InternTable;
+import com.inversoft.passport.client.json.InterningModule;
+import com.inversoft.passport.client.resilience.CircuitBreakers;
+import com.inversoft.passport.client.resilience.ConcurrencyLimits;
+import com.inversoft.passport.client.resilience.HedgingPolicy;
+import com.inversoft.passport.client.resilience.Priority;
+import com.inversoft.passport.client.resilience.RequestRejectedException;
+import com.inversoft.passport.client.resilience.RequestScheduler;
+import com.inversoft.passport.client.resilience.RetryPolicy;
+import com.inversoft.passport.client.routing.BackendPool;
 import com.inversoft.passport.domain.AuditLog;
+import com.inversoft.passport.domain.User;
 import com.inversoft.passport.domain.api.ApplicationRequest;
 import com.inversoft.passport.domain.api.ApplicationResponse;
 import com.inversoft.passport.domain.api.AuditLogRequest;
 import com.inversoft.passport.domain.api.AuditLogResponse;
 import com.inversoft.passport.domain.api.EmailTemplateRequest;
 import com.inversoft.passport.domain.api.EmailTemplateResponse;
+import com.inversoft.passport.domain.api.LoginPreventedErrors;
 import com.inversoft.passport.domain.api.LoginRequest;
 import com.inversoft.passport.domain.api.LoginResponse;
 import com.inversoft.passport.domain.api.PreviewRequest;
@@ -106,15 +122,34 @@ public class PassportClient {
 
   private final String baseURL;
 
-  public int connectTimeout = 2000;
+  private ExecutorService executor;
 
-  public int readTimeout = 2000;
+  private RequestPipeline pipeline = new RequestPipeline();
+
+  private ResponseDeduplicationCache responseDeduplicationCache;
+
+  private ObjectMapper responseObjectMapper = objectMapper;
+
+  private WriteElisionCache writeElisionCache;
+
+  /**
+   * @deprecated This is shared by every thread that uses the client. Use {@link #withCallOptions(CallOptions)} instead.
+   * When it is set it wins over the timeout of the call options of this client, and it is folded into
+   * {@link #callOptions()} and the call options of the copies made from this client afterwards.
+   */
+  @Deprecated
+  public int connectTimeout = CallOptions.DEFAULT.connectTimeoutInMillis;
+
+  /**
+   * @deprecated This is shared by every thread that uses the client. Use {@link #withCallOptions(CallOptions)} instead.
+   * When it is set it wins over the timeout of the call options of this client, and it is folded into
+   * {@link #callOptions()} and the call options of the copies made from this client afterwards.
+   */
+  @Deprecated
+  public int readTimeout = CallOptions.DEFAULT.readTimeoutInMillis;
 
   public PassportClient(String apiKey, String baseURL) {
-    this.apiKey = apiKey;
-    this.baseURL = baseURL;
-    this.errorConsumer = null;
-    this.successFunction = null;
+    this(apiKey, baseURL, null, null);
   }
 
   public PassportClient(String apiKey, String baseURL, Function<ClientResponse<?, ?>, ?> successFunction,
@@ -139,11 +174,14 @@ public class PassportClient {
    * IOException.
    */
   public ClientResponse<ActionResponse, Errors> actionUser(UUID actioneeUserId, ActionRequest request) {
-    return start(ActionResponse.class).uri("/api/user/action")
-                                      .urlSegment(actioneeUserId)
-                                      .bodyHandler(new JSONBodyHandler(request, objectMapper))
-                                      .post()
-                                      .go();
+    ClientResponse<ActionResponse, Errors> response =
+        start(ActionResponse.class).uri("/api/user/action")
+                                   .urlSegment(actioneeUserId)
+                                   .bodyHandler(new JSONBodyHandler(request, objectMapper))
+                                   .post()
+                                   .go();
+    invalidate(cache -> cache.invalidateUser(actioneeUserId));
+    return response;
   }
 
   /**
@@ -159,6 +197,29 @@ public class PassportClient {
     return handle(actionUser(actioneeUserId, request));
   }
 
+  /**
+   * Makes a call of this client on the executor of the client, which by default starts a virtual thread for each call
+   * when the JVM supports them (see {@link VirtualThreads}). This lets a process have a very large number of calls in
+   * flight, such as 100,000 concurrent logins, without a platform thread for each:
+   * <pre>
+   *   CompletableFuture&lt;ClientResponse&lt;LoginResponse, Errors&gt;&gt; future = client.async(c -&gt; c.login(request));
+   * </pre>
+   *
+   * @param call The call, which is given this client.
+   * @return A future that completes with the result of the call.
+   */
+  public <T> CompletableFuture<T> async(Function<PassportClient, T> call) {
+    ExecutorService executor = this.executor != null ? this.executor : VirtualThreads.executor();
+    return CompletableFuture.supplyAsync(() -> call.apply(this), executor);
+  }
+
+  /**
+   * @return The options of the calls made by this client, with any timeouts set using the deprecated fields.
+   */
+  public CallOptions callOptions() {
+    return foldedCallOptions();
+  }
+
   /**
    * Cancels the user action.
    *
@@ -170,11 +231,14 @@ public class PassportClient {
    * IOException.
    */
   public ClientResponse<ActionResponse, Errors> cancelAction(UUID actionId, ActionRequest request) {
-    return start(ActionResponse.class).uri("/api/user/action")
-                                      .urlSegment(actionId)
-                                      .bodyHandler(new JSONBodyHandler(request, objectMapper))
-                                      .delete()
-                                      .go();
+    ClientResponse<ActionResponse, Errors> response =
+        start(ActionResponse.class).uri("/api/user/action")
+                                   .urlSegment(actionId)
+                                   .bodyHandler(new JSONBodyHandler(request, objectMapper))
+                                   .delete()
+                                   .go();
+    invalidate(WriteElisionCache::invalidateUsers);
+    return response;
   }
 
   /**
@@ -320,12 +384,15 @@ public class PassportClient {
   public ClientResponse<ApplicationResponse, Errors> createApplicationRole(UUID applicationId,
                                                                            ApplicationRequest request) {
     Objects.requireNonNull(applicationId);
-    return start(ApplicationResponse.class).uri("/api/application")
-                                           .urlSegment(applicationId)
-                                           .urlSegment("role")
-                                           .bodyHandler(new JSONBodyHandler(request, objectMapper))
-                                           .post()
-                                           .go();
+    ClientResponse<ApplicationResponse, Errors> response =
+        start(ApplicationResponse.class).uri("/api/application")
+                                        .urlSegment(applicationId)
+                                        .urlSegment("role")
+                                        .bodyHandler(new JSONBodyHandler(request, objectMapper))
+                                        .post()
+                                        .go();
+    invalidate(cache -> cache.invalidateApplication(applicationId));
+    return response;
   }
 
   /**
@@ -570,10 +637,13 @@ public class PassportClient {
    * Exception, which could be an IOException.
    */
   public ClientResponse<Void, Errors> deactivateApplication(UUID applicationId) {
-    return start(Void.TYPE).uri("/api/application")
-                           .urlSegment(applicationId)
-                           .delete()
-                           .go();
+    ClientResponse<Void, Errors> response =
+        start(Void.TYPE).uri("/api/application")
+                        .urlSegment(applicationId)
+                        .delete()
+                        .go();
+    invalidate(cache -> cache.invalidateApplication(applicationId));
+    return response;
   }
 
   /**
@@ -597,10 +667,13 @@ public class PassportClient {
    * Exception, which could be an IOException.
    */
   public ClientResponse<Void, Errors> deactivateUser(UUID userId) {
-    return start(Void.TYPE).uri("/api/user")
-                           .urlSegment(userId)
-                           .delete()
-                           .go();
+    ClientResponse<Void, Errors> response =
+        start(Void.TYPE).uri("/api/user")
+                        .urlSegment(userId)
+                        .delete()
+                        .go();
+    invalidate(cache -> cache.invalidateUser(userId));
+    return response;
   }
 
   /**
@@ -651,10 +724,13 @@ public class PassportClient {
    * Exception, which could be an IOException.
    */
   public ClientResponse<Void, Errors> deactivateUsers(Collection<UUID> userIds) {
-    return start(Void.TYPE).uri("/api/user/bulk")
-                           .urlParameter("userId", userIds)
-                           .delete()
-                           .go();
+    ClientResponse<Void, Errors> response =
+        start(Void.TYPE).uri("/api/user/bulk")
+                        .urlParameter("userId", userIds)
+                        .delete()
+                        .go();
+    invalidate(cache -> userIds.forEach(cache::invalidateUser));
+    return response;
   }
 
   /**
@@ -681,11 +757,17 @@ public class PassportClient {
    * Exception, which could be an IOException.
    */
   public ClientResponse<Void, Errors> deleteApplication(UUID applicationId) {
-    return start(Void.TYPE).uri("/api/application")
-                           .urlSegment(applicationId)
-                           .urlParameter("hardDelete", true)
-                           .delete()
-                           .go();
+    ClientResponse<Void, Errors> response =
+        start(Void.TYPE).uri("/api/application")
+                        .urlSegment(applicationId)
+                        .urlParameter("hardDelete", true)
+                        .delete()
+                        .go();
+    invalidate(cache -> {
+      cache.invalidateApplication(applicationId);
+      cache.invalidateUsers();
+    });
+    return response;
   }
 
   /**
@@ -712,12 +794,18 @@ public class PassportClient {
    */
   public ClientResponse<Void, Errors> deleteApplicationRole(UUID applicationId, UUID roleId) {
     Objects.requireNonNull(applicationId);
-    return start(Void.TYPE).uri("/api/application")
-                           .urlSegment(applicationId)
-                           .urlSegment("role")
-                           .urlSegment(roleId)
-                           .delete()
-                           .go();
+    ClientResponse<Void, Errors> response =
+        start(Void.TYPE).uri("/api/application")
+                        .urlSegment(applicationId)
+                        .urlSegment("role")
+                        .urlSegment(roleId)
+                        .delete()
+                        .go();
+    invalidate(cache -> {
+      cache.invalidateApplication(applicationId);
+      cache.invalidateUsers();
+    });
+    return response;
   }
 
   /**
@@ -771,11 +859,17 @@ public class PassportClient {
    */
   public ClientResponse<Void, Errors> deleteRegistration(UUID userId, UUID applicationId) {
     Objects.requireNonNull(userId);
-    return start(Void.TYPE).uri("/api/user/registration")
-                           .urlSegment(userId)
-                           .urlSegment(applicationId)
-                           .delete()
-                           .go();
+    ClientResponse<Void, Errors> response =
+        start(Void.TYPE).uri("/api/user/registration")
+                        .urlSegment(userId)
+                        .urlSegment(applicationId)
+                        .delete()
+                        .go();
+    invalidate(cache -> {
+      cache.invalidateRegistration(userId, applicationId);
+      cache.invalidateUser(userId);
+    });
+    return response;
   }
 
   /**
@@ -801,11 +895,14 @@ public class PassportClient {
    * Exception, which could be an IOException.
    */
   public ClientResponse<Void, Errors> deleteUser(UUID userId) {
-    return start(Void.TYPE).uri("/api/user")
-                           .urlSegment(userId)
-                           .urlParameter("hardDelete", true)
-                           .delete()
-                           .go();
+    ClientResponse<Void, Errors> response =
+        start(Void.TYPE).uri("/api/user")
+                        .urlSegment(userId)
+                        .urlParameter("hardDelete", true)
+                        .delete()
+                        .go();
+    invalidate(cache -> cache.invalidateUserAndRegistrations(userId));
+    return response;
   }
 
   /**
@@ -897,11 +994,14 @@ public class PassportClient {
    * Exception, which could be an IOException.
    */
   public ClientResponse<Void, Errors> deleteUsers(Collection<UUID> userIds) {
-    return start(Void.TYPE).uri("/api/user/bulk")
-                           .urlParameter("userId", userIds)
-                           .urlParameter("hardDelete", true)
-                           .delete()
-                           .go();
+    ClientResponse<Void, Errors> response =
+        start(Void.TYPE).uri("/api/user/bulk")
+                        .urlParameter("userId", userIds)
+                        .urlParameter("hardDelete", true)
+                        .delete()
+                        .go();
+    invalidate(cache -> userIds.forEach(cache::invalidateUserAndRegistrations));
+    return response;
   }
 
   /**
@@ -989,7 +1089,7 @@ public class PassportClient {
 
   public PassportClient handleClientResponseWith(Function<ClientResponse<?, ?>, ?> successFunction,
                                                  Consumer<ClientResponse<?, ?>> errorConsumer) {
-    return new PassportClient(apiKey, baseURL, successFunction, errorConsumer);
+    return copy(successFunction, errorConsumer);
   }
 
   /**
@@ -1061,14 +1161,17 @@ public class PassportClient {
    * @param request The login request that contains the user credentials used to log them in.
    * @return When successful, the response will contain the user that was logged in. This user object is complete and
    * contains all of the registrations and data for the user. If there was a validation error or any other type of
-   * error, this will return the Errors object in the response. Additionally, if Passport could not be contacted because
-   * it is down or experiencing a failure, the response will contain an Exception, which could be an IOException.
+   * error, this will return the Errors object in the response, which is a {@link LoginPreventedErrors}. If an action
+   * on the user prevents the login, the status is 409 and the actions are in that error response. Additionally, if
+   * Passport could not be contacted because it is down or experiencing a failure, the response will contain an
+   * Exception, which could be an IOException.
    */
   public ClientResponse<LoginResponse, Errors> login(LoginRequest request) {
-    return start(LoginResponse.class).uri("/api/login")
-                                     .bodyHandler(new JSONBodyHandler(request, objectMapper))
-                                     .post()
-                                     .go();
+    return affinity(start(LoginResponse.class), request.loginId).uri("/api/login")
+                                                                .errorResponseHandler(is -> responseObjectMapper.readValue(is, LoginPreventedErrors.class))
+                                                                .bodyHandler(new JSONBodyHandler(request, objectMapper))
+                                                                .post()
+                                                                .go();
   }
 
   /**
@@ -1132,11 +1235,14 @@ public class PassportClient {
    * IOException.
    */
   public ClientResponse<ActionResponse, Errors> modifyAction(UUID actionId, ActionRequest request) {
-    return start(ActionResponse.class).uri("/api/user/action")
-                                      .urlSegment(actionId)
-                                      .bodyHandler(new JSONBodyHandler(request, objectMapper))
-                                      .put()
-                                      .go();
+    ClientResponse<ActionResponse, Errors> response =
+        start(ActionResponse.class).uri("/api/user/action")
+                                   .urlSegment(actionId)
+                                   .bodyHandler(new JSONBodyHandler(request, objectMapper))
+                                   .put()
+                                   .go();
+    invalidate(WriteElisionCache::invalidateUsers);
+    return response;
   }
 
   /**
@@ -1162,11 +1268,14 @@ public class PassportClient {
    * could be an IOException.
    */
   public ClientResponse<ApplicationResponse, Errors> reactivateApplication(UUID applicationId) {
-    return start(ApplicationResponse.class).uri("/api/application")
-                                           .urlSegment(applicationId)
-                                           .urlParameter("reactivate", true)
-                                           .put()
-                                           .go();
+    ClientResponse<ApplicationResponse, Errors> response =
+        start(ApplicationResponse.class).uri("/api/application")
+                                        .urlSegment(applicationId)
+                                        .urlParameter("reactivate", true)
+                                        .put()
+                                        .go();
+    invalidate(cache -> cache.invalidateApplication(applicationId));
+    return response;
   }
 
   /**
@@ -1191,11 +1300,14 @@ public class PassportClient {
    * an IOException.
    */
   public ClientResponse<UserResponse, Errors> reactivateUser(UUID userId) {
-    return start(UserResponse.class).uri("/api/user")
-                                    .urlSegment(userId)
-                                    .urlParameter("reactivate", true)
-                                    .put()
-                                    .go();
+    ClientResponse<UserResponse, Errors> response =
+        start(UserResponse.class).uri("/api/user")
+                                 .urlSegment(userId)
+                                 .urlParameter("reactivate", true)
+                                 .put()
+                                 .go();
+    invalidate(cache -> cache.invalidateUser(userId));
+    return response;
   }
 
   /**
@@ -1270,11 +1382,17 @@ public class PassportClient {
    * a failure, the response will contain an Exception, which could be an IOException.
    */
   public ClientResponse<RegistrationResponse, Errors> register(UUID userId, RegistrationRequest request) {
-    return start(RegistrationResponse.class).uri("/api/user/registration")
-                                            .urlSegment(userId)
-                                            .bodyHandler(new JSONBodyHandler(request, objectMapper))
-                                            .post()
-                                            .go();
+    ClientResponse<RegistrationResponse, Errors> response =
+        start(RegistrationResponse.class).uri("/api/user/registration")
+                                         .urlSegment(userId)
+                                         .bodyHandler(new JSONBodyHandler(request, objectMapper))
+                                         .post()
+                                         .go();
+    if (userId != null) {
+      invalidate(cache -> cache.invalidateUser(userId));
+    }
+
+    return response;
   }
 
   /**
@@ -1393,10 +1511,14 @@ public class PassportClient {
    * the response will contain an Exception, which could be an IOException.
    */
   public ClientResponse<ApplicationResponse, Void> retrieveApplication(UUID applicationId) {
-    return startVoid(ApplicationResponse.class).uri("/api/application")
-                                               .urlSegment(applicationId)
-                                               .get()
-                                               .go();
+    ClientResponse<ApplicationResponse, Void> response = startVoid(ApplicationResponse.class).uri("/api/application")
+                                                                                             .urlSegment(applicationId)
+                                                                                             .get()
+                                                                                             .go();
+    if (applicationId != null) {
+      invalidate(cache -> cache.invalidateApplication(applicationId));
+    }
+    return response;
   }
 
   /**
@@ -1419,7 +1541,8 @@ public class PassportClient {
    * response will contain an Exception, which could be an IOException.
    */
   public ClientResponse<ApplicationResponse, Void> retrieveApplications() {
-    return retrieveApplication(null);
+    return startDeduplicated(ApplicationResponse.class, "/api/application").get()
+                                                                           .go();
   }
 
   /**
@@ -1535,7 +1658,8 @@ public class PassportClient {
    * response will contain an Exception, which could be an IOException.
    */
   public ClientResponse<EmailTemplateResponse, Void> retrieveEmailTemplates() {
-    return retrieveEmailTemplate(null);
+    return startDeduplicated(EmailTemplateResponse.class, "/api/email/template").get()
+                                                                                .go();
   }
 
   /**
@@ -1764,11 +1888,14 @@ public class PassportClient {
    * IOException.
    */
   public ClientResponse<RegistrationResponse, Errors> retrieveRegistration(UUID userId, UUID applicationId) {
-    return start(RegistrationResponse.class).uri("/api/user/registration")
-                                            .urlSegment(userId)
-                                            .urlSegment(applicationId)
-                                            .get()
-                                            .go();
+    ClientResponse<RegistrationResponse, Errors> response = start(RegistrationResponse.class)
+        .uri("/api/user/registration")
+        .urlSegment(userId)
+        .urlSegment(applicationId)
+        .get()
+        .go();
+    invalidate(cache -> cache.invalidateRegistration(userId, applicationId));
+    return response;
   }
 
   /**
@@ -1828,9 +1955,8 @@ public class PassportClient {
    * response will contain an Exception, which could be an IOException.
    */
   public ClientResponse<SystemConfigurationResponse, Void> retrieveSystemConfiguration() {
-    return startVoid(SystemConfigurationResponse.class).uri("/api/system-configuration")
-                                                       .get()
-                                                       .go();
+    return startDeduplicated(SystemConfigurationResponse.class, "/api/system-configuration").get()
+                                                                                            .go();
   }
 
   /**
@@ -1880,10 +2006,12 @@ public class PassportClient {
    * IOException.
    */
   public ClientResponse<UserResponse, Errors> retrieveUser(UUID userId) {
-    return start(UserResponse.class).uri("/api/user")
-                                    .urlSegment(userId)
-                                    .get()
-                                    .go();
+    ClientResponse<UserResponse, Errors> response = start(UserResponse.class).uri("/api/user")
+                                                                             .urlSegment(userId)
+                                                                             .get()
+                                                                             .go();
+    invalidate(cache -> cache.invalidateUser(userId));
+    return response;
   }
 
   /**
@@ -1985,7 +2113,8 @@ public class PassportClient {
    * response will contain an Exception, which could be an IOException.
    */
   public ClientResponse<UserActionResponse, Void> retrieveUserActions() {
-    return retrieveUserAction(null);
+    return startDeduplicated(UserActionResponse.class, "/api/user-action").get()
+                                                                          .go();
   }
 
   /**
@@ -2009,10 +2138,10 @@ public class PassportClient {
    * IOException.
    */
   public ClientResponse<UserResponse, Errors> retrieveUserByEmail(String email) {
-    return start(UserResponse.class).uri("/api/user")
-                                    .urlParameter("email", email)
-                                    .get()
-                                    .go();
+    return observed(start(UserResponse.class).uri("/api/user")
+                                             .urlParameter("email", email)
+                                             .get()
+                                             .go());
   }
 
   /**
@@ -2037,10 +2166,10 @@ public class PassportClient {
    * IOException.
    */
   public ClientResponse<UserResponse, Errors> retrieveUserByLoginId(String loginId) {
-    return start(UserResponse.class).uri("/api/user")
-                                    .urlParameter("loginId", loginId)
-                                    .get()
-                                    .go();
+    return observed(start(UserResponse.class).uri("/api/user")
+                                             .urlParameter("loginId", loginId)
+                                             .get()
+                                             .go());
   }
 
   /**
@@ -2065,10 +2194,10 @@ public class PassportClient {
    * IOException.
    */
   public ClientResponse<UserResponse, Errors> retrieveUserByUsername(String username) {
-    return start(UserResponse.class).uri("/api/user")
-                                    .urlParameter("username", username)
-                                    .get()
-                                    .go();
+    return observed(start(UserResponse.class).uri("/api/user")
+                                             .urlParameter("username", username)
+                                             .get()
+                                             .go());
   }
 
   /**
@@ -2182,7 +2311,8 @@ public class PassportClient {
    * response will contain an Exception, which could be an IOException.
    */
   public ClientResponse<WebhookResponse, Void> retrieveWebhooks() {
-    return retrieveWebhook(null);
+    return startDeduplicated(WebhookResponse.class, "/api/webhook").get()
+                                                                   .go();
   }
 
   /**
@@ -2342,11 +2472,13 @@ public class PassportClient {
    * IOException.
    */
   public ClientResponse<ApplicationResponse, Errors> updateApplication(UUID applicationId, ApplicationRequest request) {
-    return start(ApplicationResponse.class).uri("/api/application")
-                                           .urlSegment(applicationId)
-                                           .bodyHandler(new JSONBodyHandler(request, objectMapper))
-                                           .put()
-                                           .go();
+    String key = request.role == null ? WriteElisionCache.applicationKey(applicationId) : null;
+    return elide(key, request, null, () -> new ApplicationResponse(request.application),
+        () -> start(ApplicationResponse.class).uri("/api/application")
+                                              .urlSegment(applicationId)
+                                              .bodyHandler(new JSONBodyHandler(request, objectMapper))
+                                              .put()
+                                              .go());
   }
 
   /**
@@ -2375,13 +2507,16 @@ public class PassportClient {
   public ClientResponse<ApplicationResponse, Errors> updateApplicationRole(UUID applicationId, UUID roleId,
                                                                            ApplicationRequest request) {
     Objects.requireNonNull(applicationId);
-    return start(ApplicationResponse.class).uri("/api/application")
-                                           .urlSegment(applicationId)
-                                           .urlSegment("role")
-                                           .urlSegment(roleId)
-                                           .bodyHandler(new JSONBodyHandler(request, objectMapper))
-                                           .put()
-                                           .go();
+    ClientResponse<ApplicationResponse, Errors> response =
+        start(ApplicationResponse.class).uri("/api/application")
+                                        .urlSegment(applicationId)
+                                        .urlSegment("role")
+                                        .urlSegment(roleId)
+                                        .bodyHandler(new JSONBodyHandler(request, objectMapper))
+                                        .put()
+                                        .go();
+    invalidate(cache -> cache.invalidateApplication(applicationId));
+    return response;
   }
 
   /**
@@ -2442,11 +2577,18 @@ public class PassportClient {
    */
   public ClientResponse<RegistrationResponse, Errors> updateRegistration(UUID userId, RegistrationRequest request) {
     Objects.requireNonNull(userId);
-    return start(RegistrationResponse.class).uri("/api/user/registration")
-                                            .urlSegment(userId)
-                                            .bodyHandler(new JSONBodyHandler(request, objectMapper))
-                                            .put()
-                                            .go();
+    String key = request.registration != null
+        ? WriteElisionCache.registrationKey(userId, request.registration.applicationId)
+        : null;
+    ClientResponse<RegistrationResponse, Errors> response =
+        elide(key, request, request.user, () -> new RegistrationResponse(request.user, request.registration),
+            () -> start(RegistrationResponse.class).uri("/api/user/registration")
+                                                   .urlSegment(userId)
+                                                   .bodyHandler(new JSONBodyHandler(request, objectMapper))
+                                                   .put()
+                                                   .go());
+    invalidate(cache -> cache.invalidateUser(userId));
+    return response;
   }
 
   /**
@@ -2501,11 +2643,12 @@ public class PassportClient {
    * it is down or experiencing a failure, the response will contain an Exception, which could be an IOException.
    */
   public ClientResponse<UserResponse, Errors> updateUser(UUID userId, UserRequest request) {
-    return start(UserResponse.class).uri("/api/user")
-                                    .urlSegment(userId)
-                                    .bodyHandler(new JSONBodyHandler(request, objectMapper))
-                                    .put()
-                                    .go();
+    return elide(WriteElisionCache.userKey(userId), request, request.user, () -> new UserResponse(request.user),
+        () -> start(UserResponse.class).uri("/api/user")
+                                       .urlSegment(userId)
+                                       .bodyHandler(new JSONBodyHandler(request, objectMapper))
+                                       .put()
+                                       .go());
   }
 
   /**
@@ -2698,6 +2841,265 @@ public class PassportClient {
     handle(verifyTwoFactor(request));
   }
 
+  /**
+   * Returns a copy of this client that spreads its requests across the backends of the given pool. The base URL passed
+   * to the constructor is replaced by the base URL of the backend picked for each request.
+   *
+   * @param pool The pool. This can be shared by many clients.
+   * @return The new client.
+   */
+  public PassportClient withBackendPool(BackendPool pool) {
+    PassportClient client = copy(successFunction, errorConsumer);
+    client.pipeline = pipeline.copy();
+    client.pipeline.backendPool = pool;
+    return client;
+  }
+
+  /**
+   * Returns a copy of this client that makes its calls with the given deadline, timeouts and priority. The copy is
+   * cheap, so this can be used for a single call. The deadline covers waiting for a concurrency limit, retries and
+   * hedges, and the timeouts of each attempt are cut down to fit in what is left of it. A call whose deadline passes
+   * before an attempt can be made returns a ClientResponse with a status of -1 and a {@link RequestRejectedException}.
+   *
+   * @param options The options.
+   * @return The new client.
+   */
+  public PassportClient withCallOptions(CallOptions options) {
+    PassportClient client = copy(successFunction, errorConsumer);
+    client.connectTimeout = options.connectTimeoutInMillis;
+    client.pipeline = pipeline.copy();
+    client.pipeline.callOptions = options;
+    client.readTimeout = options.readTimeoutInMillis;
+    return client;
+  }
+
+  /**
+   * Returns a copy of this client that stops sending requests to a group of endpoints while too many of its requests
+   * fail or are slow. While the circuit of a group is open, its requests return a ClientResponse with a status of -1
+   * and a {@link RequestRejectedException} right away, so a degraded reporting or search endpoint doesn't tie up the
+   * threads that logins need.
+   *
+   * @param breakers The circuit breakers. These should be shared by every client in the process.
+   * @return The new client.
+   */
+  public PassportClient withCircuitBreakers(CircuitBreakers breakers) {
+    PassportClient client = copy(successFunction, errorConsumer);
+    client.pipeline = pipeline.copy();
+    client.pipeline.circuitBreakers = breakers;
+    return client;
+  }
+
+  /**
+   * Returns a copy of this client that limits the number of requests it has in flight to each group of endpoints. The
+   * limits are learned from the latency and overload errors of the requests, so when Passport slows down the requests
+   * over the limit are rejected right away instead of adding to its load. A rejected request returns a ClientResponse
+   * with a status of -1 and a {@link RequestRejectedException}.
+   *
+   * @param limits The limits. These should be shared by every client in the process so that they see all of its
+   *               requests.
+   * @return The new client.
+   */
+  public PassportClient withConcurrencyLimits(ConcurrencyLimits limits) {
+    PassportClient client = copy(successFunction, errorConsumer);
+    client.pipeline = pipeline.copy();
+    client.pipeline.concurrencyLimits = limits;
+    return client;
+  }
+
+  /**
+   * Returns a copy of this client that doesn't parse the responses of the retrieveApplications,
+   * retrieveEmailTemplates, retrieveSystemConfiguration, retrieveUserActions and retrieveWebhooks methods when the
+   * body is the same as the last time. The response is built from the JSON tokens kept from the last time instead, so
+   * each caller still gets its own objects. This makes polling these APIs cost less CPU. The bodies are still
+   * downloaded each time, since the responses are compared rather than validated with an ETag.
+   *
+   * @param cache The cache of the last responses. This can be shared by many clients.
+   * @return The new client.
+   */
+  public PassportClient withResponseDeduplication(ResponseDeduplicationCache cache) {
+    PassportClient client = copy(successFunction, errorConsumer);
+    client.responseDeduplicationCache = cache;
+    return client;
+  }
+
+  /**
+   * Returns a copy of this client that makes the calls passed to {@link #async(Function)} on the given executor.
+   *
+   * @param executor The executor.
+   * @return The new client.
+   */
+  public PassportClient withExecutor(ExecutorService executor) {
+    PassportClient client = copy(successFunction, errorConsumer);
+    client.executor = executor;
+    return client;
+  }
+
+  /**
+   * Returns a copy of this client that hedges its slow reads. When the first attempt of a GET request in one of the
+   * groups of the policy, such as validateAccessToken or retrieveUser, takes longer than a percentile of the latency of
+   * its group, a second attempt is sent, to another backend if there is a backend pool, and the first success is
+   * returned. The share of requests that are hedged is capped by the policy, and a hedge takes its own permits of the
+   * scheduler, concurrency limit and circuit breaker, so it is dropped rather than queued when they are used up. The
+   * attempt that loses is interrupted and isn't counted as a failure. On platform threads the interrupt doesn't abort a
+   * socket read, so the losing attempt holds on to its connection and permits until its read timeout; see
+   * {@link HedgingPolicy}.
+   *
+   * @param policy The hedging policy. This should be shared by every client in the process.
+   * @return The new client.
+   */
+  public PassportClient withHedging(HedgingPolicy policy) {
+    PassportClient client = copy(successFunction, errorConsumer);
+    client.pipeline = pipeline.copy();
+    client.pipeline.hedgingPolicy = policy;
+    return client;
+  }
+
+  /**
+   * Returns a copy of this client that retries the requests that fail in a way that another attempt might fix, such as
+   * a connection reset or a 503, using the given policy. Only requests that are safe to send more than once are retried
+   * after they might have reached Passport, so logins and the methods that create things, such as createUser and
+   * actionUser, are only retried when the connection couldn't be opened. See
+   * {@link RetryPolicy#isIdempotent(RESTClient.HTTPMethod, String)}.
+   *
+   * @param policy The retry policy. This should be shared by every client in the process so that its retry budget sees
+   *               all of the requests.
+   * @return The new client.
+   */
+  public PassportClient withRetries(RetryPolicy policy) {
+    PassportClient client = copy(successFunction, errorConsumer);
+    client.pipeline = pipeline.copy();
+    client.pipeline.retryPolicy = policy;
+    return client;
+  }
+
+  /**
+   * Returns a copy of this client that gets a permit from the given scheduler for each request. The permits are split
+   * into a bulkhead for each priority class plus a shared pool, so batch work such as importUsers or
+   * retrieveLoginReport can't use up the capacity reserved for interactive requests such as login and
+   * validateAccessToken. The priority of a request is the priority of its {@link CallOptions} or, if that isn't set,
+   * {@link Priority#classify(RESTClient.HTTPMethod, String)}. A request that doesn't get a permit in time returns a
+   * ClientResponse with a status of -1 and a {@link RequestRejectedException}.
+   *
+   * @param scheduler The scheduler. This should be shared by every client in the process.
+   * @return The new client.
+   */
+  public PassportClient withScheduler(RequestScheduler scheduler) {
+    PassportClient client = copy(successFunction, errorConsumer);
+    client.pipeline = pipeline.copy();
+    client.pipeline.scheduler = scheduler;
+    return client;
+  }
+
+  /**
+   * Returns a copy of this client that deduplicates the role names, time zones, encryption schemes, attribute names and
+   * Locales in the responses it reads using the given table. This reduces the memory retained by large responses, such
+   * as searches that return thousands of users, when they are kept in a cache. It has no effect on the requests.
+   *
+   * @param table The intern table. This can be shared by many clients.
+   * @return The new client.
+   * @see InterningModule
+   */
+  public PassportClient withStringDeduplication(InternTable table) {
+    PassportClient client = copy(successFunction, errorConsumer);
+    client.responseObjectMapper = objectMapper.copy().registerModule(new InterningModule(table));
+    return client;
+  }
+
+  /**
+   * Returns a copy of this client that skips updates of users, registrations and applications that would not change
+   * anything because the last update this client made to the same object sent the same content. The comparison uses a
+   * fingerprint of the JSON body, so a change to any field that is sent makes the update go through. Updates that
+   * contain a password are always sent because Passport only stores a hash of it and the user might have changed it
+   * since. Writes of registrations, actions and deletes make the cache forget the users and applications they change.
+   * <p>
+   * The cache only knows what this client last wrote, not the state in Passport. If another client, the Passport UI or
+   * a user changes the object and this client then sends the content it sent before, the update is skipped even though
+   * it would have changed Passport. To narrow this, reading a user (retrieveUser and the retrieveUserBy methods), a
+   * registration (retrieveRegistration) or an application (retrieveApplication) makes the cache forget it, so an update
+   * that follows a read is always sent. Changes that this client doesn't read are trusted away for the time to live of
+   * the cache, so only use write elision for objects that this client owns, keep the time to live short, or call the
+   * invalidate methods of the cache when you learn about other changes, such as from a webhook event.
+   * <p>
+   * Skipped updates return an {@link ElidedClientResponse}, which is successful and can be detected using
+   * {@link ElidedClientResponse#wasElided(ClientResponse)}.
+   *
+   * @param cache The cache of the last writes. This can be shared by many clients.
+   * @return The new client.
+   */
+  public PassportClient withWriteElision(WriteElisionCache cache) {
+    PassportClient client = copy(successFunction, errorConsumer);
+    client.writeElisionCache = cache;
+    return client;
+  }
+
+  private <T, U> RESTClient<T, U> affinity(RESTClient<T, U> client, Object affinityKey) {
+    if (client instanceof PassportRESTClient) {
+      ((PassportRESTClient<T, U>) client).affinity(affinityKey);
+    }
+    return client;
+  }
+
+  private PassportClient copy(Function<ClientResponse<?, ?>, ?> successFunction,
+                              Consumer<ClientResponse<?, ?>> errorConsumer) {
+    PassportClient client = new PassportClient(apiKey, baseURL, successFunction, errorConsumer);
+    CallOptions options = foldedCallOptions();
+    client.connectTimeout = options.connectTimeoutInMillis;
+    client.executor = executor;
+    client.pipeline = pipeline;
+    if (options != pipeline.callOptions) {
+      client.pipeline = pipeline.copy();
+      client.pipeline.callOptions = options;
+    }
+    client.readTimeout = options.readTimeoutInMillis;
+    client.responseDeduplicationCache = responseDeduplicationCache;
+    client.responseObjectMapper = responseObjectMapper;
+    client.writeElisionCache = writeElisionCache;
+    return client;
+  }
+
+  private <T> ClientResponse<T, Errors> elide(String key, Object request, User user, Supplier<T> elided,
+                                              Supplier<ClientResponse<T, Errors>> write) {
+    if (writeElisionCache == null || key == null || (user != null && user.password != null)) {
+      return write.get();
+    }
+
+    long fingerprint;
+    try {
+      fingerprint = WriteElisionCache.fingerprint(objectMapper.writeValueAsBytes(request));
+    } catch (JsonProcessingException e) {
+      return write.get();
+    }
+
+    if (writeElisionCache.elide(key, fingerprint)) {
+      return new ElidedClientResponse<>(elided.get());
+    }
+
+    ClientResponse<T, Errors> response = write.get();
+    writeElisionCache.written(key, fingerprint, response.wasSuccessful());
+    return response;
+  }
+
+  /**
+   * @return The call options of the pipeline with the timeouts set using the deprecated fields, or the call options
+   *     themselves if the fields weren't set.
+   */
+  private CallOptions foldedCallOptions() {
+    CallOptions options = pipeline.callOptions;
+    if (connectTimeout != options.connectTimeoutInMillis) {
+      options = options.withConnectTimeout(connectTimeout);
+    }
+    if (readTimeout != options.readTimeoutInMillis) {
+      options = options.withReadTimeout(readTimeout);
+    }
+    return options;
+  }
+
+  private void invalidate(Consumer<WriteElisionCache> invalidation) {
+    if (writeElisionCache != null) {
+      invalidation.accept(writeElisionCache);
+    }
+  }
+
   @SuppressWarnings("unchecked")
   private <T, U> T handle(ClientResponse<T, U> response) {
     Objects.requireNonNull(successFunction, "You can't use the money-methods unless you supply a success Function and error Consumer");
@@ -2712,20 +3114,51 @@ public class PassportClient {
     return null;
   }
 
+  private <T, U> RESTClient<T, U> newRESTClient(Class<T> type, Class<U> errorType) {
+    if (pipeline.isEmpty()) {
+      return new RESTClient<>(type, errorType);
+    }
+
+    return new PassportRESTClient<>(type, errorType, baseURL, pipeline);
+  }
+
+  /**
+   * Makes the write elision cache forget the user in a response, since what Passport returned may not be what this
+   * client last wrote.
+   */
+  private ClientResponse<UserResponse, Errors> observed(ClientResponse<UserResponse, Errors> response) {
+    if (response.wasSuccessful() && response.successResponse != null && response.successResponse.user != null
+        && response.successResponse.user.id != null) {
+      UUID userId = response.successResponse.user.id;
+      invalidate(cache -> cache.invalidateUser(userId));
+    }
+    return response;
+  }
+
   private <T> RESTClient<T, Errors> start(Class<T> type) {
-    return new RESTClient<>(type, Errors.class).authorization(apiKey)
-                                               .successResponseHandler(type != Void.TYPE ? new JSONResponseHandler<>(type, objectMapper) : null)
-                                               .errorResponseHandler(new JSONResponseHandler<>(Errors.class, objectMapper))
-                                               .url(baseURL)
-                                               .connectTimeout(connectTimeout)
-                                               .readTimeout(readTimeout);
+    CallOptions options = foldedCallOptions();
+    return newRESTClient(type, Errors.class).authorization(apiKey)
+                                            .successResponseHandler(type != Void.TYPE ? new JSONResponseHandler<>(type, responseObjectMapper) : null)
+                                            .errorResponseHandler(new JSONResponseHandler<>(Errors.class, responseObjectMapper))
+                                            .url(baseURL)
+                                            .connectTimeout(options.connectTimeoutInMillis)
+                                            .readTimeout(options.readTimeoutInMillis);
+  }
+
+  private <T> RESTClient<T, Void> startDeduplicated(Class<T> type, String uri) {
+    RESTClient<T, Void> client = startVoid(type).uri(uri);
+    if (responseDeduplicationCache != null) {
+      client.successResponseHandler(responseDeduplicationCache.handler(uri, type, responseObjectMapper));
+    }
+    return client;
   }
 
   private <T> RESTClient<T, Void> startVoid(Class<T> type) {
-    return new RESTClient<>(type, Void.TYPE).authorization(apiKey)
-                                            .successResponseHandler(type != Void.TYPE ? new JSONResponseHandler<>(type, objectMapper) : null)
-                                            .url(baseURL)
-                                            .connectTimeout(connectTimeout)
-                                            .readTimeout(readTimeout);
+    CallOptions options = foldedCallOptions();
+    return newRESTClient(type, Void.TYPE).authorization(apiKey)
+                                         .successResponseHandler(type != Void.TYPE ? new JSONResponseHandler<>(type, responseObjectMapper) : null)
+                                         .url(baseURL)
+                                         .connectTimeout(options.connectTimeoutInMillis)
+                                         .readTimeout(options.readTimeoutInMillis);
   }
 }
@@ -0,0 +1,358 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import com.inversoft.passport.client.resilience.CircuitBreaker;
+import com.inversoft.passport.client.resilience.ConcurrencyLimiter;
+import com.inversoft.passport.client.resilience.EndpointGroup;
+import com.inversoft.passport.client.resilience.HedgingPolicy;
+import com.inversoft.passport.client.resilience.Priority;
+import com.inversoft.passport.client.resilience.RequestScheduler;
+import com.inversoft.passport.client.resilience.RequestRejectedException;
+import com.inversoft.passport.client.resilience.RetryPolicy;
+import com.inversoft.passport.client.routing.Backend;
+import com.inversoft.rest.ClientResponse;
+import com.inversoft.rest.RESTClient;
+
+/**
+ * The RESTClient used by a {@link PassportClient} that has any of the request execution features turned on. The
+ * request is built up as usual and {@link #go()} then waits for a permit of its priority class, checks the circuit
+ * breaker and waits for the concurrency limit of its endpoint group and sends it to the backend picked for it. A slow
+ * read is hedged with a second attempt that goes through the same steps, and a failed request is retried if the retry
+ * policy allows, all within the deadline of the call. Each attempt is made by a fresh RESTClient that is given a copy
+ * of the request, since a RESTClient can only be sent once.
+ *
+ * @author Brian Pontarelli
+ */
+class PassportRESTClient<RS, ERS> extends RESTClient<RS, ERS> {
+  private final String baseURL;
+
+  private final Class<ERS> errorResponseType;
+
+  private final RequestPipeline pipeline;
+
+  private final Class<RS> responseType;
+
+  // Hedges are sent from other threads
+  private final List<Backend> tried = new CopyOnWriteArrayList<>();
+
+  private Object affinityKey;
+
+  // The time left for the request when it started, or Long.MAX_VALUE if it doesn't have a deadline
+  private long budgetNanos;
+
+  private long started;
+
+  PassportRESTClient(Class<RS> responseType, Class<ERS> errorResponseType, String baseURL, RequestPipeline pipeline) {
+    super(responseType, errorResponseType);
+    this.baseURL = baseURL;
+    this.errorResponseType = errorResponseType;
+    this.pipeline = pipeline;
+    this.responseType = responseType;
+  }
+
+  /**
+   * @return True if the thread of the attempt has been interrupted, which is how the attempt that loses a hedged request
+   *     is aborted. However it ended, it says nothing about Passport.
+   */
+  private static boolean abandoned() {
+    return Thread.currentThread().isInterrupted();
+  }
+
+  /**
+   * @return True if the request couldn't be sent or read, or Passport returned a 5xx.
+   */
+  private static boolean failed(ClientResponse<?, ?> response) {
+    return response == null || response.status < 0 || response.status >= 500;
+  }
+
+  /**
+   * @return True if the client rejected the attempt itself, so it never reached Passport and says nothing about it.
+   */
+  private static boolean notSent(ClientResponse<?, ?> response) {
+    return response != null && response.exception instanceof RequestRejectedException;
+  }
+
+  /**
+   * @return True if the response means that Passport is overloaded. Other errors, such as a 400 or 404, are a normal
+   *     part of using the APIs.
+   */
+  private static boolean overloaded(ClientResponse<?, ?> response) {
+    return response == null || response.status < 0 || response.status == 429 || response.status == 503;
+  }
+
+  /**
+   * Sets the key used to send the requests for the same user to the same backend. This is only needed when the key
+   * isn't in the URL.
+   *
+   * @param affinityKey The user id or login id.
+   * @return This.
+   */
+  PassportRESTClient<RS, ERS> affinity(Object affinityKey) {
+    this.affinityKey = affinityKey;
+    return this;
+  }
+
+  @Override
+  public ClientResponse<RS, ERS> go() {
+    String path = path();
+    CallOptions options = pipeline.callOptions;
+    RetryPolicy retryPolicy = pipeline.retryPolicy;
+    started = System.nanoTime();
+    budgetNanos = options.deadlineInMillis > 0 ? TimeUnit.MILLISECONDS.toNanos(options.deadlineInMillis)
+        : Long.MAX_VALUE;
+    if (retryPolicy == null) {
+      return execute(path);
+    }
+
+    budgetNanos = Math.min(budgetNanos, TimeUnit.MILLISECONDS.toNanos(retryPolicy.configuration.deadlineInMillis));
+    retryPolicy.budget.deposit();
+    ClientResponse<RS, ERS> response = execute(path);
+    for (int retry = 1; retry < retryPolicy.configuration.maximumAttempts; retry++) {
+      if (!retryPolicy.isRetryable(method, path, response)) {
+        break;
+      }
+
+      long backoff = retryPolicy.backoffNanos(retry);
+      if (backoff >= remainingNanos() || !retryPolicy.budget.tryWithdraw()) {
+        break;
+      }
+
+      try {
+        TimeUnit.NANOSECONDS.sleep(backoff);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+
+      response = execute(path);
+    }
+
+    return response;
+  }
+
+  /**
+   * @return The user id in the path of the user and login APIs, or the user id, login id, email or username parameter.
+   */
+  private Object affinityKey(String path) {
+    if (affinityKey != null) {
+      return affinityKey;
+    }
+
+    if (path.startsWith("/api/user/") || path.startsWith("/api/login/")) {
+      for (String segment : path.split("/")) {
+        if (segment.length() == 36 && segment.charAt(8) == '-') {
+          try {
+            return UUID.fromString(segment);
+          } catch (IllegalArgumentException e) {
+            // Not an id
+          }
+        }
+      }
+    }
+
+    for (String name : new String[]{"userId", "loginId", "email", "username"}) {
+      List<Object> values = parameters.get(name);
+      if (values != null && !values.isEmpty()) {
+        return values.get(0);
+      }
+    }
+
+    return null;
+  }
+
+  /**
+   * Makes one attempt at the request, hedging it if it is slow and the hedging policy covers it. The hedge is an attempt
+   * of its own, so it takes its own permits and is counted by the circuit breaker and concurrency limit, but it doesn't
+   * wait for any of them. The attempt that loses is interrupted, and it gives back its permits without being counted.
+   */
+  private ClientResponse<RS, ERS> execute(String path) {
+    EndpointGroup group = EndpointGroup.classify(method, path);
+    HedgingPolicy hedgingPolicy = pipeline.hedgingPolicy;
+    if (hedgingPolicy != null && hedgingPolicy.covers(method, group)) {
+      return hedgingPolicy.hedge(group, () -> schedule(path, group, false), () -> schedule(path, group, true));
+    }
+
+    return schedule(path, group, false);
+  }
+
+  /**
+   * Makes one attempt at the request once the circuit breaker and concurrency limit of its endpoint group let it.
+   */
+  private ClientResponse<RS, ERS> executeWithinLimits(String path, EndpointGroup group, boolean hedge) {
+    CircuitBreaker breaker = pipeline.circuitBreakers != null ? pipeline.circuitBreakers.breaker(group) : null;
+    CircuitBreaker.Permit permit = breaker != null ? breaker.tryAcquire() : null;
+    if (breaker != null && permit == null) {
+      return rejected("The circuit of the [" + group + "] endpoints is open");
+    }
+
+    ConcurrencyLimiter limiter = pipeline.concurrencyLimits != null ? pipeline.concurrencyLimits.limiter(group) : null;
+    if (limiter != null && !limiter.acquire(maximumWaitNanos(hedge))) {
+      if (breaker != null) {
+        breaker.cancel(permit);
+      }
+      return rejected("The concurrency limit of the [" + group + "] endpoints has been reached");
+    }
+
+    long start = System.nanoTime();
+    ClientResponse<RS, ERS> response = null;
+    try {
+      response = send(path, hedge);
+      return response;
+    } finally {
+      long latency = System.nanoTime() - start;
+      boolean counted = !notSent(response) && !abandoned();
+      if (limiter != null) {
+        if (counted) {
+          limiter.release(latency, overloaded(response));
+        } else {
+          limiter.cancel();
+        }
+      }
+      if (breaker != null) {
+        if (counted) {
+          breaker.record(permit, latency, failed(response));
+        } else {
+          breaker.cancel(permit);
+        }
+      }
+    }
+  }
+
+  /**
+   * @return How long an attempt can wait for a permit. Hedges don't wait since they are only worth sending right away.
+   */
+  private long maximumWaitNanos(boolean hedge) {
+    return hedge ? 0 : remainingNanos();
+  }
+
+  /**
+   * @return The path of the request, which always starts with a slash.
+   */
+  private String path() {
+    String path = url.indexOf(baseURL) == 0 ? url.substring(baseURL.length()) : url.toString();
+    return path.startsWith("/") ? path : "/" + path;
+  }
+
+  private long remainingNanos() {
+    return budgetNanos - (System.nanoTime() - started);
+  }
+
+  private ClientResponse<RS, ERS> rejected(String message) {
+    ClientResponse<RS, ERS> response = new ClientResponse<>();
+    response.exception = new RequestRejectedException(message);
+    response.method = method;
+    response.status = -1;
+    return response;
+  }
+
+  /**
+   * Makes one attempt at the request once the scheduler gives it a permit.
+   */
+  private ClientResponse<RS, ERS> schedule(String path, EndpointGroup group, boolean hedge) {
+    if (remainingNanos() <= 0) {
+      return rejected("The deadline of the request has passed");
+    }
+
+    RequestScheduler scheduler = pipeline.scheduler;
+    if (scheduler == null) {
+      return executeWithinLimits(path, group, hedge);
+    }
+
+    Priority priority = pipeline.callOptions.priority != null ? pipeline.callOptions.priority
+        : Priority.classify(method, path);
+    RequestScheduler.Permit permit = scheduler.acquire(priority, maximumWaitNanos(hedge));
+    if (permit == null) {
+      return rejected("There are no permits left for the [" + priority + "] requests");
+    }
+
+    try {
+      return executeWithinLimits(path, group, hedge);
+    } finally {
+      scheduler.release(permit);
+    }
+  }
+
+  /**
+   * Sends the request to the backend picked for it, or to the base URL of the client if there isn't a backend pool.
+   * Retries and hedges go to a backend that hasn't been tried yet if there is one.
+   */
+  private ClientResponse<RS, ERS> send(String path, boolean hedge) {
+    if (pipeline.backendPool == null) {
+      return attempt(null);
+    }
+
+    Backend backend = pipeline.backendPool.acquire(affinityKey(path), tried);
+    tried.add(backend);
+    if (!backend.acquirePermit(maximumWaitNanos(hedge))) {
+      pipeline.backendPool.cancel(backend);
+      return rejected("There are no permits left for the backend [" + backend + "]");
+    }
+
+    long start = System.nanoTime();
+    ClientResponse<RS, ERS> response = null;
+    try {
+      response = attempt(backend.baseURL);
+      return response;
+    } finally {
+      backend.releasePermit();
+      if (abandoned()) {
+        pipeline.backendPool.cancel(backend);
+      } else {
+        pipeline.backendPool.release(backend, System.nanoTime() - start, response);
+      }
+    }
+  }
+
+  /**
+   * Sends a copy of the request to the given base URL, or to the original URL if the target is null.
+   */
+  private ClientResponse<RS, ERS> attempt(String target) {
+    RESTClient<RS, ERS> client = new RESTClient<>(responseType, errorResponseType);
+    client.bodyHandler = bodyHandler;
+    client.certificate = certificate;
+    client.connectTimeout = connectTimeout;
+    client.errorResponseHandler = errorResponseHandler;
+    client.headers.putAll(headers);
+    client.key = key;
+    client.method = method;
+    client.readTimeout = readTimeout;
+    client.successResponseHandler = successResponseHandler;
+    parameters.forEach((name, values) -> client.parameters.put(name, new ArrayList<>(values)));
+
+    if (budgetNanos != Long.MAX_VALUE) {
+      // Cut the timeouts down so the attempt can't run past the deadline of the request
+      long remaining = Math.max(1, TimeUnit.NANOSECONDS.toMillis(remainingNanos()));
+      client.connectTimeout = (int) Math.min(connectTimeout, remaining);
+      client.readTimeout = (int) Math.min(readTimeout, remaining);
+    }
+
+    if (target != null && url.indexOf(baseURL) == 0) {
+      // The backend base URLs don't end in a slash
+      client.url.append(target).append(baseURL.endsWith("/") ? "/" : "").append(url, baseURL.length(), url.length());
+    } else {
+      client.url.append(url);
+    }
+
+    return client.go();
+  }
+}
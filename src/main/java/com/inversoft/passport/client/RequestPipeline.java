@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client;
+
+import com.inversoft.passport.client.resilience.CircuitBreakers;
+import com.inversoft.passport.client.resilience.ConcurrencyLimits;
+import com.inversoft.passport.client.resilience.HedgingPolicy;
+import com.inversoft.passport.client.resilience.RequestScheduler;
+import com.inversoft.passport.client.resilience.RetryPolicy;
+import com.inversoft.passport.client.routing.BackendPool;
+
+/**
+ * The call options and the request execution features a {@link PassportClient} has turned on. This is shared by the client and its
+ * {@link PassportRESTClient}s and is copied before it is changed, so it never changes once a client uses it.
+ *
+ * @author Brian Pontarelli
+ */
+class RequestPipeline {
+  BackendPool backendPool;
+
+  CallOptions callOptions = CallOptions.DEFAULT;
+
+  CircuitBreakers circuitBreakers;
+
+  ConcurrencyLimits concurrencyLimits;
+
+  HedgingPolicy hedgingPolicy;
+
+  RetryPolicy retryPolicy;
+
+  RequestScheduler scheduler;
+
+  RequestPipeline copy() {
+    RequestPipeline copy = new RequestPipeline();
+    copy.backendPool = backendPool;
+    copy.callOptions = callOptions;
+    copy.circuitBreakers = circuitBreakers;
+    copy.concurrencyLimits = concurrencyLimits;
+    copy.hedgingPolicy = hedgingPolicy;
+    copy.retryPolicy = retryPolicy;
+    copy.scheduler = scheduler;
+    return copy;
+  }
+
+  /**
+   * @return True if none of the features are turned on, in which case a plain RESTClient is used.
+   */
+  boolean isEmpty() {
+    return backendPool == null && callOptions.deadlineInMillis == 0 && circuitBreakers == null &&
+        concurrencyLimits == null && hedgingPolicy == null && retryPolicy == null &&
+        scheduler == null;
+  }
+}
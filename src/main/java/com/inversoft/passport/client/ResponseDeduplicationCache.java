@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import com.inversoft.rest.RESTClient.ResponseHandler;
+
+/**
+ * Remembers the last body of the polling APIs and the JSON tokens parsed from it so that a {@link PassportClient}
+ * created with {@link PassportClient#withResponseDeduplication(ResponseDeduplicationCache)} can skip parsing a body
+ * that hasn't changed. This isn't an HTTP conditional request cache: the RESTClient doesn't give the response handlers
+ * the response headers, so there is no ETag or Last-Modified to send back, and every poll still downloads the body. The
+ * body itself is compared byte for byte with the last one for the same request path and, if it matches, the response is
+ * built from the tokens kept from the last time. This skips decoding the JSON text, but still creates new objects, so
+ * every caller gets its own copy of the response and can change it.
+ * <p>
+ * The entries are keyed by the request path only, so the same cache works for a client with a
+ * {@link com.inversoft.passport.client.routing.BackendPool}. Clients of different Passport instances can share a cache;
+ * since the bodies are compared, they can only lower each other's hit rate, never get each other's responses.
+ *
+ * @author Brian Pontarelli
+ */
+public class ResponseDeduplicationCache {
+  private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+  private final AtomicLong hitCount = new AtomicLong();
+
+  private final AtomicLong missCount = new AtomicLong();
+
+  private static byte[] read(InputStream stream) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[8192];
+    int read;
+    while ((read = stream.read(buffer)) != -1) {
+      out.write(buffer, 0, read);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Forgets everything.
+   */
+  public void clear() {
+    entries.clear();
+  }
+
+  /**
+   * @return The number of responses that were unchanged and were built from the kept tokens.
+   */
+  public long hitCount() {
+    return hitCount.get();
+  }
+
+  /**
+   * @return The number of responses that changed or were seen for the first time and were parsed.
+   */
+  public long missCount() {
+    return missCount.get();
+  }
+
+  /**
+   * @return The number of responses remembered.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  <T> ResponseHandler<T> handler(String path, Class<T> type, ObjectMapper objectMapper) {
+    return stream -> {
+      byte[] body = read(stream);
+      Entry entry = entries.get(path);
+      if (entry != null && entry.type == type && Arrays.equals(entry.body, body)) {
+        hitCount.incrementAndGet();
+        return objectMapper.readValue(entry.tokens.asParser(), type);
+      }
+
+      TokenBuffer tokens;
+      try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+        parser.nextToken();
+        tokens = new TokenBuffer(parser);
+        tokens.copyCurrentStructure(parser);
+      }
+
+      T value = objectMapper.readValue(tokens.asParser(), type);
+      entries.put(path, new Entry(body, tokens, type));
+      missCount.incrementAndGet();
+      return value;
+    };
+  }
+
+  private static class Entry {
+    final byte[] body;
+
+    final TokenBuffer tokens;
+
+    final Class<?> type;
+
+    Entry(byte[] body, TokenBuffer tokens, Class<?> type) {
+      this.body = body;
+      this.tokens = tokens;
+      this.type = type;
+    }
+  }
+}
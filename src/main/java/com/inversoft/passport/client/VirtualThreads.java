@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates executors that run each task on its own virtual thread when the JVM has them (Java 21 and later) and on a
+ * cached pool of daemon platform threads otherwise. The client is compiled for Java 8, so the virtual thread API is
+ * called reflectively.
+ * <p>
+ * The client itself never blocks inside a synchronized block or method; its limiters, breakers, schedulers and caches
+ * use java.util.concurrent locks, semaphores and atomics, which park a virtual thread without pinning its carrier.
+ *
+ * @author Brian Pontarelli
+ */
+public final class VirtualThreads {
+  private static final Method IS_VIRTUAL = method(Thread.class, "isVirtual");
+
+  private VirtualThreads() {
+  }
+
+  /**
+   * @return The executor shared by the {@link PassportClient}s that weren't given one.
+   */
+  public static ExecutorService executor() {
+    return Shared.EXECUTOR;
+  }
+
+  /**
+   * @param thread The thread.
+   * @return True if the thread is a virtual thread.
+   */
+  public static boolean isVirtual(Thread thread) {
+    try {
+      return IS_VIRTUAL != null && (Boolean) IS_VIRTUAL.invoke(thread);
+    } catch (ReflectiveOperationException e) {
+      return false;
+    }
+  }
+
+  /**
+   * @return True if the JVM can run virtual threads.
+   */
+  public static boolean isSupported() {
+    return virtualThreadFactory("passport-probe") != null;
+  }
+
+  /**
+   * Creates an executor that starts a new virtual thread for each task, or a cached pool of daemon platform threads if
+   * virtual threads aren't supported.
+   *
+   * @param name The prefix of the names of the threads.
+   * @return The executor.
+   */
+  public static ExecutorService newExecutor(String name) {
+    ThreadFactory factory = virtualThreadFactory(name);
+    if (factory != null) {
+      try {
+        Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        return (ExecutorService) newThreadPerTaskExecutor.invoke(null, factory);
+      } catch (ReflectiveOperationException | RuntimeException e) {
+        // Fall through to platform threads
+      }
+    }
+
+    return Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, name);
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  private static Method method(Class<?> type, String name, Class<?>... parameterTypes) {
+    try {
+      return type.getMethod(name, parameterTypes);
+    } catch (NoSuchMethodException e) {
+      return null;
+    }
+  }
+
+  private static ThreadFactory virtualThreadFactory(String name) {
+    try {
+      // The builder classes aren't public, so their methods are called through the public Thread.Builder interface
+      Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      builder = builderType.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+      return (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      // Older JVMs, or a preview release without --enable-preview
+      return null;
+    }
+  }
+
+  private static class Shared {
+    static final ExecutorService EXECUTOR = newExecutor("passport-client");
+  }
+}
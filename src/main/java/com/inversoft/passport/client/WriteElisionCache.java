@@ -0,0 +1,205 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client;
+
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.inversoft.passport.domain.util.Fingerprint;
+
+/**
+ * Remembers the fingerprint of the JSON body of the last request that was successfully written for each user,
+ * registration and application so that a {@link PassportClient} created with {@link PassportClient#withWriteElision(WriteElisionCache)}
+ * can skip updates that would not change anything. Skipped updates return an {@link ElidedClientResponse}.
+ * <p>
+ * The cache only knows what this client wrote, not the state in Passport. Reading an object through the client makes
+ * the cache forget it, but a change made elsewhere that this client doesn't read is only noticed once the entry
+ * expires. If something else might change the same objects in Passport, keep the time to live short or call the
+ * invalidate methods when you learn about those changes (for example from a webhook event).
+ *
+ * @author Brian Pontarelli
+ */
+public class WriteElisionCache {
+  private final AtomicLong elidedCount = new AtomicLong();
+
+  private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+
+  private final int maximumSize;
+
+  private final long timeToLiveInMillis;
+
+  private final AtomicLong writtenCount = new AtomicLong();
+
+  /**
+   * @param maximumSize        The maximum number of objects to remember. Once full, expired entries are dropped and if
+   *                           there still isn't room new writes aren't remembered until entries expire.
+   * @param timeToLiveInMillis How long a write is trusted to still match the state in Passport.
+   */
+  public WriteElisionCache(int maximumSize, long timeToLiveInMillis) {
+    this.maximumSize = maximumSize;
+    this.timeToLiveInMillis = timeToLiveInMillis;
+  }
+
+  static String applicationKey(UUID applicationId) {
+    return "application:" + applicationId;
+  }
+
+  /**
+   * Calculates the fingerprint of a serialized request body. The body is hashed rather than the request object so that
+   * every field that is sent to Passport counts, including ones that equals and fingerprint leave out.
+   *
+   * @param body The JSON body.
+   * @return The fingerprint.
+   */
+  static long fingerprint(byte[] body) {
+    long h = Fingerprint.SEED;
+    for (byte b : body) {
+      h = (h ^ (b & 0xff)) * 0x100000001b3L;
+    }
+    return Fingerprint.mix(h);
+  }
+
+  static String registrationKey(UUID userId, UUID applicationId) {
+    return "registration:" + userId + ":" + applicationId;
+  }
+
+  static String userKey(UUID userId) {
+    return "user:" + userId;
+  }
+
+  /**
+   * Forgets everything.
+   */
+  public void clear() {
+    entries.clear();
+  }
+
+  /**
+   * @return The number of updates that were skipped.
+   */
+  public long elidedCount() {
+    return elidedCount.get();
+  }
+
+  public void invalidateApplication(UUID applicationId) {
+    entries.remove(applicationKey(applicationId));
+  }
+
+  public void invalidateRegistration(UUID userId, UUID applicationId) {
+    entries.remove(registrationKey(userId, applicationId));
+  }
+
+  public void invalidateUser(UUID userId) {
+    entries.remove(userKey(userId));
+  }
+
+  /**
+   * Forgets the user and all of its registrations, for example after it was deleted.
+   *
+   * @param userId The id of the user.
+   */
+  public void invalidateUserAndRegistrations(UUID userId) {
+    String prefix = "registration:" + userId + ":";
+    entries.keySet().removeIf(key -> key.startsWith(prefix));
+    entries.remove(userKey(userId));
+  }
+
+  /**
+   * Forgets every user and registration. This is used after writes that change users without saying which ones, such
+   * as modifying an action by its id or deleting an application.
+   */
+  public void invalidateUsers() {
+    entries.keySet().removeIf(key -> key.startsWith("user:") || key.startsWith("registration:"));
+  }
+
+  /**
+   * @return The number of objects currently remembered, including ones that have expired but haven't been dropped yet.
+   */
+  public int size() {
+    return entries.size();
+  }
+
+  /**
+   * @return The number of updates that were sent to Passport while this cache was in use.
+   */
+  public long writtenCount() {
+    return writtenCount.get();
+  }
+
+  /**
+   * Determines if a write can be skipped because the last successful write of the object had the same fingerprint.
+   *
+   * @param key         The key of the object.
+   * @param fingerprint The fingerprint of the request about to be sent.
+   * @return True if the write can be skipped.
+   */
+  boolean elide(String key, long fingerprint) {
+    Entry entry = entries.get(key);
+    if (entry == null) {
+      return false;
+    }
+
+    if (entry.expiresAt - System.currentTimeMillis() < 0) {
+      entries.remove(key, entry);
+      return false;
+    }
+
+    if (entry.fingerprint != fingerprint) {
+      return false;
+    }
+
+    elidedCount.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * Records the outcome of a write that was sent to Passport. Failed writes clear the entry since the state in Passport
+   * is no longer known.
+   *
+   * @param key         The key of the object.
+   * @param fingerprint The fingerprint of the request that was sent.
+   * @param successful  Whether or not Passport accepted the write.
+   */
+  void written(String key, long fingerprint, boolean successful) {
+    writtenCount.incrementAndGet();
+    if (!successful) {
+      entries.remove(key);
+      return;
+    }
+
+    long now = System.currentTimeMillis();
+    if (entries.size() >= maximumSize && !entries.containsKey(key)) {
+      entries.values().removeIf(entry -> entry.expiresAt - now < 0);
+      if (entries.size() >= maximumSize) {
+        return;
+      }
+    }
+
+    entries.put(key, new Entry(fingerprint, now + timeToLiveInMillis));
+  }
+
+  private static class Entry {
+    final long expiresAt;
+
+    final long fingerprint;
+
+    Entry(long fingerprint, long expiresAt) {
+      this.fingerprint = fingerprint;
+      this.expiresAt = expiresAt;
+    }
+  }
+}
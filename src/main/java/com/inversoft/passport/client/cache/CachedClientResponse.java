@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.cache;
+
+import com.inversoft.rest.ClientResponse;
+import com.inversoft.rest.RESTClient.HTTPMethod;
+
+/**
+ * The response returned by the {@link LookupCache} when it answers a lookup from its own copy instead of calling
+ * Passport. The status is 200 so that it is handled like any other successful lookup. The objects in the success
+ * response are shared with the cache and must be treated as read-only.
+ *
+ * @author Brian Pontarelli
+ */
+public class CachedClientResponse<T, U> extends ClientResponse<T, U> {
+  /**
+   * True if the value is older than the hard time to live and was only returned because Passport could not be reached.
+   */
+  public final boolean expired;
+
+  /**
+   * The instant (in milliseconds since the epoch) that the cached value was fetched from Passport.
+   */
+  public final long fetchedAt;
+
+  /**
+   * True if the value is older than the soft time to live. A fresh copy is being fetched in the background.
+   */
+  public final boolean stale;
+
+  public CachedClientResponse(T successResponse, long fetchedAt) {
+    this(successResponse, fetchedAt, false, false);
+  }
+
+  public CachedClientResponse(T successResponse, long fetchedAt, boolean stale, boolean expired) {
+    this.expired = expired;
+    this.fetchedAt = fetchedAt;
+    this.stale = stale;
+    this.method = HTTPMethod.GET;
+    this.status = 200;
+    this.successResponse = successResponse;
+  }
+
+  /**
+   * @param response The response.
+   * @return True if the response was answered from the cache.
+   */
+  public static boolean wasCached(ClientResponse<?, ?> response) {
+    return response instanceof CachedClientResponse;
+  }
+}
@@ -0,0 +1,572 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.cache;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.inversoft.error.Errors;
+import com.inversoft.passport.client.PassportClient;
+import com.inversoft.passport.domain.Application;
+import com.inversoft.passport.domain.SystemConfiguration;
+import com.inversoft.passport.domain.User;
+import com.inversoft.passport.domain.api.ApplicationResponse;
+import com.inversoft.passport.domain.api.PublicKeyResponse;
+import com.inversoft.passport.domain.api.SystemConfigurationResponse;
+import com.inversoft.passport.domain.api.UserResponse;
+import com.inversoft.passport.domain.api.user.SearchResponse;
+import com.inversoft.rest.ClientResponse;
+
+/**
+ * A read-through cache of the lookups that are made over and over again: applications, the system configuration, the
+ * JWT public keys and users. The retrieve methods mirror the ones on the {@link PassportClient} and answer from the
+ * cache with a {@link CachedClientResponse} when they can.
+ * <p>
+ * If a snapshot file is configured, the cache is saved to it periodically and when the cache is closed, and it is
+ * loaded from it when the cache is created. The snapshot is memory-mapped and each entry is only decoded the first time
+ * it is looked up, so a restarted application answers from the cache right away. Everything is then re-fetched in the
+ * background using a few bulk requests rather than one request per entry.
+ * <p>
+ * Values younger than the soft time to live are returned as they are. Older values are still returned right away, but
+ * are marked as stale and re-fetched in the background, so a slow Passport doesn't slow down lookups. Values older than
+ * the hard time to live are fetched again before returning. If that fails because Passport is down or overloaded, the
+ * old value is returned and marked as expired (unless {@link LookupCacheConfiguration#serveStaleOnFailure} is off).
+ * <p>
+ * The objects handed out are shared and must be treated as read-only.
+ *
+ * @author Brian Pontarelli
+ */
+public class LookupCache implements Closeable {
+  private static final byte END = -1;
+
+  private static final int MAGIC = 0x50504c43;
+
+  private static final String SYSTEM_CONFIGURATION = "system-configuration";
+
+  private static final int VERSION = 2;
+
+  private final ConcurrentHashMap<UUID, Entry> applications = new ConcurrentHashMap<>();
+
+  private final PassportClient client;
+
+  private final LookupCacheConfiguration configuration;
+
+  private final ScheduledExecutorService executor;
+
+  private final ConcurrentHashMap<String, Entry> publicKeys = new ConcurrentHashMap<>();
+
+  private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+  private final ReentrantLock snapshotLock = new ReentrantLock();
+
+  private final ConcurrentHashMap<String, Entry> systemConfiguration = new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<UUID, Entry> users = new ConcurrentHashMap<>();
+
+  public LookupCache(PassportClient client, LookupCacheConfiguration configuration) {
+    this.client = client;
+    this.configuration = configuration;
+    if (configuration.snapshotFile != null) {
+      load(configuration.snapshotFile);
+    }
+
+    this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "passport-lookup-cache");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    if (configuration.revalidateIntervalInMillis > 0) {
+      executor.scheduleWithFixedDelay(() -> quietly(this::revalidate), 0, configuration.revalidateIntervalInMillis, TimeUnit.MILLISECONDS);
+    }
+    if (configuration.snapshotFile != null && configuration.snapshotIntervalInMillis > 0) {
+      executor.scheduleWithFixedDelay(() -> quietly(this::snapshotQuietly), configuration.snapshotIntervalInMillis,
+          configuration.snapshotIntervalInMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Creates an empty file that only its owner can read and write, where the file system supports POSIX permissions.
+   */
+  private static void createPrivateFile(Path file) throws IOException {
+    Files.deleteIfExists(file);
+    if (file.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+      Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+    } else {
+      Files.createFile(file);
+    }
+  }
+
+  private static boolean failed(ClientResponse<?, ?> response) {
+    return response.exception != null || response.status < 0 || response.status == 429 || response.status >= 500;
+  }
+
+  private static void quietly(Runnable runnable) {
+    try {
+      runnable.run();
+    } catch (RuntimeException e) {
+      // Keep the schedule going, the next run will try again
+    }
+  }
+
+  /**
+   * Stops the background work and saves a final snapshot if a snapshot file is configured.
+   *
+   * @throws IOException If the snapshot could not be written.
+   */
+  @Override
+  public void close() throws IOException {
+    executor.shutdownNow();
+    snapshot();
+  }
+
+  /**
+   * Retrieves the application for the given id from the cache or from Passport. If the id is null, all of the
+   * applications are retrieved from Passport and the cache is not used.
+   *
+   * @param applicationId (Optional) The application id.
+   * @return See {@link PassportClient#retrieveApplication(UUID)}.
+   */
+  public ClientResponse<ApplicationResponse, Void> retrieveApplication(UUID applicationId) {
+    if (applicationId == null) {
+      return client.retrieveApplication(null);
+    }
+
+    return lookup(applications, applicationId, Kind.Application,
+        (Application application) -> new ApplicationResponse(application), response -> response.application,
+        () -> client.retrieveApplication(applicationId));
+  }
+
+  /**
+   * Retrieves the public key for the given key id from the cache or from Passport. If the id is null, all of the keys
+   * are retrieved from Passport and the cache is not used.
+   *
+   * @param keyId (Optional) The id of the public key.
+   * @return See {@link PassportClient#retrieveJwtPublicKey(String)}.
+   */
+  public ClientResponse<PublicKeyResponse, Errors> retrieveJwtPublicKey(String keyId) {
+    if (keyId == null) {
+      return client.retrieveJwtPublicKey(null);
+    }
+
+    return lookup(publicKeys, keyId, Kind.PublicKey, (String publicKey) -> new PublicKeyResponse(publicKey),
+        response -> response.publicKey, () -> client.retrieveJwtPublicKey(keyId));
+  }
+
+  /**
+   * Retrieves the system configuration from the cache or from Passport.
+   *
+   * @return See {@link PassportClient#retrieveSystemConfiguration()}.
+   */
+  public ClientResponse<SystemConfigurationResponse, Void> retrieveSystemConfiguration() {
+    return lookup(systemConfiguration, SYSTEM_CONFIGURATION, Kind.SystemConfiguration,
+        (SystemConfiguration configuration) -> new SystemConfigurationResponse(configuration),
+        response -> response.systemConfiguration, client::retrieveSystemConfiguration);
+  }
+
+  /**
+   * Retrieves the user for the given id from the cache or from Passport.
+   *
+   * @param userId The id of the user.
+   * @return See {@link PassportClient#retrieveUser(UUID)}.
+   */
+  public ClientResponse<UserResponse, Errors> retrieveUser(UUID userId) {
+    return lookup(users, userId, Kind.User, (User user) -> new UserResponse(user), response -> response.user,
+        () -> client.retrieveUser(userId));
+  }
+
+  /**
+   * Re-fetches everything in the cache from Passport. Applications, public keys and the system configuration each take
+   * one request and users are fetched in batches. Entries that Passport no longer has are removed. If a request fails,
+   * the entries it covers are kept as they are.
+   */
+  public void revalidate() {
+    if (!applications.isEmpty()) {
+      ClientResponse<ApplicationResponse, Void> response = client.retrieveApplications();
+      if (response.wasSuccessful() && response.successResponse.applications != null) {
+        long now = System.currentTimeMillis();
+        Set<UUID> missing = new HashSet<>(applications.keySet());
+        for (Application application : response.successResponse.applications) {
+          missing.remove(application.id);
+          applications.put(application.id, new Entry(Kind.Application, application, now));
+        }
+        missing.forEach(applications::remove);
+      }
+    }
+
+    if (!publicKeys.isEmpty()) {
+      ClientResponse<PublicKeyResponse, Errors> response = client.retrieveJwtPublicKeys();
+      if (response.wasSuccessful() && response.successResponse.publicKeys != null) {
+        long now = System.currentTimeMillis();
+        Set<String> missing = new HashSet<>(publicKeys.keySet());
+        for (Map.Entry<String, String> key : response.successResponse.publicKeys.entrySet()) {
+          missing.remove(key.getKey());
+          publicKeys.put(key.getKey(), new Entry(Kind.PublicKey, key.getValue(), now));
+        }
+        missing.forEach(publicKeys::remove);
+      }
+    }
+
+    if (!systemConfiguration.isEmpty()) {
+      ClientResponse<SystemConfigurationResponse, Void> response = client.retrieveSystemConfiguration();
+      if (response.wasSuccessful() && response.successResponse.systemConfiguration != null) {
+        systemConfiguration.put(SYSTEM_CONFIGURATION, new Entry(Kind.SystemConfiguration,
+            response.successResponse.systemConfiguration, System.currentTimeMillis()));
+      }
+    }
+
+    List<UUID> ids = new ArrayList<>(users.keySet());
+    for (int start = 0; start < ids.size(); start += configuration.revalidateBatchSize) {
+      List<UUID> batch = ids.subList(start, Math.min(start + configuration.revalidateBatchSize, ids.size()));
+      ClientResponse<SearchResponse, Errors> response = client.searchUsers(batch);
+      if (!response.wasSuccessful() || response.successResponse.users == null) {
+        // Passport is having trouble, so don't pile on with the rest of the batches
+        return;
+      }
+
+      long now = System.currentTimeMillis();
+      Set<UUID> missing = new HashSet<>(batch);
+      for (User user : response.successResponse.users) {
+        missing.remove(user.id);
+        putUser(user.id, new Entry(Kind.User, user, now));
+      }
+      missing.forEach(users::remove);
+    }
+  }
+
+  /**
+   * @return The number of entries in the cache.
+   */
+  public int size() {
+    return applications.size() + publicKeys.size() + systemConfiguration.size() + users.size();
+  }
+
+  /**
+   * Saves the cache to the snapshot file. The snapshot is written to a temporary file that then replaces the snapshot
+   * file, so a crash never leaves a partial snapshot behind. This does nothing if no snapshot file is configured.
+   * <p>
+   * The passwords, salts, two factor secrets and verification ids of the users are left out of the snapshot, and the
+   * file can only be read by its owner where the file system supports POSIX permissions. The applications and the
+   * system configuration are saved as they are, including any JWT and OAuth secrets they hold.
+   *
+   * @throws IOException If the snapshot could not be written.
+   */
+  public void snapshot() throws IOException {
+    Path file = configuration.snapshotFile;
+    if (file == null) {
+      return;
+    }
+
+    snapshotLock.lock();
+    try {
+      Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+      UserRecordCodec codec = new UserRecordCodec();
+      createPrivateFile(temp);
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        write(out, codec, applications);
+        write(out, codec, publicKeys);
+        write(out, codec, systemConfiguration);
+        write(out, codec, users);
+        out.writeByte(END);
+      }
+
+      try {
+        Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      } catch (AtomicMoveNotSupportedException e) {
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+      }
+    } finally {
+      snapshotLock.unlock();
+    }
+  }
+
+  void put(Kind kind, String key, Entry entry) {
+    switch (kind) {
+      case Application:
+        applications.put(UUID.fromString(key), entry);
+        break;
+      case PublicKey:
+        publicKeys.put(key, entry);
+        break;
+      case SystemConfiguration:
+        systemConfiguration.put(key, entry);
+        break;
+      case User:
+        putUser(UUID.fromString(key), entry);
+        break;
+    }
+  }
+
+  private void load(Path file) {
+    if (!Files.isRegularFile(file)) {
+      return;
+    }
+
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      // The mapping stays valid after the channel is closed
+      ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+        return;
+      }
+
+      Kind[] kinds = Kind.values();
+      List<Object[]> entries = new ArrayList<>();
+      for (byte kind = buffer.get(); kind != END; kind = buffer.get()) {
+        byte[] key = new byte[buffer.getInt()];
+        buffer.get(key);
+        long fetchedAt = buffer.getLong();
+        int length = buffer.getInt();
+        ByteBuffer payload = buffer.slice();
+        payload.limit(length);
+        buffer.position(buffer.position() + length);
+        entries.add(new Object[]{kinds[kind], new String(key, StandardCharsets.UTF_8), new Entry(kinds[kind], payload, fetchedAt)});
+      }
+
+      // Only use the snapshot once all of it has been read, since a damaged snapshot can't be trusted
+      for (Object[] entry : entries) {
+        put((Kind) entry[0], (String) entry[1], (Entry) entry[2]);
+      }
+    } catch (IOException | RuntimeException e) {
+      // A missing or damaged snapshot only means that the cache starts out empty
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private <K, V, T, U> ClientResponse<T, U> lookup(ConcurrentHashMap<K, Entry> map, K key, Kind kind,
+                                                   Function<V, T> toResponse, Function<T, V> fromResponse,
+                                                   Supplier<ClientResponse<T, U>> fetch) {
+    Entry entry = map.get(key);
+    V value = entry != null ? (V) entry.value() : null;
+    if (entry != null && value == null) {
+      // The snapshot entry could not be decoded
+      map.remove(key, entry);
+    }
+
+    if (value != null) {
+      long age = System.currentTimeMillis() - entry.fetchedAt;
+      if (age < configuration.hardTimeToLiveInMillis) {
+        boolean stale = age >= configuration.softTimeToLiveInMillis;
+        if (stale) {
+          revalidateLater(map, key, kind, fromResponse, fetch);
+        }
+
+        return new CachedClientResponse<>(toResponse.apply(value), entry.fetchedAt, stale, false);
+      }
+    }
+
+    ClientResponse<T, U> response = fetch.get();
+    if (value != null && configuration.serveStaleOnFailure && failed(response)) {
+      return new CachedClientResponse<>(toResponse.apply(value), entry.fetchedAt, true, true);
+    }
+
+    store(map, key, kind, fromResponse, response);
+    return response;
+  }
+
+  private void putUser(UUID id, Entry entry) {
+    if (users.size() >= configuration.maximumUsers && !users.containsKey(id)) {
+      Iterator<UUID> iterator = users.keySet().iterator();
+      if (iterator.hasNext()) {
+        iterator.next();
+        iterator.remove();
+      }
+    }
+
+    users.put(id, entry);
+  }
+
+  private <K, V, T, U> void revalidateLater(ConcurrentHashMap<K, Entry> map, K key, Kind kind,
+                                            Function<T, V> fromResponse, Supplier<ClientResponse<T, U>> fetch) {
+    String pendingKey = kind + ":" + key;
+    if (!pending.add(pendingKey)) {
+      return;
+    }
+
+    try {
+      executor.execute(() -> {
+        try {
+          store(map, key, kind, fromResponse, fetch.get());
+        } finally {
+          pending.remove(pendingKey);
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      // The cache is closed
+      pending.remove(pendingKey);
+    }
+  }
+
+  private void snapshotQuietly() {
+    try {
+      snapshot();
+    } catch (IOException e) {
+      // Try again at the next interval
+    }
+  }
+
+  private <K, V, T, U> void store(ConcurrentHashMap<K, Entry> map, K key, Kind kind, Function<T, V> fromResponse,
+                                  ClientResponse<T, U> response) {
+    V value = response.wasSuccessful() && response.successResponse != null ? fromResponse.apply(response.successResponse) : null;
+    if (value != null) {
+      put(kind, key.toString(), new Entry(kind, value, System.currentTimeMillis()));
+    } else if (response.status == 404) {
+      map.remove(key);
+    }
+  }
+
+  private <K> void write(DataOutputStream out, UserRecordCodec codec, Map<K, Entry> entries) throws IOException {
+    for (Map.Entry<K, Entry> entry : entries.entrySet()) {
+      Entry value = entry.getValue();
+      ByteBuffer payload = value.encode(codec);
+      if (payload == null) {
+        continue;
+      }
+
+      byte[] key = entry.getKey().toString().getBytes(StandardCharsets.UTF_8);
+      out.writeByte(value.kind.ordinal());
+      out.writeInt(key.length);
+      out.write(key);
+      out.writeLong(value.fetchedAt);
+      out.writeInt(payload.remaining());
+      if (payload.hasArray()) {
+        out.write(payload.array(), payload.arrayOffset() + payload.position(), payload.remaining());
+      } else {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        out.write(bytes);
+      }
+    }
+  }
+
+  /**
+   * The kinds of entries in the cache. The ordinal is stored in the snapshot, so new kinds must be added at the end.
+   */
+  enum Kind {
+    Application,
+    PublicKey,
+    SystemConfiguration,
+    User
+  }
+
+  /**
+   * A cached value. Entries loaded from a snapshot hold the bytes of the value and decode it the first time it is asked
+   * for. Two threads may both decode it, which is harmless.
+   */
+  static class Entry {
+    final long fetchedAt;
+
+    final Kind kind;
+
+    private final ByteBuffer payload;
+
+    private volatile Object value;
+
+    Entry(Kind kind, Object value, long fetchedAt) {
+      this.fetchedAt = fetchedAt;
+      this.kind = kind;
+      this.payload = null;
+      this.value = value;
+    }
+
+    Entry(Kind kind, ByteBuffer payload, long fetchedAt) {
+      this.fetchedAt = fetchedAt;
+      this.kind = kind;
+      this.payload = payload;
+    }
+
+    /**
+     * @return The bytes of the value for the snapshot or null if the value can't be encoded.
+     */
+    ByteBuffer encode(UserRecordCodec codec) throws IOException {
+      if (payload != null) {
+        return payload.duplicate();
+      }
+
+      switch (kind) {
+        case PublicKey:
+          return ByteBuffer.wrap(((String) value).getBytes(StandardCharsets.UTF_8));
+        case User:
+          return codec.encode((User) value, UserRecordCodec.SNAPSHOT_FIELDS);
+        default:
+          return ByteBuffer.wrap(PassportClient.objectMapper.writeValueAsBytes(value));
+      }
+    }
+
+    /**
+     * @return The value or null if it could not be decoded.
+     */
+    Object value() {
+      Object result = value;
+      if (result == null) {
+        try {
+          result = decode(payload.duplicate());
+          value = result;
+        } catch (IOException | RuntimeException e) {
+          return null;
+        }
+      }
+
+      return result;
+    }
+
+    private Object decode(ByteBuffer bytes) throws IOException {
+      switch (kind) {
+        case Application:
+          return PassportClient.objectMapper.readValue(array(bytes), Application.class);
+        case PublicKey:
+          return new String(array(bytes), StandardCharsets.UTF_8);
+        case SystemConfiguration:
+          return PassportClient.objectMapper.readValue(array(bytes), SystemConfiguration.class);
+        default:
+          return UserRecordCodec.decode(bytes, 0, UserRecordCodec.ALL_FIELDS);
+      }
+    }
+
+    private byte[] array(ByteBuffer bytes) {
+      byte[] array = new byte[bytes.remaining()];
+      bytes.get(array);
+      return array;
+    }
+  }
+}
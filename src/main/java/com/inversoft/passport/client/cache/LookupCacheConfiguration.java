@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.cache;
+
+import java.nio.file.Path;
+
+import com.inversoft.json.ToString;
+import com.inversoft.passport.domain.Buildable;
+
+/**
+ * Configuration of the {@link LookupCache}.
+ *
+ * @author Brian Pontarelli
+ */
+public class LookupCacheConfiguration implements Buildable<LookupCacheConfiguration> {
+  /**
+   * How long a value is returned before it must be fetched again. Once a value is this old, lookups wait for Passport.
+   * If Passport can't be reached and {@link #serveStaleOnFailure} is set, the old value is returned anyway.
+   */
+  public long hardTimeToLiveInMillis = 60 * 60 * 1000;
+
+  /**
+   * The maximum number of users kept. Once it is reached, an arbitrary user is dropped for each new one.
+   */
+  public int maximumUsers = 100_000;
+
+  /**
+   * The number of users re-fetched with each search request when the cache is revalidated.
+   */
+  public int revalidateBatchSize = 100;
+
+  /**
+   * How often everything in the cache is re-fetched from Passport in the background. The first revalidation runs right
+   * after the snapshot is loaded. Zero disables background revalidation.
+   */
+  public long revalidateIntervalInMillis = 5 * 60 * 1000;
+
+  /**
+   * Whether values older than the hard time to live are returned when Passport can't be reached or is failing.
+   */
+  public boolean serveStaleOnFailure = true;
+
+  /**
+   * The file the cache is saved to and loaded from. If this is null, the cache is not persisted. See
+   * {@link LookupCache#snapshot()} for what is left out of it.
+   */
+  public Path snapshotFile;
+
+  /**
+   * How often the cache is saved to the snapshot file. Zero disables periodic snapshots, but a snapshot is still saved
+   * when the cache is closed.
+   */
+  public long snapshotIntervalInMillis = 60 * 1000;
+
+  /**
+   * How long a value is returned without checking it. Once a value is this old, it is still returned but a fresh copy
+   * is fetched in the background.
+   */
+  public long softTimeToLiveInMillis = 60 * 1000;
+
+  @Override
+  public String toString() {
+    return ToString.toString(this);
+  }
+}
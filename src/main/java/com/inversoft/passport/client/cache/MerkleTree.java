@@ -0,0 +1,209 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A hash tree over a set of records keyed by UUID. The id space is split into 2^depth buckets using the high bits of
+ * the id. Each leaf holds an order independent sum of the hashes of the records in its bucket and each inner node holds
+ * the hash of its two children. Two trees with the same depth can be compared top-down to find the buckets that differ
+ * without looking at the records in the buckets that match.
+ * <p>
+ * Nodes are stored heap style: the root is node 1, the children of node n are 2n and 2n + 1 and the leaves start at
+ * 2^depth.
+ *
+ * @author Brian Pontarelli
+ */
+public class MerkleTree {
+  public final int depth;
+
+  private final int leaves;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final long[] nodes;
+
+  public MerkleTree(int depth) {
+    if (depth < 1 || depth > 24) {
+      throw new IllegalArgumentException("The depth of the tree must be between 1 and 24");
+    }
+
+    this.depth = depth;
+    this.leaves = 1 << depth;
+    this.nodes = new long[leaves * 2];
+    for (int i = leaves - 1; i > 0; i--) {
+      nodes[i] = combine(nodes[2 * i], nodes[2 * i + 1]);
+    }
+  }
+
+  /**
+   * Creates a tree from the nodes of another tree, for example one that was sent over the wire by a peer.
+   *
+   * @param depth The depth of the tree.
+   * @param nodes The nodes as returned by {@link #nodes()}.
+   */
+  public MerkleTree(int depth, long[] nodes) {
+    this(depth);
+    if (nodes.length != this.nodes.length) {
+      throw new IllegalArgumentException("A tree of depth [" + depth + "] must have [" + this.nodes.length + "] nodes");
+    }
+
+    System.arraycopy(nodes, 0, this.nodes, 0, nodes.length);
+  }
+
+  private static long combine(long left, long right) {
+    return mix(left * 31 + mix(right));
+  }
+
+  private static long entry(UUID id, long fingerprint) {
+    return mix(mix(id.getMostSignificantBits() ^ mix(id.getLeastSignificantBits())) ^ fingerprint);
+  }
+
+  private static long mix(long h) {
+    // The finalizer of MurmurHash3
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  /**
+   * Adds a record to its bucket.
+   *
+   * @param id          The id of the record.
+   * @param fingerprint The content fingerprint of the record.
+   */
+  public void add(UUID id, long fingerprint) {
+    update(bucket(id), entry(id, fingerprint));
+  }
+
+  /**
+   * @param id The id.
+   * @return The bucket that the id falls in.
+   */
+  public int bucket(UUID id) {
+    return (int) (id.getMostSignificantBits() >>> (64 - depth));
+  }
+
+  /**
+   * @return The number of buckets (leaves) in the tree.
+   */
+  public int buckets() {
+    return leaves;
+  }
+
+  /**
+   * Walks both trees from the root and returns the buckets whose hashes are not the same.
+   *
+   * @param other The other tree, which must have the same depth.
+   * @return The buckets that differ in ascending order.
+   */
+  public List<Integer> diff(MerkleTree other) {
+    if (other.depth != depth) {
+      throw new IllegalArgumentException("Only trees of the same depth can be compared");
+    }
+
+    long[] mine = nodes();
+    long[] theirs = other.nodes();
+    List<Integer> buckets = new ArrayList<>();
+    diff(mine, theirs, 1, buckets);
+    return buckets;
+  }
+
+  /**
+   * @param bucket The bucket.
+   * @return The smallest id in the bucket.
+   */
+  public UUID lowerBound(int bucket) {
+    return new UUID(((long) bucket) << (64 - depth), 0L);
+  }
+
+  /**
+   * @return A copy of the nodes of the tree.
+   */
+  public long[] nodes() {
+    lock.lock();
+    try {
+      return nodes.clone();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes a record from its bucket. The fingerprint must be the one the record was added with.
+   *
+   * @param id          The id of the record.
+   * @param fingerprint The content fingerprint of the record.
+   */
+  public void remove(UUID id, long fingerprint) {
+    update(bucket(id), -entry(id, fingerprint));
+  }
+
+  /**
+   * @return The root hash of the tree.
+   */
+  public long root() {
+    lock.lock();
+    try {
+      return nodes[1];
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @param bucket The bucket.
+   * @return The largest id in the bucket.
+   */
+  public UUID upperBound(int bucket) {
+    long span = (1L << (64 - depth)) - 1;
+    return new UUID((((long) bucket) << (64 - depth)) | span, -1L);
+  }
+
+  private void diff(long[] mine, long[] theirs, int node, List<Integer> buckets) {
+    if (mine[node] == theirs[node]) {
+      return;
+    }
+
+    if (node >= leaves) {
+      buckets.add(node - leaves);
+      return;
+    }
+
+    diff(mine, theirs, 2 * node, buckets);
+    diff(mine, theirs, 2 * node + 1, buckets);
+  }
+
+  private void update(int bucket, long delta) {
+    lock.lock();
+    try {
+      int node = leaves + bucket;
+      nodes[node] += delta;
+      for (node >>>= 1; node > 0; node >>>= 1) {
+        nodes[node] = combine(nodes[2 * node], nodes[2 * node + 1]);
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+}
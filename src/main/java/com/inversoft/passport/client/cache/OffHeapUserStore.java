@@ -0,0 +1,481 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.cache;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+import com.inversoft.passport.domain.User;
+
+/**
+ * Stores users outside of the Java heap so that tens of millions of them can be kept locally without adding to the
+ * heap or to the garbage collection pauses. Each user is encoded into a compact binary record (see
+ * {@link UserRecordCodec}) that is appended to large blocks of memory called slabs. The slabs are direct buffers or,
+ * if a directory is configured, memory-mapped files.
+ * <p>
+ * The records are found using an open-addressing hash table keyed by the user id that is also stored off-heap. Each
+ * slot holds the id and the location of the record. Replacing or removing a user leaves the old record behind, and the
+ * store compacts itself once the share of such records passes the configured threshold.
+ * <p>
+ * Lookups decode a new User each time and only decode the fields asked for, so the Users that are handed out are not
+ * shared and can be modified. Lookups run in parallel and writes are serialized.
+ *
+ * @author Brian Pontarelli
+ */
+public class OffHeapUserStore implements Closeable {
+  private static final long DELETED = -1;
+
+  private static final long EMPTY = 0;
+
+  private static final double MAX_LOAD = 0.7;
+
+  private static final int PAGE_SHIFT = 16;
+
+  private static final int SLOT_SIZE = 24;
+
+  private final UserRecordCodec codec = new UserRecordCodec();
+
+  private final OffHeapUserStoreConfiguration configuration;
+
+  private final StampedLock lock = new StampedLock();
+
+  private int capacity;
+
+  private boolean closed;
+
+  private int count;
+
+  private int deleted;
+
+  private long garbageBytes;
+
+  private int generation;
+
+  private ByteBuffer[] index;
+
+  private long liveBytes;
+
+  private List<ByteBuffer> slabs = new ArrayList<>();
+
+  private int writeOffset;
+
+  public OffHeapUserStore(OffHeapUserStoreConfiguration configuration) {
+    this.configuration = configuration;
+    this.index = allocateIndex(capacityFor(configuration.expectedSize));
+  }
+
+  private static int capacityFor(int size) {
+    int capacity = 16;
+    while (capacity * MAX_LOAD < size) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  private static long hash(long mostSignificantBits, long leastSignificantBits) {
+    // The finalizer of MurmurHash3
+    long h = mostSignificantBits ^ Long.rotateLeft(leastSignificantBits, 32);
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  /**
+   * Releases the memory of the store. Direct and mapped buffers are freed once they are garbage collected.
+   */
+  @Override
+  public void close() {
+    long stamp = lock.writeLock();
+    try {
+      closed = true;
+      slabs = new ArrayList<>();
+      index = new ByteBuffer[0];
+      count = 0;
+      deleted = 0;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Copies the current records into new slabs and drops the old ones, which frees the space held by replaced and
+   * removed users.
+   */
+  public void compact() {
+    long stamp = lock.writeLock();
+    try {
+      checkOpen();
+      compactLocked();
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * @param id The id of the user.
+   * @return True if the store has the user.
+   */
+  public boolean contains(UUID id) {
+    long stamp = lock.readLock();
+    try {
+      checkOpen();
+      return find(id.getMostSignificantBits(), id.getLeastSignificantBits()) >= 0;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Decodes every user in the store. Writes wait until this returns.
+   *
+   * @param fields   The fields to decode.
+   * @param consumer Called with each user.
+   */
+  public void forEach(Set<UserField> fields, Consumer<User> consumer) {
+    long stamp = lock.readLock();
+    try {
+      checkOpen();
+      for (int slot = 0; slot < capacity; slot++) {
+        long location = location(slot);
+        if (location != EMPTY && location != DELETED) {
+          consumer.accept(decode(location, fields));
+        }
+      }
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * @return The number of bytes held by replaced and removed users.
+   */
+  public long garbageBytes() {
+    long stamp = lock.readLock();
+    try {
+      return garbageBytes;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Decodes all of the fields of a user.
+   *
+   * @param id The id of the user.
+   * @return The user or null if the store doesn't have it.
+   */
+  public User get(UUID id) {
+    return get(id, UserRecordCodec.ALL_FIELDS);
+  }
+
+  /**
+   * Decodes some of the fields of a user. The other fields are left at their defaults.
+   *
+   * @param id     The id of the user.
+   * @param fields The fields to decode.
+   * @return The user or null if the store doesn't have it.
+   */
+  public User get(UUID id, Set<UserField> fields) {
+    long stamp = lock.readLock();
+    try {
+      checkOpen();
+      int slot = find(id.getMostSignificantBits(), id.getLeastSignificantBits());
+      return slot >= 0 ? decode(location(slot), fields) : null;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * @return The number of bytes of memory the store has reserved outside of the heap.
+   */
+  public long offHeapBytes() {
+    long stamp = lock.readLock();
+    try {
+      return (long) slabs.size() * configuration.slabSizeInBytes + (long) capacity * SLOT_SIZE;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Adds the user or replaces the stored copy of it.
+   *
+   * @param user The user, which must have an id.
+   * @throws IllegalArgumentException If the encoded user is larger than a slab.
+   */
+  public void put(User user) {
+    long stamp = lock.writeLock();
+    try {
+      checkOpen();
+      ByteBuffer record = codec.encode(user);
+      if (record.remaining() > configuration.slabSizeInBytes) {
+        throw new IllegalArgumentException("The user [" + user.id + "] takes [" + record.remaining() + "] bytes, which is " +
+            "more than the slab size of [" + configuration.slabSizeInBytes + "] bytes");
+      }
+
+      long mostSignificantBits = user.id.getMostSignificantBits();
+      long leastSignificantBits = user.id.getLeastSignificantBits();
+      long location = append(record);
+      liveBytes += record.limit();
+
+      int slot = find(mostSignificantBits, leastSignificantBits);
+      if (slot >= 0) {
+        release(location(slot));
+        setLocation(slot, location);
+      } else {
+        if (count + deleted + 1 > capacity * MAX_LOAD) {
+          resize(capacityFor(count + 1));
+        }
+        insert(mostSignificantBits, leastSignificantBits, location);
+        count++;
+      }
+
+      compactIfNeeded();
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Removes a user.
+   *
+   * @param id The id of the user.
+   * @return True if the store had the user.
+   */
+  public boolean remove(UUID id) {
+    long stamp = lock.writeLock();
+    try {
+      checkOpen();
+      int slot = find(id.getMostSignificantBits(), id.getLeastSignificantBits());
+      if (slot < 0) {
+        return false;
+      }
+
+      release(location(slot));
+      setLocation(slot, DELETED);
+      count--;
+      deleted++;
+      compactIfNeeded();
+      return true;
+    } finally {
+      lock.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * @return The number of users in the store.
+   */
+  public int size() {
+    long stamp = lock.readLock();
+    try {
+      return count;
+    } finally {
+      lock.unlockRead(stamp);
+    }
+  }
+
+  private ByteBuffer[] allocateIndex(int capacity) {
+    this.capacity = capacity;
+    int pageSlots = Math.min(capacity, 1 << PAGE_SHIFT);
+    ByteBuffer[] pages = new ByteBuffer[capacity / pageSlots];
+    for (int i = 0; i < pages.length; i++) {
+      pages[i] = ByteBuffer.allocateDirect(pageSlots * SLOT_SIZE);
+    }
+    return pages;
+  }
+
+  private ByteBuffer allocateSlab() {
+    if (configuration.directory == null) {
+      return ByteBuffer.allocateDirect(configuration.slabSizeInBytes);
+    }
+
+    try {
+      Files.createDirectories(configuration.directory);
+      Path file = configuration.directory.resolve("users-" + (generation++) + ".slab");
+      // The mapping stays valid after the channel is closed and the file is deleted
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+          StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE)) {
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, configuration.slabSizeInBytes);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private long append(ByteBuffer record) {
+    int length = record.remaining();
+    if (slabs.isEmpty() || writeOffset + length > configuration.slabSizeInBytes) {
+      slabs.add(allocateSlab());
+      writeOffset = 0;
+    }
+
+    int slab = slabs.size() - 1;
+    ByteBuffer target = slabs.get(slab).duplicate();
+    target.position(writeOffset);
+    target.put(record);
+
+    long location = (((long) slab) << 32 | writeOffset) + 1;
+    writeOffset += length;
+    return location;
+  }
+
+  private void checkOpen() {
+    if (closed) {
+      throw new IllegalStateException("The store is closed");
+    }
+  }
+
+  private void compactIfNeeded() {
+    long total = liveBytes + garbageBytes;
+    if (garbageBytes > configuration.slabSizeInBytes && garbageBytes > total * configuration.compactionThreshold) {
+      compactLocked();
+    }
+  }
+
+  private void compactLocked() {
+    List<ByteBuffer> old = slabs;
+    slabs = new ArrayList<>();
+    writeOffset = 0;
+    for (int slot = 0; slot < capacity; slot++) {
+      long location = location(slot);
+      if (location == EMPTY || location == DELETED) {
+        continue;
+      }
+
+      ByteBuffer slab = old.get(slab(location));
+      int offset = offset(location);
+      ByteBuffer record = slab.duplicate();
+      record.position(offset);
+      record.limit(offset + UserRecordCodec.length(slab, offset));
+      setLocation(slot, append(record));
+    }
+
+    garbageBytes = 0;
+    if (deleted > 0) {
+      resize(capacity);
+    }
+  }
+
+  private User decode(long location, Set<UserField> fields) {
+    return UserRecordCodec.decode(slabs.get(slab(location)), offset(location), fields);
+  }
+
+  /**
+   * @return The slot of the id or -1 if it isn't in the index.
+   */
+  private int find(long mostSignificantBits, long leastSignificantBits) {
+    int mask = capacity - 1;
+    int slot = (int) hash(mostSignificantBits, leastSignificantBits) & mask;
+    while (true) {
+      long location = location(slot);
+      if (location == EMPTY) {
+        return -1;
+      }
+
+      if (location != DELETED && page(slot).getLong(position(slot)) == mostSignificantBits &&
+          page(slot).getLong(position(slot) + 8) == leastSignificantBits) {
+        return slot;
+      }
+
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private void insert(long mostSignificantBits, long leastSignificantBits, long location) {
+    int mask = capacity - 1;
+    int slot = (int) hash(mostSignificantBits, leastSignificantBits) & mask;
+    while (true) {
+      long current = location(slot);
+      if (current == EMPTY || current == DELETED) {
+        if (current == DELETED) {
+          deleted--;
+        }
+
+        ByteBuffer page = page(slot);
+        int position = position(slot);
+        page.putLong(position, mostSignificantBits);
+        page.putLong(position + 8, leastSignificantBits);
+        page.putLong(position + 16, location);
+        return;
+      }
+
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private long location(int slot) {
+    return page(slot).getLong(position(slot) + 16);
+  }
+
+  private int offset(long location) {
+    return (int) (location - 1);
+  }
+
+  private ByteBuffer page(int slot) {
+    return index[slot >>> PAGE_SHIFT];
+  }
+
+  private int position(int slot) {
+    return (slot & ((1 << PAGE_SHIFT) - 1)) * SLOT_SIZE;
+  }
+
+  private void release(long location) {
+    int length = UserRecordCodec.length(slabs.get(slab(location)), offset(location));
+    liveBytes -= length;
+    garbageBytes += length;
+  }
+
+  private void resize(int newCapacity) {
+    ByteBuffer[] oldIndex = index;
+    int oldCapacity = capacity;
+    int pageSlots = Math.min(oldCapacity, 1 << PAGE_SHIFT);
+
+    index = allocateIndex(Math.max(newCapacity, 16));
+    deleted = 0;
+    for (int slot = 0; slot < oldCapacity; slot++) {
+      ByteBuffer page = oldIndex[slot / pageSlots];
+      int position = (slot % pageSlots) * SLOT_SIZE;
+      long location = page.getLong(position + 16);
+      if (location != EMPTY && location != DELETED) {
+        insert(page.getLong(position), page.getLong(position + 8), location);
+      }
+    }
+  }
+
+  private void setLocation(int slot, long location) {
+    page(slot).putLong(position(slot) + 16, location);
+  }
+
+  private int slab(long location) {
+    return (int) ((location - 1) >>> 32);
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.cache;
+
+import java.nio.file.Path;
+
+import com.inversoft.json.ToString;
+import com.inversoft.passport.domain.Buildable;
+
+/**
+ * Configuration of the {@link OffHeapUserStore}.
+ *
+ * @author Brian Pontarelli
+ */
+public class OffHeapUserStoreConfiguration implements Buildable<OffHeapUserStoreConfiguration> {
+  /**
+   * The fraction of the record bytes that may belong to replaced or removed users before the store compacts itself.
+   */
+  public double compactionThreshold = 0.5;
+
+  /**
+   * The directory of the memory-mapped slab files. If this is null, the slabs are direct buffers instead. Mapped slabs
+   * let the operating system page out records that aren't being used.
+   */
+  public Path directory;
+
+  /**
+   * The number of users the index is sized for up front.
+   */
+  public int expectedSize = 1024;
+
+  /**
+   * The size of each block of memory the records are stored in. This is also the largest record that can be stored.
+   */
+  public int slabSizeInBytes = 64 * 1024 * 1024;
+
+  @Override
+  public String toString() {
+    return ToString.toString(this);
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.cache;
+
+/**
+ * The fields of a {@link com.inversoft.passport.domain.User} that the {@link OffHeapUserStore} stores and can decode on
+ * their own. The order of the constants is the order of the fields in the binary form, so new fields must be added at
+ * the end.
+ *
+ * @author Brian Pontarelli
+ */
+public enum UserField {
+  Active,
+  BirthDate,
+  ChildIds,
+  CleanSpeakId,
+  Data,
+  Email,
+  EncryptionScheme,
+  Expiry,
+  Factor,
+  FirstName,
+  FullName,
+  ImageUrl,
+  InsertInstant,
+  LastLoginInstant,
+  LastName,
+  MiddleName,
+  MobilePhone,
+  ParentId,
+  ParentalConsentType,
+  Password,
+  PasswordChangeRequired,
+  PasswordLastUpdateInstant,
+  Registrations,
+  Salt,
+  Timezone,
+  TwoFactorEnabled,
+  TwoFactorSecret,
+  Username,
+  UsernameStatus,
+  VerificationId,
+  VerificationIdCreateInstant,
+  Verified
+}
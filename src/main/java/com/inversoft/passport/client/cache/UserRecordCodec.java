@@ -0,0 +1,637 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.cache;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.inversoft.passport.client.PassportClient;
+import com.inversoft.passport.domain.ContentStatus;
+import com.inversoft.passport.domain.ParentalConsentType;
+import com.inversoft.passport.domain.User;
+import com.inversoft.passport.domain.UserData;
+import com.inversoft.passport.domain.UserRegistration;
+import com.inversoft.passport.domain.util.UUIDList;
+
+/**
+ * Encodes users into the binary records of the {@link OffHeapUserStore}. A record is:
+ * <pre>
+ *   int    length of the record in bytes
+ *   long   most significant bits of the id
+ *   long   least significant bits of the id
+ *   long   bit n is set if field n of {@link UserField} is true or present
+ *   ...    the present fields in {@link UserField} order
+ * </pre>
+ * Strings are an int length (-1 for null) followed by the UTF-8 bytes. Instants are the epoch second and the nano of
+ * second and are decoded in UTC. The child ids, user data and registrations are an int length followed by their bytes,
+ * so that they can be skipped without decoding them. The user data attributes are stored as JSON since they can hold
+ * anything.
+ * <p>
+ * The encoder reuses its buffer and is not thread safe. Decoding only reads the given buffer and is thread safe.
+ *
+ * @author Brian Pontarelli
+ */
+class UserRecordCodec {
+  static final Set<UserField> ALL_FIELDS = Collections.unmodifiableSet(EnumSet.allOf(UserField.class));
+
+  static final int HEADER_LENGTH = 4 + 16 + 8;
+
+  /**
+   * The fields that are written to the {@link LookupCache} snapshot. The credentials and the secrets that let someone
+   * log in or verify as the user never leave the memory of the process.
+   */
+  static final Set<UserField> SNAPSHOT_FIELDS = Collections.unmodifiableSet(EnumSet.complementOf(
+      EnumSet.of(UserField.Password, UserField.Salt, UserField.TwoFactorSecret, UserField.VerificationId)));
+
+  private static final TypeReference<Map<String, Object>> ATTRIBUTES = new TypeReference<Map<String, Object>>() {
+  };
+
+  private static final UserField[] FIELDS = UserField.values();
+
+  private ByteBuffer out = ByteBuffer.allocate(1024);
+
+  /**
+   * @return The child ids of the user, which are always backed by a {@link UUIDList} so they can be read and written as
+   *     longs.
+   */
+  private static UUIDList childIds(User user) {
+    return (UUIDList) user.getChildIds();
+  }
+
+  /**
+   * Decodes a record.
+   *
+   * @param buffer The buffer that holds the record.
+   * @param offset The offset of the record in the buffer.
+   * @param fields The fields to decode. The id is always decoded.
+   * @return The user.
+   */
+  static User decode(ByteBuffer buffer, int offset, Set<UserField> fields) {
+    User user = new User();
+    user.id = id(buffer, offset);
+
+    long present = buffer.getLong(offset + 20);
+    Reader in = new Reader(buffer, offset + HEADER_LENGTH);
+    for (UserField field : FIELDS) {
+      if ((present & (1L << field.ordinal())) == 0) {
+        continue;
+      }
+
+      if (fields.contains(field)) {
+        read(in, field, user);
+      } else {
+        skip(in, field);
+      }
+    }
+
+    return user;
+  }
+
+  /**
+   * @param buffer The buffer that holds the record.
+   * @param offset The offset of the record in the buffer.
+   * @return The id of the user.
+   */
+  static UUID id(ByteBuffer buffer, int offset) {
+    return new UUID(buffer.getLong(offset + 4), buffer.getLong(offset + 12));
+  }
+
+  /**
+   * @param buffer The buffer that holds the record.
+   * @param offset The offset of the record in the buffer.
+   * @return The length of the record in bytes.
+   */
+  static int length(ByteBuffer buffer, int offset) {
+    return buffer.getInt(offset);
+  }
+
+  private static void read(Reader in, UserField field, User user) {
+    switch (field) {
+      case Active:
+        user.active = true;
+        break;
+      case BirthDate:
+        user.birthDate = LocalDate.ofEpochDay(in.getLong());
+        break;
+      case ChildIds:
+        int end = in.getInt() + in.position;
+        while (in.position < end) {
+          childIds(user).add(in.getLong(), in.getLong());
+        }
+        break;
+      case CleanSpeakId:
+        user.cleanSpeakId = in.getUUID();
+        break;
+      case Data:
+        in.getInt();
+        user.data = readData(in);
+        break;
+      case Email:
+        user.email = in.getString();
+        break;
+      case EncryptionScheme:
+        user.encryptionScheme = in.getString();
+        break;
+      case Expiry:
+        user.expiry = in.getInstant();
+        break;
+      case Factor:
+        user.factor = in.getInt();
+        break;
+      case FirstName:
+        user.firstName = in.getString();
+        break;
+      case FullName:
+        user.fullName = in.getString();
+        break;
+      case ImageUrl:
+        user.imageUrl = URI.create(in.getString());
+        break;
+      case InsertInstant:
+        user.insertInstant = in.getInstant();
+        break;
+      case LastLoginInstant:
+        user.lastLoginInstant = in.getInstant();
+        break;
+      case LastName:
+        user.lastName = in.getString();
+        break;
+      case MiddleName:
+        user.middleName = in.getString();
+        break;
+      case MobilePhone:
+        user.mobilePhone = in.getString();
+        break;
+      case ParentId:
+        user.parentId = in.getUUID();
+        break;
+      case ParentalConsentType:
+        user.parentalConsentType = ParentalConsentType.valueOf(in.getString());
+        break;
+      case Password:
+        user.password = in.getString();
+        break;
+      case PasswordChangeRequired:
+        user.passwordChangeRequired = true;
+        break;
+      case PasswordLastUpdateInstant:
+        user.passwordLastUpdateInstant = in.getInstant();
+        break;
+      case Registrations:
+        in.getInt();
+        int count = in.getInt();
+        for (int i = 0; i < count; i++) {
+          user.getRegistrations().add(readRegistration(in));
+        }
+        break;
+      case Salt:
+        user.salt = in.getString();
+        break;
+      case Timezone:
+        user.timezone = in.getString();
+        break;
+      case TwoFactorEnabled:
+        user.twoFactorEnabled = true;
+        break;
+      case TwoFactorSecret:
+        user.twoFactorSecret = in.getString();
+        break;
+      case Username:
+        user.username = in.getString();
+        break;
+      case UsernameStatus:
+        user.usernameStatus = ContentStatus.valueOf(in.getString());
+        break;
+      case VerificationId:
+        user.verificationId = in.getString();
+        break;
+      case VerificationIdCreateInstant:
+        user.verificationIdCreateInstant = in.getInstant();
+        break;
+      case Verified:
+        user.verified = true;
+        break;
+    }
+  }
+
+  private static UserData readData(Reader in) {
+    UserData data = new UserData();
+    int languages = in.getInt();
+    for (int i = 0; i < languages; i++) {
+      data.preferredLanguages.add(Locale.forLanguageTag(in.getString()));
+    }
+
+    int length = in.getInt();
+    if (length > 0) {
+      byte[] json = in.getBytes(length);
+      try {
+        data.attributes.putAll(PassportClient.objectMapper.readValue(json, ATTRIBUTES));
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    return data;
+  }
+
+  private static UserRegistration readRegistration(Reader in) {
+    UserRegistration registration = new UserRegistration();
+    registration.applicationId = in.getNullableUUID();
+    registration.cleanSpeakId = in.getNullableUUID();
+    if (in.getBoolean()) {
+      registration.data = readData(in);
+    }
+    registration.id = in.getNullableUUID();
+    registration.insertInstant = in.getBoolean() ? in.getInstant() : null;
+    registration.lastLoginInstant = in.getBoolean() ? in.getInstant() : null;
+    int roles = in.getInt();
+    for (int i = 0; i < roles; i++) {
+      registration.roles.add(in.getString());
+    }
+    registration.userId = in.getNullableUUID();
+    registration.username = in.getString();
+    String status = in.getString();
+    registration.usernameStatus = status != null ? ContentStatus.valueOf(status) : null;
+    return registration;
+  }
+
+  private static void skip(Reader in, UserField field) {
+    switch (field) {
+      case Active:
+      case PasswordChangeRequired:
+      case TwoFactorEnabled:
+      case Verified:
+        break;
+      case BirthDate:
+        in.position += 8;
+        break;
+      case CleanSpeakId:
+      case ParentId:
+        in.position += 16;
+        break;
+      case Expiry:
+      case InsertInstant:
+      case LastLoginInstant:
+      case PasswordLastUpdateInstant:
+      case VerificationIdCreateInstant:
+        in.position += 12;
+        break;
+      case Factor:
+        in.position += 4;
+        break;
+      default:
+        // Strings and the length prefixed fields
+        int length = in.getInt();
+        in.position += Math.max(length, 0);
+        break;
+    }
+  }
+
+  /**
+   * Encodes a user.
+   *
+   * @param user The user, which must have an id.
+   * @return A heap buffer holding the record from position 0 to the limit. The buffer is reused by the next call.
+   */
+  ByteBuffer encode(User user) {
+    return encode(user, ALL_FIELDS);
+  }
+
+  /**
+   * Encodes some of the fields of a user. The other fields are left out of the record as if they were null.
+   *
+   * @param user   The user, which must have an id.
+   * @param fields The fields to encode.
+   * @return A heap buffer holding the record from position 0 to the limit. The buffer is reused by the next call.
+   */
+  ByteBuffer encode(User user, Set<UserField> fields) {
+    out.clear();
+    ensure(HEADER_LENGTH);
+    out.putInt(0);
+    out.putLong(user.id.getMostSignificantBits());
+    out.putLong(user.id.getLeastSignificantBits());
+    out.putLong(0);
+
+    long present = 0;
+    for (UserField field : FIELDS) {
+      if (fields.contains(field) && write(field, user)) {
+        present |= 1L << field.ordinal();
+      }
+    }
+
+    out.putInt(0, out.position());
+    out.putLong(20, present);
+    out.flip();
+    return out;
+  }
+
+  private void ensure(int bytes) {
+    if (out.remaining() >= bytes) {
+      return;
+    }
+
+    ByteBuffer grown = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + bytes));
+    out.flip();
+    grown.put(out);
+    out = grown;
+  }
+
+  private int startLength() {
+    ensure(4);
+    int start = out.position();
+    out.putInt(0);
+    return start;
+  }
+
+  private void endLength(int start) {
+    out.putInt(start, out.position() - start - 4);
+  }
+
+  private boolean write(UserField field, User user) {
+    switch (field) {
+      case Active:
+        return user.active;
+      case BirthDate:
+        return user.birthDate != null && writeLong(user.birthDate.toEpochDay());
+      case ChildIds:
+        UUIDList childIds = childIds(user);
+        if (childIds.isEmpty()) {
+          return false;
+        }
+        ensure(4 + childIds.size() * 16);
+        out.putInt(childIds.size() * 16);
+        for (int i = 0; i < childIds.size(); i++) {
+          out.putLong(childIds.mostSignificantBits(i));
+          out.putLong(childIds.leastSignificantBits(i));
+        }
+        return true;
+      case CleanSpeakId:
+        return user.cleanSpeakId != null && writeUUID(user.cleanSpeakId);
+      case Data:
+        if (user.data == null) {
+          return false;
+        }
+        int start = startLength();
+        writeData(user.data);
+        endLength(start);
+        return true;
+      case Email:
+        return writeOptional(user.email);
+      case EncryptionScheme:
+        return writeOptional(user.encryptionScheme);
+      case Expiry:
+        return writeInstant(user.expiry);
+      case Factor:
+        if (user.factor == null) {
+          return false;
+        }
+        ensure(4);
+        out.putInt(user.factor);
+        return true;
+      case FirstName:
+        return writeOptional(user.firstName);
+      case FullName:
+        return writeOptional(user.fullName);
+      case ImageUrl:
+        return user.imageUrl != null && writeString(user.imageUrl.toString());
+      case InsertInstant:
+        return writeInstant(user.insertInstant);
+      case LastLoginInstant:
+        return writeInstant(user.lastLoginInstant);
+      case LastName:
+        return writeOptional(user.lastName);
+      case MiddleName:
+        return writeOptional(user.middleName);
+      case MobilePhone:
+        return writeOptional(user.mobilePhone);
+      case ParentId:
+        return user.parentId != null && writeUUID(user.parentId);
+      case ParentalConsentType:
+        return user.parentalConsentType != null && writeString(user.parentalConsentType.name());
+      case Password:
+        return writeOptional(user.password);
+      case PasswordChangeRequired:
+        return user.passwordChangeRequired;
+      case PasswordLastUpdateInstant:
+        return writeInstant(user.passwordLastUpdateInstant);
+      case Registrations:
+        List<UserRegistration> registrations = user.getRegistrations();
+        if (registrations.isEmpty()) {
+          return false;
+        }
+        int registrationsStart = startLength();
+        ensure(4);
+        out.putInt(registrations.size());
+        for (UserRegistration registration : registrations) {
+          writeRegistration(registration);
+        }
+        endLength(registrationsStart);
+        return true;
+      case Salt:
+        return writeOptional(user.salt);
+      case Timezone:
+        return writeOptional(user.timezone);
+      case TwoFactorEnabled:
+        return user.twoFactorEnabled;
+      case TwoFactorSecret:
+        return writeOptional(user.twoFactorSecret);
+      case Username:
+        return writeOptional(user.username);
+      case UsernameStatus:
+        return user.usernameStatus != null && writeString(user.usernameStatus.name());
+      case VerificationId:
+        return writeOptional(user.verificationId);
+      case VerificationIdCreateInstant:
+        return writeInstant(user.verificationIdCreateInstant);
+      case Verified:
+        return user.verified;
+      default:
+        return false;
+    }
+  }
+
+  private void writeBoolean(boolean value) {
+    ensure(1);
+    out.put((byte) (value ? 1 : 0));
+  }
+
+  private void writeData(UserData data) {
+    ensure(4);
+    out.putInt(data.preferredLanguages.size());
+    for (Locale locale : data.preferredLanguages) {
+      writeString(locale.toLanguageTag());
+    }
+
+    if (data.attributes.isEmpty()) {
+      ensure(4);
+      out.putInt(0);
+      return;
+    }
+
+    try {
+      byte[] json = PassportClient.objectMapper.writeValueAsBytes(data.attributes);
+      ensure(4 + json.length);
+      out.putInt(json.length);
+      out.put(json);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private boolean writeInstant(ZonedDateTime value) {
+    if (value == null) {
+      return false;
+    }
+
+    ensure(12);
+    out.putLong(value.toEpochSecond());
+    out.putInt(value.getNano());
+    return true;
+  }
+
+  private boolean writeLong(long value) {
+    ensure(8);
+    out.putLong(value);
+    return true;
+  }
+
+  private void writeNullableUUID(UUID value) {
+    writeBoolean(value != null);
+    if (value != null) {
+      writeUUID(value);
+    }
+  }
+
+  private boolean writeOptional(String value) {
+    return value != null && writeString(value);
+  }
+
+  private void writeRegistration(UserRegistration registration) {
+    writeNullableUUID(registration.applicationId);
+    writeNullableUUID(registration.cleanSpeakId);
+    writeBoolean(registration.data != null);
+    if (registration.data != null) {
+      writeData(registration.data);
+    }
+    writeNullableUUID(registration.id);
+    writeBoolean(registration.insertInstant != null);
+    writeInstant(registration.insertInstant);
+    writeBoolean(registration.lastLoginInstant != null);
+    writeInstant(registration.lastLoginInstant);
+    ensure(4);
+    out.putInt(registration.roles != null ? registration.roles.size() : 0);
+    if (registration.roles != null) {
+      registration.roles.forEach(this::writeString);
+    }
+    writeNullableUUID(registration.userId);
+    writeString(registration.username);
+    writeString(registration.usernameStatus != null ? registration.usernameStatus.name() : null);
+  }
+
+  private boolean writeString(String value) {
+    if (value == null) {
+      ensure(4);
+      out.putInt(-1);
+      return false;
+    }
+
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    ensure(4 + bytes.length);
+    out.putInt(bytes.length);
+    out.put(bytes);
+    return true;
+  }
+
+  private boolean writeUUID(UUID value) {
+    ensure(16);
+    out.putLong(value.getMostSignificantBits());
+    out.putLong(value.getLeastSignificantBits());
+    return true;
+  }
+
+  /**
+   * Reads values from a buffer using absolute gets so that many threads can read the same buffer.
+   */
+  private static class Reader {
+    final ByteBuffer buffer;
+
+    int position;
+
+    Reader(ByteBuffer buffer, int position) {
+      this.buffer = buffer;
+      this.position = position;
+    }
+
+    boolean getBoolean() {
+      return buffer.get(position++) != 0;
+    }
+
+    byte[] getBytes(int length) {
+      byte[] bytes = new byte[length];
+      for (int i = 0; i < length; i++) {
+        bytes[i] = buffer.get(position + i);
+      }
+      position += length;
+      return bytes;
+    }
+
+    ZonedDateTime getInstant() {
+      long epochSecond = getLong();
+      int nano = getInt();
+      return ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond, nano), ZoneOffset.UTC);
+    }
+
+    int getInt() {
+      int value = buffer.getInt(position);
+      position += 4;
+      return value;
+    }
+
+    long getLong() {
+      long value = buffer.getLong(position);
+      position += 8;
+      return value;
+    }
+
+    UUID getNullableUUID() {
+      return getBoolean() ? getUUID() : null;
+    }
+
+    String getString() {
+      int length = getInt();
+      return length < 0 ? null : new String(getBytes(length), StandardCharsets.UTF_8);
+    }
+
+    UUID getUUID() {
+      return new UUID(getLong(), getLong());
+    }
+  }
+}
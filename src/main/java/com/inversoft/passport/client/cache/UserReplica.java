@@ -0,0 +1,344 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.cache;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import com.inversoft.error.Errors;
+import com.inversoft.passport.client.PassportClient;
+import com.inversoft.passport.domain.User;
+import com.inversoft.passport.domain.api.UserResponse;
+import com.inversoft.passport.domain.api.user.SearchResponse;
+import com.inversoft.passport.domain.event.BaseEvent;
+import com.inversoft.passport.domain.event.UserBulkCreateEvent;
+import com.inversoft.passport.domain.event.UserCreateEvent;
+import com.inversoft.passport.domain.event.UserDeactivateEvent;
+import com.inversoft.passport.domain.event.UserDeleteEvent;
+import com.inversoft.passport.domain.event.UserReactivateEvent;
+import com.inversoft.passport.domain.event.UserUpdateEvent;
+import com.inversoft.passport.domain.search.UserSearchCriteria;
+import com.inversoft.rest.ClientResponse;
+
+/**
+ * An in-memory copy of the Passport users. The replica is seeded once using the user search API and is then kept
+ * current by handing it the webhook events (it is a {@code Consumer<BaseEvent>} so it can be passed straight to the
+ * {@link com.inversoft.passport.client.webhook.WebhookReceiver}).
+ * <p>
+ * Lookups by id, email and username never lock. Writes are serialized so that the id, email and username indexes always
+ * agree with each other. The User objects handed out are shared and must be treated as read-only.
+ * <p>
+ * A replica created with a tree depth also keeps a {@link MerkleTree} of its users up to date as they change, so that a
+ * {@link UserReplicaReconciler} of the same depth doesn't have to fingerprint every user each time it runs.
+ *
+ * @author Brian Pontarelli
+ */
+public class UserReplica implements Consumer<BaseEvent> {
+  private final ConcurrentHashMap<String, User> byEmail = new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<UUID, User> byId = new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<String, User> byUsername = new ConcurrentHashMap<>();
+
+  private final Map<UUID, Long> fingerprints;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final MerkleTree tree;
+
+  private Set<UUID> changedWhileSeeding;
+
+  public UserReplica() {
+    this.fingerprints = null;
+    this.tree = null;
+  }
+
+  /**
+   * Creates a replica that keeps a tree of its users.
+   *
+   * @param treeDepth The depth of the tree, which should be the depth used by the reconciler.
+   */
+  public UserReplica(int treeDepth) {
+    this.fingerprints = new HashMap<>();
+    this.tree = new MerkleTree(treeDepth);
+  }
+
+  /**
+   * Applies a webhook event to the replica. Events that don't change users are ignored.
+   *
+   * @param event The event.
+   */
+  @Override
+  public void accept(BaseEvent event) {
+    if (event instanceof UserCreateEvent) {
+      put(((UserCreateEvent) event).user);
+    } else if (event instanceof UserUpdateEvent) {
+      put(((UserUpdateEvent) event).user);
+    } else if (event instanceof UserDeactivateEvent) {
+      User user = ((UserDeactivateEvent) event).user;
+      if (user != null) {
+        user.active = false;
+        put(user);
+      }
+    } else if (event instanceof UserReactivateEvent) {
+      User user = ((UserReactivateEvent) event).user;
+      if (user != null) {
+        user.active = true;
+        put(user);
+      }
+    } else if (event instanceof UserDeleteEvent) {
+      User user = ((UserDeleteEvent) event).user;
+      if (user != null) {
+        remove(user.id);
+      }
+    } else if (event instanceof UserBulkCreateEvent) {
+      List<User> users = ((UserBulkCreateEvent) event).users;
+      if (users != null) {
+        users.forEach(this::put);
+      }
+    }
+  }
+
+  /**
+   * @param id The id of the user.
+   * @return The user or null if the replica doesn't have it.
+   */
+  public User get(UUID id) {
+    return byId.get(id);
+  }
+
+  /**
+   * @param email The email of the user (case-insensitive).
+   * @return The user or null if the replica doesn't have it.
+   */
+  public User getByEmail(String email) {
+    return email == null ? null : byEmail.get(email.toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * @param loginId The email or username of the user.
+   * @return The user or null if the replica doesn't have it.
+   */
+  public User getByLoginId(String loginId) {
+    User user = getByEmail(loginId);
+    return user != null ? user : getByUsername(loginId);
+  }
+
+  /**
+   * @param username The username of the user (case-insensitive).
+   * @return The user or null if the replica doesn't have it.
+   */
+  public User getByUsername(String username) {
+    return username == null ? null : byUsername.get(username.toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * Adds the user to the replica or replaces the existing copy of it.
+   *
+   * @param user The user.
+   */
+  public void put(User user) {
+    if (user == null || user.id == null) {
+      return;
+    }
+
+    lock.lock();
+    try {
+      if (changedWhileSeeding != null) {
+        changedWhileSeeding.add(user.id);
+      }
+
+      index(user);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Re-fetches the given users from Passport and replaces them in the replica. Users that Passport no longer has are
+   * removed.
+   *
+   * @param client The client used to fetch the users.
+   * @param ids    The ids of the users.
+   * @return The search response.
+   */
+  public ClientResponse<SearchResponse, Errors> refresh(PassportClient client, Collection<UUID> ids) {
+    ClientResponse<SearchResponse, Errors> response = client.searchUsers(ids);
+    if (!response.wasSuccessful()) {
+      return response;
+    }
+
+    Set<UUID> missing = new HashSet<>(ids);
+    for (User user : response.successResponse.users) {
+      missing.remove(user.id);
+      put(user);
+    }
+
+    missing.forEach(this::remove);
+    return response;
+  }
+
+  /**
+   * Removes the user from the replica.
+   *
+   * @param id The id of the user.
+   */
+  public void remove(UUID id) {
+    if (id == null) {
+      return;
+    }
+
+    lock.lock();
+    try {
+      if (changedWhileSeeding != null) {
+        changedWhileSeeding.add(id);
+      }
+
+      User old = byId.remove(id);
+      if (old != null) {
+        unindex(old);
+      }
+      if (tree != null) {
+        Long fingerprint = fingerprints.remove(id);
+        if (fingerprint != null) {
+          tree.remove(id, fingerprint);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Loads every user from Passport a page at a time. Events that arrive while this runs win over the search results
+   * since they are newer.
+   *
+   * @param client   The client used to search for the users.
+   * @param pageSize The number of users to fetch per request.
+   * @return The response of the last page fetched. If a page fails, seeding stops and that response is returned.
+   */
+  public ClientResponse<UserResponse, Errors> seed(PassportClient client, int pageSize) {
+    lock.lock();
+    try {
+      changedWhileSeeding = new HashSet<>();
+    } finally {
+      lock.unlock();
+    }
+
+    try {
+      UserSearchCriteria criteria = new UserSearchCriteria();
+      criteria.queryString = "*";
+      criteria.numberOfResults = pageSize;
+
+      ClientResponse<UserResponse, Errors> response;
+      while (true) {
+        response = client.searchUsersByQueryString(criteria);
+        if (!response.wasSuccessful() || response.successResponse.users == null) {
+          return response;
+        }
+
+        List<User> users = response.successResponse.users;
+        lock.lock();
+        try {
+          for (User user : users) {
+            if (user.id != null && !changedWhileSeeding.contains(user.id)) {
+              index(user);
+            }
+          }
+        } finally {
+          lock.unlock();
+        }
+
+        criteria.startRow += users.size();
+        Long total = response.successResponse.total;
+        if (users.size() < pageSize || (total != null && criteria.startRow >= total)) {
+          return response;
+        }
+      }
+    } finally {
+      lock.lock();
+      try {
+        changedWhileSeeding = null;
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * @return The number of users in the replica.
+   */
+  public int size() {
+    return byId.size();
+  }
+
+  /**
+   * @return A copy of the tree of the users in the replica, or null if the replica wasn't created with a tree depth.
+   */
+  public MerkleTree tree() {
+    return tree != null ? new MerkleTree(tree.depth, tree.nodes()) : null;
+  }
+
+  /**
+   * @return A read-only, weakly consistent view of all of the users in the replica.
+   */
+  public Collection<User> users() {
+    return Collections.unmodifiableCollection(byId.values());
+  }
+
+  private void index(User user) {
+    User old = byId.put(user.id, user);
+    if (old != null) {
+      unindex(old);
+    }
+
+    if (user.email != null) {
+      byEmail.put(user.email.toLowerCase(Locale.ROOT), user);
+    }
+    if (user.username != null) {
+      byUsername.put(user.username.toLowerCase(Locale.ROOT), user);
+    }
+
+    if (tree != null) {
+      // The fingerprint that was added is kept, since the old user may have been changed after it was put
+      long fingerprint = user.fingerprint();
+      Long previous = fingerprints.put(user.id, fingerprint);
+      if (previous != null) {
+        tree.remove(user.id, previous);
+      }
+      tree.add(user.id, fingerprint);
+    }
+  }
+
+  private void unindex(User user) {
+    if (user.email != null) {
+      byEmail.remove(user.email.toLowerCase(Locale.ROOT), user);
+    }
+    if (user.username != null) {
+      byUsername.remove(user.username.toLowerCase(Locale.ROOT), user);
+    }
+  }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.cache;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import com.inversoft.error.Errors;
+import com.inversoft.json.ToString;
+import com.inversoft.passport.client.PassportClient;
+import com.inversoft.passport.domain.User;
+import com.inversoft.passport.domain.api.UserResponse;
+import com.inversoft.passport.domain.search.UserSearchCriteria;
+import com.inversoft.rest.ClientResponse;
+
+/**
+ * Repairs a {@link UserReplica} that has drifted because webhook events were missed. The replica is summarized in a
+ * {@link MerkleTree} and compared with the tree of an authoritative copy of the users. Only the buckets whose hashes
+ * differ are downloaded again, so the cost of a repair is proportional to the drift rather than to the number of users.
+ * <p>
+ * The authoritative tree has to come from outside of this class, for example from a peer replica that just re-seeded
+ * or from a service that maintains the tree from the Passport database. Passport has no API that returns the hashes of
+ * its users, so the only way to build the tree from Passport is to download every user, which costs as much as
+ * re-seeding the replica. If there isn't such a source, re-seed with {@link UserReplica#seed} instead.
+ * <p>
+ * The tree of the replica is taken from the replica when it keeps one of the same depth (see
+ * {@link UserReplica#UserReplica(int)}). Otherwise every user of the replica is fingerprinted on each run.
+ *
+ * @author Brian Pontarelli
+ */
+public class UserReplicaReconciler {
+  private final int depth;
+
+  private final BucketFetcher fetcher;
+
+  private final UserReplica replica;
+
+  public UserReplicaReconciler(UserReplica replica, int depth, BucketFetcher fetcher) {
+    this.replica = replica;
+    this.depth = depth;
+    this.fetcher = fetcher;
+  }
+
+  /**
+   * Builds a fetcher that loads the users of a bucket using an id range query against the Passport user search.
+   *
+   * @param client   The client.
+   * @param pageSize The number of users to fetch per request.
+   * @return The fetcher.
+   */
+  public static BucketFetcher passportFetcher(PassportClient client, int pageSize) {
+    return (lowerBound, upperBound) -> {
+      UserSearchCriteria criteria = new UserSearchCriteria();
+      criteria.queryString = "id:[\"" + lowerBound + "\" TO \"" + upperBound + "\"]";
+      criteria.numberOfResults = pageSize;
+
+      List<User> users = new ArrayList<>();
+      while (true) {
+        ClientResponse<UserResponse, Errors> response = client.searchUsersByQueryString(criteria);
+        if (!response.wasSuccessful()) {
+          return null;
+        }
+
+        List<User> page = response.successResponse.users;
+        if (page == null || page.isEmpty()) {
+          return users;
+        }
+
+        users.addAll(page);
+        criteria.startRow += page.size();
+        Long total = response.successResponse.total;
+        if (page.size() < pageSize || (total != null && criteria.startRow >= total)) {
+          return users;
+        }
+      }
+    };
+  }
+
+  /**
+   * Builds a tree from a set of users.
+   *
+   * @param depth The depth of the tree.
+   * @param users The users.
+   * @return The tree.
+   */
+  public static MerkleTree tree(int depth, Collection<User> users) {
+    MerkleTree tree = new MerkleTree(depth);
+    for (User user : users) {
+      tree.add(user.id, user.fingerprint());
+    }
+    return tree;
+  }
+
+  /**
+   * Compares the replica with the authoritative tree and re-downloads the buckets that differ.
+   *
+   * @param authoritative The tree of the authoritative copy of the users.
+   * @return The result of the repair.
+   */
+  public Result reconcile(MerkleTree authoritative) {
+    MerkleTree local = tree();
+    List<Integer> buckets = local.diff(authoritative);
+
+    Result result = new Result();
+    if (buckets.isEmpty()) {
+      return result;
+    }
+
+    // Find the ids the replica currently has in each bucket that differs
+    BitSet differs = new BitSet(local.buckets());
+    buckets.forEach(differs::set);
+    List<List<UUID>> localIds = new ArrayList<>();
+    for (int i = 0; i < buckets.size(); i++) {
+      localIds.add(new ArrayList<>());
+    }
+    for (User user : replica.users()) {
+      int bucket = local.bucket(user.id);
+      if (differs.get(bucket)) {
+        localIds.get(bucketIndex(buckets, bucket)).add(user.id);
+      }
+    }
+
+    for (int i = 0; i < buckets.size(); i++) {
+      int bucket = buckets.get(i);
+      Collection<User> users = fetcher.fetch(local.lowerBound(bucket), local.upperBound(bucket));
+      if (users == null) {
+        result.failedBuckets.add(bucket);
+        continue;
+      }
+
+      Set<UUID> stale = new HashSet<>(localIds.get(i));
+      for (User user : users) {
+        stale.remove(user.id);
+        replica.put(user);
+        result.updated++;
+      }
+
+      stale.forEach(replica::remove);
+      result.removed += stale.size();
+      result.repairedBuckets.add(bucket);
+    }
+
+    return result;
+  }
+
+  /**
+   * @return The tree of the current contents of the replica.
+   */
+  public MerkleTree tree() {
+    MerkleTree kept = replica.tree();
+    return kept != null && kept.depth == depth ? kept : tree(depth, replica.users());
+  }
+
+  private int bucketIndex(List<Integer> buckets, int bucket) {
+    // The buckets are in ascending order
+    int low = 0;
+    int high = buckets.size() - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int value = buckets.get(mid);
+      if (value < bucket) {
+        low = mid + 1;
+      } else if (value > bucket) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+
+    throw new IllegalStateException("Bucket [" + bucket + "] is not in the diff");
+  }
+
+  /**
+   * Loads all of the users whose ids fall within a range (inclusive).
+   */
+  @FunctionalInterface
+  public interface BucketFetcher {
+    /**
+     * @param lowerBound The smallest id in the range.
+     * @param upperBound The largest id in the range.
+     * @return The users or null if they could not be loaded.
+     */
+    Collection<User> fetch(UUID lowerBound, UUID upperBound);
+  }
+
+  /**
+   * What a reconciliation changed.
+   */
+  public static class Result {
+    public final List<Integer> failedBuckets = new ArrayList<>();
+
+    public final List<Integer> repairedBuckets = new ArrayList<>();
+
+    public int removed;
+
+    public int updated;
+
+    @Override
+    public String toString() {
+      return ToString.toString(this);
+    }
+  }
+}
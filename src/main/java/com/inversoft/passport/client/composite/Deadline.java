@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.composite;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import com.inversoft.passport.client.PassportClient;
+import com.inversoft.passport.client.resilience.RequestRejectedException;
+import com.inversoft.rest.ClientResponse;
+
+/**
+ * The deadline shared by the calls of a composite request. It starts with the composite request, so a call that starts
+ * late only gets what is left of it.
+ *
+ * @author Brian Pontarelli
+ */
+class Deadline {
+  private final PassportClient client;
+
+  private final long endNanos;
+
+  Deadline(PassportClient client) {
+    long deadlineInMillis = client.callOptions().deadlineInMillis;
+    this.client = client;
+    this.endNanos = deadlineInMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineInMillis) : 0;
+  }
+
+  private static <T, U> ClientResponse<T, U> failed(Throwable throwable) {
+    Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+        ? throwable.getCause() : throwable;
+    ClientResponse<T, U> response = new ClientResponse<>();
+    response.exception = cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+    response.status = -1;
+    return response;
+  }
+
+  /**
+   * Makes a call on the executor of the client with what is left of the deadline. A call that can't start before the
+   * deadline, or that throws, completes with a ClientResponse that has a status of -1 and the exception.
+   *
+   * @param call The call.
+   * @return A future that always completes normally.
+   */
+  <T, U> CompletableFuture<ClientResponse<T, U>> async(Function<PassportClient, ClientResponse<T, U>> call) {
+    return client.async(c -> {
+      if (endNanos == 0) {
+        return call.apply(c);
+      }
+
+      long remainingMillis = TimeUnit.NANOSECONDS.toMillis(endNanos - System.nanoTime());
+      if (remainingMillis <= 0) {
+        return Deadline.<T, U>failed(new RequestRejectedException("The deadline passed before the call was started"));
+      }
+
+      return call.apply(c.withCallOptions(c.callOptions().withDeadline(remainingMillis)));
+    }).exceptionally(Deadline::failed);
+  }
+}
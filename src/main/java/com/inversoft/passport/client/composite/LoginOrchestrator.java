@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.composite;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import com.inversoft.error.Errors;
+import com.inversoft.passport.client.PassportClient;
+import com.inversoft.passport.domain.User;
+import com.inversoft.passport.domain.UserRegistration;
+import com.inversoft.passport.domain.api.LoginPreventedErrors;
+import com.inversoft.passport.domain.api.LoginPreventedResponse;
+import com.inversoft.passport.domain.api.LoginRequest;
+import com.inversoft.passport.domain.api.LoginResponse;
+import com.inversoft.passport.domain.api.jwt.IssueResponse;
+import com.inversoft.passport.domain.api.user.RegistrationResponse;
+import com.inversoft.rest.ClientResponse;
+
+/**
+ * Logs a user into an application with as few round trips as possible. Only the login itself has to be waited on
+ * before anything else can happen; after that:
+ * <ul>
+ * <li>Passport answers a login that an action on the user prevents with a 409 and the actions, which are handled
+ * without any more calls. Actions in a successful login response are only informational.</li>
+ * <li>The registration is taken from the user of the login response and only retrieved if it isn't there.</li>
+ * <li>When the login was for a different application, the access token is issued at the same time as the registration
+ * is retrieved, on the chance that the user is registered. Issuing a token has no side effects, so it is the only call
+ * made before the registration is known.</li>
+ * <li>The login is pinged for the other application once the registration shows that the user is registered for it.
+ * The ping isn't waited on.</li>
+ * </ul>
+ * So a login for the application of the request is one round trip and a login for another application is two. When
+ * the client has a deadline, it is shared by all the calls.
+ *
+ * @author Brian Pontarelli
+ */
+public class LoginOrchestrator {
+  private final PassportClient client;
+
+  public LoginOrchestrator(PassportClient client) {
+    this.client = Objects.requireNonNull(client, "You must supply a PassportClient");
+  }
+
+  private static List<LoginPreventedResponse> prevented(ClientResponse<LoginResponse, Errors> login) {
+    if (login.status != 409 || !(login.errorResponse instanceof LoginPreventedErrors)) {
+      return Collections.emptyList();
+    }
+
+    List<LoginPreventedResponse> actions = ((LoginPreventedErrors) login.errorResponse).actions;
+    return actions != null ? actions : Collections.emptyList();
+  }
+
+  private static UserRegistration registration(ClientResponse<RegistrationResponse, Errors> response) {
+    return response.wasSuccessful() && response.successResponse != null ? response.successResponse.registration : null;
+  }
+
+  /**
+   * Logs the user in and waits for the result.
+   *
+   * @param request       The login request.
+   * @param applicationId The application the user is logging into, which can differ from the one of the request.
+   * @return The result, which is never null.
+   */
+  public LoginResult login(LoginRequest request, UUID applicationId) {
+    return loginAsync(request, applicationId).join();
+  }
+
+  /**
+   * Logs the user in without waiting for the result.
+   *
+   * @param request       The login request.
+   * @param applicationId The application the user is logging into, which can differ from the one of the request.
+   * @return A future that completes with the result. It never completes exceptionally.
+   * @throws NullPointerException If the request or application id is null.
+   */
+  public CompletableFuture<LoginResult> loginAsync(LoginRequest request, UUID applicationId) {
+    Objects.requireNonNull(request, "You must supply a LoginRequest");
+    Objects.requireNonNull(applicationId, "You must supply an applicationId");
+    Deadline deadline = new Deadline(client);
+    return deadline.<LoginResponse, Errors>async(c -> c.login(request)).thenCompose(login -> {
+      LoginResponse response = login.successResponse;
+      if (!login.wasSuccessful() || response == null || response.user == null) {
+        return CompletableFuture.completedFuture(new LoginResult(login, prevented(login), null, null, null, null));
+      }
+
+      User user = response.user;
+      UserRegistration registration = user.getRegistrationForApplication(applicationId);
+      boolean otherApplication = !applicationId.equals(request.applicationId);
+      CompletableFuture<ClientResponse<RegistrationResponse, Errors>> lookup = registration == null
+          ? deadline.async(c -> c.retrieveRegistration(user.id, applicationId))
+          : CompletableFuture.completedFuture(null);
+      CompletableFuture<ClientResponse<IssueResponse, Errors>> issue = otherApplication
+          ? deadline.async(c -> c.issueAccessToken(applicationId, response.token))
+          : CompletableFuture.completedFuture(null);
+
+      return lookup.thenCombine(issue, (retrieved, issued) -> {
+        UserRegistration found = registration != null ? registration : registration(retrieved);
+        CompletableFuture<ClientResponse<Void, Errors>> ping = otherApplication && found != null
+            ? deadline.async(c -> c.loginPing(user.id, applicationId, request.ipAddress))
+            : null;
+        return new LoginResult(login, Collections.emptyList(), found, retrieved, issued, ping);
+      });
+    });
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.composite;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import com.inversoft.error.Errors;
+import com.inversoft.passport.domain.UserRegistration;
+import com.inversoft.passport.domain.api.LoginPreventedResponse;
+import com.inversoft.passport.domain.api.LoginResponse;
+import com.inversoft.passport.domain.api.jwt.IssueResponse;
+import com.inversoft.passport.domain.api.user.RegistrationResponse;
+import com.inversoft.rest.ClientResponse;
+
+/**
+ * The outcome of a login made by a {@link LoginOrchestrator}. The responses of the steps that were skipped are null.
+ *
+ * @author Brian Pontarelli
+ */
+public class LoginResult {
+  /**
+   * The response of issuing an access token for the application, or null if the token of the login is for it already.
+   */
+  public final ClientResponse<IssueResponse, Errors> issue;
+
+  /**
+   * The response of the login.
+   */
+  public final ClientResponse<LoginResponse, Errors> login;
+
+  /**
+   * The ping that records the login for the application, or null if the login itself was for it or the user isn't
+   * registered for it. This isn't waited on, so it may still be in flight.
+   */
+  public final CompletableFuture<ClientResponse<Void, Errors>> ping;
+
+  /**
+   * The actions on the user that prevented the login, which Passport returns with a 409. These are handled without
+   * making any more calls.
+   */
+  public final List<LoginPreventedResponse> preventedBy;
+
+  /**
+   * The registration of the user for the application, or null if the user isn't registered for it.
+   */
+  public final UserRegistration registration;
+
+  /**
+   * The response of retrieving the registration, or null if the login response already had it.
+   */
+  public final ClientResponse<RegistrationResponse, Errors> registrationResponse;
+
+  public LoginResult(ClientResponse<LoginResponse, Errors> login, List<LoginPreventedResponse> preventedBy,
+                     UserRegistration registration, ClientResponse<RegistrationResponse, Errors> registrationResponse,
+                     ClientResponse<IssueResponse, Errors> issue,
+                     CompletableFuture<ClientResponse<Void, Errors>> ping) {
+    this.issue = issue;
+    this.login = login;
+    this.ping = ping;
+    this.preventedBy = preventedBy;
+    this.registration = registration;
+    this.registrationResponse = registrationResponse;
+  }
+
+  /**
+   * @return The access token for the application or null if the login wasn't successful.
+   */
+  public String token() {
+    if (!wasSuccessful()) {
+      return null;
+    }
+
+    return issue != null ? issue.successResponse.token : login.successResponse.token;
+  }
+
+  /**
+   * @return True if the user logged in, nothing prevented it, the user is registered for the application and there is
+   * an access token for it.
+   */
+  public boolean wasSuccessful() {
+    return login.wasSuccessful() && preventedBy.isEmpty() && registration != null &&
+        (issue == null || (issue.wasSuccessful() && issue.successResponse != null));
+  }
+}
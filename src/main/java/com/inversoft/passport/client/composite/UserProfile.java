@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.composite;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import com.inversoft.error.Errors;
+import com.inversoft.passport.domain.api.UserCommentResponse;
+import com.inversoft.passport.domain.api.UserResponse;
+import com.inversoft.passport.domain.api.jwt.RefreshResponse;
+import com.inversoft.passport.domain.api.report.UserLoginReportResponse;
+import com.inversoft.passport.domain.api.user.ActionResponse;
+import com.inversoft.rest.ClientResponse;
+
+/**
+ * Everything about a user that an admin page shows. Each part is the ClientResponse of its own call, so a part that
+ * failed has its status, errors and exception while the other parts can still be used.
+ *
+ * @author Brian Pontarelli
+ */
+public class UserProfile {
+  public final ClientResponse<ActionResponse, Errors> actions;
+
+  public final ClientResponse<UserCommentResponse, Errors> comments;
+
+  public final ClientResponse<UserLoginReportResponse, Errors> logins;
+
+  public final ClientResponse<RefreshResponse, Errors> refreshTokens;
+
+  public final ClientResponse<UserResponse, Errors> user;
+
+  public UserProfile(ClientResponse<UserResponse, Errors> user, ClientResponse<ActionResponse, Errors> actions,
+                     ClientResponse<UserCommentResponse, Errors> comments,
+                     ClientResponse<RefreshResponse, Errors> refreshTokens,
+                     ClientResponse<UserLoginReportResponse, Errors> logins) {
+    this.actions = actions;
+    this.comments = comments;
+    this.logins = logins;
+    this.refreshTokens = refreshTokens;
+    this.user = user;
+  }
+
+  /**
+   * @return The parts that weren't successful.
+   */
+  public List<ClientResponse<?, Errors>> failures() {
+    return Arrays.<ClientResponse<?, Errors>>asList(user, actions, comments, refreshTokens, logins)
+        .stream()
+        .filter(response -> !response.wasSuccessful())
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * @return True if every part was successful.
+   */
+  public boolean wasSuccessful() {
+    return failures().isEmpty();
+  }
+}
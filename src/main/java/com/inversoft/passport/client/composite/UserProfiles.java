@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.composite;
+
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import com.inversoft.error.Errors;
+import com.inversoft.passport.client.PassportClient;
+import com.inversoft.passport.domain.api.UserCommentResponse;
+import com.inversoft.passport.domain.api.UserResponse;
+import com.inversoft.passport.domain.api.jwt.RefreshResponse;
+import com.inversoft.passport.domain.api.report.UserLoginReportResponse;
+import com.inversoft.passport.domain.api.user.ActionResponse;
+import com.inversoft.rest.ClientResponse;
+
+/**
+ * Retrieves a {@link UserProfile} by making its five calls at the same time, so it takes about as long as the slowest
+ * call instead of all of them added up. The calls are made on the executor of the client. When the client has a
+ * deadline, it is shared by all the calls:
+ * <pre>
+ *   UserProfiles profiles = new UserProfiles(client.withCallOptions(client.callOptions().withDeadline(500)));
+ *   UserProfile profile = profiles.retrieve(userId, 10);
+ * </pre>
+ *
+ * @author Brian Pontarelli
+ */
+public class UserProfiles {
+  private final PassportClient client;
+
+  public UserProfiles(PassportClient client) {
+    this.client = Objects.requireNonNull(client, "You must supply a PassportClient");
+  }
+
+  /**
+   * Retrieves the profile of a user and waits for it.
+   *
+   * @param userId         The id of the user.
+   * @param numberOfLogins The number of recent logins to include.
+   * @return The profile. This is never null and the failures are in its parts.
+   */
+  public UserProfile retrieve(UUID userId, int numberOfLogins) {
+    return retrieveAsync(userId, numberOfLogins).join();
+  }
+
+  /**
+   * Retrieves the profile of a user without waiting for it.
+   *
+   * @param userId         The id of the user.
+   * @param numberOfLogins The number of recent logins to include.
+   * @return A future that completes with the profile once every call has finished. It never completes exceptionally.
+   */
+  public CompletableFuture<UserProfile> retrieveAsync(UUID userId, int numberOfLogins) {
+    Deadline deadline = new Deadline(client);
+    CompletableFuture<ClientResponse<UserResponse, Errors>> user = deadline.async(c -> c.retrieveUser(userId));
+    CompletableFuture<ClientResponse<ActionResponse, Errors>> actions = deadline.async(c -> c.retrieveActions(userId));
+    CompletableFuture<ClientResponse<UserCommentResponse, Errors>> comments =
+        deadline.async(c -> c.retrieveUserComments(userId));
+    CompletableFuture<ClientResponse<RefreshResponse, Errors>> refreshTokens =
+        deadline.async(c -> c.retrieveRefreshTokens(userId));
+    CompletableFuture<ClientResponse<UserLoginReportResponse, Errors>> logins =
+        deadline.async(c -> c.retrieveUserLoginReport(userId, 0, numberOfLogins));
+
+    return CompletableFuture.allOf(user, actions, comments, refreshTokens, logins)
+                            .thenApply(v -> new UserProfile(user.join(), actions.join(), comments.join(),
+                                refreshTokens.join(), logins.join()));
+  }
+}
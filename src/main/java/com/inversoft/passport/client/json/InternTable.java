@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.json;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A bounded table of canonical Strings and Locales. Unlike {@link String#intern()}, the table is owned by the caller and
+ * can be dropped along with the objects that reference it.
+ * <p>
+ * Once the table is full, values that aren't already in it are returned as is. The table is meant for values with few
+ * distinct values (role names, time zones, attribute names, languages) and the bound only protects against fields that
+ * turn out not to be.
+ *
+ * @author Brian Pontarelli
+ */
+public class InternTable {
+  private final ConcurrentHashMap<String, Locale> locales = new ConcurrentHashMap<>();
+
+  private final int maximumSize;
+
+  private final ConcurrentHashMap<String, String> strings = new ConcurrentHashMap<>();
+
+  /**
+   * @param maximumSize The maximum number of Strings and the maximum number of Locales kept.
+   */
+  public InternTable(int maximumSize) {
+    this.maximumSize = maximumSize;
+  }
+
+  private static Locale parse(String tag) {
+    int index = tag.indexOf('_');
+    if (index < 0) {
+      return tag.indexOf('-') < 0 ? new Locale(tag) : Locale.forLanguageTag(tag);
+    }
+
+    String language = tag.substring(0, index);
+    String rest = tag.substring(index + 1);
+    index = rest.indexOf('_');
+    return index < 0 ? new Locale(language, rest) : new Locale(language, rest.substring(0, index), rest.substring(index + 1));
+  }
+
+  /**
+   * Returns the canonical copy of the String.
+   *
+   * @param value The String.
+   * @return The canonical copy or the String itself if it is new and the table is full.
+   */
+  public String intern(String value) {
+    if (value == null) {
+      return null;
+    }
+
+    String existing = strings.get(value);
+    if (existing != null) {
+      return existing;
+    }
+
+    if (strings.size() >= maximumSize) {
+      return value;
+    }
+
+    existing = strings.putIfAbsent(value, value);
+    return existing != null ? existing : value;
+  }
+
+  /**
+   * Returns the canonical Locale for a String in the form produced by {@link Locale#toString()} (for example "en_US").
+   * BCP 47 language tags such as "en-US" are also accepted.
+   *
+   * @param tag The String form of the Locale.
+   * @return The Locale or null if the tag is null.
+   */
+  public Locale locale(String tag) {
+    if (tag == null) {
+      return null;
+    }
+
+    Locale locale = locales.get(tag);
+    if (locale != null) {
+      return locale;
+    }
+
+    locale = parse(tag);
+    if (locales.size() >= maximumSize) {
+      return locale;
+    }
+
+    Locale existing = locales.putIfAbsent(tag, locale);
+    return existing != null ? existing : locale;
+  }
+
+  /**
+   * @return The number of Locales in the table.
+   */
+  public int localeCount() {
+    return locales.size();
+  }
+
+  /**
+   * @return The number of Strings in the table.
+   */
+  public int stringCount() {
+    return strings.size();
+  }
+}
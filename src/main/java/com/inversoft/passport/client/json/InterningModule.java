@@ -0,0 +1,134 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.json;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.KeyDeserializer;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+/**
+ * A Jackson module that deduplicates the values that repeat across large responses (such as a search that returns
+ * thousands of users) using an {@link InternTable}:
+ * <ul>
+ *   <li>Strings of the fields in {@link #DEFAULT_FIELDS} (or the fields given), including the elements of collections
+ *   such as the roles of a registration</li>
+ *   <li>String keys of maps, such as the names of the user data attributes</li>
+ *   <li>Locales, such as the preferred languages</li>
+ * </ul>
+ * Other Strings are deserialized as usual, since interning values with many distinct values (names, emails, ids) would
+ * only fill the table.
+ *
+ * @author Brian Pontarelli
+ */
+public class InterningModule extends SimpleModule {
+  public static final Set<String> DEFAULT_FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+      "encryptionScheme", "roles", "timezone")));
+
+  public InterningModule(InternTable table) {
+    this(table, DEFAULT_FIELDS);
+  }
+
+  /**
+   * @param table  The table.
+   * @param fields The names of the JSON fields whose String values (or elements) are interned.
+   */
+  public InterningModule(InternTable table, Set<String> fields) {
+    super("InterningModule");
+    addDeserializer(String.class, new InterningStringDeserializer(table, fields, false));
+    addDeserializer(Locale.class, new InterningLocaleDeserializer(table));
+    addKeyDeserializer(String.class, new InterningKeyDeserializer(table));
+  }
+
+  private static class InterningKeyDeserializer extends KeyDeserializer {
+    private final InternTable table;
+
+    InterningKeyDeserializer(InternTable table) {
+      this.table = table;
+    }
+
+    @Override
+    public Object deserializeKey(String key, DeserializationContext ctxt) {
+      return table.intern(key);
+    }
+  }
+
+  private static class InterningLocaleDeserializer extends StdScalarDeserializer<Locale> {
+    private final InternTable table;
+
+    InterningLocaleDeserializer(InternTable table) {
+      super(Locale.class);
+      this.table = table;
+    }
+
+    @Override
+    public Locale deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+      String value = StringDeserializer.instance.deserialize(p, ctxt);
+      if (value == null) {
+        return null;
+      }
+
+      value = value.trim();
+      return value.isEmpty() ? Locale.ROOT : table.locale(value);
+    }
+  }
+
+  private static class InterningStringDeserializer extends StdScalarDeserializer<String> implements ContextualDeserializer {
+    private final Set<String> fields;
+
+    private final boolean intern;
+
+    private final InternTable table;
+
+    InterningStringDeserializer(InternTable table, Set<String> fields, boolean intern) {
+      super(String.class);
+      this.table = table;
+      this.fields = fields;
+      this.intern = intern;
+    }
+
+    @Override
+    public JsonDeserializer<?> createContextual(DeserializationContext ctxt, BeanProperty property) {
+      // The property is the field for both plain values and the elements of collections
+      boolean intern = property != null && fields.contains(property.getName());
+      return intern == this.intern ? this : new InterningStringDeserializer(table, fields, intern);
+    }
+
+    @Override
+    public String deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+      String value = p.hasToken(JsonToken.VALUE_STRING) ? p.getText() : StringDeserializer.instance.deserialize(p, ctxt);
+      return intern ? table.intern(value) : value;
+    }
+
+    @Override
+    public boolean isCachable() {
+      return true;
+    }
+  }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.reactive;
+
+import com.inversoft.rest.ClientResponse;
+
+/**
+ * The error sent to a {@link Subscriber} when a page couldn't be retrieved from Passport.
+ *
+ * @author Brian Pontarelli
+ */
+public class PageFetchException extends Exception {
+  public final transient ClientResponse<?, ?> response;
+
+  public PageFetchException(ClientResponse<?, ?> response) {
+    super("Passport returned a status of [" + response.status + "] for a page", response.exception);
+    this.response = response;
+  }
+}
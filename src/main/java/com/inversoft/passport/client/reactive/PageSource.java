@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.reactive;
+
+import java.util.List;
+
+/**
+ * Retrieves one page of items for a {@link PagedPublisher}.
+ *
+ * @author Brian Pontarelli
+ */
+@FunctionalInterface
+public interface PageSource<T> {
+  /**
+   * Retrieves a page. A page that is shorter than the limit is the last one.
+   *
+   * @param offset The index of the first item of the page.
+   * @param limit  The number of items in a full page.
+   * @return The items and never null.
+   * @throws PageFetchException If Passport couldn't be reached or returned an error.
+   */
+  List<T> fetch(int offset, int limit) throws PageFetchException;
+}
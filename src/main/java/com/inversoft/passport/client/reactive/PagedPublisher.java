@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.reactive;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the items of a paged API. A page is only retrieved once the items of the previous page have all been sent
+ * and the subscriber has asked for more, so a slow subscriber never causes pages to pile up in memory. The last page
+ * is the first one that is shorter than the page size.
+ * <p>
+ * Each subscription starts again from the first page. Pages are retrieved and sent on the executor.
+ *
+ * @author Brian Pontarelli
+ */
+public class PagedPublisher<T> implements Publisher<T> {
+  private final Executor executor;
+
+  private final int offset;
+
+  private final int pageSize;
+
+  private final PageSource<T> source;
+
+  public PagedPublisher(PageSource<T> source, int offset, int pageSize, Executor executor) {
+    if (pageSize <= 0) {
+      throw new IllegalArgumentException("The page size must be greater than zero");
+    }
+
+    this.source = Objects.requireNonNull(source, "You must supply a page source");
+    this.executor = Objects.requireNonNull(executor, "You must supply an executor");
+    this.offset = offset;
+    this.pageSize = pageSize;
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super T> subscriber) {
+    Objects.requireNonNull(subscriber, "You must supply a subscriber");
+    subscriber.onSubscribe(new PageSubscription(subscriber));
+  }
+
+  private class PageSubscription implements Subscription {
+    private final Deque<T> buffer = new ArrayDeque<>();
+
+    private final AtomicLong demand = new AtomicLong();
+
+    private final Subscriber<? super T> subscriber;
+
+    private final AtomicInteger work = new AtomicInteger();
+
+    private volatile boolean cancelled;
+
+    private volatile Throwable invalid;
+
+    private boolean lastPage;
+
+    private int next = offset;
+
+    PageSubscription(Subscriber<? super T> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void cancel() {
+      cancelled = true;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        invalid = new IllegalArgumentException("The request must be greater than zero but was [" + n + "]");
+      } else {
+        demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+      }
+
+      // Only one drain runs at a time and a request that arrives while it runs makes it loop again
+      if (work.getAndIncrement() == 0) {
+        try {
+          executor.execute(this::drain);
+        } catch (RejectedExecutionException e) {
+          cancelled = true;
+          subscriber.onError(e);
+        }
+      }
+    }
+
+    private void drain() {
+      int missed = 1;
+      do {
+        if (cancelled) {
+          return;
+        }
+
+        if (invalid != null) {
+          cancelled = true;
+          subscriber.onError(invalid);
+          return;
+        }
+
+        while (demand.get() > 0 && !cancelled) {
+          if (buffer.isEmpty()) {
+            if (lastPage) {
+              break;
+            }
+
+            List<T> page;
+            try {
+              page = source.fetch(next, pageSize);
+            } catch (PageFetchException | RuntimeException e) {
+              cancelled = true;
+              subscriber.onError(e);
+              return;
+            }
+
+            next += page.size();
+            lastPage = page.size() < pageSize;
+            buffer.addAll(page);
+            continue;
+          }
+
+          subscriber.onNext(buffer.poll());
+          demand.updateAndGet(current -> current == Long.MAX_VALUE ? current : current - 1);
+        }
+
+        if (lastPage && buffer.isEmpty() && !cancelled) {
+          cancelled = true;
+          subscriber.onComplete();
+          return;
+        }
+
+        missed = work.addAndGet(-missed);
+      } while (missed != 0);
+    }
+  }
+}
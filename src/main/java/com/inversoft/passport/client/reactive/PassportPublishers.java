@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.reactive;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+import com.inversoft.passport.client.PassportClient;
+import com.inversoft.passport.client.VirtualThreads;
+import com.inversoft.passport.domain.AuditLog;
+import com.inversoft.passport.domain.RawLogin;
+import com.inversoft.passport.domain.User;
+import com.inversoft.passport.domain.search.AuditLogSearchCriteria;
+import com.inversoft.passport.domain.search.UserSearchCriteria;
+import com.inversoft.rest.ClientResponse;
+
+/**
+ * Publishers for the paged Passport APIs. Each page is retrieved with the {@link PassportClient}, so the call options,
+ * retries and limits it has been configured with apply to every page. A page that fails ends the stream with a
+ * {@link PageFetchException}.
+ *
+ * @author Brian Pontarelli
+ */
+public class PassportPublishers {
+  private final PassportClient client;
+
+  private final Executor executor;
+
+  public PassportPublishers(PassportClient client) {
+    this(client, VirtualThreads.executor());
+  }
+
+  public PassportPublishers(PassportClient client, Executor executor) {
+    this.client = Objects.requireNonNull(client, "You must supply a PassportClient");
+    this.executor = Objects.requireNonNull(executor, "You must supply an executor");
+  }
+
+  private static <T, U> List<T> items(ClientResponse<U, ?> response, Function<U, List<T>> items)
+      throws PageFetchException {
+    if (!response.wasSuccessful()) {
+      throw new PageFetchException(response);
+    }
+
+    List<T> page = response.successResponse != null ? items.apply(response.successResponse) : null;
+    return page != null ? page : Collections.emptyList();
+  }
+
+  /**
+   * Publishes the logins of a user.
+   *
+   * @param userId   The id of the user.
+   * @param pageSize The number of logins retrieved at a time.
+   * @return The publisher.
+   */
+  public Publisher<RawLogin> retrieveUserLoginReport(UUID userId, int pageSize) {
+    return new PagedPublisher<>((offset, limit) -> items(client.retrieveUserLoginReport(userId, offset, limit),
+        response -> response.logins), 0, pageSize, executor);
+  }
+
+  /**
+   * Publishes the audit logs that match the search. The startRow and numberOfResults of the search are the first row
+   * and the page size.
+   *
+   * @param search The search criteria.
+   * @return The publisher.
+   */
+  public Publisher<AuditLog> searchAuditLogs(AuditLogSearchCriteria search) {
+    return new PagedPublisher<>((offset, limit) -> {
+      AuditLogSearchCriteria page = new AuditLogSearchCriteria();
+      page.end = search.end;
+      page.message = search.message;
+      page.numberOfResults = limit;
+      page.orderBy = search.orderBy;
+      page.start = search.start;
+      page.startRow = offset;
+      page.user = search.user;
+      return items(client.searchAuditLogs(page), response -> response.auditLogs);
+    }, search.startRow, search.numberOfResults, executor);
+  }
+
+  /**
+   * Publishes the users that match the query string. The startRow and numberOfResults of the search are the first row
+   * and the page size.
+   *
+   * @param search The search criteria.
+   * @return The publisher.
+   */
+  public Publisher<User> searchUsersByQueryString(UserSearchCriteria search) {
+    return new PagedPublisher<>((offset, limit) -> {
+      UserSearchCriteria page = new UserSearchCriteria();
+      page.numberOfResults = limit;
+      page.queryString = search.queryString;
+      page.sortFields = search.sortFields;
+      page.startRow = offset;
+      return items(client.searchUsersByQueryString(page), response -> response.users);
+    }, search.startRow, search.numberOfResults, executor);
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.reactive;
+
+/**
+ * A source of items that only sends them as fast as its subscribers ask for them. This has the same methods and rules
+ * as java.util.concurrent.Flow.Publisher and org.reactivestreams.Publisher, which the client can't use because it runs
+ * on Java 8 and doesn't depend on Reactive Streams. Adapting it to either one only takes wrappers that forward the
+ * calls of the subscriber and the subscription.
+ *
+ * @author Brian Pontarelli
+ */
+@FunctionalInterface
+public interface Publisher<T> {
+  /**
+   * Adds a subscriber. Its {@link Subscriber#onSubscribe(Subscription)} method is called before any other.
+   *
+   * @param subscriber The subscriber.
+   */
+  void subscribe(Subscriber<? super T> subscriber);
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.reactive;
+
+/**
+ * Receives the items of a {@link Publisher}. The methods are never called at the same time, and onNext is only called
+ * as many times as the subscriber has requested using its {@link Subscription}.
+ *
+ * @author Brian Pontarelli
+ */
+public interface Subscriber<T> {
+  /**
+   * Called once all the items have been sent.
+   */
+  void onComplete();
+
+  /**
+   * Called when the publisher fails. No other method is called after this.
+   *
+   * @param throwable The failure.
+   */
+  void onError(Throwable throwable);
+
+  /**
+   * Called with the next item.
+   *
+   * @param item The item.
+   */
+  void onNext(T item);
+
+  /**
+   * Called first, with the subscription used to request items.
+   *
+   * @param subscription The subscription.
+   */
+  void onSubscribe(Subscription subscription);
+}
@@ -0,0 +1,261 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Stops sending requests to endpoints that are failing or slow, so callers fail fast instead of each waiting for the
+ * read timeout. The breaker counts the failed and slow requests over a rolling window and opens when either rate
+ * passes its threshold. After the open duration it lets a few probe requests through and closes again if they all
+ * succeed.
+ * <p>
+ * Each request calls {@link #tryAcquire()} before it is sent and {@link #record(Permit, long, boolean)} once it
+ * completes, or {@link #cancel(Permit)} if it isn't sent after all. The permits are tagged with the generation of the
+ * breaker, which changes every time its state does, and the outcomes of requests let through in an earlier generation
+ * are ignored. So a slow request that was let through while the circuit was closed can't use up or close the probes.
+ *
+ * @author Brian Pontarelli
+ */
+public class CircuitBreaker {
+  private static final int BUCKETS = 10;
+
+  private final long bucketNanos;
+
+  private final long[] bucketStarts = new long[BUCKETS];
+
+  private final CircuitBreakerConfiguration configuration;
+
+  private final int[] failures = new int[BUCKETS];
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final int[] requests = new int[BUCKETS];
+
+  private final int[] slow = new int[BUCKETS];
+
+  private long generation;
+
+  private long openedAt;
+
+  private int probes;
+
+  private int probeSuccesses;
+
+  private CircuitState state = CircuitState.Closed;
+
+  public CircuitBreaker(CircuitBreakerConfiguration configuration) {
+    this.configuration = configuration;
+    this.bucketNanos = Math.max(1, TimeUnit.MILLISECONDS.toNanos(configuration.windowInMillis) / BUCKETS);
+    reset();
+  }
+
+  /**
+   * Gives back the permit of a request that was let through but then wasn't sent, for example because it was rejected
+   * by a {@link ConcurrencyLimiter}.
+   *
+   * @param permit The permit returned by {@link #tryAcquire()}.
+   */
+  public void cancel(Permit permit) {
+    lock.lock();
+    try {
+      if (permit.generation == generation && state == CircuitState.HalfOpen && probes > 0) {
+        probes--;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return The share of the requests in the window that failed.
+   */
+  public double failureRate() {
+    lock.lock();
+    try {
+      return rate(failures);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Records the outcome of a request that was let through.
+   *
+   * @param permit       The permit returned by {@link #tryAcquire()}.
+   * @param latencyNanos How long the request took.
+   * @param failed       True if the request couldn't be sent or read, or Passport returned a 5xx.
+   */
+  public void record(Permit permit, long latencyNanos, boolean failed) {
+    boolean wasSlow = latencyNanos > TimeUnit.MILLISECONDS.toNanos(configuration.slowRequestDurationInMillis);
+    lock.lock();
+    try {
+      if (permit.generation != generation) {
+        // A request that was let through before the state last changed
+        return;
+      }
+
+      if (state == CircuitState.HalfOpen) {
+        probes--;
+        if (failed || wasSlow) {
+          open();
+        } else if (++probeSuccesses >= configuration.probeRequests) {
+          state = CircuitState.Closed;
+          generation++;
+          reset();
+        }
+        return;
+      }
+
+      int bucket = bucket(System.nanoTime());
+      requests[bucket]++;
+      if (failed) {
+        failures[bucket]++;
+      }
+      if (wasSlow) {
+        slow[bucket]++;
+      }
+
+      if (total(requests) >= configuration.minimumRequests &&
+          (rate(failures) >= configuration.failureRateThreshold || rate(slow) >= configuration.slowRequestRateThreshold)) {
+        open();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return The share of the requests in the window that were slow.
+   */
+  public double slowRequestRate() {
+    lock.lock();
+    try {
+      return rate(slow);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return The state of the circuit.
+   */
+  public CircuitState state() {
+    lock.lock();
+    try {
+      if (state == CircuitState.Open && isOpenDurationOver()) {
+        return CircuitState.HalfOpen;
+      }
+      return state;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Determines if a request can be sent.
+   *
+   * @return The permit, which must be passed to {@link #record(Permit, long, boolean)} or {@link #cancel(Permit)}, if
+   *     the circuit is closed or it is half open and the request is one of the probes. Otherwise null.
+   */
+  public Permit tryAcquire() {
+    lock.lock();
+    try {
+      if (state == CircuitState.Closed) {
+        return new Permit(generation);
+      }
+
+      if (state == CircuitState.Open) {
+        if (!isOpenDurationOver()) {
+          return null;
+        }
+
+        state = CircuitState.HalfOpen;
+        generation++;
+        probes = 0;
+        probeSuccesses = 0;
+      }
+
+      if (probes + probeSuccesses >= configuration.probeRequests) {
+        return null;
+      }
+
+      probes++;
+      return new Permit(generation);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private int bucket(long now) {
+    long start = now / bucketNanos;
+    int bucket = (int) Math.floorMod(start, (long) BUCKETS);
+    if (bucketStarts[bucket] != start) {
+      bucketStarts[bucket] = start;
+      failures[bucket] = 0;
+      requests[bucket] = 0;
+      slow[bucket] = 0;
+    }
+    return bucket;
+  }
+
+  private boolean isOpenDurationOver() {
+    return System.nanoTime() - openedAt >= TimeUnit.MILLISECONDS.toNanos(configuration.openDurationInMillis);
+  }
+
+  private void open() {
+    state = CircuitState.Open;
+    generation++;
+    openedAt = System.nanoTime();
+  }
+
+  private double rate(int[] counts) {
+    int total = total(requests);
+    return total == 0 ? 0 : total(counts) / (double) total;
+  }
+
+  private void reset() {
+    for (int i = 0; i < BUCKETS; i++) {
+      bucketStarts[i] = Long.MIN_VALUE;
+      failures[i] = 0;
+      requests[i] = 0;
+      slow[i] = 0;
+    }
+  }
+
+  private int total(int[] counts) {
+    long current = System.nanoTime() / bucketNanos;
+    int total = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      if (bucketStarts[i] > current - BUCKETS) {
+        total += counts[i];
+      }
+    }
+    return total;
+  }
+
+  /**
+   * A permit to send a request, tagged with the generation of the breaker it was granted in.
+   */
+  public static final class Permit {
+    public final long generation;
+
+    private Permit(long generation) {
+      this.generation = generation;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.resilience;
+
+import com.inversoft.json.ToString;
+import com.inversoft.passport.domain.Buildable;
+
+/**
+ * Configuration of a {@link CircuitBreaker}.
+ *
+ * @author Brian Pontarelli
+ */
+public class CircuitBreakerConfiguration implements Buildable<CircuitBreakerConfiguration> {
+  /**
+   * The share of the requests in the window that can fail before the circuit opens. Failures are requests that couldn't
+   * be sent or read, such as timeouts, and 5xx responses.
+   */
+  public double failureRateThreshold = 0.5;
+
+  /**
+   * The number of requests the window must have before the rates are checked, so a couple of failures while traffic is
+   * low don't open the circuit.
+   */
+  public int minimumRequests = 20;
+
+  /**
+   * How long the circuit stays open before probe requests are let through.
+   */
+  public long openDurationInMillis = 30_000;
+
+  /**
+   * The number of probe requests that are let through when the circuit is half open. If all of them succeed the
+   * circuit closes and if any of them fails it opens again.
+   */
+  public int probeRequests = 3;
+
+  /**
+   * Requests that take longer than this are slow.
+   */
+  public long slowRequestDurationInMillis = 1500;
+
+  /**
+   * The share of the requests in the window that can be slow before the circuit opens. This opens the circuit of
+   * endpoints that are degraded but not failing, before every request waits for the read timeout.
+   */
+  public double slowRequestRateThreshold = 0.8;
+
+  /**
+   * The length of the rolling window the rates are computed over.
+   */
+  public long windowInMillis = 10_000;
+
+  @Override
+  public String toString() {
+    return ToString.toString(this);
+  }
+}
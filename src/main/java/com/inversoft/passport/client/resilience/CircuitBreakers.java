@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.resilience;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The {@link CircuitBreaker}s of each {@link EndpointGroup}. Each group opens on its own, so a degraded reporting
+ * endpoint fails fast without affecting logins.
+ *
+ * @author Brian Pontarelli
+ */
+public class CircuitBreakers {
+  private final Map<EndpointGroup, CircuitBreaker> breakers = new EnumMap<>(EndpointGroup.class);
+
+  /**
+   * Creates breakers for every group using the same configuration.
+   *
+   * @param configuration The configuration.
+   */
+  public CircuitBreakers(CircuitBreakerConfiguration configuration) {
+    this(configuration, Collections.emptyMap());
+  }
+
+  /**
+   * Creates breakers for every group using the configuration of the group if there is one and the default otherwise.
+   *
+   * @param configuration The default configuration.
+   * @param groups        The configurations of specific groups.
+   */
+  public CircuitBreakers(CircuitBreakerConfiguration configuration,
+                         Map<EndpointGroup, CircuitBreakerConfiguration> groups) {
+    for (EndpointGroup group : EndpointGroup.values()) {
+      breakers.put(group, new CircuitBreaker(groups.getOrDefault(group, configuration)));
+    }
+  }
+
+  /**
+   * @param group The group.
+   * @return The breaker of the group.
+   */
+  public CircuitBreaker breaker(EndpointGroup group) {
+    return breakers.get(group);
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.resilience;
+
+/**
+ * The states of a {@link CircuitBreaker}.
+ *
+ * @author Brian Pontarelli
+ */
+public enum CircuitState {
+  /**
+   * Requests are sent and their outcomes are counted.
+   */
+  Closed,
+
+  /**
+   * A few probe requests are sent to find out if the endpoints have recovered. The other requests are rejected.
+   */
+  HalfOpen,
+
+  /**
+   * Too many requests failed or were slow, so requests are rejected without being sent.
+   */
+  Open
+}
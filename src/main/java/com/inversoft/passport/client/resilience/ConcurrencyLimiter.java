@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of requests in flight to Passport to a limit that it learns from the latency and the overload
+ * errors of the requests. When Passport slows down the limit shrinks, so the requests over it are rejected locally
+ * instead of piling up in Passport and slowing it down further. When Passport recovers the limit grows again.
+ * <p>
+ * Each request calls {@link #acquire()} before it is sent and {@link #release(long, boolean)} once it completes, or
+ * {@link #cancel()} if it isn't sent after all.
+ *
+ * @author Brian Pontarelli
+ */
+public class ConcurrencyLimiter {
+  private final ConcurrencyLimiterConfiguration configuration;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Condition released = lock.newCondition();
+
+  private int inFlight;
+
+  private double limit;
+
+  private double longLatency;
+
+  private int queued;
+
+  private long rejected;
+
+  public ConcurrencyLimiter(ConcurrencyLimiterConfiguration configuration) {
+    this.configuration = configuration;
+    this.limit = Math.max(configuration.minimumLimit, Math.min(configuration.maximumLimit, configuration.initialLimit));
+  }
+
+  /**
+   * Takes a place for a request. If the limit has been reached, this waits up to the maximum queue time for a request to
+   * complete.
+   *
+   * @return True if the request can be sent, false if it must be rejected.
+   */
+  public boolean acquire() {
+    return acquire(Long.MAX_VALUE);
+  }
+
+  /**
+   * Takes a place for a request. If the limit has been reached, this waits up to the maximum queue time or the given
+   * time, whichever is shorter, for a request to complete.
+   *
+   * @param maximumWaitNanos The longest the caller can wait, such as the time left before its deadline.
+   * @return True if the request can be sent, false if it must be rejected.
+   */
+  public boolean acquire(long maximumWaitNanos) {
+    lock.lock();
+    try {
+      if (inFlight < (int) limit) {
+        inFlight++;
+        return true;
+      }
+
+      if (configuration.maximumQueueTimeInMillis <= 0 || queued >= configuration.maximumQueueSize) {
+        rejected++;
+        return false;
+      }
+
+      queued++;
+      try {
+        long remaining = Math.min(maximumWaitNanos,
+            TimeUnit.MILLISECONDS.toNanos(configuration.maximumQueueTimeInMillis));
+        while (inFlight >= (int) limit) {
+          if (remaining <= 0) {
+            rejected++;
+            return false;
+          }
+          remaining = released.awaitNanos(remaining);
+        }
+
+        inFlight++;
+        return true;
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        rejected++;
+        return false;
+      } finally {
+        queued--;
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gives back the place of a request that was let through but then wasn't sent, for example because it couldn't get a
+   * permit for its backend. The limit doesn't learn anything from it.
+   */
+  public void cancel() {
+    lock.lock();
+    try {
+      inFlight--;
+      released.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return The number of requests in flight.
+   */
+  public int inFlight() {
+    lock.lock();
+    try {
+      return inFlight;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return The current limit.
+   */
+  public int limit() {
+    lock.lock();
+    try {
+      return (int) limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return The number of requests waiting for the limit.
+   */
+  public int queued() {
+    lock.lock();
+    try {
+      return queued;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return The number of requests that have been rejected.
+   */
+  public long rejectedCount() {
+    lock.lock();
+    try {
+      return rejected;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gives back the place of a request that completed and learns from it.
+   *
+   * @param latencyNanos How long the request took.
+   * @param overloaded   True if the request failed in a way that means Passport is overloaded, such as a timeout, a 429
+   *                     or a 503.
+   */
+  public void release(long latencyNanos, boolean overloaded) {
+    lock.lock();
+    try {
+      int observedInFlight = inFlight--;
+      double next = configuration.algorithm == LimitAlgorithm.Aimd ? aimd(latencyNanos, overloaded, observedInFlight)
+          : gradient(latencyNanos, overloaded, observedInFlight);
+      limit = Math.max(configuration.minimumLimit, Math.min(configuration.maximumLimit, next));
+      released.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private double aimd(long latencyNanos, boolean overloaded, int observedInFlight) {
+    if (overloaded || latencyNanos > TimeUnit.MILLISECONDS.toNanos(configuration.latencyThresholdInMillis)) {
+      return limit * configuration.backoffRatio;
+    }
+
+    // Only grow when the limit is being used, otherwise a quiet period would let it grow without bounds
+    if (observedInFlight * 2 >= limit) {
+      return limit + 1 / limit;
+    }
+
+    return limit;
+  }
+
+  private double gradient(long latencyNanos, boolean overloaded, int observedInFlight) {
+    if (overloaded) {
+      return limit * configuration.backoffRatio;
+    }
+
+    if (longLatency == 0) {
+      longLatency = latencyNanos;
+    } else {
+      longLatency = longLatency * 0.99 + latencyNanos * 0.01;
+    }
+
+    // Once the latency drops well below the average, the average is too old to be useful so it catches up faster
+    if (longLatency / latencyNanos > 2) {
+      longLatency *= 0.95;
+    }
+
+    if (observedInFlight * 2 < limit) {
+      return limit;
+    }
+
+    double gradient = Math.max(0.5, Math.min(1.0, configuration.latencyTolerance * longLatency / latencyNanos));
+    double estimate = limit * gradient + Math.sqrt(limit);
+    return limit * (1 - configuration.smoothing) + estimate * configuration.smoothing;
+  }
+}
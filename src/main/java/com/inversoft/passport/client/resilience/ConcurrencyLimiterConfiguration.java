@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.resilience;
+
+import com.inversoft.json.ToString;
+import com.inversoft.passport.domain.Buildable;
+
+/**
+ * Configuration of a {@link ConcurrencyLimiter}.
+ *
+ * @author Brian Pontarelli
+ */
+public class ConcurrencyLimiterConfiguration implements Buildable<ConcurrencyLimiterConfiguration> {
+  /**
+   * How the limit is learned.
+   */
+  public LimitAlgorithm algorithm = LimitAlgorithm.Gradient;
+
+  /**
+   * The limit is multiplied by this when a request fails because Passport is overloaded.
+   */
+  public double backoffRatio = 0.9;
+
+  /**
+   * The limit before anything has been learned.
+   */
+  public int initialLimit = 20;
+
+  /**
+   * The {@link LimitAlgorithm#Aimd} algorithm treats requests that take longer than this the same as overload errors.
+   */
+  public long latencyThresholdInMillis = 1000;
+
+  /**
+   * How much the latency can rise above the long term average before the {@link LimitAlgorithm#Gradient} algorithm
+   * lowers the limit.
+   */
+  public double latencyTolerance = 1.5;
+
+  /**
+   * The highest the limit can go.
+   */
+  public int maximumLimit = 200;
+
+  /**
+   * The most requests that can wait for the limit at one time. Once this many are waiting, more requests are rejected
+   * immediately.
+   */
+  public int maximumQueueSize = 100;
+
+  /**
+   * How long a request waits for the limit before it is rejected. Zero rejects requests over the limit immediately.
+   */
+  public long maximumQueueTimeInMillis = 0;
+
+  /**
+   * The lowest the limit can go.
+   */
+  public int minimumLimit = 1;
+
+  /**
+   * How much each request moves the limit of the {@link LimitAlgorithm#Gradient} algorithm towards the new estimate,
+   * from 0 to 1.
+   */
+  public double smoothing = 0.2;
+
+  @Override
+  public String toString() {
+    return ToString.toString(this);
+  }
+}
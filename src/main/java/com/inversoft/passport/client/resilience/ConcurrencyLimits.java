@@ -0,0 +1,60 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.resilience;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * The {@link ConcurrencyLimiter}s of each {@link EndpointGroup}. Each group learns its own limit, so slow searches or
+ * reports can't use up the limit of logins.
+ *
+ * @author Brian Pontarelli
+ */
+public class ConcurrencyLimits {
+  private final Map<EndpointGroup, ConcurrencyLimiter> limiters = new EnumMap<>(EndpointGroup.class);
+
+  /**
+   * Creates limiters for every group using the same configuration.
+   *
+   * @param configuration The configuration.
+   */
+  public ConcurrencyLimits(ConcurrencyLimiterConfiguration configuration) {
+    this(configuration, Collections.emptyMap());
+  }
+
+  /**
+   * Creates limiters for every group using the configuration of the group if there is one and the default otherwise.
+   *
+   * @param configuration The default configuration.
+   * @param groups        The configurations of specific groups.
+   */
+  public ConcurrencyLimits(ConcurrencyLimiterConfiguration configuration,
+                           Map<EndpointGroup, ConcurrencyLimiterConfiguration> groups) {
+    for (EndpointGroup group : EndpointGroup.values()) {
+      limiters.put(group, new ConcurrencyLimiter(groups.getOrDefault(group, configuration)));
+    }
+  }
+
+  /**
+   * @param group The group.
+   * @return The limiter of the group.
+   */
+  public ConcurrencyLimiter limiter(EndpointGroup group) {
+    return limiters.get(group);
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.resilience;
+
+import com.inversoft.rest.RESTClient.HTTPMethod;
+
+/**
+ * The groups of Passport APIs that are limited and protected separately. The APIs in a group have similar costs and
+ * importance, so one group being slow or overloaded doesn't use up the capacity of the others.
+ *
+ * @author Brian Pontarelli
+ */
+public enum EndpointGroup {
+  /**
+   * Applications, email, system configuration, user actions, webhooks and everything else that doesn't belong to one of
+   * the other groups.
+   */
+  Admin,
+
+  /**
+   * Logins, two factor authentication and the JWT APIs.
+   */
+  Login,
+
+  /**
+   * The reports.
+   */
+  Report,
+
+  /**
+   * The user search and the audit log search.
+   */
+  Search,
+
+  /**
+   * Retrieving users and the things that belong to them.
+   */
+  UserRead,
+
+  /**
+   * Creating, updating, deleting and acting on users and the things that belong to them.
+   */
+  UserWrite;
+
+  /**
+   * Determines the group of a request from its method and path.
+   *
+   * @param method The HTTP method.
+   * @param path   The path of the request, which starts with /api.
+   * @return The group and never null.
+   */
+  public static EndpointGroup classify(HTTPMethod method, String path) {
+    if (path.startsWith("/api/login") || path.startsWith("/api/jwt") || path.startsWith("/api/two-factor")) {
+      return Login;
+    }
+
+    if (path.startsWith("/api/report")) {
+      return Report;
+    }
+
+    if (path.startsWith("/api/user/search") || (path.startsWith("/api/system/audit-log") && method == HTTPMethod.GET)) {
+      return Search;
+    }
+
+    if (path.equals("/api/user") || path.startsWith("/api/user/")) {
+      return method == HTTPMethod.GET ? UserRead : UserWrite;
+    }
+
+    return Admin;
+  }
+}
@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.resilience;
+
+import java.io.Closeable;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.inversoft.passport.client.VirtualThreads;
+import com.inversoft.rest.ClientResponse;
+import com.inversoft.rest.RESTClient.HTTPMethod;
+
+/**
+ * Sends a second attempt of a slow read when the first attempt has taken longer than a percentile of the latency of
+ * its endpoint group, and uses whichever attempt succeeds first. This cuts the tail latency caused by the occasional
+ * slow Passport node. The request itself may still complete in Passport after its attempt has lost, which is why only
+ * idempotent reads are hedged.
+ * <p>
+ * The first attempt is made on the calling thread, so a request that is never hedged costs nothing extra. The hedge is
+ * made on the executor of the policy, and if it wins the calling thread is interrupted to abort the first attempt. The
+ * hedge is interrupted in the same way when the first attempt wins. An interrupted attempt gives back its permits
+ * without being counted by the circuit breaker, concurrency limit or backend pool, since losing says nothing about
+ * Passport.
+ * <p>
+ * A virtual thread blocked on a socket read is woken up by the interrupt, but a platform thread isn't, because an
+ * {@code HttpURLConnection} read ignores it. On platform threads the hedge therefore only helps when the first attempt
+ * fails rather than when it is merely slow, and an attempt that has lost keeps its connection, its backend permit and
+ * its place in the concurrency limit until its response arrives or the read timeout passes. The connection is owned by
+ * the REST client and can't be closed from here, so keep the read timeout short when hedging on platform threads.
+ * <p>
+ * The share of requests that are hedged is capped by a token bucket that starts out full, so hedging can't double the
+ * load on Passport when all of it is slow. A policy should be shared by every client in the process so that its
+ * latencies and cap cover all of the requests.
+ *
+ * @author Brian Pontarelli
+ */
+public class HedgingPolicy implements Closeable {
+  private static final int DONE = 2;
+
+  private static final int HEDGED = 1;
+
+  private static final int INTERRUPTED = 4;
+
+  private static final int INTERRUPTING = 3;
+
+  private static final int RUNNING = 0;
+
+  // The tokens are counted in thousandths so that the ratio adds up exactly
+  private static final long TOKEN = 1000;
+
+  public final HedgingPolicyConfiguration configuration;
+
+  private final ExecutorService executor;
+
+  private final AtomicLong hedges = new AtomicLong();
+
+  private final Map<EndpointGroup, LatencyHistogram> histograms = new EnumMap<>(EndpointGroup.class);
+
+  private final ScheduledThreadPoolExecutor timer;
+
+  private final AtomicLong tokens;
+
+  /**
+   * Creates a policy that makes the hedges on the executor shared by the clients, which runs each of them on a virtual
+   * thread when the JVM has them.
+   *
+   * @param configuration The configuration.
+   */
+  public HedgingPolicy(HedgingPolicyConfiguration configuration) {
+    this(configuration, VirtualThreads.executor());
+  }
+
+  /**
+   * Creates a policy that makes the hedges on the given executor, which isn't shut down when the policy is closed.
+   *
+   * @param configuration The configuration.
+   * @param executor      The executor.
+   */
+  public HedgingPolicy(HedgingPolicyConfiguration configuration, ExecutorService executor) {
+    this.configuration = configuration;
+    this.executor = executor;
+    this.tokens = new AtomicLong(Math.round(configuration.maximumBurst * TOKEN));
+    for (EndpointGroup group : EndpointGroup.values()) {
+      histograms.put(group, new LatencyHistogram(configuration.sampleWindow));
+    }
+
+    this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+      Thread thread = new Thread(runnable, "passport-hedge-timer");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.timer.setRemoveOnCancelPolicy(true);
+  }
+
+  private static <T, U> ClientResponse<T, U> failed(Exception exception) {
+    ClientResponse<T, U> response = new ClientResponse<>();
+    response.exception = exception;
+    response.status = -1;
+    return response;
+  }
+
+  /**
+   * @return True if a response is worth returning rather than waiting for the other attempt. These are the responses
+   *     that weren't caused by Passport or the network failing.
+   */
+  private static boolean isFinal(ClientResponse<?, ?> response) {
+    return response.status >= 0 && response.status < 500 && response.status != 429;
+  }
+
+  @Override
+  public void close() {
+    timer.shutdownNow();
+  }
+
+  /**
+   * @param method The HTTP method.
+   * @param group  The endpoint group.
+   * @return True if the requests with the method and group are hedged.
+   */
+  public boolean covers(HTTPMethod method, EndpointGroup group) {
+    return method == HTTPMethod.GET && configuration.groups.contains(group);
+  }
+
+  /**
+   * @param group The endpoint group.
+   * @return How long the first attempt of a request in the group can take before it is hedged.
+   */
+  public long delayNanos(EndpointGroup group) {
+    long maximum = TimeUnit.MILLISECONDS.toNanos(configuration.maximumDelayInMillis);
+    LatencyHistogram histogram = histograms.get(group);
+    if (histogram.count() < configuration.minimumSamples) {
+      return maximum;
+    }
+
+    long minimum = TimeUnit.MILLISECONDS.toNanos(configuration.minimumDelayInMillis);
+    return Math.max(minimum, Math.min(maximum, histogram.percentileNanos(configuration.percentile)));
+  }
+
+  /**
+   * Makes the first attempt of a request on the calling thread and a hedge on the executor if the first is slow, and
+   * returns the first successful response. If both attempts fail, the response of the one that failed last is
+   * returned.
+   *
+   * @param group The endpoint group of the request.
+   * @param first Makes the first attempt. It must take its own permits of the limits that protect Passport.
+   * @param hedge Makes the hedge. It must take its own permits too, without waiting for them.
+   * @return The response.
+   */
+  public <T, U> ClientResponse<T, U> hedge(EndpointGroup group, Supplier<ClientResponse<T, U>> first,
+                                           Supplier<ClientResponse<T, U>> hedge) {
+    long earned = Math.round(configuration.hedgeRatio * TOKEN);
+    long maximum = Math.round(configuration.maximumBurst * TOKEN);
+    tokens.getAndUpdate(current -> Math.min(maximum, current + earned));
+
+    LatencyHistogram histogram = histograms.get(group);
+    Thread caller = Thread.currentThread();
+    AtomicInteger state = new AtomicInteger(RUNNING);
+    CompletableFuture<ClientResponse<T, U>> hedged = new CompletableFuture<>();
+    CompletableFuture<Future<?>> hedgeTask = new CompletableFuture<>();
+    ScheduledFuture<?> scheduled = timer.schedule(() -> {
+      if (!state.compareAndSet(RUNNING, HEDGED)) {
+        return;
+      }
+
+      if (!tryHedge()) {
+        hedged.complete(null);
+        return;
+      }
+
+      try {
+        hedgeTask.complete(executor.submit(() -> {
+          if (hedged.isDone()) {
+            return;
+          }
+
+          ClientResponse<T, U> response = attempt(hedge, histogram);
+          hedged.complete(response);
+          if (isFinal(response) && state.compareAndSet(HEDGED, INTERRUPTING)) {
+            caller.interrupt();
+            state.set(INTERRUPTED);
+          }
+        }));
+      } catch (RejectedExecutionException e) {
+        hedged.complete(null);
+      }
+    }, delayNanos(group), TimeUnit.NANOSECONDS);
+
+    long start = System.nanoTime();
+    ClientResponse<T, U> response = attempt(first, null);
+    scheduled.cancel(false);
+    if (state.compareAndSet(RUNNING, DONE)) {
+      histogram.record(System.nanoTime() - start);
+      return response;
+    }
+
+    if (!state.compareAndSet(HEDGED, DONE)) {
+      // The hedge won and interrupted this thread to abort the first attempt
+      while (state.get() != INTERRUPTED) {
+        Thread.yield();
+      }
+      Thread.interrupted();
+      return hedged.join();
+    }
+
+    histogram.record(System.nanoTime() - start);
+    if (isFinal(response)) {
+      hedged.complete(null);
+      hedgeTask.thenAccept(task -> task.cancel(true));
+      return response;
+    }
+
+    try {
+      ClientResponse<T, U> hedgeResponse = hedged.get();
+      return hedgeResponse != null ? hedgeResponse : response;
+    } catch (ExecutionException e) {
+      return response;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      hedgeTask.thenAccept(task -> task.cancel(true));
+      return failed(e);
+    }
+  }
+
+  /**
+   * @return The number of hedges that have been sent.
+   */
+  public long hedgeCount() {
+    return hedges.get();
+  }
+
+  /**
+   * @param group The endpoint group.
+   * @return The latencies of the attempts of the group.
+   */
+  public LatencyHistogram histogram(EndpointGroup group) {
+    return histograms.get(group);
+  }
+
+  private <T, U> ClientResponse<T, U> attempt(Supplier<ClientResponse<T, U>> attempt, LatencyHistogram histogram) {
+    long start = System.nanoTime();
+    try {
+      ClientResponse<T, U> response = attempt.get();
+      if (histogram != null) {
+        histogram.record(System.nanoTime() - start);
+      }
+      return response;
+    } catch (RuntimeException e) {
+      return failed(e);
+    }
+  }
+
+  private boolean tryHedge() {
+    long current;
+    do {
+      current = tokens.get();
+      if (current < TOKEN) {
+        return false;
+      }
+    } while (!tokens.compareAndSet(current, current - TOKEN));
+
+    hedges.incrementAndGet();
+    return true;
+  }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.resilience;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import com.inversoft.json.ToString;
+import com.inversoft.passport.domain.Buildable;
+
+/**
+ * Configuration of a {@link HedgingPolicy}.
+ *
+ * @author Brian Pontarelli
+ */
+public class HedgingPolicyConfiguration implements Buildable<HedgingPolicyConfiguration> {
+  /**
+   * The endpoint groups whose GET requests are hedged. By default these are the JWT validation and the user lookups,
+   * which are cheap for Passport and often on the critical path of a page.
+   */
+  public Set<EndpointGroup> groups = EnumSet.of(EndpointGroup.Login, EndpointGroup.UserRead);
+
+  /**
+   * The share of requests that can be hedged. Once this is used up, requests wait for their first attempt however long
+   * it takes, so hedging can add at most this much load.
+   */
+  public double hedgeRatio = 0.05;
+
+  /**
+   * The most hedges that can be saved up and made in a burst.
+   */
+  public double maximumBurst = 10;
+
+  /**
+   * The longest delay before a hedge. This is also the delay used until enough requests have been seen to estimate the
+   * percentile.
+   */
+  public long maximumDelayInMillis = 1000;
+
+  /**
+   * The shortest delay before a hedge.
+   */
+  public long minimumDelayInMillis = 5;
+
+  /**
+   * The number of requests of a group that must be seen before the percentile is used.
+   */
+  public int minimumSamples = 100;
+
+  /**
+   * A hedge is sent when the first attempt has taken longer than this percentile of the latency of the group.
+   */
+  public double percentile = 0.95;
+
+  /**
+   * The number of requests after which the older latencies start to count for less.
+   */
+  public long sampleWindow = 10_000;
+
+  @Override
+  public String toString() {
+    return ToString.toString(this);
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of request latencies that can estimate percentiles cheaply. The buckets grow by about 19% each, from one
+ * microsecond up to more than an hour, so the estimates are within that of the real value. Once the window is full the
+ * counts are halved, so older requests count for less and the estimates follow changes in latency.
+ * <p>
+ * Recording is lock free and can be done from any number of threads.
+ *
+ * @author Brian Pontarelli
+ */
+public class LatencyHistogram {
+  private static final int BUCKETS = 128;
+
+  // Four buckets for each power of two
+  private static final double LOG_STEP = Math.log(2) / 4;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+  private final AtomicBoolean decaying = new AtomicBoolean();
+
+  private final AtomicLong total = new AtomicLong();
+
+  private final long window;
+
+  /**
+   * @param window The number of requests after which the counts are halved.
+   */
+  public LatencyHistogram(long window) {
+    this.window = window;
+  }
+
+  private static int bucket(long micros) {
+    if (micros <= 1) {
+      return 0;
+    }
+
+    return Math.min(BUCKETS - 1, (int) (Math.log(micros) / LOG_STEP));
+  }
+
+  /**
+   * @return The number of requests the percentiles are estimated from.
+   */
+  public long count() {
+    return total.get();
+  }
+
+  /**
+   * Estimates a percentile of the latencies.
+   *
+   * @param percentile The percentile from 0 to 1, for example 0.95.
+   * @return The latency in nanoseconds, or zero if nothing has been recorded.
+   */
+  public long percentileNanos(double percentile) {
+    long sum = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      sum += counts.get(i);
+    }
+
+    if (sum == 0) {
+      return 0;
+    }
+
+    long rank = Math.max(1, (long) Math.ceil(percentile * sum));
+    long seen = 0;
+    int bucket = BUCKETS - 1;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += counts.get(i);
+      if (seen >= rank) {
+        bucket = i;
+        break;
+      }
+    }
+
+    // The upper bound of the bucket so the estimate errs on the high side
+    return TimeUnit.MICROSECONDS.toNanos((long) Math.ceil(Math.exp((bucket + 1) * LOG_STEP)));
+  }
+
+  /**
+   * Records the latency of a request.
+   *
+   * @param latencyNanos The latency in nanoseconds.
+   */
+  public void record(long latencyNanos) {
+    counts.incrementAndGet(bucket(TimeUnit.NANOSECONDS.toMicros(latencyNanos)));
+    if (total.incrementAndGet() >= window && decaying.compareAndSet(false, true)) {
+      long sum = 0;
+      for (int i = 0; i < BUCKETS; i++) {
+        sum += counts.updateAndGet(i, count -> count / 2);
+      }
+      total.set(sum);
+      decaying.set(false);
+    }
+  }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.resilience;
+
+/**
+ * The ways a {@link ConcurrencyLimiter} can learn its limit.
+ *
+ * @author Brian Pontarelli
+ */
+public enum LimitAlgorithm {
+  /**
+   * Additive increase, multiplicative decrease. The limit grows by about one for every round of requests that complete
+   * in time and is cut by the backoff ratio when a request fails with an overload error or takes longer than the
+   * latency threshold. This is simple and predictable, but only reacts once Passport is already slow.
+   */
+  Aimd,
+
+  /**
+   * The limit follows the ratio of the long term latency to the latest latency. When requests start to queue up inside
+   * Passport the latency rises above the long term average and the limit shrinks before requests start to fail.
+   */
+  Gradient
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.resilience;
+
+import com.inversoft.rest.RESTClient.HTTPMethod;
+
+/**
+ * The priority classes of requests.
+ *
+ * @author Brian Pontarelli
+ */
+public enum Priority {
+  /**
+   * Background work such as imports, bulk updates and reports, which can wait.
+   */
+  Batch,
+
+  /**
+   * Requests that a user is waiting on, such as logins and JWT validation.
+   */
+  Interactive,
+
+  /**
+   * Everything else.
+   */
+  Standard;
+
+  /**
+   * Determines the priority of a request from its method and path. Logins, login pings, two factor authentication and
+   * JWT validation are interactive. Reports, imports, bulk deactivations and deletions, and searches of the audit log
+   * are batch work. Everything else is standard.
+   *
+   * @param method The HTTP method.
+   * @param path   The path of the request, which starts with /api.
+   * @return The priority and never null.
+   */
+  public static Priority classify(HTTPMethod method, String path) {
+    if (path.startsWith("/api/login") || path.startsWith("/api/two-factor") || path.startsWith("/api/jwt/validate")) {
+      return Interactive;
+    }
+
+    if (path.startsWith("/api/report") || path.startsWith("/api/user/import") || path.startsWith("/api/user/bulk") ||
+        (path.startsWith("/api/system/audit-log") && method == HTTPMethod.GET)) {
+      return Batch;
+    }
+
+    return Standard;
+  }
+}
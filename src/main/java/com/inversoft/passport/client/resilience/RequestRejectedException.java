@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.resilience;
+
+/**
+ * The exception of the ClientResponse of a request that the client didn't send to Passport because a limit was
+ * reached. The status of the response is -1, the same as when the request couldn't be sent.
+ *
+ * @author Brian Pontarelli
+ */
+public class RequestRejectedException extends Exception {
+  public RequestRejectedException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.resilience;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Schedules requests by {@link Priority} using a bulkhead of permits for each class and a pool of shared permits. Each
+ * class can only use its own permits and the shared ones, so a batch job that runs a big import or report can use up
+ * the batch and shared permits but never the ones reserved for logins. When requests are waiting for a shared permit,
+ * the one that is freed goes to the highest priority class first.
+ * <p>
+ * A scheduler should be shared by every client in the process so that it sees all of its requests.
+ *
+ * @author Brian Pontarelli
+ */
+public class RequestScheduler {
+  // The order in which waiting classes get shared permits
+  private static final Priority[] ORDER = {Priority.Interactive, Priority.Standard, Priority.Batch};
+
+  private final Map<Priority, Condition> available = new EnumMap<>(Priority.class);
+
+  private final RequestSchedulerConfiguration configuration;
+
+  // The own and the shared permits each class is using
+  private final Map<Priority, int[]> inUse = new EnumMap<>(Priority.class);
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final Map<Priority, int[]> waiting = new EnumMap<>(Priority.class);
+
+  private long rejected;
+
+  private int sharedInUse;
+
+  public RequestScheduler(RequestSchedulerConfiguration configuration) {
+    this.configuration = configuration;
+    for (Priority priority : Priority.values()) {
+      available.put(priority, lock.newCondition());
+      inUse.put(priority, new int[2]);
+      waiting.put(priority, new int[1]);
+    }
+  }
+
+  /**
+   * Takes a permit for a request, waiting up to the maximum wait or the given time, whichever is shorter.
+   *
+   * @param priority         The priority class of the request.
+   * @param maximumWaitNanos The longest the caller can wait, such as the time left before its deadline.
+   * @return The permit, which must be passed to {@link #release(Permit)} once the request completes, or null if the
+   *     request must be rejected.
+   */
+  public Permit acquire(Priority priority, long maximumWaitNanos) {
+    lock.lock();
+    try {
+      Permit permit = grant(priority);
+      if (permit != null) {
+        return permit;
+      }
+
+      long remaining = Math.min(maximumWaitNanos, TimeUnit.MILLISECONDS.toNanos(configuration.maximumWaitInMillis));
+      waiting.get(priority)[0]++;
+      try {
+        while (remaining > 0) {
+          remaining = available.get(priority).awaitNanos(remaining);
+          permit = grant(priority);
+          if (permit != null) {
+            return permit;
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        waiting.get(priority)[0]--;
+      }
+
+      rejected++;
+      return null;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @param priority The priority class.
+   * @return The number of requests of the class in flight, including the ones using shared permits.
+   */
+  public int inFlight(Priority priority) {
+    lock.lock();
+    try {
+      int[] used = inUse.get(priority);
+      return used[0] + used[1];
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return The number of requests that have been rejected.
+   */
+  public long rejectedCount() {
+    lock.lock();
+    try {
+      return rejected;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Gives back the permit of a request that completed.
+   *
+   * @param permit The permit.
+   */
+  public void release(Permit permit) {
+    lock.lock();
+    try {
+      if (!permit.shared) {
+        inUse.get(permit.priority)[0]--;
+        available.get(permit.priority).signalAll();
+        return;
+      }
+
+      inUse.get(permit.priority)[1]--;
+      sharedInUse--;
+      for (Priority priority : ORDER) {
+        if (waiting.get(priority)[0] > 0) {
+          available.get(priority).signalAll();
+          return;
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Permit grant(Priority priority) {
+    int[] used = inUse.get(priority);
+    if (used[0] < configuration.reservedPermits.getOrDefault(priority, 0)) {
+      used[0]++;
+      return new Permit(priority, false);
+    }
+
+    if (sharedInUse >= configuration.sharedPermits) {
+      return null;
+    }
+
+    // Leave the shared permits to the higher priority classes that are waiting
+    for (Priority higher : ORDER) {
+      if (higher == priority) {
+        break;
+      }
+      if (waiting.get(higher)[0] > 0) {
+        return null;
+      }
+    }
+
+    used[1]++;
+    sharedInUse++;
+    return new Permit(priority, true);
+  }
+
+  /**
+   * A permit to send a request.
+   */
+  public static final class Permit {
+    public final Priority priority;
+
+    public final boolean shared;
+
+    private Permit(Priority priority, boolean shared) {
+      this.priority = priority;
+      this.shared = shared;
+    }
+  }
+}
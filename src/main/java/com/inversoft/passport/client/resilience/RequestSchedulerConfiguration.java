@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.resilience;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import com.inversoft.json.ToString;
+import com.inversoft.passport.domain.Buildable;
+
+/**
+ * Configuration of a {@link RequestScheduler}.
+ *
+ * @author Brian Pontarelli
+ */
+public class RequestSchedulerConfiguration implements Buildable<RequestSchedulerConfiguration> {
+  /**
+   * How long a request waits for a permit before it is rejected. This is cut short by the deadline of the call.
+   */
+  public long maximumWaitInMillis = 1000;
+
+  /**
+   * The permits reserved for each priority class. These are the most requests of the class that can be in flight
+   * before it has to use the shared permits, and no other class can use them.
+   */
+  public Map<Priority, Integer> reservedPermits = new EnumMap<>(Priority.class);
+
+  /**
+   * The permits that any class can use once its own are used up. When requests of several classes are waiting, these
+   * go to the highest priority first.
+   */
+  public int sharedPermits = 20;
+
+  public RequestSchedulerConfiguration() {
+    reservedPermits.put(Priority.Batch, 5);
+    reservedPermits.put(Priority.Interactive, 50);
+    reservedPermits.put(Priority.Standard, 25);
+  }
+
+  @Override
+  public String toString() {
+    return ToString.toString(this);
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A token bucket that limits the retries to a share of the requests. Each request deposits a fraction of a token and
+ * each retry withdraws a whole one, so when Passport is down and every request fails, the retries only add that share
+ * to the load instead of multiplying it by the number of attempts. A small reserve that refills over time lets clients
+ * that make few requests retry too.
+ *
+ * @author Brian Pontarelli
+ */
+public class RetryBudget {
+  // The tokens are counted in thousandths so that ten deposits of 0.1 make exactly one token
+  private static final long TOKEN = 1000;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final long maximumTokens;
+
+  private final double minimumPerSecond;
+
+  private final long ratio;
+
+  private long refilledAt = System.nanoTime();
+
+  private double reserve;
+
+  private long tokens;
+
+  public RetryBudget(RetryPolicyConfiguration configuration) {
+    this.maximumTokens = Math.round(configuration.budgetMaximumTokens * TOKEN);
+    this.minimumPerSecond = configuration.budgetMinimumPerSecond;
+    this.ratio = Math.round(configuration.budgetRatio * TOKEN);
+    this.reserve = minimumPerSecond;
+  }
+
+  /**
+   * @return The number of retries that can be made right now.
+   */
+  public int available() {
+    lock.lock();
+    try {
+      refill();
+      return (int) (tokens / TOKEN) + (int) reserve;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Adds the share of a token earned by a request. This is called once for each request, not for each attempt.
+   */
+  public void deposit() {
+    lock.lock();
+    try {
+      tokens = Math.min(maximumTokens, tokens + ratio);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Takes a token for a retry.
+   *
+   * @return True if the retry can be made, false if the budget is spent.
+   */
+  public boolean tryWithdraw() {
+    lock.lock();
+    try {
+      refill();
+      if (tokens >= TOKEN) {
+        tokens -= TOKEN;
+        return true;
+      }
+
+      if (reserve >= 1) {
+        reserve--;
+        return true;
+      }
+
+      return false;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void refill() {
+    long now = System.nanoTime();
+    double seconds = (now - refilledAt) / (double) TimeUnit.SECONDS.toNanos(1);
+    reserve = Math.min(minimumPerSecond, reserve + seconds * minimumPerSecond);
+    refilledAt = now;
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.resilience;
+
+import java.net.ConnectException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import com.inversoft.rest.ClientResponse;
+import com.inversoft.rest.RESTClient.HTTPMethod;
+
+/**
+ * Decides which failed requests are retried and when. A request is only retried if it is safe to send it again (see
+ * {@link #isIdempotent(HTTPMethod, String)}), it failed in a way that another attempt might fix, there is time left
+ * before its deadline and the {@link RetryBudget} has a token for it.
+ * <p>
+ * A policy should be shared by every client in the process so that its budget sees all of the requests.
+ *
+ * @author Brian Pontarelli
+ */
+public class RetryPolicy {
+  public final RetryBudget budget;
+
+  public final RetryPolicyConfiguration configuration;
+
+  public RetryPolicy(RetryPolicyConfiguration configuration) {
+    this.budget = new RetryBudget(configuration);
+    this.configuration = configuration;
+  }
+
+  /**
+   * Determines if sending a request more than once has the same effect as sending it once. These are all the GET, PUT
+   * and DELETE requests, plus the email template preview, except for the PUTs that record something each time they are
+   * sent: resending the email verification sends another email, modifying an action adds to its history and may notify
+   * the user, and a login ping records another login. The other POST requests aren't, so logins, creating users,
+   * actions, comments, registrations and the like, sending email, refreshing JWTs and forgot password are not retried
+   * unless the connection to Passport couldn't be opened, in which case nothing was sent.
+   *
+   * @param method The HTTP method.
+   * @param path   The path of the request, which starts with /api.
+   * @return True if the request can be retried after any failure.
+   */
+  public static boolean isIdempotent(HTTPMethod method, String path) {
+    switch (method) {
+      case GET:
+      case DELETE:
+        return true;
+      case PUT:
+        return !path.startsWith("/api/user/verify-email") && !matches(path, "/api/login") &&
+            !matches(path, "/api/user/action");
+      default:
+        return path.startsWith("/api/email/template/preview");
+    }
+  }
+
+  private static boolean matches(String path, String uri) {
+    return path.equals(uri) || path.startsWith(uri + "/");
+  }
+
+  /**
+   * Picks how long to wait before a retry. This is a random time up to the exponential backoff for the retry.
+   *
+   * @param retry The number of the retry, starting at 1.
+   * @return The time to wait in nanoseconds.
+   */
+  public long backoffNanos(int retry) {
+    double backoff = configuration.initialBackoffInMillis * Math.pow(2, retry - 1);
+    long limit = TimeUnit.MILLISECONDS.toNanos((long) Math.min(configuration.maximumBackoffInMillis, backoff));
+    return limit > 0 ? ThreadLocalRandom.current().nextLong(limit + 1) : 0;
+  }
+
+  /**
+   * Determines if a failed attempt might succeed if it is made again. These are the requests that couldn't be sent or
+   * whose response couldn't be read, and the 429, 502, 503 and 504 responses. Requests that were rejected by the client
+   * itself, for example by a {@link ConcurrencyLimiter}, aren't retried since that would only add to the overload.
+   *
+   * @param method   The HTTP method.
+   * @param path     The path of the request.
+   * @param response The response of the attempt.
+   * @return True if the attempt can be retried, budget and deadline permitting.
+   */
+  public boolean isRetryable(HTTPMethod method, String path, ClientResponse<?, ?> response) {
+    if (response.exception instanceof RequestRejectedException) {
+      return false;
+    }
+
+    if (response.exception instanceof ConnectException) {
+      return true;
+    }
+
+    if (!isIdempotent(method, path)) {
+      return false;
+    }
+
+    return response.status < 0 || response.status == 429 || response.status == 502 || response.status == 503 ||
+        response.status == 504;
+  }
+}
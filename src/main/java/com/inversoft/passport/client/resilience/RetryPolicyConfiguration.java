@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.resilience;
+
+import com.inversoft.json.ToString;
+import com.inversoft.passport.domain.Buildable;
+
+/**
+ * Configuration of a {@link RetryPolicy}.
+ *
+ * @author Brian Pontarelli
+ */
+public class RetryPolicyConfiguration implements Buildable<RetryPolicyConfiguration> {
+  /**
+   * The most tokens the {@link RetryBudget} can save up, which is the most retries that can be made in a burst.
+   */
+  public double budgetMaximumTokens = 100;
+
+  /**
+   * The number of retries that can always be made each second, even when there haven't been enough requests to earn
+   * them. This lets a client that makes few requests still retry.
+   */
+  public double budgetMinimumPerSecond = 10;
+
+  /**
+   * The tokens each request adds to the {@link RetryBudget}. A retry costs one token, so 0.1 allows one retry for every
+   * ten requests.
+   */
+  public double budgetRatio = 0.1;
+
+  /**
+   * How long the first attempt and all of the retries of a request can take in total. The timeouts of each attempt are
+   * cut down to fit in what is left.
+   */
+  public long deadlineInMillis = 5000;
+
+  /**
+   * The longest backoff before the first retry. The backoff doubles with each retry and a random part of it is used,
+   * so the clients that failed at the same time don't all retry at the same time.
+   */
+  public long initialBackoffInMillis = 50;
+
+  /**
+   * The number of attempts including the first one.
+   */
+  public int maximumAttempts = 3;
+
+  /**
+   * The longest backoff before any retry.
+   */
+  public long maximumBackoffInMillis = 1000;
+
+  @Override
+  public String toString() {
+    return ToString.toString(this);
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.routing;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One Passport node in a {@link BackendPool} and what the pool knows about it: the requests in flight, the average
+ * latency, the failures in a row and whether it is ejected or failed its last health check.
+ *
+ * @author Brian Pontarelli
+ */
+public class Backend {
+  private static final double WEIGHT = 0.2;
+
+  public final String baseURL;
+
+  private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+  private final AtomicLong latency = new AtomicLong(Double.doubleToLongBits(0));
+
+  private final AtomicInteger outstanding = new AtomicInteger();
+
+  // Null if the requests to the backend aren't limited
+  private final Semaphore permits;
+
+  private volatile long ejectedUntil;
+
+  private volatile boolean healthy = true;
+
+  Backend(String baseURL, int maximumRequests) {
+    this.baseURL = baseURL.endsWith("/") ? baseURL.substring(0, baseURL.length() - 1) : baseURL;
+    this.permits = maximumRequests > 0 ? new Semaphore(maximumRequests) : null;
+  }
+
+  /**
+   * Waits for a permit to send a request to the backend if the requests to it are limited.
+   *
+   * @param timeoutNanos The longest to wait.
+   * @return True if the request can be sent, false if the time ran out or the thread was interrupted.
+   */
+  public boolean acquirePermit(long timeoutNanos) {
+    if (permits == null) {
+      return true;
+    }
+
+    try {
+      return permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  /**
+   * @return True if the backend is left out of the pool because it failed or was slow.
+   */
+  public boolean isEjected() {
+    return ejectedUntil != 0 && System.currentTimeMillis() < ejectedUntil;
+  }
+
+  /**
+   * @return False if the last health check of the backend failed.
+   */
+  public boolean isHealthy() {
+    return healthy;
+  }
+
+  /**
+   * @return The exponentially weighted average latency of the successful requests to the backend or zero if there
+   * haven't been any since it was last ejected.
+   */
+  public double latencyInMillis() {
+    return Double.longBitsToDouble(latency.get()) / TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  /**
+   * @return The number of requests to the backend in flight.
+   */
+  public int outstanding() {
+    return outstanding.get();
+  }
+
+  /**
+   * Gives back a permit taken by {@link #acquirePermit(long)}.
+   */
+  public void releasePermit() {
+    if (permits != null) {
+      permits.release();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return baseURL;
+  }
+
+  /**
+   * Records that a request that was started wasn't sent after all.
+   */
+  void cancel() {
+    outstanding.decrementAndGet();
+  }
+
+  /**
+   * Leaves the backend out of the pool for a while. Its average latency is forgotten, since it stops changing while the
+   * backend gets no requests and would otherwise get the backend ejected again as soon as it is back.
+   */
+  void eject(long durationInMillis) {
+    ejectedUntil = System.currentTimeMillis() + durationInMillis;
+    consecutiveFailures.set(0);
+    latency.set(Double.doubleToLongBits(0));
+  }
+
+  /**
+   * Records the end of a request. Only the latency of successful requests is averaged, since a backend that fails fast
+   * would otherwise look like the fastest one.
+   *
+   * @return The number of failures in a row.
+   */
+  int finish(long latencyInNanos, boolean failed) {
+    outstanding.decrementAndGet();
+    if (failed) {
+      return consecutiveFailures.incrementAndGet();
+    }
+
+    consecutiveFailures.set(0);
+    while (true) {
+      long bits = latency.get();
+      double current = Double.longBitsToDouble(bits);
+      double updated = current == 0 ? latencyInNanos : current + WEIGHT * (latencyInNanos - current);
+      if (latency.compareAndSet(bits, Double.doubleToLongBits(updated))) {
+        return 0;
+      }
+    }
+  }
+
+  boolean isAvailable() {
+    return healthy && !isEjected();
+  }
+
+  void setHealthy(boolean healthy) {
+    this.healthy = healthy;
+  }
+
+  void start() {
+    outstanding.incrementAndGet();
+  }
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.routing;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.inversoft.rest.ClientResponse;
+
+/**
+ * Spreads the requests of a {@link com.inversoft.passport.client.PassportClient} created with
+ * {@link com.inversoft.passport.client.PassportClient#withBackendPool(BackendPool)} across several Passport nodes.
+ * <p>
+ * Backends are ejected for a while when they fail too many requests in a row or when their average latency is far
+ * above the rest of the pool, and they are left out while their health checks fail. If every backend is left out, the
+ * pool ignores that and uses all of them rather than failing requests it could have tried.
+ *
+ * @author Brian Pontarelli
+ */
+public class BackendPool implements Closeable {
+  private final List<Backend> backends;
+
+  private final BackendPoolConfiguration configuration;
+
+  // Makes counting the ejected backends and ejecting one atomic, so concurrent ejections can't exceed the maximum
+  private final ReentrantLock ejectionLock = new ReentrantLock();
+
+  private final ScheduledExecutorService healthChecker;
+
+  private final Backend[] ringBackends;
+
+  private final long[] ringPoints;
+
+  public BackendPool(BackendPoolConfiguration configuration) {
+    if (configuration.baseURLs.isEmpty()) {
+      throw new IllegalArgumentException("The pool needs at least one base URL");
+    }
+
+    List<Backend> backends = new ArrayList<>();
+    configuration.baseURLs.forEach(baseURL -> backends.add(new Backend(baseURL, configuration.maximumRequestsPerBackend)));
+    this.backends = Collections.unmodifiableList(backends);
+    this.configuration = configuration;
+
+    int points = backends.size() * configuration.virtualNodes;
+    long[][] ring = new long[points][];
+    for (int i = 0; i < backends.size(); i++) {
+      for (int j = 0; j < configuration.virtualNodes; j++) {
+        ring[i * configuration.virtualNodes + j] = new long[]{hash(backends.get(i).baseURL + "#" + j), i};
+      }
+    }
+    Arrays.sort(ring, (a, b) -> Long.compare(a[0], b[0]));
+    this.ringPoints = new long[points];
+    this.ringBackends = new Backend[points];
+    for (int i = 0; i < points; i++) {
+      ringPoints[i] = ring[i][0];
+      ringBackends[i] = backends.get((int) ring[i][1]);
+    }
+
+    if (configuration.healthCheckIntervalInMillis > 0) {
+      this.healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "passport-health-check");
+        thread.setDaemon(true);
+        return thread;
+      });
+      healthChecker.scheduleWithFixedDelay(this::checkHealth, 0, configuration.healthCheckIntervalInMillis, TimeUnit.MILLISECONDS);
+    } else {
+      this.healthChecker = null;
+    }
+  }
+
+  private static boolean failed(ClientResponse<?, ?> response) {
+    return response == null || response.exception != null || response.status < 0 || response.status == 429 ||
+        response.status >= 500;
+  }
+
+  /**
+   * FNV-1a followed by the finalizer of MurmurHash3 so that similar strings land far apart on the ring.
+   */
+  private static long hash(String value) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      h ^= value.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  /**
+   * Picks a backend for a request and counts the request as in flight. Each call must be followed by a call to
+   * {@link #release(Backend, long, ClientResponse)}.
+   *
+   * @return The backend.
+   */
+  public Backend acquire() {
+    return acquire(Collections.emptySet());
+  }
+
+  /**
+   * Picks a backend for a request, preferring ones that aren't in the given collection, and counts the request as in
+   * flight. Each call must be followed by a call to {@link #release(Backend, long, ClientResponse)}.
+   *
+   * @param avoid The backends to avoid, such as the ones that already failed the request.
+   * @return The backend.
+   */
+  public Backend acquire(Collection<Backend> avoid) {
+    return acquire(null, avoid);
+  }
+
+  /**
+   * Picks a backend for a request, preferring ones that aren't in the given collection, and counts the request as in
+   * flight. Each call must be followed by a call to {@link #release(Backend, long, ClientResponse)}.
+   *
+   * @param affinityKey (Optional) The user id, login id, email or username of the request. This is only used by
+   *                    {@link Selection#ConsistentHash}.
+   * @param avoid       The backends to avoid, such as the ones that already failed the request.
+   * @return The backend.
+   */
+  public Backend acquire(Object affinityKey, Collection<Backend> avoid) {
+    List<Backend> candidates = candidates(avoid, true);
+    if (candidates.isEmpty()) {
+      candidates = candidates(avoid, false);
+    }
+    if (candidates.isEmpty()) {
+      candidates = backends;
+    }
+
+    Backend backend = null;
+    if (configuration.selection == Selection.ConsistentHash && affinityKey != null) {
+      backend = consistentHash(affinityKey, candidates);
+    }
+    if (backend == null) {
+      backend = configuration.selection == Selection.LeastOutstanding ? leastOutstanding(candidates) : powerOfTwo(candidates);
+    }
+    backend.start();
+    return backend;
+  }
+
+  /**
+   * @return The backends.
+   */
+  public List<Backend> backends() {
+    return backends;
+  }
+
+  /**
+   * Gives back a backend returned by {@link #acquire()} that the request wasn't sent to, for example because it
+   * couldn't get a permit for it, or whose attempt was abandoned because a hedge beat it. This doesn't count as a
+   * success or a failure.
+   *
+   * @param backend The backend.
+   */
+  public void cancel(Backend backend) {
+    backend.cancel();
+  }
+
+  /**
+   * Stops the health checks.
+   */
+  @Override
+  public void close() {
+    if (healthChecker != null) {
+      healthChecker.shutdownNow();
+    }
+  }
+
+  /**
+   * Records the end of a request and ejects the backend if it is failing or much slower than the rest.
+   *
+   * @param backend        The backend returned by {@link #acquire()}.
+   * @param latencyInNanos How long the request took.
+   * @param response       The response or null if the request didn't complete.
+   */
+  public void release(Backend backend, long latencyInNanos, ClientResponse<?, ?> response) {
+    int failures = backend.finish(latencyInNanos, failed(response));
+    if (failures >= configuration.ejectionConsecutiveFailures || isOutlier(backend)) {
+      eject(backend);
+    }
+  }
+
+  private List<Backend> candidates(Collection<Backend> avoid, boolean availableOnly) {
+    List<Backend> candidates = new ArrayList<>(backends.size());
+    for (Backend backend : backends) {
+      if (!avoid.contains(backend) && (!availableOnly || backend.isAvailable())) {
+        candidates.add(backend);
+      }
+    }
+    return candidates;
+  }
+
+  private void checkHealth() {
+    for (Backend backend : backends) {
+      try {
+        HttpURLConnection connection = (HttpURLConnection) new URL(backend.baseURL + configuration.healthCheckPath).openConnection();
+        connection.setConnectTimeout(configuration.healthCheckTimeoutInMillis);
+        connection.setReadTimeout(configuration.healthCheckTimeoutInMillis);
+        backend.setHealthy(connection.getResponseCode() < 500);
+        connection.disconnect();
+      } catch (IOException | RuntimeException e) {
+        backend.setHealthy(false);
+      }
+    }
+  }
+
+  private Backend consistentHash(Object affinityKey, List<Backend> candidates) {
+    int total = 0;
+    for (Backend backend : backends) {
+      total += backend.outstanding();
+    }
+    double limit = Math.ceil(configuration.boundedLoadFactor * (total + 1) / candidates.size());
+
+    int start = Arrays.binarySearch(ringPoints, hash(affinityKey.toString().toLowerCase(Locale.ROOT)));
+    if (start < 0) {
+      start = -start - 1;
+    }
+
+    for (int i = 0; i < ringPoints.length; i++) {
+      Backend backend = ringBackends[(start + i) % ringPoints.length];
+      if (backend.outstanding() < limit && candidates.contains(backend)) {
+        return backend;
+      }
+    }
+    return null;
+  }
+
+  private void eject(Backend backend) {
+    ejectionLock.lock();
+    try {
+      int ejected = 0;
+      for (Backend other : backends) {
+        if (other.isEjected()) {
+          ejected++;
+        }
+      }
+
+      if (!backend.isEjected() && (ejected + 1) * 100.0 <= configuration.maximumEjectionPercent * backends.size()) {
+        backend.eject(configuration.ejectionDurationInMillis);
+      }
+    } finally {
+      ejectionLock.unlock();
+    }
+  }
+
+  private boolean isOutlier(Backend backend) {
+    double latency = backend.latencyInMillis();
+    if (latency < configuration.latencyEjectionMinimumInMillis) {
+      return false;
+    }
+
+    // The backends without an average yet, such as the ones that were just ejected, are left out of the median
+    double[] latencies = backends.stream()
+                                 .mapToDouble(Backend::latencyInMillis)
+                                 .filter(value -> value > 0)
+                                 .sorted()
+                                 .toArray();
+    return latencies.length >= 3 && latency > configuration.latencyEjectionFactor * latencies[latencies.length / 2];
+  }
+
+  private Backend leastOutstanding(List<Backend> candidates) {
+    int start = ThreadLocalRandom.current().nextInt(candidates.size());
+    Backend best = null;
+    for (int i = 0; i < candidates.size(); i++) {
+      Backend backend = candidates.get((start + i) % candidates.size());
+      if (best == null || backend.outstanding() < best.outstanding()) {
+        best = backend;
+      }
+    }
+    return best;
+  }
+
+  private Backend powerOfTwo(List<Backend> candidates) {
+    if (candidates.size() == 1) {
+      return candidates.get(0);
+    }
+
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    int first = random.nextInt(candidates.size());
+    int second = random.nextInt(candidates.size() - 1);
+    if (second >= first) {
+      second++;
+    }
+
+    Backend a = candidates.get(first);
+    Backend b = candidates.get(second);
+    if (a.outstanding() != b.outstanding()) {
+      return a.outstanding() < b.outstanding() ? a : b;
+    }
+    return a.latencyInMillis() <= b.latencyInMillis() ? a : b;
+  }
+}
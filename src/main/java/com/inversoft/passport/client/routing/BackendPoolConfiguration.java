@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.routing;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.inversoft.json.ToString;
+import com.inversoft.passport.domain.Buildable;
+
+/**
+ * Configuration of the {@link BackendPool}.
+ *
+ * @author Brian Pontarelli
+ */
+public class BackendPoolConfiguration implements Buildable<BackendPoolConfiguration> {
+  /**
+   * The base URLs of the Passport nodes, such as the backend servers in the system configuration.
+   */
+  public List<String> baseURLs = new ArrayList<>();
+
+  /**
+   * With {@link Selection#ConsistentHash}, a backend is skipped while it has more than this times its even share of
+   * the requests in flight. Lower values spread hot users faster and higher values keep more of them on their node.
+   */
+  public double boundedLoadFactor = 1.25;
+
+  /**
+   * The number of failures in a row (connection errors, 429 and 5xx responses) after which a backend is ejected.
+   */
+  public int ejectionConsecutiveFailures = 5;
+
+  /**
+   * How long an ejected backend is left out before it is tried again.
+   */
+  public long ejectionDurationInMillis = 30 * 1000;
+
+  /**
+   * How often each backend is checked. Zero disables the health checks.
+   */
+  public long healthCheckIntervalInMillis = 10 * 1000;
+
+  /**
+   * The path requested by the health checks. Any response other than a 5xx counts as healthy.
+   */
+  public String healthCheckPath = "/";
+
+  /**
+   * The connect and read timeout of the health checks.
+   */
+  public int healthCheckTimeoutInMillis = 1000;
+
+  /**
+   * A backend whose average latency is this many times the median of the pool is ejected.
+   */
+  public double latencyEjectionFactor = 3.0;
+
+  /**
+   * Backends are never ejected for latency if their average latency is below this.
+   */
+  public long latencyEjectionMinimumInMillis = 250;
+
+  /**
+   * The largest share of the backends that can be ejected at once.
+   */
+  public double maximumEjectionPercent = 50;
+
+  /**
+   * The most requests that can be in flight to each backend, or zero for no limit. Requests over the limit wait for a
+   * permit, which parks a virtual thread without pinning its carrier.
+   */
+  public int maximumRequestsPerBackend = 0;
+
+  public Selection selection = Selection.PowerOfTwoChoices;
+
+  /**
+   * The number of points each backend has on the hash ring of {@link Selection#ConsistentHash}.
+   */
+  public int virtualNodes = 100;
+
+  @Override
+  public String toString() {
+    return ToString.toString(this);
+  }
+}
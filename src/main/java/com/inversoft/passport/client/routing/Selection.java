@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.routing;
+
+/**
+ * How the {@link BackendPool} picks the backend for a request.
+ *
+ * @author Brian Pontarelli
+ */
+public enum Selection {
+  /**
+   * Requests for the same user go to the same backend so that they hit the caches of that node. The backend is found
+   * by consistent hashing of the user id (or the login id, email or username when the request has no user id), so
+   * adding or removing a backend only moves the users of that backend. A backend is skipped while it has more than its
+   * share of the requests in flight (see {@link BackendPoolConfiguration#boundedLoadFactor}), so a hot user can't
+   * overload one node. Requests that aren't for a user use {@link #PowerOfTwoChoices}.
+   */
+  ConsistentHash,
+
+  /**
+   * The backend with the fewest requests in flight. Ties go to a random one of them.
+   */
+  LeastOutstanding,
+
+  /**
+   * Two random backends are compared and the one with fewer requests in flight (or the lower latency if they are tied)
+   * wins. This spreads load nearly as well as least outstanding while avoiding a thundering herd on the one idle
+   * backend when many clients make the same choice at once.
+   */
+  PowerOfTwoChoices
+}
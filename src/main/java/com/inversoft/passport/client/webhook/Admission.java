@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.webhook;
+
+/**
+ * The outcome of handing an event to the {@link WebhookReceiver}, along with the HTTP status that should be returned to
+ * Passport.
+ *
+ * @author Brian Pontarelli
+ */
+public enum Admission {
+  Accepted(200),
+
+  Spilled(202),
+
+  Rejected(503),
+
+  TimedOut(503);
+
+  public final int status;
+
+  Admission(int status) {
+    this.status = status;
+  }
+
+  /**
+   * @return True if the event was taken (queued or journaled), false if Passport must retry it.
+   */
+  public boolean accepted() {
+    return status < 300;
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.webhook;
+
+/**
+ * Determines what the {@link WebhookReceiver} does with an event when its admission queue is full.
+ *
+ * @author Brian Pontarelli
+ */
+public enum OverloadPolicy {
+  /**
+   * Wait for room in the queue up to the configured deadline and then reject the event.
+   */
+  Block,
+
+  /**
+   * Reject the event immediately so that Passport retries it later (503 with a Retry-After header).
+   */
+  Reject,
+
+  /**
+   * Append the event to the local {@link WebhookJournal} and process it once the queue drains.
+   */
+  Spill
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.webhook;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+import com.inversoft.passport.client.reactive.Publisher;
+import com.inversoft.passport.client.reactive.Subscriber;
+import com.inversoft.passport.client.reactive.Subscription;
+import com.inversoft.passport.domain.event.BaseEvent;
+
+/**
+ * Publishes the events of a {@link WebhookReceiver}. This is the event handler of the receiver:
+ * <pre>
+ *   WebhookEventPublisher publisher = new WebhookEventPublisher();
+ *   WebhookReceiver receiver = new WebhookReceiver(publisher, configuration);
+ * </pre>
+ * An event is only sent once there is at least one subscriber and every subscriber has asked for it. Until then the
+ * worker of the receiver waits, its queue fills up and its {@link OverloadPolicy} pushes back on Passport, so no event
+ * is dropped and the slowest subscriber sets the pace. Events are sent outside of the lock that guards the
+ * subscriptions, so a slow subscriber doesn't hold up others that subscribe, request or cancel. Close the receiver
+ * before this publisher, since events that arrive once it is closed fail.
+ *
+ * @author Brian Pontarelli
+ */
+public class WebhookEventPublisher implements AutoCloseable, Consumer<BaseEvent>, Publisher<BaseEvent> {
+  private final Condition demanded;
+
+  private final ReentrantLock delivery = new ReentrantLock();
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private final List<EventSubscription> subscriptions = new ArrayList<>();
+
+  private boolean closed;
+
+  public WebhookEventPublisher() {
+    this.demanded = lock.newCondition();
+  }
+
+  /**
+   * Sends the event to every subscriber, waiting for at least one subscriber and for all of them to ask for it. Only
+   * one event is sent at a time, so the subscribers get their events one after the other.
+   *
+   * @param event The event.
+   * @throws IllegalStateException If the publisher is closed or the thread is interrupted while waiting, so that the
+   *                               receiver counts the event as failed.
+   */
+  @Override
+  public void accept(BaseEvent event) {
+    delivery.lock();
+    try {
+      for (EventSubscription subscription : awaitDemand()) {
+        if (subscription.cancelled) {
+          continue;
+        }
+
+        try {
+          subscription.subscriber.onNext(event);
+        } catch (RuntimeException e) {
+          subscription.cancel();
+        }
+      }
+    } finally {
+      delivery.unlock();
+    }
+  }
+
+  /**
+   * Completes every subscription once the event being sent, if any, has been sent. Subscribers that arrive later are
+   * completed right away.
+   */
+  @Override
+  public void close() {
+    lock.lock();
+    try {
+      closed = true;
+      demanded.signalAll();
+    } finally {
+      lock.unlock();
+    }
+
+    delivery.lock();
+    try {
+      List<EventSubscription> completed;
+      lock.lock();
+      try {
+        completed = new ArrayList<>(subscriptions);
+        subscriptions.clear();
+      } finally {
+        lock.unlock();
+      }
+
+      for (EventSubscription subscription : completed) {
+        subscription.subscriber.onComplete();
+      }
+    } finally {
+      delivery.unlock();
+    }
+  }
+
+  @Override
+  public void subscribe(Subscriber<? super BaseEvent> subscriber) {
+    Objects.requireNonNull(subscriber, "You must supply a subscriber");
+    EventSubscription subscription = new EventSubscription(subscriber);
+    subscriber.onSubscribe(subscription);
+
+    boolean complete;
+    lock.lock();
+    try {
+      complete = closed;
+      if (!closed && !subscription.cancelled) {
+        subscriptions.add(subscription);
+        demanded.signalAll();
+      }
+    } finally {
+      lock.unlock();
+    }
+
+    if (complete) {
+      subscriber.onComplete();
+    }
+  }
+
+  /**
+   * @return The number of current subscribers.
+   */
+  public int subscriberCount() {
+    lock.lock();
+    try {
+      return subscriptions.size();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Waits until there is a subscriber and all of them have asked for another event, and takes one from each.
+   *
+   * @return The subscriptions to send the event to.
+   */
+  private List<EventSubscription> awaitDemand() {
+    lock.lock();
+    try {
+      while (!closed && (subscriptions.isEmpty() || subscriptions.stream().anyMatch(s -> s.demand == 0))) {
+        demanded.await();
+      }
+
+      if (closed) {
+        throw new IllegalStateException("The publisher is closed");
+      }
+
+      for (EventSubscription subscription : subscriptions) {
+        if (subscription.demand != Long.MAX_VALUE) {
+          subscription.demand--;
+        }
+      }
+
+      return new ArrayList<>(subscriptions);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while waiting for subscribers to request the event", e);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private class EventSubscription implements Subscription {
+    private final Subscriber<? super BaseEvent> subscriber;
+
+    private volatile boolean cancelled;
+
+    private long demand;
+
+    EventSubscription(Subscriber<? super BaseEvent> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    @Override
+    public void cancel() {
+      lock.lock();
+      try {
+        cancelled = true;
+        subscriptions.remove(this);
+        demanded.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    @Override
+    public void request(long n) {
+      if (n <= 0) {
+        if (!cancelled) {
+          cancel();
+          subscriber.onError(new IllegalArgumentException("The request must be greater than zero but was [" + n + "]"));
+        }
+        return;
+      }
+
+      lock.lock();
+      try {
+        if (!cancelled) {
+          demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+          demanded.signalAll();
+        }
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.webhook;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.inversoft.passport.client.PassportClient;
+import com.inversoft.passport.domain.event.BaseEvent;
+import com.inversoft.passport.domain.event.EventRequest;
+
+/**
+ * A local, append-only file that holds webhook events the {@link WebhookReceiver} could not queue. Each record is
+ * the JSON of an {@link EventRequest} prefixed with its length. Records are read back in the order they were written
+ * and the file is truncated once everything has been drained.
+ * <p>
+ * The file starts with the position of the next record to drain, which is updated by every drain. When the file is
+ * opened again only the records after it are replayed, so records that were drained but not yet handled when the JVM
+ * stopped are lost rather than handled twice. A record whose length is negative or runs past the end of the file is
+ * the torn tail of an interrupted append, and it is truncated along with anything after it.
+ *
+ * @author Brian Pontarelli
+ */
+public class WebhookJournal implements Closeable {
+  private static final int HEADER_SIZE = 8;
+
+  private final FileChannel channel;
+
+  private final ReentrantLock lock = new ReentrantLock();
+
+  private long pending;
+
+  private long readPosition;
+
+  public WebhookJournal(Path file) throws IOException {
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    if (channel.size() < HEADER_SIZE) {
+      channel.truncate(0);
+      writeReadPosition(HEADER_SIZE);
+    }
+
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    read(header, 0);
+    this.readPosition = Math.min(Math.max(header.getLong(0), HEADER_SIZE), channel.size());
+    this.pending = recover();
+  }
+
+  /**
+   * Appends the event to the end of the journal.
+   *
+   * @param event The event.
+   * @throws IOException If the event could not be written.
+   */
+  public void append(BaseEvent event) throws IOException {
+    byte[] bytes = PassportClient.objectMapper.writeValueAsBytes(new EventRequest(event));
+    ByteBuffer buffer = ByteBuffer.allocate(4 + bytes.length);
+    buffer.putInt(bytes.length).put(bytes).flip();
+
+    lock.lock();
+    try {
+      long position = channel.size();
+      while (buffer.hasRemaining()) {
+        position += channel.write(buffer, position);
+      }
+      pending++;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    channel.close();
+  }
+
+  /**
+   * Removes up to the given number of events from the head of the journal.
+   *
+   * @param max The maximum number of events to return.
+   * @return The events, oldest first. Records that can no longer be parsed are skipped.
+   * @throws IOException If the journal could not be read.
+   */
+  public List<BaseEvent> drain(int max) throws IOException {
+    List<BaseEvent> events = new ArrayList<>();
+    lock.lock();
+    try {
+      long size = channel.size();
+      ByteBuffer header = ByteBuffer.allocate(4);
+      while (events.size() < max && readPosition + 4 <= size) {
+        header.clear();
+        read(header, readPosition);
+        int length = header.getInt(0);
+        if (length < 0 || readPosition + 4 + length > size) {
+          // A torn tail, which drops everything after it
+          channel.truncate(readPosition);
+          size = readPosition;
+          break;
+        }
+
+        ByteBuffer body = ByteBuffer.allocate(length);
+        read(body, readPosition + 4);
+        readPosition += 4 + length;
+        pending--;
+
+        try {
+          events.add(PassportClient.objectMapper.readValue(body.array(), EventRequest.class).event);
+        } catch (JsonProcessingException e) {
+          // Skip the corrupt record so it doesn't block the rest of the journal
+        }
+      }
+
+      if (readPosition >= size) {
+        channel.truncate(HEADER_SIZE);
+        readPosition = HEADER_SIZE;
+        pending = 0;
+      }
+
+      writeReadPosition(readPosition);
+    } finally {
+      lock.unlock();
+    }
+
+    return events;
+  }
+
+  /**
+   * @return The number of events in the journal that have not been drained.
+   */
+  public long pending() {
+    lock.lock();
+    try {
+      return pending;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private void read(ByteBuffer buffer, long position) throws IOException {
+    while (buffer.hasRemaining()) {
+      int read = channel.read(buffer, position);
+      if (read < 0) {
+        throw new EOFException("Unexpected end of the webhook journal");
+      }
+      position += read;
+    }
+  }
+
+  /**
+   * Counts the records that haven't been drained and truncates a torn tail.
+   *
+   * @return The number of records.
+   * @throws IOException If the journal could not be read or truncated.
+   */
+  private long recover() throws IOException {
+    long count = 0;
+    long position = readPosition;
+    long size = channel.size();
+    ByteBuffer header = ByteBuffer.allocate(4);
+    while (position + 4 <= size) {
+      header.clear();
+      read(header, position);
+      int length = header.getInt(0);
+      if (length < 0 || position + 4 + length > size) {
+        break;
+      }
+
+      position += 4 + length;
+      count++;
+    }
+
+    if (position < size) {
+      channel.truncate(position);
+    }
+
+    return count;
+  }
+
+  private void writeReadPosition(long position) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    header.putLong(position).flip();
+    long offset = 0;
+    while (header.hasRemaining()) {
+      offset += channel.write(header, offset);
+    }
+  }
+}
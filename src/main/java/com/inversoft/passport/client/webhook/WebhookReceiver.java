@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.webhook;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import com.inversoft.passport.client.PassportClient;
+import com.inversoft.passport.domain.event.BaseEvent;
+import com.inversoft.passport.domain.event.EventRequest;
+
+/**
+ * Receives webhook events from Passport and hands them to an event handler on a fixed set of worker threads. Events are
+ * admitted into a bounded queue so that a slow handler never holds up the thread that is answering Passport. When the
+ * queue is full the configured {@link OverloadPolicy} decides whether the event is rejected, journaled or waited on.
+ * <p>
+ * Spilled events are replayed from the journal once the queue has room again, so they may be handled after events that
+ * arrived later.
+ *
+ * @author Brian Pontarelli
+ */
+public class WebhookReceiver implements AutoCloseable {
+  private static final long IDLE_POLL_MILLIS = 250;
+
+  private static final long SHUTDOWN_WAIT_MILLIS = 5000;
+
+  private final AtomicLong accepted = new AtomicLong();
+
+  private final WebhookReceiverConfiguration configuration;
+
+  private final AtomicLong failed = new AtomicLong();
+
+  private final Consumer<BaseEvent> handler;
+
+  private final AtomicLong processed = new AtomicLong();
+
+  private final BlockingQueue<BaseEvent> queue;
+
+  private final AtomicLong rejected = new AtomicLong();
+
+  private final AtomicLong spilled = new AtomicLong();
+
+  private final AtomicLong timedOut = new AtomicLong();
+
+  private final Thread[] workers;
+
+  private volatile boolean running = true;
+
+  public WebhookReceiver(Consumer<BaseEvent> handler, WebhookReceiverConfiguration configuration) {
+    Objects.requireNonNull(handler, "You must supply an event handler");
+    if (configuration.overloadPolicy == OverloadPolicy.Spill) {
+      Objects.requireNonNull(configuration.journal, "You must supply a journal to use the Spill overload policy");
+    }
+
+    this.handler = handler;
+    this.configuration = configuration;
+    this.queue = new ArrayBlockingQueue<>(configuration.capacity);
+    this.workers = new Thread[configuration.workers];
+    for (int i = 0; i < workers.length; i++) {
+      workers[i] = new Thread(this::work, "passport-webhook-worker-" + i);
+      workers[i].setDaemon(true);
+      workers[i].start();
+    }
+  }
+
+  /**
+   * @return The number of events that were queued, including spilled events once they are replayed.
+   */
+  public long acceptedCount() {
+    return accepted.get();
+  }
+
+  /**
+   * Stops the workers once the queue has been emptied. Events still in the journal stay there.
+   */
+  @Override
+  public void close() {
+    running = false;
+    for (Thread worker : workers) {
+      try {
+        worker.join(SHUTDOWN_WAIT_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+  }
+
+  /**
+   * @return The number of events the handler threw an exception for.
+   */
+  public long failedCount() {
+    return failed.get();
+  }
+
+  /**
+   * @return The number of events the handler has completed.
+   */
+  public long processedCount() {
+    return processed.get();
+  }
+
+  /**
+   * @return The number of events waiting in the queue.
+   */
+  public int queueDepth() {
+    return queue.size();
+  }
+
+  /**
+   * Parses the body of a webhook request and admits its event.
+   *
+   * @param body The JSON body that Passport sent.
+   * @return The admission result.
+   * @throws IOException If the body could not be read or parsed.
+   */
+  public Admission receive(InputStream body) throws IOException {
+    EventRequest request = PassportClient.objectMapper.readValue(body, EventRequest.class);
+    return receive(request.event);
+  }
+
+  /**
+   * Admits the event into the queue, applying the overload policy if the queue is full.
+   *
+   * @param event The event.
+   * @return The admission result.
+   */
+  public Admission receive(BaseEvent event) {
+    if (!running) {
+      rejected.incrementAndGet();
+      return Admission.Rejected;
+    }
+
+    if (queue.offer(event)) {
+      accepted.incrementAndGet();
+      return Admission.Accepted;
+    }
+
+    switch (configuration.overloadPolicy) {
+      case Block:
+        try {
+          if (queue.offer(event, configuration.blockTimeoutInMillis, TimeUnit.MILLISECONDS)) {
+            accepted.incrementAndGet();
+            return Admission.Accepted;
+          }
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+
+        timedOut.incrementAndGet();
+        return Admission.TimedOut;
+      case Spill:
+        try {
+          configuration.journal.append(event);
+          spilled.incrementAndGet();
+          return Admission.Spilled;
+        } catch (IOException e) {
+          rejected.incrementAndGet();
+          return Admission.Rejected;
+        }
+      default:
+        rejected.incrementAndGet();
+        return Admission.Rejected;
+    }
+  }
+
+  /**
+   * @return The number of events that were rejected because the queue was full.
+   */
+  public long rejectedCount() {
+    return rejected.get();
+  }
+
+  /**
+   * @return The number of seconds Passport should wait before retrying a rejected event.
+   */
+  public int retryAfterInSeconds() {
+    return configuration.retryAfterInSeconds;
+  }
+
+  /**
+   * @return The number of events that were written to the journal because the queue was full.
+   */
+  public long spilledCount() {
+    return spilled.get();
+  }
+
+  /**
+   * @return The number of events that were turned away after waiting for room in the queue.
+   */
+  public long timedOutCount() {
+    return timedOut.get();
+  }
+
+  private void handle(BaseEvent event) {
+    try {
+      handler.accept(event);
+      processed.incrementAndGet();
+    } catch (RuntimeException e) {
+      failed.incrementAndGet();
+    }
+  }
+
+  private void replaySpilled() {
+    WebhookJournal journal = configuration.journal;
+    if (journal == null || journal.pending() == 0) {
+      return;
+    }
+
+    int room = queue.remainingCapacity();
+    if (room < configuration.capacity / 2) {
+      return;
+    }
+
+    List<BaseEvent> events;
+    try {
+      events = journal.drain(room);
+    } catch (IOException e) {
+      return;
+    }
+
+    for (BaseEvent event : events) {
+      accepted.incrementAndGet();
+      if (!queue.offer(event)) {
+        handle(event);
+      }
+    }
+  }
+
+  private void work() {
+    while (running || !queue.isEmpty()) {
+      BaseEvent event;
+      try {
+        event = queue.poll(IDLE_POLL_MILLIS, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        return;
+      }
+
+      if (event != null) {
+        handle(event);
+      }
+
+      if (running) {
+        replaySpilled();
+      }
+    }
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.webhook;
+
+import com.inversoft.json.ToString;
+import com.inversoft.passport.domain.Buildable;
+
+/**
+ * Configuration of the {@link WebhookReceiver} admission queue.
+ *
+ * @author Brian Pontarelli
+ */
+public class WebhookReceiverConfiguration implements Buildable<WebhookReceiverConfiguration> {
+  /**
+   * How long a caller waits for room in the queue when the policy is {@link OverloadPolicy#Block}.
+   */
+  public long blockTimeoutInMillis = 1000;
+
+  /**
+   * The maximum number of events waiting to be handled.
+   */
+  public int capacity = 1000;
+
+  /**
+   * The journal used when the policy is {@link OverloadPolicy#Spill}.
+   */
+  public WebhookJournal journal;
+
+  public OverloadPolicy overloadPolicy = OverloadPolicy.Reject;
+
+  /**
+   * The value of the Retry-After header sent with a 503 response.
+   */
+  public int retryAfterInSeconds = 5;
+
+  public int workers = 1;
+
+  @Override
+  public String toString() {
+    return ToString.toString(this);
+  }
+}
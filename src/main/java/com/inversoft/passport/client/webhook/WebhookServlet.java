@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.client.webhook;
+
+import java.io.IOException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+/**
+ * Servlet that accepts the webhook POSTs from Passport and hands them to a {@link WebhookReceiver}. When the receiver
+ * turns an event away this responds with a 503 and a Retry-After header so that Passport backs off and retries rather
+ * than holding its delivery thread open.
+ * <p>
+ * Register an instance of this servlet programmatically using the ServletContext.
+ *
+ * @author Brian Pontarelli
+ */
+public class WebhookServlet extends HttpServlet {
+  private final WebhookReceiver receiver;
+
+  public WebhookServlet(WebhookReceiver receiver) {
+    this.receiver = receiver;
+  }
+
+  @Override
+  protected void doPost(HttpServletRequest request, HttpServletResponse response) throws IOException {
+    Admission admission;
+    try {
+      admission = receiver.receive(request.getInputStream());
+    } catch (JsonProcessingException e) {
+      response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+      return;
+    }
+
+    if (!admission.accepted()) {
+      response.setHeader("Retry-After", Integer.toString(receiver.retryAfterInSeconds()));
+    }
+
+    response.setStatus(admission.status);
+  }
+}
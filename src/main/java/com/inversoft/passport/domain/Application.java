@@ -24,12 +24,13 @@ import java.util.UUID;
 import com.fasterxml.jackson.annotation.JsonUnwrapped;
 import com.inversoft.json.ToString;
 import com.inversoft.passport.domain.oauth2.OAuth2Configuration;
+import com.inversoft.passport.domain.util.Fingerprint;
 import static com.inversoft.passport.domain.util.Normalizer.trim;
 
 /**
  * @author Seth Musselman
  */
-public class Application implements Buildable<Application> {
+public class Application implements Buildable<Application>, Fingerprintable {
   public static final UUID PASSPORT_ID = UUID.fromString("3C219E58-ED0E-4B18-AD48-F4F92793AE32");
 
   public boolean active;
@@ -90,6 +91,24 @@ public class Application implements Buildable<Application> {
         Objects.equals(roles, that.roles);
   }
 
+  /**
+   * Calculates the content fingerprint of the application using the same fields as {@link #equals(Object)}. The roles
+   * are unordered.
+   *
+   * @return The fingerprint.
+   */
+  @Override
+  public long fingerprint() {
+    long h = Fingerprint.SEED;
+    h = Fingerprint.add(h, active);
+    h = Fingerprint.add(h, cleanSpeakConfiguration);
+    h = Fingerprint.add(h, data);
+    h = Fingerprint.add(h, oauthConfiguration);
+    h = Fingerprint.add(h, name);
+    h = Fingerprint.addUnordered(h, roles);
+    return Fingerprint.mix(h);
+  }
+
   public ApplicationRole getRole(String name) {
     for (ApplicationRole role : roles) {
       if (role.name.equals(name)) {
@@ -143,7 +162,7 @@ public class Application implements Buildable<Application> {
     return ToString.toString(this);
   }
 
-  public static class ApplicationConfiguration {
+  public static class ApplicationConfiguration implements Fingerprintable {
     public JWTConfiguration jwtConfiguration;
 
     @Override
@@ -158,6 +177,11 @@ public class Application implements Buildable<Application> {
       return Objects.equals(jwtConfiguration, that.jwtConfiguration);
     }
 
+    @Override
+    public long fingerprint() {
+      return Fingerprint.mix(Fingerprint.add(Fingerprint.SEED, jwtConfiguration));
+    }
+
     @Override
     public int hashCode() {
       return Objects.hash(jwtConfiguration);
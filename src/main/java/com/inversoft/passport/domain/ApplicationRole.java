@@ -20,6 +20,7 @@ import java.util.UUID;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.inversoft.json.ToString;
+import com.inversoft.passport.domain.util.Fingerprint;
 import static com.inversoft.passport.domain.util.Normalizer.trim;
 
 /**
@@ -27,7 +28,7 @@ import static com.inversoft.passport.domain.util.Normalizer.trim;
  *
  * @author Seth Musselman
  */
-public class ApplicationRole implements Comparable<ApplicationRole>, Buildable<ApplicationRole> {
+public class ApplicationRole implements Comparable<ApplicationRole>, Buildable<ApplicationRole>, Fingerprintable {
   @JsonIgnore
   public UUID applicationId;
 
@@ -79,6 +80,17 @@ public class ApplicationRole implements Comparable<ApplicationRole>, Buildable<A
         Objects.equals(name, that.name);
   }
 
+  @Override
+  public long fingerprint() {
+    long h = Fingerprint.SEED;
+    h = Fingerprint.add(h, isDefault);
+    h = Fingerprint.add(h, isSuperRole);
+    h = Fingerprint.add(h, applicationId);
+    h = Fingerprint.add(h, description);
+    h = Fingerprint.add(h, name);
+    return Fingerprint.mix(h);
+  }
+
   @JsonIgnore
   public String getDisplay() {
     return description != null ? description + " (" + name + ")" : name;
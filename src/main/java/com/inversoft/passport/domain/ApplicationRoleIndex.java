@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.domain;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Assigns each role of an application a bit so that the roles of registrations and the roles required by operations
+ * can be compiled into {@link RoleSet}s and compared using word operations instead of string set lookups. The bits are
+ * assigned in role name order, so two indexes built from the same roles agree.
+ * <p>
+ * The index is immutable. Build a new one when the roles of the application change. Compiled role sets are only
+ * meaningful to the index that compiled them. Compiling is linear in the number of roles, so compile each registration
+ * and each required set of roles once and keep the result:
+ * <pre>
+ *   ApplicationRoleIndex index = new ApplicationRoleIndex(application);
+ *   RoleSet editors = index.compile("admin", "editor");
+ *   RoleSet roles = index.compile(user);
+ *   if (roles.hasAny(editors)) {
+ *     ...
+ *   }
+ * </pre>
+ *
+ * @author Brian Pontarelli
+ */
+public final class ApplicationRoleIndex {
+  public final UUID applicationId;
+
+  private final Map<String, Integer> bits;
+
+  private final RoleSet empty;
+
+  private final List<String> names;
+
+  private final long[] superRoles;
+
+  private final int words;
+
+  public ApplicationRoleIndex(Application application) {
+    this.applicationId = application.id;
+
+    List<ApplicationRole> roles = new ArrayList<>(application.roles);
+    roles.sort(null);
+
+    Map<String, Integer> bits = new HashMap<>(roles.size() * 2);
+    List<String> names = new ArrayList<>(roles.size());
+    this.words = Math.max(1, (roles.size() + 63) >>> 6);
+    this.superRoles = new long[words];
+    for (ApplicationRole role : roles) {
+      if (role.name == null || bits.containsKey(role.name)) {
+        continue;
+      }
+
+      int bit = names.size();
+      bits.put(role.name, bit);
+      names.add(role.name);
+      if (role.isSuperRole) {
+        superRoles[bit >>> 6] |= 1L << bit;
+      }
+    }
+
+    this.bits = bits;
+    this.names = Collections.unmodifiableList(names);
+    this.empty = new RoleSet(new long[words], false, true);
+  }
+
+  /**
+   * @param role The name of the role.
+   * @return The bit of the role or -1 if the application doesn't have the role.
+   */
+  public int bit(String role) {
+    Integer bit = bits.get(role);
+    return bit != null ? bit : -1;
+  }
+
+  /**
+   * Compiles role names. Names that aren't roles of the application are remembered so that {@link RoleSet#hasAll} can
+   * never be satisfied by them.
+   *
+   * @param roles The role names.
+   * @return The role set.
+   */
+  public RoleSet compile(Collection<String> roles) {
+    if (roles == null || roles.isEmpty()) {
+      return empty;
+    }
+
+    long[] set = new long[words];
+    boolean complete = true;
+    for (String role : roles) {
+      Integer bit = bits.get(role);
+      if (bit == null) {
+        complete = false;
+      } else {
+        set[bit >>> 6] |= 1L << bit;
+      }
+    }
+
+    boolean superRole = false;
+    for (int i = 0; i < words; i++) {
+      superRole |= (set[i] & superRoles[i]) != 0;
+    }
+
+    return new RoleSet(set, superRole, complete);
+  }
+
+  /**
+   * Compiles role names.
+   *
+   * @param roles The role names.
+   * @return The role set.
+   * @see #compile(Collection)
+   */
+  public RoleSet compile(String... roles) {
+    return compile(Arrays.asList(roles));
+  }
+
+  /**
+   * Compiles the roles of the user's registration for the application.
+   *
+   * @param user The user.
+   * @return The role set, which is empty if the user isn't registered for the application.
+   */
+  public RoleSet compile(User user) {
+    return user == null ? empty : compile(user.getRegistrationForApplication(applicationId));
+  }
+
+  /**
+   * Compiles the roles of a registration. Roles of the registration that the application no longer has are ignored.
+   *
+   * @param registration The registration.
+   * @return The role set, which is empty if the registration is null.
+   * @throws IllegalArgumentException If the registration is for a different application.
+   */
+  public RoleSet compile(UserRegistration registration) {
+    if (registration == null) {
+      return empty;
+    }
+    if (!applicationId.equals(registration.applicationId)) {
+      throw new IllegalArgumentException("The registration is for the application [" + registration.applicationId +
+          "] but the index is for the application [" + applicationId + "]");
+    }
+
+    RoleSet set = compile(registration.roles);
+    return set.isComplete() ? set : new RoleSet(set.words(), set.isSuperRole(), true);
+  }
+
+  /**
+   * @param roles The role set.
+   * @return The names of the roles in the set in name order.
+   */
+  public List<String> names(RoleSet roles) {
+    long[] set = roles.words();
+    List<String> result = new ArrayList<>();
+    for (int i = 0; i < set.length; i++) {
+      long word = set[i];
+      while (word != 0) {
+        result.add(names.get((i << 6) + Long.numberOfTrailingZeros(word)));
+        word &= word - 1;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return The number of roles the application has.
+   */
+  public int size() {
+    return names.size();
+  }
+}
@@ -16,13 +16,15 @@
 package com.inversoft.passport.domain;
 
 import java.net.URI;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.inversoft.json.ToString;
+import com.inversoft.passport.domain.util.Fingerprint;
+import com.inversoft.passport.domain.util.UUIDList;
 import static com.inversoft.passport.domain.util.Normalizer.trim;
 
 /**
@@ -30,7 +32,7 @@ import static com.inversoft.passport.domain.util.Normalizer.trim;
  *
  * @author Brian Pontarelli
  */
-public class CleanSpeakConfiguration implements Buildable<CleanSpeakConfiguration> {
+public class CleanSpeakConfiguration implements Buildable<CleanSpeakConfiguration>, Fingerprintable {
   /**
    * API Key used to connect to the CleanSpeak API. This may be null some versions of CleanSpeak do not require an API
    * key.
@@ -47,7 +49,8 @@ public class CleanSpeakConfiguration implements Buildable<CleanSpeakConfiguratio
    * If there is a 1 to 1 relationship between the Passport and CleanSpeak applications, the application Ids are
    * expected to be equal.
    */
-  public List<UUID> applicationIds = new ArrayList<>();
+  @JsonDeserialize(as = UUIDList.class)
+  public List<UUID> applicationIds = new UUIDList();
 
   public boolean enabled;
 
@@ -87,6 +90,16 @@ public class CleanSpeakConfiguration implements Buildable<CleanSpeakConfiguratio
         Objects.equals(url, that.url);
   }
 
+  @Override
+  public long fingerprint() {
+    long h = Fingerprint.SEED;
+    h = Fingerprint.add(h, apiKey);
+    h = Fingerprint.add(h, enabled);
+    h = Fingerprint.add(h, usernameModeration);
+    h = Fingerprint.add(h, url);
+    return Fingerprint.mix(h);
+  }
+
   @Override
   public int hashCode() {
     return Objects.hash(apiKey, enabled, usernameModeration, url);
@@ -101,7 +114,7 @@ public class CleanSpeakConfiguration implements Buildable<CleanSpeakConfiguratio
     return ToString.toString(this);
   }
 
-  public static class UsernameModeration implements Buildable<UsernameModeration> {
+  public static class UsernameModeration implements Buildable<UsernameModeration>, Fingerprintable {
     public UUID applicationId;
 
     public boolean enabled;
@@ -127,6 +140,11 @@ public class CleanSpeakConfiguration implements Buildable<CleanSpeakConfiguratio
           Objects.equals(applicationId, that.applicationId);
     }
 
+    @Override
+    public long fingerprint() {
+      return Fingerprint.mix(Fingerprint.add(Fingerprint.add(Fingerprint.SEED, enabled), applicationId));
+    }
+
     @Override
     public int hashCode() {
       return Objects.hash(enabled, applicationId);
@@ -18,13 +18,14 @@ package com.inversoft.passport.domain;
 import java.util.Objects;
 
 import com.inversoft.json.ToString;
+import com.inversoft.passport.domain.util.Fingerprint;
 
 /**
  * Configuration for the behavior of failed login attempts. This helps us protect against brute force password attacks.
  *
  * @author Daniel DeGroff
  */
-public class FailedAuthenticationConfiguration implements Buildable<FailedAuthenticationConfiguration> {
+public class FailedAuthenticationConfiguration implements Buildable<FailedAuthenticationConfiguration>, Fingerprintable {
 
   /**
    * The duration of the action.
@@ -62,6 +63,16 @@ public class FailedAuthenticationConfiguration implements Buildable<FailedAuthen
         resetCountInSeconds == that.resetCountInSeconds;
   }
 
+  @Override
+  public long fingerprint() {
+    long h = Fingerprint.SEED;
+    h = Fingerprint.add(h, actionDuration);
+    h = Fingerprint.add(h, actionDurationUnit);
+    h = Fingerprint.add(h, tooManyAttempts);
+    h = Fingerprint.add(h, resetCountInSeconds);
+    return Fingerprint.mix(h);
+  }
+
   @Override
   public int hashCode() {
     return Objects.hash(actionDuration, actionDurationUnit, tooManyAttempts, resetCountInSeconds);
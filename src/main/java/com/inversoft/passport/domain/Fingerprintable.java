@@ -0,0 +1,31 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.domain;
+
+/**
+ * A domain object that can produce a stable 64-bit hash of its content. Two objects that are equal have the same
+ * fingerprint regardless of the order of their unordered collections. Unlike hashCode, the fingerprint is the same
+ * across JVMs and releases, so it can be stored and compared later to detect changes.
+ *
+ * @author Brian Pontarelli
+ * @see com.inversoft.passport.domain.util.Fingerprint
+ */
+public interface Fingerprintable {
+  /**
+   * @return The content fingerprint. This never modifies the object.
+   */
+  long fingerprint();
+}
@@ -18,6 +18,7 @@ package com.inversoft.passport.domain;
 import java.util.Objects;
 
 import com.inversoft.json.ToString;
+import com.inversoft.passport.domain.util.Fingerprint;
 import org.primeframework.jwt.domain.Algorithm;
 
 /**
@@ -25,7 +26,7 @@ import org.primeframework.jwt.domain.Algorithm;
  *
  * @author Daniel DeGroff
  */
-public class JWTConfiguration implements Buildable<JWTConfiguration> {
+public class JWTConfiguration implements Buildable<JWTConfiguration>, Fingerprintable {
 
   public Algorithm algorithm;
 
@@ -88,6 +89,20 @@ public class JWTConfiguration implements Buildable<JWTConfiguration> {
         Objects.equals(timeToLiveInSeconds, that.timeToLiveInSeconds);
   }
 
+  @Override
+  public long fingerprint() {
+    long h = Fingerprint.SEED;
+    h = Fingerprint.add(h, algorithm);
+    h = Fingerprint.add(h, enabled);
+    h = Fingerprint.add(h, issuer);
+    h = Fingerprint.add(h, privateKey);
+    h = Fingerprint.add(h, publicKey);
+    h = Fingerprint.add(h, refreshTokenTimeToLiveInMinutes);
+    h = Fingerprint.add(h, secret);
+    h = Fingerprint.add(h, timeToLiveInSeconds);
+    return Fingerprint.mix(h);
+  }
+
   @Override
   public int hashCode() {
     return Objects.hash(algorithm, enabled, issuer, privateKey, publicKey, refreshTokenTimeToLiveInMinutes, secret, timeToLiveInSeconds);
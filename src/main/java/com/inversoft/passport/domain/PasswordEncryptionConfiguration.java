@@ -6,13 +6,14 @@ package com.inversoft.passport.domain;
 import java.util.Objects;
 
 import com.inversoft.json.ToString;
+import com.inversoft.passport.domain.util.Fingerprint;
 
 /**
  * Password Encryption Scheme Configuration
  *
  * @author Daniel DeGroff
  */
-public class PasswordEncryptionConfiguration implements Buildable<PasswordEncryptionConfiguration> {
+public class PasswordEncryptionConfiguration implements Buildable<PasswordEncryptionConfiguration>, Fingerprintable {
 
   public String encryptionScheme;
 
@@ -34,6 +35,15 @@ public class PasswordEncryptionConfiguration implements Buildable<PasswordEncryp
         Objects.equals(encryptionSchemeFactor, that.encryptionSchemeFactor);
   }
 
+  @Override
+  public long fingerprint() {
+    long h = Fingerprint.SEED;
+    h = Fingerprint.add(h, encryptionScheme);
+    h = Fingerprint.add(h, encryptionSchemeFactor);
+    h = Fingerprint.add(h, modifyEncryptionSchemeOnLogin);
+    return Fingerprint.mix(h);
+  }
+
   @Override
   public int hashCode() {
     return Objects.hash(encryptionScheme, encryptionSchemeFactor, modifyEncryptionSchemeOnLogin);
@@ -17,10 +17,12 @@ package com.inversoft.passport.domain;
 
 import java.util.Objects;
 
+import com.inversoft.passport.domain.util.Fingerprint;
+
 /**
  * @author Derek Klatt
  */
-public class PasswordValidationRules implements Buildable<PasswordValidationRules> {
+public class PasswordValidationRules implements Buildable<PasswordValidationRules>, Fingerprintable {
   public int maxLength = 256;
 
   public int minLength = 8;
@@ -55,6 +57,16 @@ public class PasswordValidationRules implements Buildable<PasswordValidationRule
         Objects.equals(requireNonAlpha, that.requireNonAlpha);
   }
 
+  @Override
+  public long fingerprint() {
+    long h = Fingerprint.SEED;
+    h = Fingerprint.add(h, maxLength);
+    h = Fingerprint.add(h, minLength);
+    h = Fingerprint.add(h, requireMixedCase);
+    h = Fingerprint.add(h, requireNonAlpha);
+    return Fingerprint.mix(h);
+  }
+
   @Override
   public int hashCode() {
     return Objects.hash(maxLength, minLength, requireMixedCase, requireNonAlpha);
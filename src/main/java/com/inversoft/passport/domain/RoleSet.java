@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.domain;
+
+import java.util.Arrays;
+
+/**
+ * An immutable set of roles of one application compiled into a bitset by an {@link ApplicationRoleIndex}. A role set
+ * is either the roles a user has (compiled from a registration) or the roles an operation requires (compiled from role
+ * names). The checks are word operations, so they are cheap enough to run on every request.
+ * <p>
+ * A user that has a super role passes every check.
+ *
+ * @author Brian Pontarelli
+ */
+public final class RoleSet {
+  private final boolean complete;
+
+  private final boolean superRole;
+
+  private final long[] words;
+
+  RoleSet(long[] words, boolean superRole, boolean complete) {
+    this.words = words;
+    this.superRole = superRole;
+    this.complete = complete;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof RoleSet)) {
+      return false;
+    }
+    RoleSet that = (RoleSet) o;
+    return complete == that.complete && superRole == that.superRole && Arrays.equals(words, that.words);
+  }
+
+  /**
+   * @param required The roles that are required.
+   * @return True if this set has all of the required roles. Always false if one of the required role names isn't a role
+   * of the application, unless this set has a super role.
+   */
+  public boolean hasAll(RoleSet required) {
+    if (superRole) {
+      return true;
+    }
+    if (!required.complete) {
+      return false;
+    }
+
+    long[] other = words(required);
+    for (int i = 0; i < other.length; i++) {
+      if ((words[i] & other[i]) != other[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @param roles The roles to look for.
+   * @return True if this set has at least one of the roles.
+   */
+  public boolean hasAny(RoleSet roles) {
+    if (superRole) {
+      return true;
+    }
+
+    long[] other = words(roles);
+    for (int i = 0; i < other.length; i++) {
+      if ((words[i] & other[i]) != 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @param bit The bit of the role as returned by {@link ApplicationRoleIndex#bit(String)}.
+   * @return True if this set has the role. Always false if the bit is negative, unless this set has a super role.
+   */
+  public boolean hasRole(int bit) {
+    if (superRole) {
+      return true;
+    }
+
+    return bit >= 0 && (words[bit >>> 6] & (1L << bit)) != 0;
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(words) * 31 + (superRole ? 2 : 0) + (complete ? 1 : 0);
+  }
+
+  /**
+   * @return True if the set doesn't contain any roles.
+   */
+  public boolean isEmpty() {
+    for (long word : words) {
+      if (word != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return True if the set contains a super role.
+   */
+  public boolean isSuperRole() {
+    return superRole;
+  }
+
+  /**
+   * @return The number of roles in the set.
+   */
+  public int size() {
+    int size = 0;
+    for (long word : words) {
+      size += Long.bitCount(word);
+    }
+    return size;
+  }
+
+  boolean isComplete() {
+    return complete;
+  }
+
+  long[] words() {
+    return words;
+  }
+
+  private long[] words(RoleSet other) {
+    if (other.words.length != words.length) {
+      throw new IllegalArgumentException("The role sets were compiled by different indexes");
+    }
+    return other.words;
+  }
+}
@@ -28,11 +28,12 @@ import com.fasterxml.jackson.annotation.JsonUnwrapped;
 import com.inversoft.json.JacksonConstructor;
 import com.inversoft.json.ToString;
 import com.inversoft.passport.domain.event.EventType;
+import com.inversoft.passport.domain.util.Fingerprint;
 
 /**
  * @author Brian Pontarelli
  */
-public class SystemConfiguration implements Buildable<SystemConfiguration> {
+public class SystemConfiguration implements Buildable<SystemConfiguration>, Fingerprintable {
   public CleanSpeakConfiguration cleanSpeakConfiguration = new CleanSpeakConfiguration();
 
   @JsonUnwrapped
@@ -109,6 +110,33 @@ public class SystemConfiguration implements Buildable<SystemConfiguration> {
         Objects.equals(verificationEmailTemplateId, that.verificationEmailTemplateId);
   }
 
+  /**
+   * Calculates the content fingerprint of the configuration using the same fields as {@link #equals(Object)}.
+   *
+   * @return The fingerprint.
+   */
+  @Override
+  public long fingerprint() {
+    long h = Fingerprint.SEED;
+    h = Fingerprint.add(h, cleanSpeakConfiguration);
+    h = Fingerprint.add(h, emailConfiguration);
+    h = Fingerprint.add(h, data);
+    h = Fingerprint.add(h, failedAuthenticationUserActionId);
+    h = Fingerprint.add(h, forgotEmailTemplateId);
+    h = Fingerprint.add(h, httpSessionMaxInactiveInterval);
+    h = Fingerprint.add(h, logoutURL);
+    h = Fingerprint.add(h, reportTimezone);
+    h = Fingerprint.add(h, passportFrontendURL);
+    h = Fingerprint.add(h, passwordExpirationDays);
+    h = Fingerprint.add(h, passwordValidationRules);
+    h = Fingerprint.add(h, setPasswordEmailTemplateId);
+    h = Fingerprint.add(h, useOauthForBackend);
+    h = Fingerprint.add(h, verifyEmail);
+    h = Fingerprint.add(h, verifyEmailWhenChanged);
+    h = Fingerprint.add(h, verificationEmailTemplateId);
+    return Fingerprint.mix(h);
+  }
+
   @Override
   public int hashCode() {
     return Objects.hash(cleanSpeakConfiguration, data, failedAuthenticationUserActionId, forgotEmailTemplateId, httpSessionMaxInactiveInterval,
@@ -132,7 +160,7 @@ public class SystemConfiguration implements Buildable<SystemConfiguration> {
     return ToString.toString(this);
   }
 
-  public static class EmailConfiguration implements Buildable<EmailConfiguration> {
+  public static class EmailConfiguration implements Buildable<EmailConfiguration>, Fingerprintable {
     public String host = "localhost";
 
     public String password;
@@ -162,6 +190,17 @@ public class SystemConfiguration implements Buildable<SystemConfiguration> {
           Objects.equals(username, that.username);
     }
 
+    @Override
+    public long fingerprint() {
+      long h = Fingerprint.SEED;
+      h = Fingerprint.add(h, port);
+      h = Fingerprint.add(h, host);
+      h = Fingerprint.add(h, password);
+      h = Fingerprint.add(h, security);
+      h = Fingerprint.add(h, username);
+      return Fingerprint.mix(h);
+    }
+
     @Override
     public int hashCode() {
       return Objects.hash(host, password, port, security, username);
@@ -179,7 +218,7 @@ public class SystemConfiguration implements Buildable<SystemConfiguration> {
     }
   }
 
-  public static class SystemConfigurationData {
+  public static class SystemConfigurationData implements Fingerprintable {
     /**
      * List of one or more Passport Backend Servers. This list of systems is used to distribute cache reload
      * notifications.
@@ -230,6 +269,19 @@ public class SystemConfiguration implements Buildable<SystemConfiguration> {
           Objects.equals(passwordEncryptionConfiguration, that.passwordEncryptionConfiguration);
     }
 
+    @Override
+    public long fingerprint() {
+      long h = Fingerprint.SEED;
+      h = Fingerprint.addUnordered(h, backendServers);
+      h = Fingerprint.add(h, cookieEncryptionIV);
+      h = Fingerprint.add(h, cookieEncryptionKey);
+      h = Fingerprint.add(h, eventConfiguration);
+      h = Fingerprint.add(h, failedAuthenticationConfiguration);
+      h = Fingerprint.add(h, jwtConfiguration);
+      h = Fingerprint.add(h, passwordEncryptionConfiguration);
+      return Fingerprint.mix(h);
+    }
+
     @Override
     public int hashCode() {
       return Objects.hash(backendServers, cookieEncryptionIV, cookieEncryptionKey, eventConfiguration, failedAuthenticationConfiguration, jwtConfiguration, passwordEncryptionConfiguration);
@@ -240,7 +292,7 @@ public class SystemConfiguration implements Buildable<SystemConfiguration> {
       return ToString.toString(this);
     }
 
-    public static class EventConfiguration implements Buildable<EventConfiguration> {
+    public static class EventConfiguration implements Buildable<EventConfiguration>, Fingerprintable {
       public Map<EventType, EventConfigurationData> events = new HashMap<>();
 
       @Override
@@ -255,6 +307,11 @@ public class SystemConfiguration implements Buildable<SystemConfiguration> {
         return Objects.equals(events, that.events);
       }
 
+      @Override
+      public long fingerprint() {
+        return Fingerprint.mix(Fingerprint.addUnordered(Fingerprint.SEED, events));
+      }
+
       @Override
       public int hashCode() {
         return Objects.hash(events);
@@ -265,7 +322,7 @@ public class SystemConfiguration implements Buildable<SystemConfiguration> {
         return ToString.toString(this);
       }
 
-      public static class EventConfigurationData {
+      public static class EventConfigurationData implements Fingerprintable {
         public boolean enabled;
 
         public TransactionType transactionType;
@@ -292,6 +349,11 @@ public class SystemConfiguration implements Buildable<SystemConfiguration> {
               transactionType == that.transactionType;
         }
 
+        @Override
+        public long fingerprint() {
+          return Fingerprint.mix(Fingerprint.add(Fingerprint.add(Fingerprint.SEED, enabled), transactionType));
+        }
+
         @Override
         public int hashCode() {
           return Objects.hash(enabled, transactionType);
@@ -19,18 +19,25 @@ import java.net.URI;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.RandomAccess;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.inversoft.json.ToString;
+import com.inversoft.passport.domain.util.Fingerprint;
+import com.inversoft.passport.domain.util.UUIDList;
 import static com.inversoft.passport.domain.util.Normalizer.toLowerCase;
 import static com.inversoft.passport.domain.util.Normalizer.trim;
 
@@ -40,10 +47,10 @@ import static com.inversoft.passport.domain.util.Normalizer.trim;
  *
  * @author Seth Musselman
  */
-public class User implements Buildable<User> {
-  private final List<UUID> childIds = new ArrayList<>();
+public class User implements Buildable<User>, Fingerprintable {
+  private final UUIDList childIds = new UUIDList();
 
-  private final List<UserRegistration> registrations = new ArrayList<>();
+  private final RegistrationList registrations = new RegistrationList();
 
   public boolean active;
 
@@ -188,8 +195,8 @@ public class User implements Buildable<User> {
       return false;
     }
     User user = (User) o;
-    this.childIds.sort(UUID::compareTo);
-    user.childIds.sort(UUID::compareTo);
+    this.childIds.sort();
+    user.childIds.sort();
     user.registrations.sort(Comparator.comparing(ur -> ur.applicationId));
     this.registrations.sort(Comparator.comparing(ur -> ur.applicationId));
     return Objects.equals(active, user.active) &&
@@ -225,6 +232,49 @@ public class User implements Buildable<User> {
         Objects.equals(verified, user.verified);
   }
 
+  /**
+   * Calculates the content fingerprint of the user using the same fields as {@link #equals(Object)}. Unlike equals,
+   * this doesn't sort the child ids or registrations.
+   *
+   * @return The fingerprint.
+   */
+  @Override
+  public long fingerprint() {
+    long h = Fingerprint.SEED;
+    h = Fingerprint.add(h, active);
+    h = Fingerprint.add(h, birthDate);
+    h = Fingerprint.addUnordered(h, childIds);
+    h = Fingerprint.add(h, cleanSpeakId);
+    h = Fingerprint.add(h, parentalConsentType);
+    h = Fingerprint.add(h, data);
+    h = Fingerprint.add(h, encryptionScheme);
+    h = Fingerprint.add(h, email);
+    h = Fingerprint.add(h, expiry);
+    h = Fingerprint.add(h, factor);
+    h = Fingerprint.add(h, firstName);
+    h = Fingerprint.add(h, fullName);
+    h = Fingerprint.add(h, imageUrl);
+    h = Fingerprint.add(h, insertInstant);
+    h = Fingerprint.add(h, lastLoginInstant);
+    h = Fingerprint.add(h, lastName);
+    h = Fingerprint.add(h, middleName);
+    h = Fingerprint.add(h, mobilePhone);
+    h = Fingerprint.add(h, parentId);
+    h = Fingerprint.add(h, password);
+    h = Fingerprint.add(h, passwordChangeRequired);
+    h = Fingerprint.add(h, passwordLastUpdateInstant);
+    h = Fingerprint.addUnordered(h, registrations);
+    h = Fingerprint.add(h, salt);
+    h = Fingerprint.add(h, timezone);
+    h = Fingerprint.add(h, twoFactorSecret);
+    h = Fingerprint.add(h, username);
+    h = Fingerprint.add(h, usernameStatus);
+    h = Fingerprint.add(h, verificationId);
+    h = Fingerprint.add(h, verificationIdCreateInstant);
+    h = Fingerprint.add(h, verified);
+    return Fingerprint.mix(h);
+  }
+
   @JsonIgnore
   public int getAge() {
     if (birthDate == null) {
@@ -239,11 +289,8 @@ public class User implements Buildable<User> {
   }
 
   public UserData getDataForApplication(UUID id) {
-    return getRegistrations().stream()
-                             .filter((reg) -> reg.applicationId.equals(id))
-                             .findFirst()
-                             .map(userRegistration -> userRegistration.data)
-                             .orElse(null);
+    UserRegistration registration = registrations.lookup(id);
+    return registration != null ? registration.data : null;
   }
 
   /**
@@ -272,10 +319,7 @@ public class User implements Buildable<User> {
   }
 
   public UserRegistration getRegistrationForApplication(UUID id) {
-    return getRegistrations().stream()
-                             .filter((reg) -> reg.applicationId.equals(id))
-                             .findFirst()
-                             .orElse(null);
+    return registrations.lookup(id);
   }
 
   public List<UserRegistration> getRegistrations() {
@@ -283,10 +327,23 @@ public class User implements Buildable<User> {
   }
 
   public Set<String> getRoleNamesForApplication(UUID id) {
-    UserRegistration registration = getRegistrationForApplication(id);
+    UserRegistration registration = registrations.lookup(id);
     return registration != null ? registration.roles : null;
   }
 
+  /**
+   * Determines if the user is registered for the application and has the role. This doesn't allocate, so it is safe to
+   * call many times per request.
+   *
+   * @param applicationId The id of the application.
+   * @param role          The name of the role.
+   * @return True if the user has the role.
+   */
+  public boolean hasRole(UUID applicationId, String role) {
+    UserRegistration registration = registrations.lookup(applicationId);
+    return registration != null && registration.roles != null && registration.roles.contains(role);
+  }
+
   /**
    * Return true if user data is provided for this user or any registrations.
    *
@@ -364,4 +421,164 @@ public class User implements Buildable<User> {
   public String toString() {
     return ToString.toString(this);
   }
+
+  /**
+   * The registrations of the user along with an index from the application id to the registration. The index is built
+   * the first time it is needed and is rebuilt when the list changes. Changing the application id of a registration
+   * that is already in the list doesn't change the list, so a registration found using the index is checked against the
+   * requested application id, and a miss falls back to scanning the list. Either way the index is rebuilt if it turns
+   * out to be out of date.
+   * <p>
+   * The index is immutable once built and is published using a volatile field, so lookups from many threads are safe
+   * when the list itself isn't being modified.
+   */
+  private static class RegistrationList extends ArrayList<UserRegistration> {
+    private volatile RegistrationIndex index;
+
+    private int sets;
+
+    @Override
+    public UserRegistration set(int index, UserRegistration element) {
+      // ArrayList doesn't count set as a modification
+      sets++;
+      return super.set(index, element);
+    }
+
+    @Override
+    public List<UserRegistration> subList(int fromIndex, int toIndex) {
+      // The view of ArrayList writes to the array directly, so its sets wouldn't be counted
+      if (fromIndex < 0 || toIndex > size() || fromIndex > toIndex) {
+        throw new IndexOutOfBoundsException("The range [" + fromIndex + ", " + toIndex + ") is outside of the list");
+      }
+
+      return new SubList(this, fromIndex, toIndex);
+    }
+
+    UserRegistration lookup(UUID applicationId) {
+      if (applicationId == null) {
+        return null;
+      }
+
+      int version = modCount + sets;
+      RegistrationIndex index = this.index;
+      if (index == null || index.version != version) {
+        index = reindex(version);
+      }
+
+      UserRegistration registration = index.byApplicationId.get(applicationId);
+      if (registration != null && applicationId.equals(registration.applicationId)) {
+        return registration;
+      }
+
+      // The version doesn't change when an application id is changed in place, so a miss or a stale hit falls back to
+      // a scan, and the index is rebuilt if it was out of date
+      for (int i = 0; i < size(); i++) {
+        UserRegistration candidate = get(i);
+        if (candidate != null && applicationId.equals(candidate.applicationId)) {
+          reindex(version);
+          return candidate;
+        }
+      }
+
+      if (registration != null) {
+        reindex(version);
+      }
+      return null;
+    }
+
+    private RegistrationIndex reindex(int version) {
+      RegistrationIndex index = new RegistrationIndex(this, version);
+      this.index = index;
+      return index;
+    }
+
+    /**
+     * A view of a range of the list that makes every change through the list itself.
+     */
+    private static class SubList extends AbstractList<UserRegistration> implements RandomAccess {
+      private final int offset;
+
+      private final RegistrationList parent;
+
+      private int expectedModCount;
+
+      private int size;
+
+      SubList(RegistrationList parent, int fromIndex, int toIndex) {
+        this.expectedModCount = parent.modCount;
+        this.offset = fromIndex;
+        this.parent = parent;
+        this.size = toIndex - fromIndex;
+      }
+
+      @Override
+      public void add(int index, UserRegistration element) {
+        check(index, size + 1);
+        parent.add(offset + index, element);
+        changed(1);
+      }
+
+      @Override
+      public UserRegistration get(int index) {
+        check(index, size);
+        return parent.get(offset + index);
+      }
+
+      @Override
+      public UserRegistration remove(int index) {
+        check(index, size);
+        UserRegistration removed = parent.remove(offset + index);
+        changed(-1);
+        return removed;
+      }
+
+      @Override
+      public UserRegistration set(int index, UserRegistration element) {
+        check(index, size);
+        return parent.set(offset + index, element);
+      }
+
+      @Override
+      public int size() {
+        checkForComodification();
+        return size;
+      }
+
+      private void changed(int delta) {
+        expectedModCount = parent.modCount;
+        modCount++;
+        size += delta;
+      }
+
+      private void check(int index, int limit) {
+        checkForComodification();
+        if (index < 0 || index >= limit) {
+          throw new IndexOutOfBoundsException("Index [" + index + "] is outside of the list");
+        }
+      }
+
+      private void checkForComodification() {
+        if (parent.modCount != expectedModCount) {
+          throw new ConcurrentModificationException();
+        }
+      }
+    }
+  }
+
+  private static class RegistrationIndex {
+    final Map<UUID, UserRegistration> byApplicationId;
+
+    final int version;
+
+    RegistrationIndex(List<UserRegistration> registrations, int version) {
+      this.version = version;
+      this.byApplicationId = new HashMap<>(registrations.size() * 2);
+      for (int i = 0; i < registrations.size(); i++) {
+        UserRegistration registration = registrations.get(i);
+        if (registration != null && registration.applicationId != null) {
+          byApplicationId.putIfAbsent(registration.applicationId, registration);
+        }
+      }
+    }
+  }
 }
@@ -16,15 +16,16 @@
 package com.inversoft.passport.domain;
 
 import java.time.ZonedDateTime;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.inversoft.json.ToString;
 import com.inversoft.passport.domain.event.UserActionEvent;
+import com.inversoft.passport.domain.util.UUIDList;
 import static com.inversoft.passport.domain.util.Normalizer.trim;
 
 /**
@@ -37,7 +38,8 @@ public class UserActionLog implements Buildable<UserActionLog> {
 
   public UUID actionerUserId;
 
-  public List<UUID> applicationIds = new ArrayList<>();
+  @JsonDeserialize(as = UUIDList.class)
+  public List<UUID> applicationIds = new UUIDList();
 
   public String comment;
 
@@ -23,6 +23,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 
+import com.inversoft.passport.domain.util.Fingerprint;
 import com.inversoft.passport.domain.util.Normalizer;
 
 /**
@@ -30,7 +31,7 @@ import com.inversoft.passport.domain.util.Normalizer;
  *
  * @author Brian Pontarelli
  */
-public class UserData {
+public class UserData implements Fingerprintable {
   public final Map<String, Object> attributes = new LinkedHashMap<>();
 
   public final List<Locale> preferredLanguages = new ArrayList<>();
@@ -65,6 +66,20 @@ public class UserData {
         Objects.equals(preferredLanguages, userData.preferredLanguages);
   }
 
+  /**
+   * Calculates the content fingerprint. The attributes are unordered, but the preferred languages are in order of
+   * preference, so their order is part of the fingerprint.
+   *
+   * @return The fingerprint.
+   */
+  @Override
+  public long fingerprint() {
+    long h = Fingerprint.SEED;
+    h = Fingerprint.addUnordered(h, attributes);
+    h = Fingerprint.addOrdered(h, preferredLanguages);
+    return Fingerprint.mix(h);
+  }
+
   @Override
   public int hashCode() {
     return Objects.hash(attributes, preferredLanguages);
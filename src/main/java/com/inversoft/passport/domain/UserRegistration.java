@@ -24,6 +24,7 @@ import java.util.UUID;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.inversoft.json.ToString;
+import com.inversoft.passport.domain.util.Fingerprint;
 import static com.inversoft.passport.domain.util.Normalizer.trim;
 
 /**
@@ -31,7 +32,7 @@ import static com.inversoft.passport.domain.util.Normalizer.trim;
  *
  * @author Brian Pontarelli
  */
-public class UserRegistration implements Buildable<UserRegistration> {
+public class UserRegistration implements Buildable<UserRegistration>, Fingerprintable {
   @JsonIgnore
   public Application application;
 
@@ -109,6 +110,21 @@ public class UserRegistration implements Buildable<UserRegistration> {
         Objects.equals(usernameStatus, that.usernameStatus);
   }
 
+  @Override
+  public long fingerprint() {
+    long h = Fingerprint.SEED;
+    h = Fingerprint.add(h, applicationId);
+    h = Fingerprint.add(h, cleanSpeakId);
+    h = Fingerprint.add(h, data);
+    h = Fingerprint.add(h, insertInstant);
+    h = Fingerprint.add(h, lastLoginInstant);
+    h = Fingerprint.addUnordered(h, roles);
+    h = Fingerprint.add(h, userId);
+    h = Fingerprint.add(h, username);
+    h = Fingerprint.add(h, usernameStatus);
+    return Fingerprint.mix(h);
+  }
+
   @Override
   public int hashCode() {
     return Objects.hash(applicationId, cleanSpeakId, data, insertInstant, lastLoginInstant, roles, userId, username, usernameStatus);
@@ -16,7 +16,6 @@
 package com.inversoft.passport.domain;
 
 import java.net.URI;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,9 +24,11 @@ import java.util.UUID;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonUnwrapped;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.inversoft.json.ToString;
 import com.inversoft.passport.domain.event.EventType;
 import com.inversoft.passport.domain.util.Normalizer;
+import com.inversoft.passport.domain.util.UUIDList;
 
 /**
  * A server where events are sent. This includes user action events and any other events sent by Passport.
@@ -35,7 +36,8 @@ import com.inversoft.passport.domain.util.Normalizer;
  * @author Brian Pontarelli
  */
 public class Webhook implements Buildable<Webhook> {
-  public List<UUID> applicationIds = new ArrayList<>();
+  @JsonDeserialize(as = UUIDList.class)
+  public List<UUID> applicationIds = new UUIDList();
 
   public Integer connectTimeout;
 
@@ -21,13 +21,15 @@ import java.util.UUID;
 import com.inversoft.json.JacksonConstructor;
 import com.inversoft.passport.domain.Application;
 import com.inversoft.passport.domain.ApplicationRole;
+import com.inversoft.passport.domain.Fingerprintable;
+import com.inversoft.passport.domain.util.Fingerprint;
 
 /**
  * The Application API request object.
  *
  * @author Brian Pontarelli
  */
-public class ApplicationRequest {
+public class ApplicationRequest implements Fingerprintable {
   public Application application;
 
   public List<UUID> webhookIds;
@@ -46,4 +48,18 @@ public class ApplicationRequest {
   public ApplicationRequest(ApplicationRole role) {
     this.role = role;
   }
+
+  /**
+   * Calculates the content fingerprint of the request. The webhook ids are unordered.
+   *
+   * @return The fingerprint.
+   */
+  @Override
+  public long fingerprint() {
+    long h = Fingerprint.SEED;
+    h = Fingerprint.add(h, application);
+    h = Fingerprint.add(h, role);
+    h = Fingerprint.addUnordered(h, webhookIds);
+    return Fingerprint.mix(h);
+  }
 }
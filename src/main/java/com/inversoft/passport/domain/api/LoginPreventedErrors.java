@@ -0,0 +1,35 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.domain.api;
+
+import java.util.List;
+
+import com.inversoft.error.Errors;
+import com.inversoft.json.JacksonConstructor;
+
+/**
+ * The error response of a login. When an action on the user prevents the login, Passport returns a 409 and the actions
+ * that prevent it rather than any errors.
+ *
+ * @author Brian Pontarelli
+ */
+public class LoginPreventedErrors extends Errors {
+  public List<LoginPreventedResponse> actions;
+
+  @JacksonConstructor
+  public LoginPreventedErrors() {
+  }
+}
@@ -16,14 +16,16 @@
 package com.inversoft.passport.domain.api;
 
 import com.inversoft.json.JacksonConstructor;
+import com.inversoft.passport.domain.Fingerprintable;
 import com.inversoft.passport.domain.User;
+import com.inversoft.passport.domain.util.Fingerprint;
 
 /**
  * User API request object.
  *
  * @author Brian Pontarelli
  */
-public class UserRequest {
+public class UserRequest implements Fingerprintable {
   public boolean sendSetPasswordEmail;
 
   public boolean skipVerification;
@@ -39,4 +41,13 @@ public class UserRequest {
     this.skipVerification = skipVerification;
     this.user = user;
   }
+
+  @Override
+  public long fingerprint() {
+    long h = Fingerprint.SEED;
+    h = Fingerprint.add(h, sendSetPasswordEmail);
+    h = Fingerprint.add(h, skipVerification);
+    h = Fingerprint.add(h, user);
+    return Fingerprint.mix(h);
+  }
 }
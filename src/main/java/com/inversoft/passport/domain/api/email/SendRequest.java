@@ -22,8 +22,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.inversoft.json.JacksonConstructor;
 import com.inversoft.lang.ObjectTools;
+import com.inversoft.passport.domain.util.UUIDList;
 
 /**
  * @author Daniel DeGroff
@@ -35,6 +37,7 @@ public class SendRequest {
 
   public Map<String, Object> requestData;
 
+  @JsonDeserialize(as = UUIDList.class)
   public List<UUID> userIds;
 
   @JacksonConstructor
@@ -56,7 +59,7 @@ public class SendRequest {
 
   public SendRequest normalize() {
     requestData = ObjectTools.defaultIfNull(requestData, HashMap<String, Object>::new);
-    userIds = ObjectTools.defaultIfNull(userIds, ArrayList<UUID>::new);
+    userIds = ObjectTools.defaultIfNull(userIds, UUIDList::new);
     ccAddresses = ObjectTools.defaultIfNull(ccAddresses, ArrayList<String>::new);
     bccAddresses = ObjectTools.defaultIfNull(bccAddresses, ArrayList<String>::new);
     return this;
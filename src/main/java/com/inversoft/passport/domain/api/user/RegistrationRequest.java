@@ -16,15 +16,17 @@
 package com.inversoft.passport.domain.api.user;
 
 import com.inversoft.json.JacksonConstructor;
+import com.inversoft.passport.domain.Fingerprintable;
 import com.inversoft.passport.domain.User;
 import com.inversoft.passport.domain.UserRegistration;
+import com.inversoft.passport.domain.util.Fingerprint;
 
 /**
  * Registration API request object.
  *
  * @author Brian Pontarelli
  */
-public class RegistrationRequest {
+public class RegistrationRequest implements Fingerprintable {
   public UserRegistration registration;
 
   public boolean sendSetPasswordEmail;
@@ -49,4 +51,14 @@ public class RegistrationRequest {
     this.sendSetPasswordEmail = sendSetPasswordEmail;
     this.skipVerification = skipVerification;
   }
+
+  @Override
+  public long fingerprint() {
+    long h = Fingerprint.SEED;
+    h = Fingerprint.add(h, registration);
+    h = Fingerprint.add(h, sendSetPasswordEmail);
+    h = Fingerprint.add(h, skipVerification);
+    h = Fingerprint.add(h, user);
+    return Fingerprint.mix(h);
+  }
 }
@@ -19,15 +19,16 @@ package com.inversoft.passport.domain.event;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.UUID;
 
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.inversoft.json.ToString;
 import com.inversoft.passport.domain.Buildable;
 import com.inversoft.passport.domain.email.Email;
+import com.inversoft.passport.domain.util.UUIDList;
 
 /**
  * Models the user action event (and can be converted to JSON).
@@ -45,7 +46,8 @@ public class UserActionEvent extends BaseEvent implements Buildable<UserActionEv
 
   public UUID actionerUserId;
 
-  public final List<UUID> applicationIds = new ArrayList<>();
+  @JsonDeserialize(as = UUIDList.class)
+  public final List<UUID> applicationIds = new UUIDList();
 
   public String comment;
 
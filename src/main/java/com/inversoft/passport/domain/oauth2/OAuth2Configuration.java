@@ -21,13 +21,15 @@ import java.util.List;
 import java.util.Objects;
 
 import com.inversoft.json.ToString;
+import com.inversoft.passport.domain.Fingerprintable;
+import com.inversoft.passport.domain.util.Fingerprint;
 import static com.inversoft.passport.domain.util.Normalizer.removeEmpty;
 import static com.inversoft.passport.domain.util.Normalizer.trim;
 
 /**
  * @author Daniel DeGroff
  */
-public class OAuth2Configuration {
+public class OAuth2Configuration implements Fingerprintable {
   public List<URI> authorizedOriginURLs = new ArrayList<>();
 
   public List<URI> authorizedRedirectURLs = new ArrayList<>();
@@ -73,6 +75,18 @@ public class OAuth2Configuration {
         Objects.equals(logoutURL, that.logoutURL);
   }
 
+  @Override
+  public long fingerprint() {
+    long h = Fingerprint.SEED;
+    h = Fingerprint.addUnordered(h, authorizedOriginURLs);
+    h = Fingerprint.addUnordered(h, authorizedRedirectURLs);
+    h = Fingerprint.add(h, clientId);
+    h = Fingerprint.add(h, clientSecret);
+    h = Fingerprint.add(h, codeExpiresInSeconds);
+    h = Fingerprint.add(h, logoutURL);
+    return Fingerprint.mix(h);
+  }
+
   @Override
   public int hashCode() {
     return Objects.hash(authorizedOriginURLs, authorizedRedirectURLs, clientId, clientSecret, codeExpiresInSeconds,
@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.domain.util;
+
+import java.net.URI;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.UUID;
+
+import com.inversoft.passport.domain.Fingerprintable;
+
+/**
+ * Helpers used to build the 64-bit content fingerprints of the domain objects. A fingerprint starts at {@link #SEED}
+ * and each field is folded in using one of the add methods, in a fixed order:
+ * <pre>
+ *   long h = Fingerprint.SEED;
+ *   h = Fingerprint.add(h, name);
+ *   h = Fingerprint.add(h, active);
+ *   return Fingerprint.mix(h);
+ * </pre>
+ * Strings, UUIDs, instants and the other value types are hashed from their state without creating intermediate
+ * objects. Sets and maps are folded in using a commutative sum so their iteration order doesn't matter. Instants are
+ * hashed as instants, so the same instant in two time zones has the same fingerprint.
+ *
+ * @author Brian Pontarelli
+ */
+public final class Fingerprint {
+  /**
+   * The value folded in for a null field.
+   */
+  public static final long NULL = 0x5bd1e9955bd1e995L;
+
+  public static final long SEED = 0xcbf29ce484222325L;
+
+  private static final long PRIME = 0x100000001b3L;
+
+  private Fingerprint() {
+  }
+
+  public static long add(long h, boolean value) {
+    return step(h, value ? 0x3c6ef372fe94f82bL : 0xa54ff53a5f1d36f1L);
+  }
+
+  public static long add(long h, long value) {
+    return step(h, value);
+  }
+
+  public static long add(long h, Enum<?> value) {
+    return value == null ? step(h, NULL) : add(h, value.name());
+  }
+
+  public static long add(long h, Fingerprintable value) {
+    return step(h, value == null ? NULL : value.fingerprint());
+  }
+
+  public static long add(long h, Integer value) {
+    return step(h, value == null ? NULL : mix(value.longValue()));
+  }
+
+  public static long add(long h, LocalDate value) {
+    return step(h, value == null ? NULL : mix(value.toEpochDay()));
+  }
+
+  public static long add(long h, Locale value) {
+    if (value == null) {
+      return step(h, NULL);
+    }
+
+    h = add(h, value.getLanguage());
+    h = add(h, value.getCountry());
+    return add(h, value.getVariant());
+  }
+
+  public static long add(long h, String value) {
+    if (value == null) {
+      return step(h, NULL);
+    }
+
+    long s = SEED;
+    for (int i = 0; i < value.length(); i++) {
+      s ^= value.charAt(i);
+      s *= PRIME;
+    }
+    return step(h, s ^ value.length());
+  }
+
+  public static long add(long h, URI value) {
+    // URI caches its string form
+    return value == null ? step(h, NULL) : add(h, value.toString());
+  }
+
+  public static long add(long h, UUID value) {
+    return value == null ? step(h, NULL) : step(step(h, value.getMostSignificantBits()), value.getLeastSignificantBits());
+  }
+
+  public static long add(long h, ZoneId value) {
+    return value == null ? step(h, NULL) : add(h, value.getId());
+  }
+
+  public static long add(long h, ZonedDateTime value) {
+    return value == null ? step(h, NULL) : step(step(h, value.toEpochSecond()), value.getNano());
+  }
+
+  /**
+   * Folds in a list in order. Use this for lists where the order is meaningful, such as preferred languages.
+   *
+   * @param h    The current hash.
+   * @param list The list.
+   * @return The new hash.
+   */
+  public static long addOrdered(long h, List<?> list) {
+    if (list == null) {
+      return step(h, NULL);
+    }
+
+    long s = SEED;
+    if (list instanceof RandomAccess) {
+      for (int i = 0; i < list.size(); i++) {
+        s = addValue(s, list.get(i));
+      }
+    } else {
+      for (Object value : list) {
+        s = addValue(s, value);
+      }
+    }
+
+    return step(h, s ^ list.size());
+  }
+
+  /**
+   * Folds in a collection without regard to its order.
+   *
+   * @param h          The current hash.
+   * @param collection The collection.
+   * @return The new hash.
+   */
+  public static long addUnordered(long h, Collection<?> collection) {
+    if (collection == null) {
+      return step(h, NULL);
+    }
+
+    long sum = 0;
+    if (collection instanceof UUIDList) {
+      UUIDList ids = (UUIDList) collection;
+      for (int i = 0; i < ids.size(); i++) {
+        sum += mix(step(step(SEED, ids.mostSignificantBits(i)), ids.leastSignificantBits(i)));
+      }
+    } else if (collection instanceof List && collection instanceof RandomAccess) {
+      List<?> list = (List<?>) collection;
+      for (int i = 0; i < list.size(); i++) {
+        sum += mix(addValue(SEED, list.get(i)));
+      }
+    } else {
+      for (Object value : collection) {
+        sum += mix(addValue(SEED, value));
+      }
+    }
+
+    return step(h, sum ^ collection.size());
+  }
+
+  /**
+   * Folds in a map without regard to its order.
+   *
+   * @param h   The current hash.
+   * @param map The map.
+   * @return The new hash.
+   */
+  public static long addUnordered(long h, Map<?, ?> map) {
+    if (map == null) {
+      return step(h, NULL);
+    }
+
+    long sum = 0;
+    for (Map.Entry<?, ?> entry : map.entrySet()) {
+      sum += mix(addValue(addValue(SEED, entry.getKey()), entry.getValue()));
+    }
+
+    return step(h, sum ^ map.size());
+  }
+
+  /**
+   * Folds in a value whose type is only known at runtime, such as a value of the user data attributes. JSON objects are
+   * treated as unordered and JSON arrays as ordered.
+   *
+   * @param h     The current hash.
+   * @param value The value.
+   * @return The new hash.
+   */
+  public static long addValue(long h, Object value) {
+    if (value == null) {
+      return step(h, NULL);
+    } else if (value instanceof String) {
+      return add(h, (String) value);
+    } else if (value instanceof Fingerprintable) {
+      return add(h, (Fingerprintable) value);
+    } else if (value instanceof Boolean) {
+      return add(h, ((Boolean) value).booleanValue());
+    } else if (value instanceof Double || value instanceof Float) {
+      return step(h, Double.doubleToLongBits(((Number) value).doubleValue()));
+    } else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+      return step(h, mix(((Number) value).longValue()));
+    } else if (value instanceof UUID) {
+      return add(h, (UUID) value);
+    } else if (value instanceof Enum) {
+      return add(h, (Enum<?>) value);
+    } else if (value instanceof Locale) {
+      return add(h, (Locale) value);
+    } else if (value instanceof URI) {
+      return add(h, (URI) value);
+    } else if (value instanceof ZonedDateTime) {
+      return add(h, (ZonedDateTime) value);
+    } else if (value instanceof LocalDate) {
+      return add(h, (LocalDate) value);
+    } else if (value instanceof ZoneId) {
+      return add(h, (ZoneId) value);
+    } else if (value instanceof Map) {
+      return addUnordered(h, (Map<?, ?>) value);
+    } else if (value instanceof List) {
+      return addOrdered(h, (List<?>) value);
+    } else if (value instanceof Collection) {
+      return addUnordered(h, (Collection<?>) value);
+    }
+
+    // BigDecimal, BigInteger and anything else with a stable string form
+    return add(h, value.toString());
+  }
+
+  /**
+   * Finishes a fingerprint.
+   *
+   * @param h The hash.
+   * @return The final fingerprint.
+   */
+  public static long mix(long h) {
+    // The finalizer of MurmurHash3
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  private static long step(long h, long value) {
+    return Long.rotateLeft((h ^ value) * PRIME, 31) + value;
+  }
+}
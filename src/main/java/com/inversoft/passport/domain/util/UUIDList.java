@@ -0,0 +1,579 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific
+ * language governing permissions and limitations under the License.
+ */
+package com.inversoft.passport.domain.util;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.RandomAccess;
+import java.util.UUID;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/**
+ * A list of UUIDs stored as pairs of longs in a single array. Each id takes 16 bytes instead of the 32 bytes of a UUID
+ * object plus the reference to it, and the ids are next to each other in memory. The list doesn't allow nulls.
+ * <p>
+ * The List methods create UUID objects as they are needed. The methods that take or return the two halves of an id
+ * (such as {@link #add(long, long)}, {@link #indexOf(long, long)} and {@link #mostSignificantBits(int)}) don't, and
+ * neither do {@link #sort()}, {@link #binarySearch(UUID)} or the JSON serialization.
+ * <p>
+ * The set operations {@link #union}, {@link #intersection} and {@link #difference} work on sorted lists in linear
+ * time and return sorted lists without duplicates.
+ *
+ * @author Brian Pontarelli
+ */
+@JsonSerialize(using = UUIDList.UUIDListSerializer.class)
+@JsonDeserialize(using = UUIDList.UUIDListDeserializer.class)
+public class UUIDList extends AbstractList<UUID> implements RandomAccess {
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private static final long[] EMPTY = new long[0];
+
+  private long[] bits;
+
+  private int size;
+
+  public UUIDList() {
+    this.bits = EMPTY;
+  }
+
+  public UUIDList(int capacity) {
+    this.bits = new long[capacity * 2];
+  }
+
+  public UUIDList(Collection<UUID> ids) {
+    this(ids.size());
+    addAll(ids);
+  }
+
+  /**
+   * Returns the ids that are in the first list but not in the second.
+   *
+   * @param first  The first list, which must be sorted.
+   * @param second The second list, which must be sorted.
+   * @return A new sorted list.
+   */
+  public static UUIDList difference(UUIDList first, UUIDList second) {
+    UUIDList result = new UUIDList(first.size);
+    int j = 0;
+    for (int i = 0; i < first.size; i++) {
+      while (j < second.size && compare(second, j, first, i) < 0) {
+        j++;
+      }
+      if (j < second.size && compare(second, j, first, i) == 0) {
+        continue;
+      }
+      result.addDistinct(first, i);
+    }
+    return result;
+  }
+
+  /**
+   * Returns the ids that are in both lists.
+   *
+   * @param first  The first list, which must be sorted.
+   * @param second The second list, which must be sorted.
+   * @return A new sorted list.
+   */
+  public static UUIDList intersection(UUIDList first, UUIDList second) {
+    UUIDList result = new UUIDList(Math.min(first.size, second.size));
+    int i = 0;
+    int j = 0;
+    while (i < first.size && j < second.size) {
+      int compare = compare(first, i, second, j);
+      if (compare < 0) {
+        i++;
+      } else if (compare > 0) {
+        j++;
+      } else {
+        result.addDistinct(first, i);
+        i++;
+        j++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the ids that are in either list.
+   *
+   * @param first  The first list, which must be sorted.
+   * @param second The second list, which must be sorted.
+   * @return A new sorted list.
+   */
+  public static UUIDList union(UUIDList first, UUIDList second) {
+    UUIDList result = new UUIDList(first.size + second.size);
+    int i = 0;
+    int j = 0;
+    while (i < first.size || j < second.size) {
+      if (j == second.size || (i < first.size && compare(first, i, second, j) <= 0)) {
+        result.addDistinct(first, i++);
+      } else {
+        result.addDistinct(second, j++);
+      }
+    }
+    return result;
+  }
+
+  private static int compare(UUIDList first, int i, UUIDList second, int j) {
+    return compare(first.bits[i * 2], first.bits[i * 2 + 1], second.bits[j * 2], second.bits[j * 2 + 1]);
+  }
+
+  private static int compare(long mostSignificantBits1, long leastSignificantBits1, long mostSignificantBits2,
+                             long leastSignificantBits2) {
+    // Same order as UUID.compareTo
+    int compare = Long.compare(mostSignificantBits1, mostSignificantBits2);
+    return compare != 0 ? compare : Long.compare(leastSignificantBits1, leastSignificantBits2);
+  }
+
+  private static long parseHex(char[] chars, int start, int end) {
+    long value = 0;
+    for (int i = start; i < end; i++) {
+      int digit = Character.digit(chars[i], 16);
+      if (digit < 0) {
+        throw new IllegalArgumentException("Invalid hex digit [" + chars[i] + "]");
+      }
+      value = (value << 4) | digit;
+    }
+    return value;
+  }
+
+  @Override
+  public boolean add(UUID id) {
+    add(id.getMostSignificantBits(), id.getLeastSignificantBits());
+    return true;
+  }
+
+  @Override
+  public void add(int index, UUID id) {
+    if (index < 0 || index > size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+
+    ensureCapacity(size + 1);
+    System.arraycopy(bits, index * 2, bits, index * 2 + 2, (size - index) * 2);
+    bits[index * 2] = id.getMostSignificantBits();
+    bits[index * 2 + 1] = id.getLeastSignificantBits();
+    size++;
+    modCount++;
+  }
+
+  /**
+   * Adds an id to the end of the list.
+   *
+   * @param mostSignificantBits  The most significant bits of the id.
+   * @param leastSignificantBits The least significant bits of the id.
+   */
+  public void add(long mostSignificantBits, long leastSignificantBits) {
+    ensureCapacity(size + 1);
+    bits[size * 2] = mostSignificantBits;
+    bits[size * 2 + 1] = leastSignificantBits;
+    size++;
+    modCount++;
+  }
+
+  @Override
+  public boolean addAll(Collection<? extends UUID> ids) {
+    if (!(ids instanceof UUIDList)) {
+      ensureCapacity(size + ids.size());
+      return super.addAll(ids);
+    }
+
+    UUIDList other = (UUIDList) ids;
+    int count = other.size;
+    ensureCapacity(size + count);
+    System.arraycopy(other.bits, 0, bits, size * 2, count * 2);
+    size += count;
+    modCount++;
+    return count > 0;
+  }
+
+  /**
+   * Searches the list for an id. The list must be sorted.
+   *
+   * @param id The id.
+   * @return The index of the id or (-(insertion point) - 1) if it isn't in the list, like {@link
+   * Arrays#binarySearch(long[], long)}.
+   */
+  public int binarySearch(UUID id) {
+    long mostSignificantBits = id.getMostSignificantBits();
+    long leastSignificantBits = id.getLeastSignificantBits();
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      int mid = (low + high) >>> 1;
+      int compare = compare(bits[mid * 2], bits[mid * 2 + 1], mostSignificantBits, leastSignificantBits);
+      if (compare < 0) {
+        low = mid + 1;
+      } else if (compare > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -(low + 1);
+  }
+
+  @Override
+  public void clear() {
+    size = 0;
+    modCount++;
+  }
+
+  @Override
+  public boolean contains(Object o) {
+    return indexOf(o) >= 0;
+  }
+
+  /**
+   * Grows the backing array so that it can hold the given number of ids without growing again.
+   *
+   * @param capacity The number of ids.
+   */
+  public void ensureCapacity(int capacity) {
+    if (capacity * 2 <= bits.length) {
+      return;
+    }
+
+    int grown = Math.max(capacity, Math.max(10, size + (size >> 1)));
+    bits = Arrays.copyOf(bits, grown * 2);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof UUIDList)) {
+      return super.equals(o);
+    }
+
+    UUIDList other = (UUIDList) o;
+    if (other.size != size) {
+      return false;
+    }
+    for (int i = 0; i < size * 2; i++) {
+      if (bits[i] != other.bits[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public UUID get(int index) {
+    checkIndex(index);
+    return new UUID(bits[index * 2], bits[index * 2 + 1]);
+  }
+
+  @Override
+  public int hashCode() {
+    // Same as List.hashCode of the equivalent list of UUIDs
+    int hashCode = 1;
+    for (int i = 0; i < size; i++) {
+      long hilo = bits[i * 2] ^ bits[i * 2 + 1];
+      hashCode = 31 * hashCode + (((int) (hilo >> 32)) ^ (int) hilo);
+    }
+    return hashCode;
+  }
+
+  @Override
+  public int indexOf(Object o) {
+    if (!(o instanceof UUID)) {
+      return -1;
+    }
+
+    UUID id = (UUID) o;
+    return indexOf(id.getMostSignificantBits(), id.getLeastSignificantBits());
+  }
+
+  /**
+   * @param mostSignificantBits  The most significant bits of the id.
+   * @param leastSignificantBits The least significant bits of the id.
+   * @return The index of the first occurrence of the id or -1 if it isn't in the list.
+   */
+  public int indexOf(long mostSignificantBits, long leastSignificantBits) {
+    for (int i = 0; i < size; i++) {
+      if (bits[i * 2] == mostSignificantBits && bits[i * 2 + 1] == leastSignificantBits) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @return True if the list is in ascending order.
+   */
+  public boolean isSorted() {
+    for (int i = 1; i < size; i++) {
+      if (compare(this, i - 1, this, i) > 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int lastIndexOf(Object o) {
+    if (!(o instanceof UUID)) {
+      return -1;
+    }
+
+    UUID id = (UUID) o;
+    for (int i = size - 1; i >= 0; i--) {
+      if (bits[i * 2] == id.getMostSignificantBits() && bits[i * 2 + 1] == id.getLeastSignificantBits()) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * @param index The index.
+   * @return The least significant bits of the id at the index.
+   */
+  public long leastSignificantBits(int index) {
+    checkIndex(index);
+    return bits[index * 2 + 1];
+  }
+
+  /**
+   * @param index The index.
+   * @return The most significant bits of the id at the index.
+   */
+  public long mostSignificantBits(int index) {
+    checkIndex(index);
+    return bits[index * 2];
+  }
+
+  @Override
+  public UUID remove(int index) {
+    UUID old = get(index);
+    System.arraycopy(bits, index * 2 + 2, bits, index * 2, (size - index - 1) * 2);
+    size--;
+    modCount++;
+    return old;
+  }
+
+  @Override
+  public UUID set(int index, UUID id) {
+    UUID old = get(index);
+    bits[index * 2] = id.getMostSignificantBits();
+    bits[index * 2 + 1] = id.getLeastSignificantBits();
+    return old;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Sorts the list in the same order as {@link UUID#compareTo(UUID)} without creating UUID objects.
+   */
+  public void sort() {
+    sort(0, size - 1);
+    modCount++;
+  }
+
+  @Override
+  public void sort(Comparator<? super UUID> comparator) {
+    if (comparator == null || comparator == Comparator.naturalOrder()) {
+      sort();
+    } else {
+      super.sort(comparator);
+    }
+  }
+
+  /**
+   * Shrinks the backing array to the size of the list.
+   */
+  public void trimToSize() {
+    if (bits.length > size * 2) {
+      bits = Arrays.copyOf(bits, size * 2);
+    }
+  }
+
+  private void addDistinct(UUIDList source, int index) {
+    long mostSignificantBits = source.bits[index * 2];
+    long leastSignificantBits = source.bits[index * 2 + 1];
+    if (size > 0 && bits[size * 2 - 2] == mostSignificantBits && bits[size * 2 - 1] == leastSignificantBits) {
+      return;
+    }
+
+    add(mostSignificantBits, leastSignificantBits);
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+  }
+
+  private void sort(int low, int high) {
+    while (high - low > 16) {
+      // Median of three pivot
+      int mid = (low + high) >>> 1;
+      if (compare(this, mid, this, low) < 0) {
+        swap(mid, low);
+      }
+      if (compare(this, high, this, low) < 0) {
+        swap(high, low);
+      }
+      if (compare(this, high, this, mid) < 0) {
+        swap(high, mid);
+      }
+
+      long pivotMost = bits[mid * 2];
+      long pivotLeast = bits[mid * 2 + 1];
+      int i = low;
+      int j = high;
+      while (i <= j) {
+        while (compare(bits[i * 2], bits[i * 2 + 1], pivotMost, pivotLeast) < 0) {
+          i++;
+        }
+        while (compare(bits[j * 2], bits[j * 2 + 1], pivotMost, pivotLeast) > 0) {
+          j--;
+        }
+        if (i <= j) {
+          swap(i++, j--);
+        }
+      }
+
+      // Recurse into the smaller half to bound the stack depth
+      if (j - low < high - i) {
+        sort(low, j);
+        low = i;
+      } else {
+        sort(i, high);
+        high = j;
+      }
+    }
+
+    // Insertion sort for the small ranges
+    for (int i = low + 1; i <= high; i++) {
+      for (int j = i; j > low && compare(this, j - 1, this, j) > 0; j--) {
+        swap(j - 1, j);
+      }
+    }
+  }
+
+  private void swap(int i, int j) {
+    long most = bits[i * 2];
+    long least = bits[i * 2 + 1];
+    bits[i * 2] = bits[j * 2];
+    bits[i * 2 + 1] = bits[j * 2 + 1];
+    bits[j * 2] = most;
+    bits[j * 2 + 1] = least;
+  }
+
+  /**
+   * Reads a JSON array of UUID strings. Ids in the canonical form are parsed without creating UUID objects.
+   */
+  public static class UUIDListDeserializer extends JsonDeserializer<UUIDList> {
+    @Override
+    public UUIDList deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+      return deserialize(p, ctxt, new UUIDList());
+    }
+
+    @Override
+    public UUIDList deserialize(JsonParser p, DeserializationContext ctxt, UUIDList list) throws IOException {
+      if (!p.isExpectedStartArrayToken()) {
+        throw new JsonMappingException(p, "Expected an array of UUIDs but found [" + p.getCurrentToken() + "]");
+      }
+
+      JsonToken token;
+      while ((token = p.nextToken()) != JsonToken.END_ARRAY) {
+        if (token != JsonToken.VALUE_STRING) {
+          throw new JsonMappingException(p, "Expected a UUID but found [" + token + "]");
+        }
+
+        if (p.getTextLength() == 36) {
+          char[] c = p.getTextCharacters();
+          int o = p.getTextOffset();
+          if (c[o + 8] == '-' && c[o + 13] == '-' && c[o + 18] == '-' && c[o + 23] == '-') {
+            try {
+              long most = (parseHex(c, o, o + 8) << 32) | (parseHex(c, o + 9, o + 13) << 16) | parseHex(c, o + 14, o + 18);
+              long least = (parseHex(c, o + 19, o + 23) << 48) | parseHex(c, o + 24, o + 36);
+              list.add(most, least);
+              continue;
+            } catch (IllegalArgumentException e) {
+              throw new JsonMappingException(p, "Invalid UUID [" + p.getText() + "]", e);
+            }
+          }
+        }
+
+        try {
+          list.add(UUID.fromString(p.getText()));
+        } catch (IllegalArgumentException e) {
+          throw new JsonMappingException(p, "Invalid UUID [" + p.getText() + "]", e);
+        }
+      }
+
+      return list;
+    }
+  }
+
+  /**
+   * Writes the list as a JSON array of UUID strings without creating UUID objects.
+   */
+  public static class UUIDListSerializer extends JsonSerializer<UUIDList> {
+    @Override
+    public boolean isEmpty(SerializerProvider provider, UUIDList value) {
+      return value == null || value.isEmpty();
+    }
+
+    @Override
+    public void serialize(UUIDList value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+      char[] buffer = new char[36];
+      gen.writeStartArray();
+      for (int i = 0; i < value.size; i++) {
+        long most = value.bits[i * 2];
+        long least = value.bits[i * 2 + 1];
+        hex(buffer, 0, most >>> 32, 8);
+        buffer[8] = '-';
+        hex(buffer, 9, most >>> 16, 4);
+        buffer[13] = '-';
+        hex(buffer, 14, most, 4);
+        buffer[18] = '-';
+        hex(buffer, 19, least >>> 48, 4);
+        buffer[23] = '-';
+        hex(buffer, 24, least, 12);
+        gen.writeString(buffer, 0, 36);
+      }
+      gen.writeEndArray();
+    }
+
+    private void hex(char[] buffer, int offset, long value, int digits) {
+      for (int i = offset + digits - 1; i >= offset; i--) {
+        buffer[i] = HEX[(int) (value & 0xF)];
+        value >>>= 4;
+      }
+    }
+  }
+}
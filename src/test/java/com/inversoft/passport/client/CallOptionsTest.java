@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.client;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.inversoft.passport.client.resilience.RetryPolicy;
+import com.inversoft.passport.client.resilience.RetryPolicyConfiguration;
+import com.inversoft.rest.ClientResponse;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Brian Pontarelli
+ */
+@Test(groups = "unit")
+public class CallOptionsTest {
+  @Test
+  public void deadline() throws Exception {
+    UUID userId = UUID.randomUUID();
+    try (StandInPassport passport = new StandInPassport()) {
+      passport.respond("/api/user/" + userId, 200, "{\"user\":{\"email\":\"test@example.com\"}}")
+              .delay("/api/user/" + userId, 3000);
+      PassportClient client = new PassportClient("key", passport.baseURL());
+      PassportClient fast = client.withCallOptions(client.callOptions().withDeadline(200));
+
+      long start = System.nanoTime();
+      ClientResponse<?, ?> response = fast.retrieveUser(userId);
+      assertEquals(response.status, -1);
+      assertNotNull(response.exception);
+      assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+
+      // The original client is unchanged
+      assertEquals(client.callOptions(), CallOptions.DEFAULT);
+      assertEquals(fast.callOptions().deadlineInMillis, 200);
+    }
+  }
+
+  @Test
+  public void deadlineCoversRetries() throws Exception {
+    UUID userId = UUID.randomUUID();
+    try (StandInPassport passport = new StandInPassport()) {
+      passport.respond("/api/user/" + userId, 503, null)
+              .delay("/api/user/" + userId, 100);
+      PassportClient client = new PassportClient("key", passport.baseURL())
+          .withRetries(new RetryPolicy(new RetryPolicyConfiguration().with(c -> c.initialBackoffInMillis = 1)
+                                                                     .with(c -> c.maximumAttempts = 20)))
+          .withCallOptions(CallOptions.DEFAULT.withDeadline(350));
+
+      long start = System.nanoTime();
+      assertFalse(client.retrieveUser(userId).wasSuccessful());
+      assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(1000));
+      assertTrue(passport.requestCount("/api/user/" + userId) <= 4);
+    }
+  }
+
+  @Test
+  @SuppressWarnings("deprecation")
+  public void deprecatedTimeouts() throws Exception {
+    PassportClient client = new PassportClient("key", "http://localhost:1");
+    client.readTimeout = 500;
+
+    // The field is folded into the options of the client and of its copies
+    assertEquals(client.callOptions().readTimeoutInMillis, 500);
+    PassportClient copy = client.withCallOptions(client.callOptions().withDeadline(300));
+    assertEquals(copy.callOptions().readTimeoutInMillis, 500);
+    assertEquals(copy.callOptions().deadlineInMillis, 300);
+    assertEquals(client.withRetries(new RetryPolicy(new RetryPolicyConfiguration())).callOptions().readTimeoutInMillis,
+        500);
+
+    // Options passed in win over the field
+    copy = client.withCallOptions(CallOptions.DEFAULT.withReadTimeout(100));
+    assertEquals(copy.callOptions().readTimeoutInMillis, 100);
+    assertEquals(copy.readTimeout, 100);
+
+    // The calls use the timeout that the options report
+    UUID userId = UUID.randomUUID();
+    try (StandInPassport passport = new StandInPassport()) {
+      passport.respond("/api/user/" + userId, 200, "{\"user\":{\"email\":\"test@example.com\"}}")
+              .delay("/api/user/" + userId, 3000);
+      PassportClient slow = new PassportClient("key", passport.baseURL());
+      slow.readTimeout = 200;
+      assertEquals(slow.callOptions().readTimeoutInMillis, 200);
+
+      long start = System.nanoTime();
+      assertEquals(slow.retrieveUser(userId).status, -1);
+      assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+    }
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.client;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.inversoft.passport.domain.api.LoginRequest;
+import org.testng.annotations.Test;
+
+/**
+ * Compares running a large number of concurrent logins on platform threads and on virtual threads. Run it with
+ * <code>sb benchmark</code> and change the size using the passport.benchmark.logins and
+ * passport.benchmark.concurrency system properties.
+ * <p>
+ * The platform threads are capped at the concurrency, since each login in flight needs its own thread. The virtual
+ * threads are run both at the same concurrency, for a like for like comparison, and with every login in flight at once
+ * (or passport.benchmark.virtualConcurrency), which is what they make possible.
+ *
+ * @author Brian Pontarelli
+ */
+@Test(groups = "performance")
+public class LoginBenchmarkTest {
+  private static final int CONCURRENCY = Integer.getInteger("passport.benchmark.concurrency", 1000);
+
+  private static final int LOGINS = Integer.getInteger("passport.benchmark.logins", 100_000);
+
+  private static final int VIRTUAL_CONCURRENCY = Integer.getInteger("passport.benchmark.virtualConcurrency", LOGINS);
+
+  @Test
+  public void platformThreads() throws Exception {
+    run("platform threads", Executors.newFixedThreadPool(CONCURRENCY), CONCURRENCY);
+  }
+
+  @Test
+  public void virtualThreads() throws Exception {
+    if (!VirtualThreads.isSupported()) {
+      System.out.println("Virtual threads aren't supported by this JVM");
+      return;
+    }
+
+    run("virtual threads", VirtualThreads.newExecutor("passport-benchmark"), CONCURRENCY);
+    run("virtual threads", VirtualThreads.newExecutor("passport-benchmark"), VIRTUAL_CONCURRENCY);
+  }
+
+  private void run(String name, ExecutorService executor, int concurrency) throws Exception {
+    try (StandInPassport passport = new StandInPassport()) {
+      passport.keepAlive()
+              .respond("/api/login", 200, "{\"token\":\"token\",\"user\":{\"email\":\"test@example.com\"}}");
+      PassportClient client = new PassportClient("key", passport.baseURL()).withExecutor(executor);
+      LoginRequest request = new LoginRequest(null, "test@example.com", "password");
+
+      AtomicInteger failures = new AtomicInteger();
+      Semaphore inFlight = new Semaphore(concurrency);
+      int threadsBefore = ManagementFactory.getThreadMXBean().getThreadCount();
+      int peakThreads = 0;
+      long start = System.nanoTime();
+      for (int i = 0; i < LOGINS; i++) {
+        inFlight.acquire();
+        client.async(c -> c.login(request)).whenComplete((response, exception) -> {
+          if (exception != null || !response.wasSuccessful()) {
+            failures.incrementAndGet();
+          }
+          inFlight.release();
+        });
+
+        if (i % 1000 == 0) {
+          peakThreads = Math.max(peakThreads, ManagementFactory.getThreadMXBean().getThreadCount());
+        }
+      }
+      inFlight.acquire(concurrency);
+      long elapsed = System.nanoTime() - start;
+      executor.shutdownNow();
+
+      System.out.printf("%s: %d logins with %d in flight in %d ms (%.0f per second), %d failed, %d extra threads%n",
+          name, LOGINS, concurrency, TimeUnit.NANOSECONDS.toMillis(elapsed), LOGINS / (elapsed / 1e9), failures.get(),
+          peakThreads - threadsBefore);
+    }
+  }
+}
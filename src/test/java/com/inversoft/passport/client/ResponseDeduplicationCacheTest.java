@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.client;
+
+import com.inversoft.passport.domain.api.ApplicationResponse;
+import com.inversoft.passport.domain.api.SystemConfigurationResponse;
+import com.inversoft.rest.ClientResponse;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Brian Pontarelli
+ */
+@Test(groups = "unit")
+public class ResponseDeduplicationCacheTest {
+  @Test
+  public void keyedByPath() throws Exception {
+    String body = "{\"applications\":[{\"name\":\"First\"}]}";
+    try (StandInPassport first = new StandInPassport(); StandInPassport second = new StandInPassport()) {
+      first.respond("/api/application", 200, body);
+      second.respond("/api/application", 200, body);
+      ResponseDeduplicationCache cache = new ResponseDeduplicationCache();
+
+      // The nodes of a pool have different base URLs but serve the same body for the same path
+      new PassportClient("key", first.baseURL()).withResponseDeduplication(cache).retrieveApplications();
+      ClientResponse<ApplicationResponse, Void> response =
+          new PassportClient("key", second.baseURL()).withResponseDeduplication(cache).retrieveApplications();
+      assertEquals(response.successResponse.applications.get(0).name, "First");
+      assertEquals(cache.size(), 1);
+      assertEquals(cache.hitCount(), 1);
+    }
+  }
+
+  @Test
+  public void unchangedBodies() throws Exception {
+    try (StandInPassport passport = new StandInPassport()) {
+      passport.respond("/api/application", 200, "{\"applications\":[{\"name\":\"First\"}]}")
+              .respond("/api/system-configuration", 200, "{\"systemConfiguration\":{\"httpSessionMaxInactiveInterval\":60}}");
+
+      ResponseDeduplicationCache cache = new ResponseDeduplicationCache();
+      PassportClient client = new PassportClient("key", passport.baseURL()).withResponseDeduplication(cache);
+
+      ClientResponse<ApplicationResponse, Void> first = client.retrieveApplications();
+      ClientResponse<ApplicationResponse, Void> second = client.retrieveApplications();
+      assertTrue(second.wasSuccessful());
+      assertEquals(second.successResponse.applications.get(0).name, "First");
+
+      // Every caller gets its own copy, so changing one doesn't change the others
+      assertNotSame(second.successResponse, first.successResponse);
+      assertNotSame(second.successResponse.applications.get(0), first.successResponse.applications.get(0));
+      second.successResponse.applications.get(0).name = "Changed";
+      assertEquals(client.retrieveApplications().successResponse.applications.get(0).name, "First");
+      assertEquals(passport.requestCount("/api/application"), 3);
+
+      ClientResponse<SystemConfigurationResponse, Void> configuration = client.retrieveSystemConfiguration();
+      assertEquals(configuration.successResponse.systemConfiguration.httpSessionMaxInactiveInterval, 60);
+      assertEquals(cache.hitCount(), 2);
+      assertEquals(cache.missCount(), 2);
+
+      passport.respond("/api/application", 200, "{\"applications\":[{\"name\":\"Second\"}]}");
+      ClientResponse<ApplicationResponse, Void> third = client.retrieveApplications();
+      assertNotSame(third.successResponse, first.successResponse);
+      assertEquals(third.successResponse.applications.get(0).name, "Second");
+    }
+  }
+}
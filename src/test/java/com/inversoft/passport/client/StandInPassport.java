@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local HTTP server that stands in for Passport in tests. It answers each path with a canned status and body and
+ * counts and records the requests it gets.
+ *
+ * @author Brian Pontarelli
+ */
+public class StandInPassport implements Closeable {
+  private final Map<String, AtomicInteger> counts = new ConcurrentHashMap<>();
+
+  private final Map<String, Long> delays = new ConcurrentHashMap<>();
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+
+  private final Map<String, List<Map<String, String>>> parameters = new ConcurrentHashMap<>();
+
+  private final Map<String, Response> responses = new ConcurrentHashMap<>();
+
+  private final HttpServer server;
+
+  private volatile boolean keepAlive;
+
+  public StandInPassport() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+    server.createContext("/", this::handle);
+    server.setExecutor(executor);
+    server.start();
+  }
+
+  /**
+   * @return The base URL to pass to the {@link PassportClient}.
+   */
+  public String baseURL() {
+    return "http://127.0.0.1:" + server.getAddress().getPort();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+    executor.shutdownNow();
+  }
+
+  /**
+   * Makes the responses for a path slow.
+   *
+   * @param path          The path of the request, including any URL segments.
+   * @param delayInMillis How long to wait before responding.
+   * @return This.
+   */
+  public StandInPassport delay(String path, long delayInMillis) {
+    delays.put(path, delayInMillis);
+    return this;
+  }
+
+  /**
+   * Lets the clients reuse their connections, which is needed to send a very large number of requests without running
+   * out of ports. The counts can then be off by one, since HttpURLConnection silently resends a GET when a kept-alive
+   * connection turns out to be closed.
+   *
+   * @return This.
+   */
+  public StandInPassport keepAlive() {
+    keepAlive = true;
+    return this;
+  }
+
+  /**
+   * @param path The path of the request, including any URL segments.
+   * @return The decoded URL parameters of the requests for the path, in the order they were received.
+   */
+  public List<Map<String, String>> parameters(String path) {
+    return parameters.getOrDefault(path, Collections.emptyList());
+  }
+
+  /**
+   * @param path The path of the request, including any URL segments.
+   * @return The number of requests for the path.
+   */
+  public int requestCount(String path) {
+    AtomicInteger count = counts.get(path);
+    return count == null ? 0 : count.get();
+  }
+
+  /**
+   * Sets the response for a path. Paths without a response get a 404.
+   *
+   * @param path   The path of the request, including any URL segments.
+   * @param status The status code.
+   * @param body   The JSON body or null for no body.
+   * @return This.
+   */
+  public StandInPassport respond(String path, int status, String body) {
+    responses.put(path, new Response(status, body));
+    return this;
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try (InputStream in = exchange.getRequestBody()) {
+      drain(in);
+    }
+
+    String path = exchange.getRequestURI().getPath();
+    counts.computeIfAbsent(path, key -> new AtomicInteger()).incrementAndGet();
+    parameters.computeIfAbsent(path, key -> new CopyOnWriteArrayList<>())
+              .add(parse(exchange.getRequestURI().getRawQuery()));
+
+    Long delay = delays.get(path);
+    if (delay != null) {
+      try {
+        Thread.sleep(delay);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+
+    Response response = responses.getOrDefault(path, new Response(404, null));
+    byte[] body = response.body == null ? new byte[0] : response.body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    if (!keepAlive) {
+      // HttpURLConnection silently resends a GET when a kept-alive connection turns out to be closed, which would throw
+      // off the counts
+      exchange.getResponseHeaders().add("Connection", "close");
+    }
+    exchange.sendResponseHeaders(response.status, body.length == 0 ? -1 : body.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(body);
+    }
+  }
+
+  private void drain(InputStream in) throws IOException {
+    byte[] buffer = new byte[1024];
+    while (in.read(buffer) != -1) {
+      // Discard the request body
+    }
+  }
+
+  private Map<String, String> parse(String query) throws IOException {
+    Map<String, String> parameters = new HashMap<>();
+    if (query == null) {
+      return parameters;
+    }
+
+    for (String pair : query.split("&")) {
+      int equals = pair.indexOf('=');
+      String name = equals < 0 ? pair : pair.substring(0, equals);
+      String value = equals < 0 ? "" : pair.substring(equals + 1);
+      parameters.put(URLDecoder.decode(name, "UTF-8"), URLDecoder.decode(value, "UTF-8"));
+    }
+    return parameters;
+  }
+
+  private static class Response {
+    final String body;
+
+    final int status;
+
+    Response(int status, String body) {
+      this.body = body;
+      this.status = status;
+    }
+  }
+}
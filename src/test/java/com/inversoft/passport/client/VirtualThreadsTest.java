@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.client;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.inversoft.passport.client.resilience.RequestRejectedException;
+import com.inversoft.passport.client.routing.BackendPool;
+import com.inversoft.passport.client.routing.BackendPoolConfiguration;
+import com.inversoft.rest.ClientResponse;
+import org.testng.annotations.Test;
+import static java.util.Arrays.asList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Brian Pontarelli
+ */
+@Test(groups = "unit")
+public class VirtualThreadsTest {
+  @Test
+  public void async() throws Exception {
+    UUID userId = UUID.randomUUID();
+    try (StandInPassport passport = new StandInPassport()) {
+      passport.respond("/api/user/" + userId, 200, "{\"user\":{\"email\":\"test@example.com\"}}");
+      PassportClient client = new PassportClient("key", passport.baseURL());
+
+      boolean[] virtual = new boolean[1];
+      ClientResponse<?, ?> response = client.async(c -> {
+        virtual[0] = VirtualThreads.isVirtual(Thread.currentThread());
+        return c.retrieveUser(userId);
+      }).get(5, TimeUnit.SECONDS);
+      assertTrue(response.wasSuccessful());
+      assertEquals(virtual[0], VirtualThreads.isSupported());
+    }
+  }
+
+  @Test
+  public void permitsPerBackend() throws Exception {
+    UUID userId = UUID.randomUUID();
+    ExecutorService executor = VirtualThreads.newExecutor("passport-test");
+    try (StandInPassport passport = new StandInPassport()) {
+      passport.respond("/api/user/" + userId, 200, "{\"user\":{\"email\":\"test@example.com\"}}")
+              .delay("/api/user/" + userId, 500);
+      BackendPool pool = new BackendPool(new BackendPoolConfiguration().with(c -> c.baseURLs.add(passport.baseURL()))
+                                                                       .with(c -> c.healthCheckIntervalInMillis = 0)
+                                                                       .with(c -> c.maximumRequestsPerBackend = 1));
+      PassportClient client = new PassportClient("key", passport.baseURL())
+          .withBackendPool(pool)
+          .withExecutor(executor);
+      PassportClient impatient = client.withCallOptions(CallOptions.DEFAULT.withDeadline(200));
+
+      // The first call holds the permit, the second waits for it and the third gives up before it is free
+      CompletableFuture<ClientResponse<?, ?>> first = client.async(c -> c.retrieveUser(userId));
+      Thread.sleep(100);
+      List<CompletableFuture<ClientResponse<?, ?>>> futures = asList(first, client.async(c -> c.retrieveUser(userId)),
+          impatient.async(c -> c.retrieveUser(userId)));
+      int successes = 0;
+      int rejections = 0;
+      for (CompletableFuture<ClientResponse<?, ?>> future : futures) {
+        ClientResponse<?, ?> response = future.get(5, TimeUnit.SECONDS);
+        if (response.wasSuccessful()) {
+          successes++;
+        } else if (response.exception instanceof RequestRejectedException) {
+          rejections++;
+        }
+      }
+
+      assertEquals(successes, 2);
+      assertEquals(rejections, 1);
+      assertEquals(pool.backends().get(0).outstanding(), 0);
+      pool.close();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.client;
+
+import java.util.UUID;
+
+import com.inversoft.passport.domain.User;
+import com.inversoft.passport.domain.UserRegistration;
+import com.inversoft.passport.domain.api.UserRequest;
+import com.inversoft.passport.domain.api.user.RegistrationRequest;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Brian Pontarelli
+ */
+@Test(groups = "unit")
+public class WriteElisionCacheTest {
+  @Test
+  public void elide() throws Exception {
+    UUID userId = UUID.randomUUID();
+    try (StandInPassport passport = new StandInPassport()) {
+      passport.respond("/api/user/" + userId, 200, "{\"user\":{\"email\":\"test@example.com\"}}");
+      WriteElisionCache cache = new WriteElisionCache(100, 60_000);
+      PassportClient client = new PassportClient("key", passport.baseURL()).withWriteElision(cache);
+
+      assertFalse(ElidedClientResponse.wasElided(client.updateUser(userId, request(user(userId)))));
+      assertTrue(ElidedClientResponse.wasElided(client.updateUser(userId, request(user(userId)))));
+      assertEquals(passport.requestCount("/api/user/" + userId), 1);
+      assertEquals(cache.elidedCount(), 1);
+      assertEquals(cache.writtenCount(), 1);
+    }
+  }
+
+  @Test
+  public void invalidation() throws Exception {
+    UUID userId = UUID.randomUUID();
+    UUID applicationId = UUID.randomUUID();
+    try (StandInPassport passport = new StandInPassport()) {
+      passport.respond("/api/user/" + userId, 200, "{\"user\":{\"email\":\"test@example.com\"}}")
+              .respond("/api/user/registration/" + userId, 200, "{}")
+              .respond("/api/user/registration/" + userId + "/" + applicationId, 200, null);
+      WriteElisionCache cache = new WriteElisionCache(100, 60_000);
+      PassportClient client = new PassportClient("key", passport.baseURL()).withWriteElision(cache);
+      client.updateUser(userId, request(user(userId)));
+
+      // The registration update might have changed the user, so the same user update is sent again
+      UserRegistration registration = new UserRegistration();
+      registration.applicationId = applicationId;
+      client.updateRegistration(userId, new RegistrationRequest(null, registration));
+      assertFalse(ElidedClientResponse.wasElided(client.updateUser(userId, request(user(userId)))));
+      assertEquals(passport.requestCount("/api/user/" + userId), 2);
+
+      client.deleteRegistration(userId, applicationId);
+      assertFalse(ElidedClientResponse.wasElided(client.updateUser(userId, request(user(userId)))));
+      assertEquals(passport.requestCount("/api/user/" + userId), 3);
+
+      cache.invalidateUser(userId);
+      assertEquals(cache.size(), 0);
+    }
+  }
+
+  @Test
+  public void miss() throws Exception {
+    UUID userId = UUID.randomUUID();
+    try (StandInPassport passport = new StandInPassport()) {
+      passport.respond("/api/user/" + userId, 200, "{\"user\":{\"email\":\"test@example.com\"}}");
+      PassportClient client = new PassportClient("key", passport.baseURL())
+          .withWriteElision(new WriteElisionCache(100, 60_000));
+      client.updateUser(userId, request(user(userId)));
+
+      // Neither field is part of equals, but both are sent
+      User twoFactor = user(userId);
+      twoFactor.twoFactorEnabled = true;
+      assertFalse(ElidedClientResponse.wasElided(client.updateUser(userId, request(twoFactor))));
+
+      User other = user(userId);
+      other.id = UUID.randomUUID();
+      assertFalse(ElidedClientResponse.wasElided(client.updateUser(userId, request(other))));
+      assertEquals(passport.requestCount("/api/user/" + userId), 3);
+    }
+  }
+
+  @Test
+  public void passwordBypass() throws Exception {
+    UUID userId = UUID.randomUUID();
+    try (StandInPassport passport = new StandInPassport()) {
+      passport.respond("/api/user/" + userId, 200, "{\"user\":{\"email\":\"test@example.com\"}}");
+      WriteElisionCache cache = new WriteElisionCache(100, 60_000);
+      PassportClient client = new PassportClient("key", passport.baseURL()).withWriteElision(cache);
+
+      User user = user(userId);
+      user.password = "password";
+      client.updateUser(userId, request(user));
+      assertFalse(ElidedClientResponse.wasElided(client.updateUser(userId, request(user))));
+      assertEquals(passport.requestCount("/api/user/" + userId), 2);
+      assertEquals(cache.size(), 0);
+    }
+  }
+
+  @Test
+  public void read() throws Exception {
+    UUID userId = UUID.randomUUID();
+    try (StandInPassport passport = new StandInPassport()) {
+      passport.respond("/api/user/" + userId, 200, "{\"user\":{\"email\":\"test@example.com\"}}")
+              .respond("/api/user", 200, "{\"user\":{\"id\":\"" + userId + "\",\"email\":\"test@example.com\"}}");
+      WriteElisionCache cache = new WriteElisionCache(100, 60_000);
+      PassportClient client = new PassportClient("key", passport.baseURL()).withWriteElision(cache);
+
+      // What was read might not be what this client last wrote, so the same update is sent again
+      client.updateUser(userId, request(user(userId)));
+      client.retrieveUser(userId);
+      assertFalse(ElidedClientResponse.wasElided(client.updateUser(userId, request(user(userId)))));
+
+      client.retrieveUserByEmail("test@example.com");
+      assertFalse(ElidedClientResponse.wasElided(client.updateUser(userId, request(user(userId)))));
+      assertEquals(cache.elidedCount(), 0);
+      assertTrue(ElidedClientResponse.wasElided(client.updateUser(userId, request(user(userId)))));
+    }
+  }
+
+  private UserRequest request(User user) {
+    return new UserRequest(false, false, user);
+  }
+
+  private User user(UUID userId) {
+    User user = new User();
+    user.id = userId;
+    user.email = "test@example.com";
+    user.firstName = "Test";
+    return user;
+  }
+}
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.client.cache;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.UUID;
+
+import com.inversoft.error.Errors;
+import com.inversoft.passport.client.PassportClient;
+import com.inversoft.passport.client.cache.LookupCache.Kind;
+import com.inversoft.passport.domain.Application;
+import com.inversoft.passport.domain.User;
+import com.inversoft.passport.domain.api.ApplicationResponse;
+import com.inversoft.passport.domain.api.PublicKeyResponse;
+import com.inversoft.passport.domain.api.UserResponse;
+import com.inversoft.rest.ClientResponse;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Brian Pontarelli
+ */
+@Test(groups = "unit")
+public class LookupCacheTest {
+  @Test
+  public void expired() throws Exception {
+    // Nothing is listening on port 1, so every call to Passport fails
+    PassportClient client = new PassportClient("key", "http://localhost:1");
+    User user = new User();
+    user.id = UUID.randomUUID();
+
+    LookupCache cache = new LookupCache(client, new LookupCacheConfiguration().with(c -> c.revalidateIntervalInMillis = 0));
+    put(cache, Kind.User, user.id.toString(), user, 0);
+
+    CachedClientResponse<?, ?> response = (CachedClientResponse<?, ?>) cache.retrieveUser(user.id);
+    assertTrue(response.wasSuccessful());
+    assertTrue(response.expired);
+    assertTrue(response.stale);
+
+    cache.close();
+    cache = new LookupCache(client, new LookupCacheConfiguration().with(c -> c.revalidateIntervalInMillis = 0)
+                                                                  .with(c -> c.serveStaleOnFailure = false));
+    put(cache, Kind.User, user.id.toString(), user, 0);
+    assertFalse(cache.retrieveUser(user.id).wasSuccessful());
+    cache.close();
+  }
+
+  @Test
+  public void snapshot() throws Exception {
+    Path directory = Files.createTempDirectory("lookup-cache");
+    LookupCacheConfiguration configuration = new LookupCacheConfiguration()
+        .with(c -> c.revalidateIntervalInMillis = 0)
+        .with(c -> c.snapshotFile = directory.resolve("snapshot"))
+        .with(c -> c.snapshotIntervalInMillis = 0);
+    PassportClient client = new PassportClient("key", "http://localhost:1");
+
+    Application application = new Application();
+    application.id = UUID.randomUUID();
+    application.name = "Test";
+    User user = new User();
+    user.id = UUID.randomUUID();
+    user.email = "test@example.com";
+
+    long now = System.currentTimeMillis();
+    LookupCache cache = new LookupCache(client, configuration);
+    put(cache, Kind.Application, application.id.toString(), application, now);
+    put(cache, Kind.PublicKey, "key", "public key", now);
+    put(cache, Kind.User, user.id.toString(), user, now);
+    cache.close();
+
+    LookupCache restored = new LookupCache(client, configuration);
+    assertEquals(restored.size(), 3);
+
+    ClientResponse<ApplicationResponse, Void> applicationResponse = restored.retrieveApplication(application.id);
+    assertTrue(CachedClientResponse.wasCached(applicationResponse));
+    assertEquals(applicationResponse.successResponse.application, application);
+    assertEquals(((CachedClientResponse<?, ?>) applicationResponse).fetchedAt, now);
+
+    ClientResponse<PublicKeyResponse, Errors> keyResponse = restored.retrieveJwtPublicKey("key");
+    assertEquals(keyResponse.successResponse.publicKey, "public key");
+
+    ClientResponse<UserResponse, Errors> userResponse = restored.retrieveUser(user.id);
+    assertEquals(userResponse.successResponse.user, user);
+
+    restored.close();
+    assertEquals(new LookupCache(client, configuration).size(), 3);
+  }
+
+  @Test
+  public void snapshotSecrets() throws Exception {
+    Path directory = Files.createTempDirectory("lookup-cache");
+    LookupCacheConfiguration configuration = new LookupCacheConfiguration()
+        .with(c -> c.revalidateIntervalInMillis = 0)
+        .with(c -> c.snapshotFile = directory.resolve("snapshot"))
+        .with(c -> c.snapshotIntervalInMillis = 0);
+    PassportClient client = new PassportClient("key", "http://localhost:1");
+
+    User user = new User();
+    user.id = UUID.randomUUID();
+    user.email = "test@example.com";
+    user.password = "password";
+    user.salt = "salt";
+    user.twoFactorSecret = "secret";
+    user.verificationId = "verification";
+
+    LookupCache cache = new LookupCache(client, configuration);
+    put(cache, Kind.User, user.id.toString(), user, System.currentTimeMillis());
+    cache.close();
+
+    // The secrets aren't written to the file, and the file is only readable by its owner
+    String contents = new String(Files.readAllBytes(configuration.snapshotFile), StandardCharsets.ISO_8859_1);
+    assertFalse(contents.contains("password"));
+    assertFalse(contents.contains("salt"));
+    assertFalse(contents.contains("secret"));
+    assertFalse(contents.contains("verification"));
+    if (directory.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+      String permissions = PosixFilePermissions.toString(Files.getPosixFilePermissions(configuration.snapshotFile));
+      assertEquals(permissions, "rw-------");
+    }
+
+    LookupCache restored = new LookupCache(client, configuration);
+    User restoredUser = restored.retrieveUser(user.id).successResponse.user;
+    assertEquals(restoredUser.email, "test@example.com");
+    assertNull(restoredUser.password);
+    assertNull(restoredUser.salt);
+    assertNull(restoredUser.twoFactorSecret);
+    assertNull(restoredUser.verificationId);
+    restored.close();
+  }
+
+  @Test
+  public void stale() throws Exception {
+    PassportClient client = new PassportClient("key", "http://localhost:1");
+    User user = new User();
+    user.id = UUID.randomUUID();
+
+    LookupCache cache = new LookupCache(client, new LookupCacheConfiguration().with(c -> c.revalidateIntervalInMillis = 0));
+    put(cache, Kind.User, user.id.toString(), user, System.currentTimeMillis());
+    CachedClientResponse<?, ?> response = (CachedClientResponse<?, ?>) cache.retrieveUser(user.id);
+    assertFalse(response.stale);
+
+    long fetchedAt = System.currentTimeMillis() - 2 * 60 * 1000;
+    put(cache, Kind.User, user.id.toString(), user, fetchedAt);
+    response = (CachedClientResponse<?, ?>) cache.retrieveUser(user.id);
+    assertTrue(response.stale);
+    assertFalse(response.expired);
+    assertEquals(response.fetchedAt, fetchedAt);
+    cache.close();
+  }
+
+  private void put(LookupCache cache, Kind kind, String key, Object value, long fetchedAt) {
+    cache.put(kind, key, new LookupCache.Entry(kind, value, fetchedAt));
+  }
+}
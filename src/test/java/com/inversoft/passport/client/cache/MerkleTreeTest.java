@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.client.cache;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Brian Pontarelli
+ */
+@Test(groups = "unit")
+public class MerkleTreeTest {
+  @Test
+  public void bounds() {
+    MerkleTree tree = new MerkleTree(4);
+    assertEquals(tree.buckets(), 16);
+    assertEquals(tree.lowerBound(0), UUID.fromString("00000000-0000-0000-0000-000000000000"));
+    assertEquals(tree.upperBound(0), UUID.fromString("0fffffff-ffff-ffff-ffff-ffffffffffff"));
+    assertEquals(tree.lowerBound(15), UUID.fromString("f0000000-0000-0000-0000-000000000000"));
+    assertEquals(tree.upperBound(15), UUID.fromString("ffffffff-ffff-ffff-ffff-ffffffffffff"));
+
+    // Every id falls within the bounds of its bucket, including the ones whose high bit is set
+    for (int i = 0; i < 1000; i++) {
+      UUID id = UUID.randomUUID();
+      int bucket = tree.bucket(id);
+      assertTrue(compareUnsigned(tree.lowerBound(bucket), id) <= 0, id + " is below bucket [" + bucket + "]");
+      assertTrue(compareUnsigned(id, tree.upperBound(bucket)) <= 0, id + " is above bucket [" + bucket + "]");
+    }
+  }
+
+  @Test
+  public void diff() {
+    MerkleTree local = new MerkleTree(4);
+    MerkleTree authoritative = new MerkleTree(4);
+    UUID same = UUID.fromString("10000000-0000-0000-0000-000000000001");
+    UUID changed = UUID.fromString("30000000-0000-0000-0000-000000000001");
+    UUID missing = UUID.fromString("a0000000-0000-0000-0000-000000000001");
+    UUID extra = UUID.fromString("f0000000-0000-0000-0000-000000000001");
+    local.add(same, 1);
+    local.add(changed, 1);
+    local.add(extra, 1);
+    authoritative.add(same, 1);
+    authoritative.add(changed, 2);
+    authoritative.add(missing, 1);
+
+    assertNotEquals(local.root(), authoritative.root());
+    assertEquals(local.diff(authoritative), Arrays.asList(3, 10, 15));
+    assertEquals(authoritative.diff(local), Arrays.asList(3, 10, 15));
+
+    // The diff is empty once the trees hold the same records, whatever order they were added in
+    local.remove(changed, 1);
+    local.add(changed, 2);
+    local.remove(extra, 1);
+    local.add(missing, 1);
+    assertEquals(local.root(), authoritative.root());
+    assertEquals(local.diff(authoritative), Collections.emptyList());
+
+    // A tree rebuilt from the nodes of another compares equal to it
+    MerkleTree copy = new MerkleTree(4, authoritative.nodes());
+    assertEquals(copy.diff(authoritative), Collections.emptyList());
+  }
+
+  private int compareUnsigned(UUID first, UUID second) {
+    int result = Long.compareUnsigned(first.getMostSignificantBits(), second.getMostSignificantBits());
+    if (result != 0) {
+      return result;
+    }
+
+    return Long.compareUnsigned(first.getLeastSignificantBits(), second.getLeastSignificantBits());
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.client.cache;
+
+import java.net.URI;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+import com.inversoft.passport.domain.User;
+import com.inversoft.passport.domain.UserData;
+import com.inversoft.passport.domain.UserRegistration;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Brian Pontarelli
+ */
+@Test(groups = "unit")
+public class OffHeapUserStoreTest {
+  @Test
+  public void get() {
+    OffHeapUserStore store = new OffHeapUserStore(new OffHeapUserStoreConfiguration());
+    User user = user(UUID.randomUUID());
+    store.put(user);
+
+    assertEquals(store.size(), 1);
+    assertEquals(store.get(user.id), user);
+    assertNull(store.get(UUID.randomUUID()));
+
+    User partial = store.get(user.id, EnumSet.of(UserField.Email, UserField.Registrations));
+    assertEquals(partial.id, user.id);
+    assertEquals(partial.email, user.email);
+    assertEquals(partial.getRegistrations(), user.getRegistrations());
+    assertNull(partial.firstName);
+    assertNull(partial.data);
+    assertFalse(partial.active);
+    store.close();
+  }
+
+  @Test
+  public void putAndRemove() {
+    OffHeapUserStore store = new OffHeapUserStore(new OffHeapUserStoreConfiguration()
+        .with(c -> c.expectedSize = 4)
+        .with(c -> c.slabSizeInBytes = 4096));
+    List<UUID> ids = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      User user = user(UUID.randomUUID());
+      ids.add(user.id);
+      store.put(user);
+    }
+
+    assertEquals(store.size(), 1000);
+    for (int i = 0; i < 1000; i += 2) {
+      assertTrue(store.remove(ids.get(i)));
+    }
+    assertFalse(store.remove(ids.get(0)));
+
+    // Replace the rest so that the store has to compact
+    for (int i = 1; i < 1000; i += 2) {
+      User user = user(ids.get(i));
+      user.email = "replaced" + i + "@example.com";
+      store.put(user);
+    }
+
+    assertEquals(store.size(), 500);
+    for (int i = 0; i < 1000; i++) {
+      User user = store.get(ids.get(i));
+      if (i % 2 == 0) {
+        assertNull(user);
+        assertFalse(store.contains(ids.get(i)));
+      } else {
+        assertEquals(user.email, "replaced" + i + "@example.com");
+      }
+    }
+
+    store.compact();
+    assertEquals(store.garbageBytes(), 0);
+    assertEquals(store.get(ids.get(999)).email, "replaced999@example.com");
+
+    int[] count = {0};
+    store.forEach(EnumSet.of(UserField.Email), user -> count[0]++);
+    assertEquals(count[0], 500);
+    store.close();
+  }
+
+  private User user(UUID id) {
+    ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.MILLIS);
+    User user = new User();
+    user.id = id;
+    user.active = true;
+    user.birthDate = LocalDate.of(1980, 1, 1);
+    user.email = "test@example.com";
+    user.firstName = "Test";
+    user.imageUrl = URI.create("https://example.com/test.png");
+    user.insertInstant = now;
+    user.timezone = "America/Denver";
+    user.getChildIds().add(UUID.randomUUID());
+    user.data = new UserData();
+    user.data.attributes.put("favoriteColor", "blue");
+    user.data.preferredLanguages.add(Locale.FRENCH);
+
+    UserRegistration registration = new UserRegistration();
+    registration.id = UUID.randomUUID();
+    registration.applicationId = UUID.randomUUID();
+    registration.userId = id;
+    registration.insertInstant = now;
+    registration.roles.add("admin");
+    registration.username = "test";
+    user.getRegistrations().add(registration);
+    return user;
+  }
+}
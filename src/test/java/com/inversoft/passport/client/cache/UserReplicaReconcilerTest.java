@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.client.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import com.inversoft.passport.client.PassportClient;
+import com.inversoft.passport.client.StandInPassport;
+import com.inversoft.passport.client.cache.UserReplicaReconciler.BucketFetcher;
+import com.inversoft.passport.client.cache.UserReplicaReconciler.Result;
+import com.inversoft.passport.domain.User;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+/**
+ * @author Brian Pontarelli
+ */
+@Test(groups = "unit")
+public class UserReplicaReconcilerTest {
+  private static final UUID CHANGED = UUID.fromString("30000000-0000-0000-0000-000000000001");
+
+  private static final UUID EXTRA = UUID.fromString("f0000000-0000-0000-0000-000000000001");
+
+  private static final UUID MISSING = UUID.fromString("a0000000-0000-0000-0000-000000000001");
+
+  private static final UUID SAME = UUID.fromString("10000000-0000-0000-0000-000000000001");
+
+  @Test
+  public void failedBucket() {
+    UserReplica replica = new UserReplica();
+    replica.put(user(EXTRA, "extra@example.com"));
+
+    // Buckets that can't be fetched are left alone so they are repaired on the next run
+    UserReplicaReconciler reconciler = new UserReplicaReconciler(replica, 4, (lowerBound, upperBound) -> null);
+    Result result = reconciler.reconcile(new MerkleTree(4));
+    assertEquals(result.failedBuckets, Collections.singletonList(15));
+    assertEquals(result.repairedBuckets, Collections.emptyList());
+    assertEquals(replica.size(), 1);
+  }
+
+  @Test
+  public void passportFetcher() throws Exception {
+    UUID id = UUID.fromString("30000000-0000-0000-0000-000000000001");
+    try (StandInPassport passport = new StandInPassport()) {
+      passport.respond("/api/user/search", 200, "{\"users\":[{\"id\":\"" + id + "\"}],\"total\":1}");
+      BucketFetcher fetcher = UserReplicaReconciler.passportFetcher(new PassportClient("key", passport.baseURL()), 10);
+
+      MerkleTree tree = new MerkleTree(4);
+      Collection<User> users = fetcher.fetch(tree.lowerBound(3), tree.upperBound(3));
+      assertEquals(users.size(), 1);
+      assertEquals(users.iterator().next().id, id);
+
+      List<Map<String, String>> requests = passport.parameters("/api/user/search");
+      assertEquals(requests.size(), 1);
+      assertEquals(requests.get(0).get("queryString"),
+          "id:[\"30000000-0000-0000-0000-000000000000\" TO \"3fffffff-ffff-ffff-ffff-ffffffffffff\"]");
+      assertEquals(requests.get(0).get("numberOfResults"), "10");
+      assertEquals(requests.get(0).get("startRow"), "0");
+    }
+  }
+
+  @Test
+  public void reconcile() {
+    UserReplica replica = new UserReplica();
+    replica.put(user(SAME, "same@example.com"));
+    replica.put(user(CHANGED, "old@example.com"));
+    replica.put(user(EXTRA, "extra@example.com"));
+    User same = replica.get(SAME);
+
+    List<User> authoritative = Arrays.asList(user(SAME, "same@example.com"), user(CHANGED, "new@example.com"),
+        user(MISSING, "missing@example.com"));
+    List<UUID[]> fetched = new ArrayList<>();
+    UserReplicaReconciler reconciler = new UserReplicaReconciler(replica, 4, (lowerBound, upperBound) -> {
+      fetched.add(new UUID[]{lowerBound, upperBound});
+      return authoritative.stream()
+                          .filter(user -> within(user.id, lowerBound, upperBound))
+                          .collect(Collectors.toList());
+    });
+
+    Result result = reconciler.reconcile(UserReplicaReconciler.tree(4, authoritative));
+    assertEquals(result.repairedBuckets, Arrays.asList(3, 10, 15));
+    assertEquals(result.failedBuckets, Collections.emptyList());
+    assertEquals(result.updated, 2);
+    assertEquals(result.removed, 1);
+
+    // Only the buckets that differ are fetched
+    assertEquals(fetched.size(), 3);
+    assertEquals(fetched.get(1)[0], UUID.fromString("a0000000-0000-0000-0000-000000000000"));
+    assertEquals(fetched.get(1)[1], UUID.fromString("afffffff-ffff-ffff-ffff-ffffffffffff"));
+
+    assertEquals(replica.size(), 3);
+    assertSame(replica.get(SAME), same);
+    assertEquals(replica.get(CHANGED).email, "new@example.com");
+    assertEquals(replica.get(MISSING).email, "missing@example.com");
+    assertNull(replica.get(EXTRA));
+    assertNull(replica.getByEmail("old@example.com"));
+    assertNull(replica.getByEmail("extra@example.com"));
+
+    // The replica now matches, so nothing else is fetched
+    result = reconciler.reconcile(UserReplicaReconciler.tree(4, authoritative));
+    assertEquals(result.repairedBuckets, Collections.emptyList());
+    assertEquals(fetched.size(), 3);
+  }
+
+  private User user(UUID id, String email) {
+    User user = new User();
+    user.id = id;
+    user.email = email;
+    return user;
+  }
+
+  private boolean within(UUID id, UUID lowerBound, UUID upperBound) {
+    // Passport compares the ids as strings, which orders them the same as unsigned numbers
+    return id.toString().compareTo(lowerBound.toString()) >= 0 && id.toString().compareTo(upperBound.toString()) <= 0;
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.client.cache;
+
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import com.inversoft.error.Errors;
+import com.inversoft.passport.client.PassportClient;
+import com.inversoft.passport.client.StandInPassport;
+import com.inversoft.passport.domain.User;
+import com.inversoft.passport.domain.api.UserResponse;
+import com.inversoft.passport.domain.event.UserDeleteEvent;
+import com.inversoft.passport.domain.event.UserUpdateEvent;
+import com.inversoft.rest.ClientResponse;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Brian Pontarelli
+ */
+@Test(groups = "unit")
+public class UserReplicaTest {
+  private static final UUID FIRST = UUID.fromString("10000000-0000-0000-0000-000000000001");
+
+  private static final UUID SECOND = UUID.fromString("20000000-0000-0000-0000-000000000002");
+
+  private static final String USERS = "{\"users\":[" +
+      "{\"id\":\"" + FIRST + "\",\"email\":\"Ian@Example.com\",\"username\":\"Ian\"}," +
+      "{\"id\":\"" + SECOND + "\",\"email\":\"second@example.com\",\"username\":\"second\"}" +
+      "],\"total\":2}";
+
+  @Test
+  public void changedWhileSeeding() throws Exception {
+    try (StandInPassport passport = new StandInPassport()) {
+      passport.respond("/api/user/search", 200, USERS)
+              .delay("/api/user/search", 300);
+      UserReplica replica = new UserReplica();
+      PassportClient client = new PassportClient("key", passport.baseURL());
+      CompletableFuture<ClientResponse<UserResponse, Errors>> seeded =
+          CompletableFuture.supplyAsync(() -> replica.seed(client, 10));
+
+      // The events arrive while the search is in flight, so they are newer than its results
+      Thread.sleep(100);
+      User updated = user(FIRST, "updated@example.com", "updated");
+      UserUpdateEvent update = new UserUpdateEvent();
+      update.user = updated;
+      replica.accept(update);
+      UserDeleteEvent delete = new UserDeleteEvent();
+      delete.user = user(SECOND, "second@example.com", "second");
+      replica.accept(delete);
+
+      assertTrue(seeded.get().wasSuccessful());
+      assertSame(replica.get(FIRST), updated);
+      assertNull(replica.getByEmail("ian@example.com"));
+      assertNull(replica.get(SECOND));
+      assertEquals(replica.size(), 1);
+
+      // Once seeding is done, the search results no longer lose to earlier events
+      passport.delay("/api/user/search", 0);
+      replica.seed(client, 10);
+      assertEquals(replica.get(FIRST).email, "Ian@Example.com");
+      assertEquals(replica.size(), 2);
+    }
+  }
+
+  @Test
+  public void lookups() {
+    Locale locale = Locale.getDefault();
+    try {
+      // The Turkish locale lower cases I to a dotless i, which would break the lookups if the default locale were used
+      Locale.setDefault(new Locale("tr", "TR"));
+      UserReplica replica = new UserReplica();
+      User user = user(FIRST, "Ian@Example.com", "IAN");
+      replica.put(user);
+
+      assertSame(replica.getByEmail("ian@example.com"), user);
+      assertSame(replica.getByEmail("IAN@EXAMPLE.COM"), user);
+      assertSame(replica.getByUsername("ian"), user);
+      assertSame(replica.getByLoginId("Ian"), user);
+      assertSame(replica.getByLoginId("ian@example.com"), user);
+      assertNull(replica.getByEmail(null));
+      assertNull(replica.getByUsername("other"));
+
+      // Changing the email drops the old one from the index
+      User changed = user(FIRST, "changed@example.com", "IAN");
+      replica.put(changed);
+      assertNull(replica.getByEmail("ian@example.com"));
+      assertSame(replica.getByEmail("Changed@Example.com"), changed);
+      assertSame(replica.getByUsername("Ian"), changed);
+
+      replica.remove(FIRST);
+      assertNull(replica.getByEmail("changed@example.com"));
+      assertNull(replica.getByUsername("ian"));
+    } finally {
+      Locale.setDefault(locale);
+    }
+  }
+
+  @Test
+  public void seed() throws Exception {
+    try (StandInPassport passport = new StandInPassport()) {
+      passport.respond("/api/user/search", 200, USERS);
+      UserReplica replica = new UserReplica();
+
+      assertTrue(replica.seed(new PassportClient("key", passport.baseURL()), 10).wasSuccessful());
+      assertEquals(replica.size(), 2);
+      assertEquals(replica.get(SECOND).username, "second");
+      assertSame(replica.getByEmail("ian@example.com"), replica.get(FIRST));
+      assertSame(replica.getByUsername("SECOND"), replica.get(SECOND));
+      assertEquals(passport.parameters("/api/user/search").get(0).get("queryString"), "*");
+
+      // A failed search stops seeding and leaves the replica as it was
+      passport.respond("/api/user/search", 500, null);
+      assertEquals(replica.seed(new PassportClient("key", passport.baseURL()), 10).status, 500);
+      assertEquals(replica.size(), 2);
+    }
+  }
+
+  @Test
+  public void tree() {
+    UserReplica replica = new UserReplica(4);
+    replica.put(user(FIRST, "first@example.com", "first"));
+    replica.put(user(SECOND, "second@example.com", "second"));
+    replica.put(user(FIRST, "changed@example.com", "first"));
+
+    // The tree follows the changes without fingerprinting every user again
+    MerkleTree tree = replica.tree();
+    assertEquals(tree.root(), UserReplicaReconciler.tree(4, replica.users()).root());
+    assertEquals(tree.diff(UserReplicaReconciler.tree(4, replica.users())).size(), 0);
+
+    replica.remove(SECOND);
+    assertEquals(replica.tree().root(), UserReplicaReconciler.tree(4, replica.users()).root());
+    assertTrue(tree.root() != replica.tree().root());
+
+    replica.remove(FIRST);
+    assertEquals(replica.tree().root(), new MerkleTree(4).root());
+    assertNull(new UserReplica().tree());
+  }
+
+  private User user(UUID id, String email, String username) {
+    User user = new User();
+    user.id = id;
+    user.email = email;
+    user.username = username;
+    return user;
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.client.composite;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.inversoft.passport.client.PassportClient;
+import com.inversoft.passport.client.StandInPassport;
+import com.inversoft.passport.domain.api.LoginRequest;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * @author Brian Pontarelli
+ */
+@Test(groups = "unit")
+public class LoginOrchestratorTest {
+  @Test
+  public void informationalActions() throws Exception {
+    UUID applicationId = UUID.randomUUID();
+    try (StandInPassport passport = new StandInPassport()) {
+      passport.respond("/api/login", 200, "{\"actions\":[{\"name\":\"Warning\"}],\"token\":\"sso\"," +
+          "\"user\":{\"id\":\"" + UUID.randomUUID() + "\",\"registrations\":[{\"applicationId\":\"" + applicationId +
+          "\"}]}}");
+      LoginOrchestrator orchestrator = new LoginOrchestrator(new PassportClient("key", passport.baseURL()));
+
+      // Only a 409 means that the login was prevented
+      LoginResult result = orchestrator.login(new LoginRequest(applicationId, "test@example.com", "password"),
+          applicationId);
+      assertTrue(result.wasSuccessful());
+      assertTrue(result.preventedBy.isEmpty());
+      assertEquals(result.token(), "sso");
+    }
+  }
+
+  @Test
+  public void missingApplicationId() {
+    LoginOrchestrator orchestrator = new LoginOrchestrator(new PassportClient("key", "http://localhost:1"));
+    try {
+      orchestrator.loginAsync(new LoginRequest(UUID.randomUUID(), "test@example.com", "password"), null);
+      fail("Should have thrown");
+    } catch (NullPointerException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void notRegistered() throws Exception {
+    UUID applicationId = UUID.randomUUID();
+    UUID userId = UUID.randomUUID();
+    try (StandInPassport passport = new StandInPassport()) {
+      passport.respond("/api/login", 200, "{\"token\":\"sso\",\"user\":{\"id\":\"" + userId + "\"}}")
+              .respond("/api/jwt/issue", 200, "{\"token\":\"issued\"}")
+              .respond("/api/login/" + userId + "/" + applicationId, 200, null);
+      LoginOrchestrator orchestrator = new LoginOrchestrator(new PassportClient("key", passport.baseURL()));
+
+      // The registration lookup gets a 404, so the login isn't pinged for the application
+      LoginResult result = orchestrator.login(new LoginRequest(UUID.randomUUID(), "test@example.com", "password"),
+          applicationId);
+      assertFalse(result.wasSuccessful());
+      assertNull(result.registration);
+      assertEquals(result.registrationResponse.status, 404);
+      assertNull(result.ping);
+      assertEquals(passport.requestCount("/api/login/" + userId + "/" + applicationId), 0);
+    }
+  }
+
+  @Test
+  public void otherApplication() throws Exception {
+    UUID ssoId = UUID.randomUUID();
+    UUID applicationId = UUID.randomUUID();
+    UUID userId = UUID.randomUUID();
+    try (StandInPassport passport = new StandInPassport()) {
+      passport.respond("/api/login", 200, "{\"token\":\"sso\",\"user\":{\"id\":\"" + userId + "\"}}")
+              .respond("/api/user/registration/" + userId + "/" + applicationId, 200,
+                  "{\"registration\":{\"applicationId\":\"" + applicationId + "\"}}")
+              .respond("/api/jwt/issue", 200, "{\"token\":\"issued\"}")
+              .respond("/api/login/" + userId + "/" + applicationId, 200, null)
+              .delay("/api/user/registration/" + userId + "/" + applicationId, 300)
+              .delay("/api/jwt/issue", 300)
+              .delay("/api/login/" + userId + "/" + applicationId, 300);
+      LoginOrchestrator orchestrator = new LoginOrchestrator(new PassportClient("key", passport.baseURL()));
+
+      // The registration isn't in the login response, so it is retrieved while the token is issued and the login is
+      // pinged once the registration is found
+      long start = System.currentTimeMillis();
+      LoginResult result = orchestrator.login(new LoginRequest(ssoId, "test@example.com", "password"), applicationId);
+      long duration = System.currentTimeMillis() - start;
+
+      assertTrue(result.wasSuccessful());
+      assertEquals(result.token(), "issued");
+      assertEquals(result.registration.applicationId, applicationId);
+      assertTrue(duration < 550, "Took [" + duration + "] milliseconds");
+      assertEquals(result.ping.get(5, TimeUnit.SECONDS).status, 200);
+    }
+  }
+
+  @Test
+  public void prevented() throws Exception {
+    UUID applicationId = UUID.randomUUID();
+    try (StandInPassport passport = new StandInPassport()) {
+      passport.respond("/api/login", 409, "{\"actions\":[{\"name\":\"Locked\"}]}");
+      LoginOrchestrator orchestrator = new LoginOrchestrator(new PassportClient("key", passport.baseURL()));
+
+      LoginResult result = orchestrator.login(new LoginRequest(applicationId, "test@example.com", "password"),
+          UUID.randomUUID());
+      assertFalse(result.wasSuccessful());
+      assertEquals(result.preventedBy.size(), 1);
+      assertEquals(result.preventedBy.get(0).name, "Locked");
+      assertEquals(result.login.status, 409);
+      assertNull(result.issue);
+      assertNull(result.ping);
+      assertNull(result.token());
+    }
+  }
+
+  @Test
+  public void sameApplication() throws Exception {
+    UUID applicationId = UUID.randomUUID();
+    try (StandInPassport passport = new StandInPassport()) {
+      passport.respond("/api/login", 200, "{\"token\":\"sso\",\"user\":{\"id\":\"" + UUID.randomUUID() +
+          "\",\"registrations\":[{\"applicationId\":\"" + applicationId + "\"}]}}");
+      LoginOrchestrator orchestrator = new LoginOrchestrator(new PassportClient("key", passport.baseURL()));
+
+      // Everything needed is in the login response, so it is the only call
+      LoginResult result = orchestrator.login(new LoginRequest(applicationId, "test@example.com", "password"),
+          applicationId);
+      assertTrue(result.wasSuccessful());
+      assertEquals(result.token(), "sso");
+      assertNull(result.registrationResponse);
+      assertNull(result.issue);
+      assertNull(result.ping);
+      assertEquals(passport.requestCount("/api/login"), 1);
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.client.composite;
+
+import java.util.UUID;
+
+import com.inversoft.passport.client.PassportClient;
+import com.inversoft.passport.client.StandInPassport;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Brian Pontarelli
+ */
+@Test(groups = "unit")
+public class UserProfilesTest {
+  @Test
+  public void concurrent() throws Exception {
+    UUID userId = UUID.randomUUID();
+    try (StandInPassport passport = profile(new StandInPassport(), userId)) {
+      PassportClient client = new PassportClient("key", passport.baseURL());
+
+      long start = System.currentTimeMillis();
+      UserProfile profile = new UserProfiles(client).retrieve(userId, 10);
+      long duration = System.currentTimeMillis() - start;
+
+      // Five calls of 200 milliseconds each take about as long as one
+      assertTrue(profile.wasSuccessful(), profile.failures().toString());
+      assertEquals(profile.user.successResponse.user.email, "test@example.com");
+      assertTrue(duration < 800, "Took [" + duration + "] milliseconds");
+    }
+  }
+
+  @Test
+  public void sharedDeadline() throws Exception {
+    UUID userId = UUID.randomUUID();
+    try (StandInPassport passport = profile(new StandInPassport(), userId)) {
+      passport.delay("/api/report/user-login", 3000);
+      PassportClient client = new PassportClient("key", passport.baseURL());
+
+      long start = System.currentTimeMillis();
+      UserProfile profile = new UserProfiles(client.withCallOptions(client.callOptions().withDeadline(500)))
+          .retrieve(userId, 10);
+      long duration = System.currentTimeMillis() - start;
+
+      assertFalse(profile.wasSuccessful());
+      assertEquals(profile.failures().size(), 1);
+      assertEquals(profile.logins.status, -1);
+      assertTrue(profile.user.wasSuccessful());
+      assertTrue(profile.comments.wasSuccessful());
+      assertTrue(duration < 1500, "Took [" + duration + "] milliseconds");
+    }
+  }
+
+  private StandInPassport profile(StandInPassport passport, UUID userId) {
+    return passport.respond("/api/user/" + userId, 200, "{\"user\":{\"email\":\"test@example.com\"}}")
+                   .respond("/api/user/action", 200, "{}")
+                   .respond("/api/user/comment/" + userId, 200, "{}")
+                   .respond("/api/jwt/refresh", 200, "{}")
+                   .respond("/api/report/user-login", 200, "{\"logins\":[]}")
+                   .delay("/api/user/" + userId, 200)
+                   .delay("/api/user/action", 200)
+                   .delay("/api/user/comment/" + userId, 200)
+                   .delay("/api/jwt/refresh", 200)
+                   .delay("/api/report/user-login", 200);
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.client.json;
+
+import java.util.Locale;
+import java.util.UUID;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.inversoft.passport.client.PassportClient;
+import com.inversoft.passport.domain.User;
+import com.inversoft.passport.domain.UserRegistration;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+
+/**
+ * @author Brian Pontarelli
+ */
+@Test(groups = "unit")
+public class InterningModuleTest {
+  @Test
+  public void identity() throws Exception {
+    InternTable table = new InternTable(100);
+    ObjectMapper mapper = PassportClient.objectMapper.copy().registerModule(new InterningModule(table));
+    UUID applicationId = UUID.randomUUID();
+    User first = mapper.readValue(json(UUID.randomUUID(), applicationId), User.class);
+    User second = mapper.readValue(json(UUID.randomUUID(), applicationId), User.class);
+
+    // Plain fields, the elements of collections, map keys and Locales are shared
+    assertEquals(first.encryptionScheme, "salted-sha256");
+    assertSame(first.encryptionScheme, second.encryptionScheme);
+    UserRegistration firstRegistration = first.getRegistrationForApplication(applicationId);
+    UserRegistration secondRegistration = second.getRegistrationForApplication(applicationId);
+    assertEquals(firstRegistration.roles.first(), "admin");
+    assertSame(firstRegistration.roles.first(), secondRegistration.roles.first());
+    assertSame(firstRegistration.roles.last(), secondRegistration.roles.last());
+    assertSame(first.data.attributes.keySet().iterator().next(), second.data.attributes.keySet().iterator().next());
+    assertEquals(first.data.preferredLanguages.get(0), Locale.US);
+    assertSame(first.data.preferredLanguages.get(0), second.data.preferredLanguages.get(0));
+    assertSame(first.data.preferredLanguages.get(1), second.data.preferredLanguages.get(1));
+
+    // Other Strings aren't interned
+    assertEquals(first.email, second.email);
+    assertNotSame(first.email, second.email);
+    assertEquals(table.localeCount(), 2);
+  }
+
+  @Test
+  public void full() {
+    InternTable table = new InternTable(1);
+    String admin = table.intern(new String("admin"));
+    assertSame(table.intern(new String("admin")), admin);
+
+    // New values are returned as is once the table is full
+    String user = new String("user");
+    assertSame(table.intern(user), user);
+    assertEquals(table.stringCount(), 1);
+
+    assertSame(table.locale("en_US"), table.locale("en_US"));
+    assertEquals(table.locale("fr-CA"), Locale.CANADA_FRENCH);
+    assertEquals(table.localeCount(), 1);
+  }
+
+  private String json(UUID id, UUID applicationId) {
+    return "{\"id\":\"" + id + "\",\"email\":\"test@example.com\",\"encryptionScheme\":\"salted-sha256\"," +
+        "\"data\":{\"attributes\":{\"favoriteColor\":\"blue\"},\"preferredLanguages\":[\"en_US\",\"fr\"]}," +
+        "\"registrations\":[{\"applicationId\":\"" + applicationId + "\",\"roles\":[\"admin\",\"user\"]}]}";
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.client.reactive;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import com.inversoft.passport.client.PassportClient;
+import com.inversoft.passport.client.StandInPassport;
+import com.inversoft.passport.domain.RawLogin;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Brian Pontarelli
+ */
+@Test(groups = "unit")
+public class PassportPublishersTest {
+  @Test
+  public void failedPage() throws Exception {
+    try (StandInPassport passport = new StandInPassport()) {
+      passport.respond("/api/report/user-login", 500, "");
+      PassportPublishers publishers = new PassportPublishers(new PassportClient("key", passport.baseURL()));
+
+      RecordingSubscriber<RawLogin> subscriber = new RecordingSubscriber<>();
+      publishers.retrieveUserLoginReport(UUID.randomUUID(), 10).subscribe(subscriber);
+      subscriber.subscription.request(10);
+      subscriber.awaitDone();
+
+      assertTrue(subscriber.error instanceof PageFetchException);
+      assertEquals(((PageFetchException) subscriber.error).response.status, 500);
+    }
+  }
+
+  @Test
+  public void invalidRequest() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    PagedPublisher<Integer> publisher = new PagedPublisher<>((offset, limit) -> new ArrayList<>(), 0, 10, executor);
+    RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+    publisher.subscribe(subscriber);
+    subscriber.subscription.request(0);
+    subscriber.awaitDone();
+
+    assertTrue(subscriber.error instanceof IllegalArgumentException);
+    executor.shutdown();
+  }
+
+  @Test
+  public void pagesOnDemand() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    AtomicInteger fetches = new AtomicInteger();
+    PagedPublisher<Integer> publisher = new PagedPublisher<>((offset, limit) -> {
+      fetches.incrementAndGet();
+      return IntStream.range(offset, Math.min(offset + limit, 25)).boxed().collect(Collectors.toList());
+    }, 0, 10, executor);
+
+    RecordingSubscriber<Integer> subscriber = new RecordingSubscriber<>();
+    publisher.subscribe(subscriber);
+    assertEquals(fetches.get(), 0);
+
+    subscriber.subscription.request(3);
+    subscriber.awaitItems(3);
+    assertEquals(fetches.get(), 1);
+
+    // The first page is used up before the second one is retrieved
+    subscriber.subscription.request(7);
+    subscriber.awaitItems(10);
+    assertEquals(fetches.get(), 1);
+
+    subscriber.subscription.request(1);
+    subscriber.awaitItems(11);
+    assertEquals(fetches.get(), 2);
+
+    subscriber.subscription.request(Long.MAX_VALUE);
+    subscriber.awaitDone();
+    assertTrue(subscriber.completed);
+    assertNull(subscriber.error);
+    assertEquals(subscriber.items, IntStream.range(0, 25).boxed().collect(Collectors.toList()));
+    assertEquals(fetches.get(), 3);
+    executor.shutdown();
+  }
+
+  @Test
+  public void userLoginReport() throws Exception {
+    try (StandInPassport passport = new StandInPassport()) {
+      passport.respond("/api/report/user-login", 200, "{\"logins\":[{\"ipAddress\":\"127.0.0.1\"},{}]}");
+      PassportPublishers publishers = new PassportPublishers(new PassportClient("key", passport.baseURL()));
+
+      // Two logins is a short page, so it is the last one
+      RecordingSubscriber<RawLogin> subscriber = new RecordingSubscriber<>();
+      publishers.retrieveUserLoginReport(UUID.randomUUID(), 5).subscribe(subscriber);
+      subscriber.subscription.request(Long.MAX_VALUE);
+      subscriber.awaitDone();
+
+      assertTrue(subscriber.completed);
+      assertEquals(subscriber.items.size(), 2);
+      assertEquals(subscriber.items.get(0).ipAddress, "127.0.0.1");
+      assertEquals(passport.requestCount("/api/report/user-login"), 1);
+    }
+  }
+
+  static class RecordingSubscriber<T> implements Subscriber<T> {
+    public final CountDownLatch done = new CountDownLatch(1);
+
+    public final List<T> items = new ArrayList<>();
+
+    public volatile boolean completed;
+
+    public volatile Throwable error;
+
+    public volatile Subscription subscription;
+
+    public void awaitDone() throws InterruptedException {
+      assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    public void awaitItems(int count) throws InterruptedException {
+      long end = System.currentTimeMillis() + 5000;
+      while (size() < count && System.currentTimeMillis() < end) {
+        Thread.sleep(5);
+      }
+
+      assertEquals(size(), count);
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+      done.countDown();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+      done.countDown();
+    }
+
+    @Override
+    public synchronized void onNext(T item) {
+      items.add(item);
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    public synchronized int size() {
+      return items.size();
+    }
+  }
+}
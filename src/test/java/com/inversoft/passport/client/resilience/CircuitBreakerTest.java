@@ -0,0 +1,125 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.client.resilience;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.inversoft.passport.client.PassportClient;
+import com.inversoft.passport.client.StandInPassport;
+import com.inversoft.passport.client.resilience.CircuitBreaker.Permit;
+import com.inversoft.rest.ClientResponse;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Brian Pontarelli
+ */
+@Test(groups = "unit")
+public class CircuitBreakerTest {
+  @Test
+  public void failFast() throws Exception {
+    UUID userId = UUID.randomUUID();
+    try (StandInPassport passport = new StandInPassport()) {
+      passport.respond("/api/report/totals", 500, null)
+              .respond("/api/user/" + userId, 200, "{\"user\":{\"email\":\"test@example.com\"}}");
+      PassportClient client = new PassportClient("key", passport.baseURL())
+          .withCircuitBreakers(new CircuitBreakers(new CircuitBreakerConfiguration().with(c -> c.minimumRequests = 5)));
+
+      for (int i = 0; i < 10; i++) {
+        client.retrieveTotalReport();
+      }
+
+      assertEquals(passport.requestCount("/api/report/totals"), 5);
+      ClientResponse<?, ?> response = client.retrieveTotalReport();
+      assertEquals(response.status, -1);
+      assertTrue(response.exception instanceof RequestRejectedException);
+
+      // The other groups are unaffected
+      assertTrue(client.retrieveUser(userId).wasSuccessful());
+    }
+  }
+
+  @Test
+  public void halfOpen() throws Exception {
+    CircuitBreaker breaker = new CircuitBreaker(new CircuitBreakerConfiguration().with(c -> c.minimumRequests = 4)
+                                                                                 .with(c -> c.openDurationInMillis = 50)
+                                                                                 .with(c -> c.probeRequests = 2));
+    open(breaker);
+    assertEquals(breaker.state(), CircuitState.Open);
+    assertNull(breaker.tryAcquire());
+
+    // A failed probe opens it again
+    Thread.sleep(60);
+    Permit first = breaker.tryAcquire();
+    Permit second = breaker.tryAcquire();
+    assertNotNull(first);
+    assertNotNull(second);
+    assertNull(breaker.tryAcquire());
+    breaker.record(first, TimeUnit.MILLISECONDS.toNanos(5), true);
+    breaker.record(second, TimeUnit.MILLISECONDS.toNanos(5), false);
+    assertNull(breaker.tryAcquire());
+
+    // Successful probes close it
+    Thread.sleep(60);
+    first = breaker.tryAcquire();
+    second = breaker.tryAcquire();
+    breaker.record(first, TimeUnit.MILLISECONDS.toNanos(5), false);
+    breaker.record(second, TimeUnit.MILLISECONDS.toNanos(5), false);
+    assertEquals(breaker.state(), CircuitState.Closed);
+    assertEquals(breaker.failureRate(), 0, 0);
+  }
+
+  @Test
+  public void previousGeneration() throws Exception {
+    CircuitBreaker breaker = new CircuitBreaker(new CircuitBreakerConfiguration().with(c -> c.minimumRequests = 4)
+                                                                                 .with(c -> c.openDurationInMillis = 50)
+                                                                                 .with(c -> c.probeRequests = 2));
+
+    // A slow request is let through while the circuit is closed and completes once it is half open
+    Permit closed = breaker.tryAcquire();
+    open(breaker);
+    Thread.sleep(60);
+    Permit first = breaker.tryAcquire();
+    Permit second = breaker.tryAcquire();
+    assertNotNull(first);
+    assertNotNull(second);
+
+    // Its outcome doesn't give back a probe or count as one
+    breaker.record(closed, TimeUnit.MILLISECONDS.toNanos(5), false);
+    breaker.cancel(closed);
+    assertNull(breaker.tryAcquire());
+    assertEquals(breaker.state(), CircuitState.HalfOpen);
+
+    // Nor does its failure open the circuit again
+    breaker.record(closed, TimeUnit.MILLISECONDS.toNanos(5), true);
+    assertEquals(breaker.state(), CircuitState.HalfOpen);
+
+    breaker.record(first, TimeUnit.MILLISECONDS.toNanos(5), false);
+    breaker.record(second, TimeUnit.MILLISECONDS.toNanos(5), false);
+    assertEquals(breaker.state(), CircuitState.Closed);
+  }
+
+  @Test
+  public void slow() {
+    CircuitBreaker breaker = new CircuitBreaker(new CircuitBreakerConfiguration().with(c -> c.minimumRequests = 10));
+    for (int i = 0; i < 10; i++) {
+      breaker.record(breaker.tryAcquire(), TimeUnit.MILLISECONDS.toNanos(i < 8 ? 2000 : 10), false);
+    }
+
+    assertEquals(breaker.slowRequestRate(), 0.8, 0.001);
+    assertEquals(breaker.state(), CircuitState.Open);
+  }
+
+  private void open(CircuitBreaker breaker) {
+    for (int i = 0; i < 4; i++) {
+      Permit permit = breaker.tryAcquire();
+      assertNotNull(permit);
+      breaker.record(permit, TimeUnit.MILLISECONDS.toNanos(5), i % 2 == 0);
+    }
+  }
+}
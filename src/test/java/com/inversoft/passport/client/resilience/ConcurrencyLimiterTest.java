@@ -0,0 +1,111 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.client.resilience;
+
+import java.util.concurrent.TimeUnit;
+
+import com.inversoft.rest.RESTClient.HTTPMethod;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Brian Pontarelli
+ */
+@Test(groups = "unit")
+public class ConcurrencyLimiterTest {
+  @Test
+  public void aimd() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(new ConcurrencyLimiterConfiguration()
+        .with(c -> c.algorithm = LimitAlgorithm.Aimd)
+        .with(c -> c.initialLimit = 10));
+
+    // Fast requests at the limit grow it
+    for (int i = 0; i < 100; i++) {
+      fill(limiter, 10, TimeUnit.MILLISECONDS.toNanos(5), false);
+    }
+    assertTrue(limiter.limit() > 10);
+
+    // Overload errors shrink it quickly
+    int grown = limiter.limit();
+    fill(limiter, grown, TimeUnit.MILLISECONDS.toNanos(5), true);
+    assertTrue(limiter.limit() < grown / 2);
+    assertEquals(limiter.inFlight(), 0);
+  }
+
+  @Test
+  public void classify() {
+    assertEquals(EndpointGroup.classify(HTTPMethod.POST, "/api/login"), EndpointGroup.Login);
+    assertEquals(EndpointGroup.classify(HTTPMethod.GET, "/api/jwt/validate"), EndpointGroup.Login);
+    assertEquals(EndpointGroup.classify(HTTPMethod.GET, "/api/report/login"), EndpointGroup.Report);
+    assertEquals(EndpointGroup.classify(HTTPMethod.GET, "/api/user/search"), EndpointGroup.Search);
+    assertEquals(EndpointGroup.classify(HTTPMethod.GET, "/api/system/audit-log"), EndpointGroup.Search);
+    assertEquals(EndpointGroup.classify(HTTPMethod.POST, "/api/system/audit-log"), EndpointGroup.Admin);
+    assertEquals(EndpointGroup.classify(HTTPMethod.GET, "/api/user/00000000-0000-0000-0000-000000000001"), EndpointGroup.UserRead);
+    assertEquals(EndpointGroup.classify(HTTPMethod.PUT, "/api/user"), EndpointGroup.UserWrite);
+    assertEquals(EndpointGroup.classify(HTTPMethod.GET, "/api/user-action"), EndpointGroup.Admin);
+  }
+
+  @Test
+  public void gradient() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(new ConcurrencyLimiterConfiguration()
+        .with(c -> c.initialLimit = 10));
+
+    for (int i = 0; i < 20; i++) {
+      fill(limiter, limiter.limit(), TimeUnit.MILLISECONDS.toNanos(10), false);
+    }
+    int grown = limiter.limit();
+    assertTrue(grown > 10);
+
+    // Passport starts queueing and the latency goes up 5 times
+    fill(limiter, grown, TimeUnit.MILLISECONDS.toNanos(50), false);
+    assertTrue(limiter.limit() < grown * 0.75);
+  }
+
+  @Test
+  public void queue() throws Exception {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(new ConcurrencyLimiterConfiguration()
+        .with(c -> c.initialLimit = 1)
+        .with(c -> c.maximumLimit = 1)
+        .with(c -> c.maximumQueueTimeInMillis = 5000));
+    assertTrue(limiter.acquire());
+
+    Thread releaser = new Thread(() -> {
+      try {
+        Thread.sleep(50);
+      } catch (InterruptedException e) {
+        // Ignore
+      }
+      limiter.release(TimeUnit.MILLISECONDS.toNanos(50), false);
+    });
+    releaser.start();
+
+    assertTrue(limiter.acquire());
+    assertEquals(limiter.rejectedCount(), 0);
+    releaser.join();
+  }
+
+  @Test
+  public void reject() {
+    ConcurrencyLimiter limiter = new ConcurrencyLimiter(new ConcurrencyLimiterConfiguration()
+        .with(c -> c.initialLimit = 2));
+    assertTrue(limiter.acquire());
+    assertTrue(limiter.acquire());
+    assertFalse(limiter.acquire());
+    assertEquals(limiter.rejectedCount(), 1);
+
+    limiter.release(TimeUnit.MILLISECONDS.toNanos(5), false);
+    assertTrue(limiter.acquire());
+  }
+
+  private void fill(ConcurrencyLimiter limiter, int count, long latencyNanos, boolean overloaded) {
+    for (int i = 0; i < count; i++) {
+      assertTrue(limiter.acquire());
+    }
+    for (int i = 0; i < count; i++) {
+      limiter.release(latencyNanos, overloaded);
+    }
+  }
+}
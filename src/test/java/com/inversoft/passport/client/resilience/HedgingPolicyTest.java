@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.client.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.inversoft.rest.ClientResponse;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Brian Pontarelli
+ */
+@Test(groups = "unit")
+public class HedgingPolicyTest {
+  @Test
+  public void cap() {
+    HedgingPolicy policy = new HedgingPolicy(new HedgingPolicyConfiguration().with(c -> c.hedgeRatio = 0)
+                                                                             .with(c -> c.maximumBurst = 1)
+                                                                             .with(c -> c.maximumDelayInMillis = 10));
+    AtomicInteger attempts = new AtomicInteger();
+    Supplier<ClientResponse<Void, Void>> slow = () -> {
+      attempts.incrementAndGet();
+      return response(50, 200);
+    };
+
+    assertEquals(policy.hedge(EndpointGroup.UserRead, slow, slow).status, 200);
+    assertEquals(attempts.get(), 2);
+
+    // The only token has been used
+    assertEquals(policy.hedge(EndpointGroup.UserRead, slow, slow).status, 200);
+    assertEquals(attempts.get(), 3);
+    assertEquals(policy.hedgeCount(), 1);
+    policy.close();
+  }
+
+  @Test
+  public void hedge() {
+    HedgingPolicy policy = new HedgingPolicy(new HedgingPolicyConfiguration().with(c -> c.maximumDelayInMillis = 20));
+    Thread caller = Thread.currentThread();
+    Thread[] threads = new Thread[2];
+
+    // The first attempt is stuck on a slow node, the hedge isn't
+    long start = System.nanoTime();
+    ClientResponse<Void, Void> response = policy.hedge(EndpointGroup.UserRead, () -> {
+      threads[0] = Thread.currentThread();
+      return response(5000, 200);
+    }, () -> {
+      threads[1] = Thread.currentThread();
+      return response(0, 201);
+    });
+    assertEquals(response.status, 201);
+    assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+    assertEquals(policy.hedgeCount(), 1);
+    assertFalse(Thread.currentThread().isInterrupted());
+
+    // The first attempt is made on the calling thread
+    assertSame(threads[0], caller);
+    assertNotSame(threads[1], caller);
+
+    // A failed first attempt doesn't win over a slower success
+    response = policy.hedge(EndpointGroup.UserRead, () -> response(30, 503), () -> response(60, 200));
+    assertEquals(response.status, 200);
+
+    // A fast first attempt isn't hedged
+    response = policy.hedge(EndpointGroup.UserRead, () -> response(0, 200), () -> response(0, 201));
+    assertEquals(response.status, 200);
+    assertEquals(policy.hedgeCount(), 2);
+    policy.close();
+  }
+
+  @Test
+  public void percentile() {
+    LatencyHistogram histogram = new LatencyHistogram(100_000);
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+    }
+
+    assertEquals(histogram.count(), 1000);
+    long p95 = TimeUnit.NANOSECONDS.toMillis(histogram.percentileNanos(0.95));
+    assertTrue(p95 >= 950 && p95 <= 950 * 1.2, "p95 was " + p95);
+  }
+
+  private ClientResponse<Void, Void> response(long sleepInMillis, int status) {
+    try {
+      Thread.sleep(sleepInMillis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+
+    ClientResponse<Void, Void> response = new ClientResponse<>();
+    response.status = status;
+    return response;
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.client.resilience;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import com.inversoft.rest.RESTClient.HTTPMethod;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Brian Pontarelli
+ */
+@Test(groups = "unit")
+public class RequestSchedulerTest {
+  @Test
+  public void bulkheads() {
+    RequestScheduler scheduler = new RequestScheduler(new RequestSchedulerConfiguration()
+        .with(c -> c.maximumWaitInMillis = 0)
+        .with(c -> c.reservedPermits.put(Priority.Batch, 1))
+        .with(c -> c.reservedPermits.put(Priority.Interactive, 1))
+        .with(c -> c.sharedPermits = 1));
+    RequestScheduler.Permit own = scheduler.acquire(Priority.Batch, Long.MAX_VALUE);
+    assertFalse(own.shared);
+    RequestScheduler.Permit shared = scheduler.acquire(Priority.Batch, Long.MAX_VALUE);
+    assertTrue(shared.shared);
+    assertNull(scheduler.acquire(Priority.Batch, Long.MAX_VALUE));
+    assertEquals(scheduler.inFlight(Priority.Batch), 2);
+
+    // The batch requests can't touch the interactive permits
+    assertNotNull(scheduler.acquire(Priority.Interactive, Long.MAX_VALUE));
+    assertEquals(scheduler.rejectedCount(), 1);
+
+    scheduler.release(shared);
+    assertNotNull(scheduler.acquire(Priority.Batch, Long.MAX_VALUE));
+  }
+
+  @Test
+  public void classify() {
+    assertEquals(Priority.classify(HTTPMethod.POST, "/api/login"), Priority.Interactive);
+    assertEquals(Priority.classify(HTTPMethod.GET, "/api/jwt/validate"), Priority.Interactive);
+    assertEquals(Priority.classify(HTTPMethod.POST, "/api/user/import"), Priority.Batch);
+    assertEquals(Priority.classify(HTTPMethod.GET, "/api/report/login"), Priority.Batch);
+    assertEquals(Priority.classify(HTTPMethod.GET, "/api/user"), Priority.Standard);
+  }
+
+  @Test
+  public void sharedByPriority() throws Exception {
+    RequestScheduler scheduler = new RequestScheduler(new RequestSchedulerConfiguration()
+        .with(c -> c.reservedPermits.clear())
+        .with(c -> c.sharedPermits = 1));
+    RequestScheduler.Permit first = scheduler.acquire(Priority.Standard, Long.MAX_VALUE);
+
+    CompletableFuture<RequestScheduler.Permit> batch =
+        CompletableFuture.supplyAsync(() -> scheduler.acquire(Priority.Batch, Long.MAX_VALUE));
+    Thread.sleep(50);
+    CompletableFuture<RequestScheduler.Permit> standard =
+        CompletableFuture.supplyAsync(() -> scheduler.acquire(Priority.Standard, Long.MAX_VALUE));
+    Thread.sleep(50);
+
+    // The batch request was waiting first, but the standard one gets the permit
+    scheduler.release(first);
+    RequestScheduler.Permit second = standard.get(1, TimeUnit.SECONDS);
+    assertEquals(second.priority, Priority.Standard);
+    assertFalse(batch.isDone());
+
+    scheduler.release(second);
+    assertEquals(batch.get(1, TimeUnit.SECONDS).priority, Priority.Batch);
+  }
+}
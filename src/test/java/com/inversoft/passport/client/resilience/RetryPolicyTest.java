@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.client.resilience;
+
+import java.util.UUID;
+
+import com.inversoft.passport.client.PassportClient;
+import com.inversoft.passport.client.StandInPassport;
+import com.inversoft.passport.domain.api.LoginRequest;
+import com.inversoft.rest.ClientResponse;
+import com.inversoft.rest.RESTClient.HTTPMethod;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Brian Pontarelli
+ */
+@Test(groups = "unit")
+public class RetryPolicyTest {
+  @Test
+  public void budget() {
+    RetryBudget budget = new RetryBudget(new RetryPolicyConfiguration().with(c -> c.budgetMinimumPerSecond = 0));
+    assertFalse(budget.tryWithdraw());
+
+    for (int i = 0; i < 10; i++) {
+      budget.deposit();
+    }
+    assertTrue(budget.tryWithdraw());
+    assertFalse(budget.tryWithdraw());
+  }
+
+  @Test
+  public void idempotent() {
+    assertTrue(RetryPolicy.isIdempotent(HTTPMethod.GET, "/api/user"));
+    assertTrue(RetryPolicy.isIdempotent(HTTPMethod.PUT, "/api/user"));
+    assertTrue(RetryPolicy.isIdempotent(HTTPMethod.DELETE, "/api/user/action"));
+    assertTrue(RetryPolicy.isIdempotent(HTTPMethod.POST, "/api/email/template/preview"));
+    assertFalse(RetryPolicy.isIdempotent(HTTPMethod.POST, "/api/login"));
+    assertFalse(RetryPolicy.isIdempotent(HTTPMethod.POST, "/api/user"));
+    assertFalse(RetryPolicy.isIdempotent(HTTPMethod.POST, "/api/user/action"));
+    assertFalse(RetryPolicy.isIdempotent(HTTPMethod.PUT, "/api/user/verify-email"));
+
+    // Modifying an action and pinging a login record something each time
+    UUID id = UUID.randomUUID();
+    assertFalse(RetryPolicy.isIdempotent(HTTPMethod.PUT, "/api/user/action/" + id));
+    assertFalse(RetryPolicy.isIdempotent(HTTPMethod.PUT, "/api/login/" + id + "/" + UUID.randomUUID()));
+    assertTrue(RetryPolicy.isIdempotent(HTTPMethod.PUT, "/api/user-action/" + id));
+    assertTrue(RetryPolicy.isIdempotent(HTTPMethod.PUT, "/api/user-action-reason/" + id));
+  }
+
+  @Test
+  public void retry() throws Exception {
+    UUID userId = UUID.randomUUID();
+    try (StandInPassport passport = new StandInPassport()) {
+      passport.respond("/api/user/" + userId, 503, null)
+              .respond("/api/login", 503, null);
+      PassportClient client = new PassportClient("key", passport.baseURL())
+          .withRetries(new RetryPolicy(new RetryPolicyConfiguration().with(c -> c.initialBackoffInMillis = 1)));
+
+      ClientResponse<?, ?> response = client.retrieveUser(userId);
+      assertEquals(response.status, 503);
+      assertEquals(passport.requestCount("/api/user/" + userId), 3);
+
+      LoginRequest request = new LoginRequest();
+      request.loginId = "test@example.com";
+      request.password = "password";
+      assertEquals(client.login(request).status, 503);
+      assertEquals(passport.requestCount("/api/login"), 1);
+    }
+  }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.client.routing;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import com.inversoft.passport.client.CallOptions;
+import com.inversoft.passport.client.PassportClient;
+import com.inversoft.passport.client.StandInPassport;
+import com.inversoft.passport.client.resilience.CircuitBreakerConfiguration;
+import com.inversoft.passport.client.resilience.CircuitBreakers;
+import com.inversoft.passport.client.resilience.CircuitState;
+import com.inversoft.passport.client.resilience.ConcurrencyLimiterConfiguration;
+import com.inversoft.passport.client.resilience.ConcurrencyLimits;
+import com.inversoft.passport.client.resilience.EndpointGroup;
+import com.inversoft.passport.client.resilience.HedgingPolicy;
+import com.inversoft.passport.client.resilience.HedgingPolicyConfiguration;
+import com.inversoft.passport.client.resilience.RequestRejectedException;
+import com.inversoft.rest.ClientResponse;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Brian Pontarelli
+ */
+@Test(groups = "unit")
+public class BackendPoolTest {
+  @Test
+  public void consistentHash() {
+    BackendPool pool = new BackendPool(new BackendPoolConfiguration().with(c -> c.baseURLs.add("http://one"))
+                                                                     .with(c -> c.baseURLs.add("http://two"))
+                                                                     .with(c -> c.baseURLs.add("http://three"))
+                                                                     .with(c -> c.baseURLs.add("http://four"))
+                                                                     .with(c -> c.healthCheckIntervalInMillis = 0)
+                                                                     .with(c -> c.selection = Selection.ConsistentHash));
+
+    ClientResponse<Void, Void> ok = new ClientResponse<>();
+    ok.status = 200;
+
+    Map<Backend, Integer> counts = new HashMap<>();
+    for (int i = 0; i < 1000; i++) {
+      UUID userId = UUID.randomUUID();
+      Backend backend = pool.acquire(userId, Collections.emptySet());
+      pool.release(backend, 1, ok);
+      Backend again = pool.acquire(userId, Collections.emptySet());
+      pool.release(again, 1, ok);
+      assertSame(again, backend);
+      counts.merge(backend, 1, Integer::sum);
+    }
+    assertEquals(counts.size(), 4);
+
+    // A hot user spills over to other backends once its backend has more than its share in flight
+    UUID hot = UUID.randomUUID();
+    Set<Backend> used = new HashSet<>();
+    for (int i = 0; i < 8; i++) {
+      used.add(pool.acquire(hot, Collections.emptySet()));
+    }
+    assertTrue(used.size() > 1);
+    pool.close();
+  }
+
+  @Test
+  public void ejection() throws Exception {
+    UUID userId = UUID.randomUUID();
+    String path = "/api/user/" + userId;
+    try (StandInPassport good = new StandInPassport(); StandInPassport bad = new StandInPassport()) {
+      good.respond(path, 200, "{\"user\":{\"email\":\"test@example.com\"}}");
+      bad.respond(path, 500, null);
+
+      BackendPool pool = new BackendPool(new BackendPoolConfiguration().with(c -> c.baseURLs.add(good.baseURL()))
+                                                                       .with(c -> c.baseURLs.add(bad.baseURL()))
+                                                                       .with(c -> c.healthCheckIntervalInMillis = 0)
+                                                                       .with(c -> c.selection = Selection.LeastOutstanding));
+      PassportClient client = new PassportClient("key", "http://localhost:9011").withBackendPool(pool);
+
+      int successes = 0;
+      for (int i = 0; i < 40; i++) {
+        if (client.retrieveUser(userId).wasSuccessful()) {
+          successes++;
+        }
+      }
+
+      assertEquals(good.requestCount(path) + bad.requestCount(path), 40);
+      assertTrue(bad.requestCount(path) <= 5);
+      assertEquals(successes, good.requestCount(path));
+      assertTrue(pool.backends().get(1).isEjected());
+      assertFalse(pool.backends().get(0).isEjected());
+      pool.close();
+    }
+  }
+
+  @Test
+  public void hedgeLoser() throws Exception {
+    try (StandInPassport slow = new StandInPassport(); StandInPassport fast = new StandInPassport()) {
+      BackendPool pool = new BackendPool(new BackendPoolConfiguration().with(c -> c.baseURLs.add(slow.baseURL()))
+                                                                       .with(c -> c.baseURLs.add(fast.baseURL()))
+                                                                       .with(c -> c.ejectionConsecutiveFailures = 2)
+                                                                       .with(c -> c.healthCheckIntervalInMillis = 0)
+                                                                       .with(c -> c.selection = Selection.ConsistentHash));
+
+      // Find a user whose requests go to the slow backend first
+      UUID userId;
+      Backend backend;
+      do {
+        userId = UUID.randomUUID();
+        backend = pool.acquire(userId, Collections.emptySet());
+        pool.cancel(backend);
+      } while (backend != pool.backends().get(0));
+
+      String path = "/api/user/" + userId;
+      slow.respond(path, 200, "{\"user\":{\"email\":\"test@example.com\"}}").delay(path, 1000);
+      fast.respond(path, 200, "{\"user\":{\"email\":\"test@example.com\"}}");
+
+      CircuitBreakerConfiguration configuration = new CircuitBreakerConfiguration().with(c -> c.minimumRequests = 2);
+      CircuitBreakers breakers = new CircuitBreakers(configuration);
+      ConcurrencyLimits limits = new ConcurrencyLimits(new ConcurrencyLimiterConfiguration());
+      HedgingPolicy policy = new HedgingPolicy(new HedgingPolicyConfiguration().with(c -> c.maximumDelayInMillis = 20));
+      PassportClient client = new PassportClient("key", "http://localhost:9011")
+          .withBackendPool(pool)
+          .withCallOptions(CallOptions.DEFAULT.withReadTimeout(300))
+          .withCircuitBreakers(breakers)
+          .withConcurrencyLimits(limits)
+          .withHedging(policy);
+
+      // The hedges win, and the first attempts they beat are neither failures nor overload
+      for (int i = 0; i < 3; i++) {
+        assertEquals(client.retrieveUser(userId).status, 200);
+        assertFalse(Thread.currentThread().isInterrupted());
+      }
+
+      assertEquals(policy.hedgeCount(), 3);
+      assertEquals(breakers.breaker(EndpointGroup.UserRead).failureRate(), 0, 0);
+      assertEquals(limits.limiter(EndpointGroup.UserRead).inFlight(), 0);
+      assertFalse(pool.backends().get(0).isEjected());
+      policy.close();
+      pool.close();
+    }
+  }
+
+  @Test
+  public void outlier() {
+    BackendPool pool = new BackendPool(new BackendPoolConfiguration().with(c -> c.baseURLs.add("http://one"))
+                                                                     .with(c -> c.baseURLs.add("http://two"))
+                                                                     .with(c -> c.baseURLs.add("http://three"))
+                                                                     .with(c -> c.baseURLs.add("http://four"))
+                                                                     .with(c -> c.healthCheckIntervalInMillis = 0));
+    List<Backend> backends = pool.backends();
+    for (int i = 0; i < 3; i++) {
+      release(pool, backends.get(i), 100, 200);
+    }
+
+    // The slow backend is ejected and its average is forgotten, so it isn't ejected again as soon as it is back
+    release(pool, backends.get(3), 1000, 200);
+    assertTrue(backends.get(3).isEjected());
+    assertEquals(backends.get(3).latencyInMillis(), 0, 0);
+
+    // At most half of the backends are ejected
+    for (int i = 0; i < 5; i++) {
+      release(pool, backends.get(2), 10, 500);
+    }
+    assertTrue(backends.get(2).isEjected());
+    for (int i = 0; i < 5; i++) {
+      release(pool, backends.get(1), 10, 500);
+    }
+    assertFalse(backends.get(1).isEjected());
+    pool.close();
+  }
+
+  @Test
+  public void saturatedBackend() {
+    BackendPool pool = new BackendPool(new BackendPoolConfiguration().with(c -> c.baseURLs.add("http://localhost:9011"))
+                                                                     .with(c -> c.healthCheckIntervalInMillis = 0)
+                                                                     .with(c -> c.maximumRequestsPerBackend = 1));
+    CircuitBreakers breakers = new CircuitBreakers(new CircuitBreakerConfiguration().with(c -> c.minimumRequests = 2));
+    ConcurrencyLimiterConfiguration configuration = new ConcurrencyLimiterConfiguration().with(c -> c.initialLimit = 4);
+    ConcurrencyLimits limits = new ConcurrencyLimits(configuration);
+    PassportClient client = new PassportClient("key", "http://localhost:9011")
+        .withBackendPool(pool)
+        .withCallOptions(CallOptions.DEFAULT.withDeadline(20))
+        .withCircuitBreakers(breakers)
+        .withConcurrencyLimits(limits);
+
+    // The only permit of the only backend is taken, so every request is rejected before it is sent
+    assertTrue(pool.backends().get(0).acquirePermit(0));
+    for (int i = 0; i < 10; i++) {
+      ClientResponse<?, ?> response = client.retrieveUser(UUID.randomUUID());
+      assertEquals(response.status, -1);
+      assertTrue(response.exception instanceof RequestRejectedException);
+    }
+
+    assertEquals(breakers.breaker(EndpointGroup.UserRead).state(), CircuitState.Closed);
+    assertEquals(breakers.breaker(EndpointGroup.UserRead).failureRate(), 0, 0);
+    assertEquals(limits.limiter(EndpointGroup.UserRead).limit(), 4);
+    assertEquals(limits.limiter(EndpointGroup.UserRead).inFlight(), 0);
+    assertFalse(pool.backends().get(0).isEjected());
+    pool.close();
+  }
+
+  private void release(BackendPool pool, Backend backend, long latencyInMillis, int status) {
+    ClientResponse<Void, Void> response = new ClientResponse<>();
+    response.status = status;
+    backend.start();
+    pool.release(backend, TimeUnit.MILLISECONDS.toNanos(latencyInMillis), response);
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.client.webhook;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import com.inversoft.passport.client.reactive.Subscriber;
+import com.inversoft.passport.client.reactive.Subscription;
+import com.inversoft.passport.domain.event.BaseEvent;
+import com.inversoft.passport.domain.event.UserDeleteEvent;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * @author Brian Pontarelli
+ */
+@Test(groups = "unit")
+public class WebhookEventPublisherTest {
+  @Test
+  public void slowSubscriber() throws Exception {
+    WebhookEventPublisher publisher = new WebhookEventPublisher();
+    CountDownLatch delivering = new CountDownLatch(1);
+    CountDownLatch release = new CountDownLatch(1);
+    publisher.subscribe(subscriber(event -> {
+      delivering.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }, new boolean[1]));
+
+    CompletableFuture<Void> slow = CompletableFuture.runAsync(() -> publisher.accept(new UserDeleteEvent()));
+    assertTrue(delivering.await(5, TimeUnit.SECONDS));
+
+    // Subscribing and canceling don't wait for the subscriber that is busy with an event
+    Subscription[] other = new Subscription[1];
+    CompletableFuture.runAsync(() -> publisher.subscribe(new Subscriber<BaseEvent>() {
+      @Override
+      public void onComplete() {
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+      }
+
+      @Override
+      public void onNext(BaseEvent item) {
+      }
+
+      @Override
+      public void onSubscribe(Subscription subscription) {
+        other[0] = subscription;
+      }
+    })).get(1, TimeUnit.SECONDS);
+    assertEquals(publisher.subscriberCount(), 2);
+    CompletableFuture.runAsync(() -> other[0].cancel()).get(1, TimeUnit.SECONDS);
+    assertEquals(publisher.subscriberCount(), 1);
+
+    release.countDown();
+    slow.get(5, TimeUnit.SECONDS);
+    publisher.close();
+  }
+
+  @Test
+  public void waitsForSubscriber() throws Exception {
+    WebhookEventPublisher publisher = new WebhookEventPublisher();
+    CompletableFuture<Void> accepted = CompletableFuture.runAsync(() -> publisher.accept(new UserDeleteEvent()));
+    Thread.sleep(100);
+    assertFalse(accepted.isDone());
+
+    // The event is held by the receiver worker rather than dropped
+    List<BaseEvent> events = new CopyOnWriteArrayList<>();
+    publisher.subscribe(subscriber(events::add, new boolean[1]));
+    accepted.get(5, TimeUnit.SECONDS);
+    assertEquals(events.size(), 1);
+
+    publisher.close();
+    try {
+      publisher.accept(new UserDeleteEvent());
+      fail("Should have thrown");
+    } catch (IllegalStateException e) {
+      // Expected
+    }
+  }
+
+  @Test
+  public void waitsForDemand() throws Exception {
+    WebhookEventPublisher publisher = new WebhookEventPublisher();
+    List<BaseEvent> events = new ArrayList<>();
+    boolean[] completed = new boolean[1];
+    Subscription[] subscription = new Subscription[1];
+    publisher.subscribe(new Subscriber<BaseEvent>() {
+      @Override
+      public void onComplete() {
+        completed[0] = true;
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+      }
+
+      @Override
+      public void onNext(BaseEvent item) {
+        events.add(item);
+      }
+
+      @Override
+      public void onSubscribe(Subscription s) {
+        subscription[0] = s;
+        s.request(1);
+      }
+    });
+
+    publisher.accept(new UserDeleteEvent());
+    assertEquals(events.size(), 1);
+
+    // Without demand the event waits and so does the receiver worker that is delivering it
+    CompletableFuture<Void> second = CompletableFuture.runAsync(() -> publisher.accept(new UserDeleteEvent()));
+    Thread.sleep(100);
+    assertFalse(second.isDone());
+    assertEquals(events.size(), 1);
+
+    subscription[0].request(1);
+    second.get(5, TimeUnit.SECONDS);
+    assertEquals(events.size(), 2);
+
+    publisher.close();
+    assertTrue(completed[0]);
+    assertEquals(publisher.subscriberCount(), 0);
+  }
+
+  private Subscriber<BaseEvent> subscriber(Consumer<BaseEvent> onNext, boolean[] completed) {
+    return new Subscriber<BaseEvent>() {
+      @Override
+      public void onComplete() {
+        completed[0] = true;
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+      }
+
+      @Override
+      public void onNext(BaseEvent item) {
+        onNext.accept(item);
+      }
+
+      @Override
+      public void onSubscribe(Subscription subscription) {
+        subscription.request(Long.MAX_VALUE);
+      }
+    };
+  }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.client.webhook;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.UUID;
+
+import com.inversoft.passport.domain.User;
+import com.inversoft.passport.domain.event.BaseEvent;
+import com.inversoft.passport.domain.event.UserDeleteEvent;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * @author Brian Pontarelli
+ */
+@Test(groups = "unit")
+public class WebhookJournalTest {
+  @Test
+  public void appendAndDrain() throws Exception {
+    Path file = Files.createTempFile("webhook-journal", ".log");
+    try (WebhookJournal journal = new WebhookJournal(file)) {
+      UUID first = UUID.randomUUID();
+      UUID second = UUID.randomUUID();
+      journal.append(event(first));
+      journal.append(event(second));
+      assertEquals(journal.pending(), 2);
+
+      List<BaseEvent> events = journal.drain(10);
+      assertEquals(events.size(), 2);
+      assertEquals(((UserDeleteEvent) events.get(0)).user.id, first);
+      assertEquals(((UserDeleteEvent) events.get(1)).user.id, second);
+      assertEquals(journal.pending(), 0);
+      assertEquals(Files.size(file), 8L);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void restart() throws Exception {
+    Path file = Files.createTempFile("webhook-journal", ".log");
+    UUID last = UUID.randomUUID();
+    try (WebhookJournal journal = new WebhookJournal(file)) {
+      journal.append(event(UUID.randomUUID()));
+      journal.append(event(UUID.randomUUID()));
+      journal.append(event(last));
+      assertEquals(journal.drain(2).size(), 2);
+    }
+
+    // Only the record that wasn't drained is replayed
+    try (WebhookJournal journal = new WebhookJournal(file)) {
+      assertEquals(journal.pending(), 1);
+      List<BaseEvent> events = journal.drain(10);
+      assertEquals(events.size(), 1);
+      assertEquals(((UserDeleteEvent) events.get(0)).user.id, last);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void tornTail() throws Exception {
+    Path file = Files.createTempFile("webhook-journal", ".log");
+    UUID id = UUID.randomUUID();
+    try (WebhookJournal journal = new WebhookJournal(file)) {
+      journal.append(event(id));
+    }
+
+    long size = Files.size(file);
+    for (int length : new int[]{-4, -100, 1_000_000}) {
+      try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+        ByteBuffer garbage = ByteBuffer.allocate(6);
+        garbage.putInt(length).put((byte) 1).put((byte) 2).flip();
+        channel.write(garbage, size);
+      }
+
+      try (WebhookJournal journal = new WebhookJournal(file)) {
+        assertEquals(journal.pending(), 1);
+        assertEquals(Files.size(file), size);
+      }
+    }
+
+    try (WebhookJournal journal = new WebhookJournal(file)) {
+      List<BaseEvent> events = journal.drain(10);
+      assertEquals(events.size(), 1);
+      assertEquals(((UserDeleteEvent) events.get(0)).user.id, id);
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private UserDeleteEvent event(UUID userId) {
+    User user = new User();
+    user.id = userId;
+    return new UserDeleteEvent(user);
+  }
+}
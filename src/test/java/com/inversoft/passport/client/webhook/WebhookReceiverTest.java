@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.client.webhook;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.BooleanSupplier;
+
+import com.inversoft.passport.domain.event.UserDeleteEvent;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Brian Pontarelli
+ */
+@Test(groups = "unit")
+public class WebhookReceiverTest {
+  @Test
+  public void block() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    WebhookReceiver receiver = full(release, new WebhookReceiverConfiguration()
+        .with(c -> c.blockTimeoutInMillis = 50)
+        .with(c -> c.capacity = 1)
+        .with(c -> c.overloadPolicy = OverloadPolicy.Block));
+
+    long start = System.currentTimeMillis();
+    assertEquals(receiver.receive(new UserDeleteEvent()), Admission.TimedOut);
+    assertTrue(System.currentTimeMillis() - start >= 50);
+    assertEquals(receiver.timedOutCount(), 1);
+
+    release.countDown();
+    receiver.close();
+    assertEquals(receiver.processedCount(), 2);
+  }
+
+  @Test
+  public void reject() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    WebhookReceiver receiver = full(release, new WebhookReceiverConfiguration()
+        .with(c -> c.capacity = 1)
+        .with(c -> c.overloadPolicy = OverloadPolicy.Reject));
+
+    Admission admission = receiver.receive(new UserDeleteEvent());
+    assertEquals(admission, Admission.Rejected);
+    assertEquals(admission.status, 503);
+    assertEquals(receiver.rejectedCount(), 1);
+
+    release.countDown();
+    receiver.close();
+    assertEquals(receiver.processedCount(), 2);
+    assertEquals(receiver.receive(new UserDeleteEvent()), Admission.Rejected);
+  }
+
+  @Test
+  public void spill() throws Exception {
+    Path file = Files.createTempFile("webhook-journal", ".log");
+    try (WebhookJournal journal = new WebhookJournal(file)) {
+      CountDownLatch release = new CountDownLatch(1);
+      WebhookReceiver receiver = full(release, new WebhookReceiverConfiguration()
+          .with(c -> c.capacity = 1)
+          .with(c -> c.journal = journal)
+          .with(c -> c.overloadPolicy = OverloadPolicy.Spill));
+
+      Admission admission = receiver.receive(new UserDeleteEvent());
+      assertEquals(admission, Admission.Spilled);
+      assertTrue(admission.accepted());
+      assertEquals(journal.pending(), 1);
+
+      // The spilled event is replayed once the queue drains
+      release.countDown();
+      await(() -> receiver.processedCount() == 3);
+      assertEquals(journal.pending(), 0);
+      receiver.close();
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  private void await(BooleanSupplier condition) throws InterruptedException {
+    long end = System.currentTimeMillis() + 5000;
+    while (!condition.getAsBoolean() && System.currentTimeMillis() < end) {
+      Thread.sleep(5);
+    }
+
+    assertTrue(condition.getAsBoolean());
+  }
+
+  /**
+   * Creates a receiver whose only worker is stuck on the first event and whose queue holds the second.
+   */
+  private WebhookReceiver full(CountDownLatch release, WebhookReceiverConfiguration configuration)
+      throws InterruptedException {
+    WebhookReceiver receiver = new WebhookReceiver(event -> {
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }, configuration);
+
+    assertEquals(receiver.receive(new UserDeleteEvent()), Admission.Accepted);
+    await(() -> receiver.queueDepth() == 0);
+    assertEquals(receiver.receive(new UserDeleteEvent()), Admission.Accepted);
+    return receiver;
+  }
+}
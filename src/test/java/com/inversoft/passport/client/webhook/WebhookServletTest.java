@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.client.webhook;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import com.inversoft.passport.domain.event.BaseEvent;
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+/**
+ * @author Brian Pontarelli
+ */
+@Test(groups = "unit")
+public class WebhookServletTest {
+  private static final String EVENT =
+      "{\"event\":{\"type\":\"user.delete\",\"user\":{\"email\":\"test@example.com\"}}}";
+
+  @Test
+  public void statusCodes() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    CountDownLatch handled = new CountDownLatch(1);
+    BaseEvent[] received = new BaseEvent[1];
+    WebhookReceiver receiver = new WebhookReceiver(event -> {
+      received[0] = event;
+      handled.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }, new WebhookReceiverConfiguration().with(c -> c.capacity = 1)
+                                         .with(c -> c.retryAfterInSeconds = 7));
+    WebhookServlet servlet = new WebhookServlet(receiver);
+
+    Map<String, Object> response = post(servlet, EVENT);
+    assertEquals(response.get("status"), 200);
+    assertNull(response.get("Retry-After"));
+    handled.await();
+    assertEquals(received[0].getClass().getSimpleName(), "UserDeleteEvent");
+
+    // The worker is busy and the queue holds one event, so the next one is turned away
+    assertEquals(post(servlet, EVENT).get("status"), 200);
+    response = post(servlet, EVENT);
+    assertEquals(response.get("status"), 503);
+    assertEquals(response.get("Retry-After"), "7");
+
+    assertEquals(post(servlet, "{not json").get("status"), 400);
+
+    release.countDown();
+    receiver.close();
+  }
+
+  private Map<String, Object> post(WebhookServlet servlet, String body) throws Exception {
+    ByteArrayInputStream bytes = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    ServletInputStream input = new ServletInputStream() {
+      public boolean isFinished() {
+        return bytes.available() == 0;
+      }
+
+      public boolean isReady() {
+        return true;
+      }
+
+      @Override
+      public int read() {
+        return bytes.read();
+      }
+
+      public void setReadListener(ReadListener listener) {
+      }
+    };
+
+    HttpServletRequest request = (HttpServletRequest) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[]{HttpServletRequest.class}, (proxy, method, args) -> {
+          if (method.getName().equals("getInputStream")) {
+            return input;
+          }
+          return null;
+        });
+
+    Map<String, Object> result = new HashMap<>();
+    HttpServletResponse response = (HttpServletResponse) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[]{HttpServletResponse.class}, (proxy, method, args) -> {
+          if (method.getName().equals("setStatus")) {
+            result.put("status", args[0]);
+          } else if (method.getName().equals("setHeader")) {
+            result.put((String) args[0], args[1]);
+          }
+          return null;
+        });
+
+    servlet.doPost(request, response);
+    return result;
+  }
+}
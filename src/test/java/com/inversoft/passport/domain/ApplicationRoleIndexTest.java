@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.domain;
+
+import java.util.UUID;
+
+import org.testng.annotations.Test;
+import static java.util.Arrays.asList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Brian Pontarelli
+ */
+@Test(groups = "unit")
+public class ApplicationRoleIndexTest {
+  @Test
+  public void compile() {
+    Application application = new Application(UUID.randomUUID(), "Test", true, null,
+        new ApplicationRole(null, null, "user", true, false, null),
+        new ApplicationRole(null, null, "editor", false, false, null),
+        new ApplicationRole(null, null, "admin", false, true, null));
+    ApplicationRoleIndex index = new ApplicationRoleIndex(application);
+    assertEquals(index.size(), 3);
+    assertEquals(index.bit("admin"), 0);
+    assertEquals(index.bit("missing"), -1);
+
+    UserRegistration registration = new UserRegistration();
+    registration.applicationId = application.id;
+    registration.roles.addAll(asList("editor", "user", "removed"));
+    RoleSet roles = index.compile(registration);
+    assertEquals(index.names(roles), asList("editor", "user"));
+    assertFalse(roles.isSuperRole());
+
+    assertTrue(roles.hasRole(index.bit("user")));
+    assertFalse(roles.hasRole(index.bit("admin")));
+    assertFalse(roles.hasRole(index.bit("missing")));
+    assertTrue(roles.hasAny(index.compile("admin", "editor")));
+    assertFalse(roles.hasAny(index.compile("admin", "missing")));
+    assertTrue(roles.hasAll(index.compile("editor", "user")));
+    assertFalse(roles.hasAll(index.compile("editor", "admin")));
+    assertFalse(roles.hasAll(index.compile("editor", "missing")));
+
+    // A super role passes every check
+    registration.roles.add("admin");
+    RoleSet admin = index.compile(registration);
+    assertTrue(admin.isSuperRole());
+    assertTrue(admin.hasAll(index.compile("editor", "missing")));
+    assertTrue(admin.hasRole(index.bit("missing")));
+  }
+}
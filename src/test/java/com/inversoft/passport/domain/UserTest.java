@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.domain;
+
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.UUID;
+
+import org.testng.annotations.Test;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Brian Pontarelli
+ */
+@Test(groups = "unit")
+public class UserTest {
+  @Test
+  public void fingerprint() {
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+    ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+
+    User user = new User();
+    user.email = "test@example.com";
+    user.insertInstant = now;
+    user.getChildIds().add(first);
+    user.getChildIds().add(second);
+    user.getRegistrations().add(registration(first, "admin"));
+    user.getRegistrations().add(registration(second, "user"));
+
+    User reordered = new User();
+    reordered.email = "test@example.com";
+    reordered.insertInstant = now.withZoneSameInstant(ZoneId.of("America/Denver"));
+    reordered.getChildIds().add(second);
+    reordered.getChildIds().add(first);
+    reordered.getRegistrations().add(registration(second, "user"));
+    reordered.getRegistrations().add(registration(first, "admin"));
+
+    long fingerprint = user.fingerprint();
+    assertEquals(reordered.fingerprint(), fingerprint);
+    assertEquals(user.fingerprint(), fingerprint);
+    assertEquals(user.getChildIds().get(0), first);
+
+    reordered.getRegistrations().get(0).roles.add("admin");
+    assertNotEquals(reordered.fingerprint(), fingerprint);
+  }
+
+  @Test
+  public void getRegistrationForApplication() {
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+    User user = new User();
+    UserRegistration registration = registration(first, "admin");
+    user.getRegistrations().add(registration);
+    assertSame(user.getRegistrationForApplication(first), registration);
+    assertTrue(user.hasRole(first, "admin"));
+    assertFalse(user.hasRole(first, "user"));
+    assertFalse(user.hasRole(second, "admin"));
+
+    // Changes to the list are picked up
+    UserRegistration replacement = registration(second, "user");
+    user.getRegistrations().set(0, replacement);
+    assertNull(user.getRegistrationForApplication(first));
+    assertSame(user.getRegistrationForApplication(second), replacement);
+    assertSame(user.getRoleNamesForApplication(second), replacement.roles);
+
+    // So are application ids changed in place
+    replacement.applicationId = first;
+    assertSame(user.getRegistrationForApplication(first), replacement);
+    assertNull(user.getRegistrationForApplication(second));
+    replacement.applicationId = second;
+    assertNull(user.getRegistrationForApplication(first));
+    assertSame(user.getRegistrationForApplication(second), replacement);
+
+    user.getRegistrations().clear();
+    assertNull(user.getDataForApplication(second));
+  }
+
+  @Test
+  public void subList() {
+    UUID first = UUID.randomUUID();
+    UUID second = UUID.randomUUID();
+    User user = new User();
+    user.getRegistrations().add(registration(first, "admin"));
+    user.getRegistrations().add(registration(second, "user"));
+    assertEquals(user.getRegistrationForApplication(first).roles.iterator().next(), "admin");
+
+    // Replacing a registration through a view is seen by the index, even though the application id is the same
+    UserRegistration replacement = registration(first, "viewer");
+    user.getRegistrations().subList(0, 1).set(0, replacement);
+    assertSame(user.getRegistrationForApplication(first), replacement);
+
+    replacement = registration(second, "viewer");
+    ListIterator<UserRegistration> iterator = user.getRegistrations().subList(0, 2).subList(1, 2).listIterator();
+    iterator.next();
+    iterator.set(replacement);
+    assertSame(user.getRegistrationForApplication(second), replacement);
+
+    // Structural changes through a view are seen by both
+    List<UserRegistration> view = user.getRegistrations().subList(1, 2);
+    UUID third = UUID.randomUUID();
+    view.add(registration(third, "user"));
+    assertEquals(view.size(), 2);
+    assertEquals(user.getRegistrations().size(), 3);
+    assertEquals(user.getRegistrationForApplication(third).applicationId, third);
+    view.remove(0);
+    assertNull(user.getRegistrationForApplication(second));
+    assertEquals(user.getRegistrations().size(), 2);
+  }
+
+  private UserRegistration registration(UUID applicationId, String role) {
+    UserRegistration registration = new UserRegistration();
+    registration.applicationId = applicationId;
+    registration.roles.add(role);
+    return registration;
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2017, Inversoft Inc., All Rights Reserved
+ */
+package com.inversoft.passport.domain.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import com.inversoft.passport.client.PassportClient;
+import org.testng.annotations.Test;
+import static java.util.Arrays.asList;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * @author Brian Pontarelli
+ */
+@Test(groups = "unit")
+public class UUIDListTest {
+  @Test
+  public void json() throws Exception {
+    UUIDList list = new UUIDList(asList(UUID.randomUUID(), UUID.randomUUID()));
+    String json = PassportClient.objectMapper.writeValueAsString(list);
+    assertEquals(json, "[\"" + list.get(0) + "\",\"" + list.get(1) + "\"]");
+    assertEquals(PassportClient.objectMapper.readValue(json, UUIDList.class), list);
+  }
+
+  @Test
+  public void setOperations() {
+    UUIDList first = list(1, 2, 3, 3, 4);
+    UUIDList second = list(3, 4, 5);
+    assertEquals(UUIDList.union(first, second), list(1, 2, 3, 4, 5));
+    assertEquals(UUIDList.intersection(first, second), list(3, 4));
+    assertEquals(UUIDList.difference(first, second), list(1, 2));
+  }
+
+  @Test
+  public void sort() {
+    Random random = new Random(42);
+    UUIDList list = new UUIDList();
+    List<UUID> expected = new ArrayList<>();
+    for (int i = 0; i < 1000; i++) {
+      UUID id = new UUID(random.nextLong(), random.nextLong());
+      list.add(id);
+      expected.add(id);
+    }
+
+    assertEquals(list.hashCode(), expected.hashCode());
+    list.sort();
+    Collections.sort(expected);
+    assertEquals(list, expected);
+    assertTrue(list.isSorted());
+    assertEquals(list.binarySearch(expected.get(500)), 500);
+    assertTrue(list.binarySearch(new UUID(Long.MAX_VALUE, Long.MAX_VALUE)) < 0);
+  }
+
+  private UUIDList list(long... ids) {
+    UUIDList list = new UUIDList();
+    for (long id : ids) {
+      list.add(0L, id);
+    }
+    return list;
+  }
+}